@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.benchmarks;
+
+import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.converters.AbstractConverter;
+import org.geysermc.packconverter.api.storage.MemoryPackStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every entry of a converters default data against a freshly extracted pack
+ * The pack is extracted in memory so the measurement is mostly decoding, converting and encoding
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public abstract class ConverterBenchmark {
+
+    private Path pack;
+    private Path output;
+
+    private PackConverter packConverter;
+
+    /**
+     * @return The resolution to generate the pack at
+     */
+    protected abstract int getResolution();
+
+    /**
+     * @return Paths of the textures the converter reads and their size in a 16x pack
+     */
+    protected abstract Map<String, Integer> getTextures();
+
+    /**
+     * @return The converters default data
+     */
+    protected abstract List<Object[]> getDefaultData();
+
+    /**
+     * Create the converter to benchmark
+     *
+     * @param packConverter Pack converter the pack was extracted with
+     * @param storage Location of the extracted pack
+     * @param data Default data entry to convert
+     * @return The new converter
+     */
+    protected abstract AbstractConverter create(PackConverter packConverter, Path storage, Object[] data);
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        pack = SyntheticPacks.create(getClass().getSimpleName(), getResolution(), getTextures());
+        output = Files.createTempFile("packconverter-benchmark", ".mcpack");
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws IOException {
+        packConverter = new PackConverter(pack, output, 1, new MemoryPackStorage());
+        packConverter.setOnLogListener(() -> { });
+    }
+
+    @Benchmark
+    public List<AbstractConverter> convert() throws IOException {
+        List<AbstractConverter> additionalConverters = new ArrayList<>();
+        for (Object[] data : getDefaultData()) {
+            additionalConverters.addAll(create(packConverter, packConverter.getTmpDir(), data).convert());
+        }
+
+        // Include encoding the images the converters wrote
+        packConverter.getImageCache().flush();
+
+        return additionalConverters;
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        packConverter.cleanup();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        Files.deleteIfExists(output);
+    }
+}
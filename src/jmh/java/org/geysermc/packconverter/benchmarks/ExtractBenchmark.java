@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.benchmarks;
+
+import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.storage.DiskPackStorage;
+import org.geysermc.packconverter.api.storage.MemoryPackStorage;
+import org.geysermc.packconverter.api.storage.PackStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures extracting the pack in the {@link PackConverter} constructor
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExtractBenchmark {
+
+    @Param({"16", "64", "512"})
+    public int resolution;
+
+    @Param({"disk", "memory"})
+    public String storage;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Path pack;
+    private Path output;
+
+    private PackConverter packConverter;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        pack = SyntheticPacks.createPack(resolution);
+        output = Files.createTempFile("packconverter-benchmark", ".mcpack");
+    }
+
+    @Benchmark
+    public PackConverter extract() throws IOException {
+        PackStorage packStorage = storage.equals("memory") ? new MemoryPackStorage() : new DiskPackStorage();
+
+        packConverter = new PackConverter(pack, output, threads, packStorage);
+        packConverter.setOnLogListener(() -> { });
+
+        return packConverter;
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        if (packConverter != null) {
+            packConverter.cleanup();
+            packConverter = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        Files.deleteIfExists(output);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.benchmarks;
+
+import org.geysermc.packconverter.api.utils.ImageUtils;
+import org.geysermc.packconverter.api.utils.PngDecoder;
+import org.geysermc.packconverter.api.utils.PngEncoder;
+import org.geysermc.packconverter.api.utils.TgaEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImageUtilsBenchmark {
+
+    @Param({"16", "64", "512"})
+    public int resolution;
+
+    private byte[] png;
+    private BufferedImage image;
+
+    @Setup
+    public void setup() throws IOException {
+        // Round trip through a png so the image has the same type the converters see
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(SyntheticPacks.texture(resolution, resolution), "png", bytes);
+        png = bytes.toByteArray();
+        image = PngDecoder.decode(png);
+    }
+
+    @Benchmark
+    public BufferedImage decodePng() throws IOException {
+        return PngDecoder.decode(png);
+    }
+
+    @Benchmark
+    public BufferedImage decodeImageIO() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+
+    @Benchmark
+    public byte[] encodePngFast() {
+        return PngEncoder.FAST.encode(image);
+    }
+
+    @Benchmark
+    public byte[] encodePngDefault() {
+        return PngEncoder.DEFAULT.encode(image);
+    }
+
+    @Benchmark
+    public byte[] encodePngSmall() {
+        return PngEncoder.SMALL.encode(image);
+    }
+
+    @Benchmark
+    public byte[] encodeImageIO() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeTga() {
+        return TgaEncoder.RAW.encode(image);
+    }
+
+    @Benchmark
+    public byte[] encodeTgaRle() {
+        return TgaEncoder.RLE.encode(image);
+    }
+
+    @Benchmark
+    public byte[] encodeTgaImageIO() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "tga", bytes);
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public BufferedImage grayscale() {
+        return ImageUtils.grayscale(image);
+    }
+
+    @Benchmark
+    public BufferedImage colorize() {
+        return ImageUtils.colorize(image, new Color(71, 205, 51));
+    }
+
+    @Benchmark
+    public BufferedImage saturate() {
+        return ImageUtils.saturate(image, -100);
+    }
+
+    @Benchmark
+    public BufferedImage scale() {
+        return ImageUtils.scale(image, 2f);
+    }
+
+    @Benchmark
+    public BufferedImage rotate() {
+        return ImageUtils.rotate(image, 90);
+    }
+
+    @Benchmark
+    public BufferedImage crop() {
+        return ImageUtils.crop(image, 0, 0, resolution / 2, resolution / 2);
+    }
+
+    @Benchmark
+    public boolean isEmptyArea() {
+        return ImageUtils.isEmptyArea(image, 0, 0, resolution / 2, resolution / 2);
+    }
+
+    @Benchmark
+    public BufferedImage copy() {
+        return ImageUtils.copy(image);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.benchmarks;
+
+import org.geysermc.packconverter.api.utils.PixelKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The masking pixel kernels with plain loops, see {@link VectorPixelKernelsBenchmark} for the same kernels on SIMD instructions
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PixelKernelsBenchmark {
+
+    @Param({"512", "1024"})
+    public int resolution;
+
+    private BufferedImage image;
+    private BufferedImage overlay;
+    private BufferedImage target;
+
+    @Setup
+    public void setup() {
+        image = SyntheticPacks.texture(resolution, resolution);
+        overlay = SyntheticPacks.texture(resolution, resolution + 1);
+        target = new BufferedImage(resolution, resolution, BufferedImage.TYPE_INT_ARGB);
+
+        if (PixelKernels.isVectorized() != this instanceof VectorPixelKernelsBenchmark) {
+            throw new IllegalStateException("Vector API is " + (PixelKernels.isVectorized() ? "" : "not ") + "in use");
+        }
+    }
+
+    @Benchmark
+    public BufferedImage replaceTransparent() {
+        PixelKernels.apply(image, target, (src, srcOffset, dst, dstOffset, length) -> PixelKernels.replaceTransparent(src, srcOffset, dst, dstOffset, length, 0x00FFFFFF));
+        return target;
+    }
+
+    @Benchmark
+    public BufferedImage maskOverlay() {
+        PixelKernels.apply(image, overlay, target, (src, srcOffset, other, otherOffset, dst, dstOffset, length) -> PixelKernels.maskOverlay(src, srcOffset, other, otherOffset, dst, dstOffset, length, false));
+        return target;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.benchmarks;
+
+import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.converters.AbstractConverter;
+import org.geysermc.packconverter.api.converters.SpriteConverter;
+import org.openjdk.jmh.annotations.Param;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SpriteConverterBenchmark extends ConverterBenchmark {
+
+    // The banner and particle sheets are 16384px square images at 512x
+    // which doesn't fit in the default heap so it is left out
+    @Param({"16", "64"})
+    public int resolution;
+
+    @Override
+    protected int getResolution() {
+        return resolution;
+    }
+
+    @Override
+    protected Map<String, Integer> getTextures() {
+        Map<String, Integer> textures = new LinkedHashMap<>();
+        for (Object[] data : SpriteConverter.getDefaultData()) {
+            for (Object sprite : (Object[]) data[2]) {
+                Object[] spriteArr = (Object[]) sprite;
+                textures.put((String) spriteArr[0], (int) spriteArr[3]);
+            }
+        }
+
+        return textures;
+    }
+
+    @Override
+    protected List<Object[]> getDefaultData() {
+        return SpriteConverter.getDefaultData();
+    }
+
+    @Override
+    protected AbstractConverter create(PackConverter packConverter, Path storage, Object[] data) {
+        return new SpriteConverter(packConverter, storage, data);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.benchmarks;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates the packs used by the benchmarks
+ * Packs are cached in the temp folder so they are only generated once for every fork and run
+ */
+public class SyntheticPacks {
+
+    // Bump when the generated content changes so old cached packs aren't used
+    private static final int VERSION = 1;
+
+    public static final Path DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "packconverter-benchmarks");
+
+    /**
+     * Get a pack that looks like a regular resource pack at the given resolution
+     * It has block and entity textures, models and sounds in the Java layout
+     *
+     * @param resolution Texture resolution of the pack, 16 for vanilla sized textures
+     * @return The pack zip
+     * @throws IOException If the pack couldn't be generated
+     */
+    public static Path createPack(int resolution) throws IOException {
+        Map<String, Integer> textures = new LinkedHashMap<>();
+        for (int i = 0; i < 128; i++) {
+            textures.put(String.format("assets/minecraft/textures/block/synthetic_%s.png", i), 16);
+        }
+        for (int i = 0; i < 16; i++) {
+            textures.put(String.format("assets/minecraft/textures/entity/synthetic_%s.png", i), 64);
+        }
+
+        return create("pack", resolution, textures, true);
+    }
+
+    /**
+     * Get a pack with only the given textures in it
+     *
+     * @param name Name to cache the pack under
+     * @param resolution Texture resolution of the pack, 16 for vanilla sized textures
+     * @param textures Paths of the textures and their size in a 16x pack
+     * @return The pack zip
+     * @throws IOException If the pack couldn't be generated
+     */
+    public static Path create(String name, int resolution, Map<String, Integer> textures) throws IOException {
+        return create(name, resolution, textures, false);
+    }
+
+    private static Path create(String name, int resolution, Map<String, Integer> textures, boolean extras) throws IOException {
+        Path zip = DIRECTORY.resolve(String.format("%s-%sx-v%s.zip", name, resolution, VERSION));
+        if (Files.exists(zip)) {
+            return zip;
+        }
+
+        Files.createDirectories(DIRECTORY);
+        Path tmpZip = Files.createTempFile(DIRECTORY, name, ".tmp");
+
+        Random random = new Random(resolution);
+        try (ZipOutputStream zipStream = new ZipOutputStream(Files.newOutputStream(tmpZip))) {
+            put(zipStream, "pack.mcmeta", "{\"pack\": {\"pack_format\": 6, \"description\": \"Synthetic benchmark pack\"}}".getBytes(StandardCharsets.UTF_8));
+
+            for (Map.Entry<String, Integer> texture : textures.entrySet()) {
+                zipStream.putNextEntry(new ZipEntry(texture.getKey()));
+                ImageIO.write(texture(texture.getValue() * resolution / 16, random.nextLong()), "png", new NonClosingOutputStream(zipStream));
+                zipStream.closeEntry();
+            }
+
+            if (extras) {
+                for (int i = 0; i < 64; i++) {
+                    put(zipStream, String.format("assets/minecraft/models/block/synthetic_%s.json", i), String.format("{\"parent\": \"block/cube_all\", \"textures\": {\"all\": \"block/synthetic_%s\"}}", i).getBytes(StandardCharsets.UTF_8));
+                }
+
+                // Sounds are already compressed so random data is close enough
+                for (int i = 0; i < 16; i++) {
+                    byte[] sound = new byte[32 * 1024];
+                    random.nextBytes(sound);
+                    put(zipStream, String.format("assets/minecraft/sounds/synthetic/sound_%s.ogg", i), sound);
+                }
+            }
+        }
+
+        Files.move(tmpZip, zip, StandardCopyOption.REPLACE_EXISTING);
+        return zip;
+    }
+
+    /**
+     * Create an image that compresses and converts roughly like a real texture
+     * It has gradients, some noise, fully transparent areas and semi transparent edges
+     *
+     * @param size Width and height of the image
+     * @param seed Seed for the noise and colors
+     * @return The generated image
+     */
+    public static BufferedImage texture(int size, long seed) {
+        Random random = new Random(seed);
+        int baseRed = random.nextInt(256);
+        int baseGreen = random.nextInt(256);
+        int baseBlue = random.nextInt(256);
+        int cell = Math.max(1, size / 8);
+
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        int[] row = new int[size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int noise = random.nextInt(16);
+                int red = (baseRed + x * 64 / size + noise) & 0xFF;
+                int green = (baseGreen + y * 64 / size + noise) & 0xFF;
+                int blue = (baseBlue + (x + y) * 32 / size) & 0xFF;
+
+                int alpha = 255;
+                int cellX = x / cell;
+                int cellY = y / cell;
+                if ((cellX + cellY * 3) % 7 == 0) {
+                    alpha = 0;
+                } else if ((cellX + cellY) % 5 == 0) {
+                    alpha = 128 + noise;
+                }
+
+                row[x] = (alpha << 24) | (red << 16) | (green << 8) | blue;
+            }
+            image.setRGB(0, y, size, 1, row, 0, size);
+        }
+
+        return image;
+    }
+
+    private static void put(ZipOutputStream zipStream, String name, byte[] data) throws IOException {
+        zipStream.putNextEntry(new ZipEntry(name));
+        zipStream.write(data);
+        zipStream.closeEntry();
+    }
+
+    /**
+     * Stops ImageIO from closing the zip stream after writing an entry
+     */
+    private static class NonClosingOutputStream extends OutputStream {
+        private final OutputStream stream;
+
+        private NonClosingOutputStream(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            stream.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            stream.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.flush();
+        }
+    }
+}
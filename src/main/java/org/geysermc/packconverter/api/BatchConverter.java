@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.geysermc.packconverter.api.metrics.ConversionMetrics;
+import org.geysermc.packconverter.api.storage.DiskPackStorage;
+import org.geysermc.packconverter.api.storage.PackStorage;
+import org.geysermc.packconverter.api.utils.ConversionCache;
+import org.geysermc.packconverter.api.utils.MemoryBudget;
+import org.geysermc.packconverter.api.utils.OnLogListener;
+import org.geysermc.packconverter.api.utils.PngEncoder;
+import org.geysermc.packconverter.api.utils.TgaEncoder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Converts many packs in a single JVM, sharing the loaded image plugins and converter data between them
+ * Packs are converted concurrently, each with its own share of the available threads
+ */
+public class BatchConverter {
+
+    private final int parallelism;
+    private final int threads;
+    private final PackStorage storage;
+    private final boolean streaming;
+
+    /**
+     * Folder to write the converted packs to, or null to write them next to their input
+     */
+    @Getter
+    @Setter
+    private Path outputDirectory;
+
+    /**
+     * Write the metrics of every pack as json next to its output, see {@link ConversionMetrics#writeJson(Path)}
+     */
+    @Getter
+    @Setter
+    private boolean writeMetrics;
+
+    /**
+     * Deflate level of the output zips from 0 to 9, see {@link java.util.zip.Deflater}
+     */
+    @Getter
+    @Setter
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Encoder for the PNG images written by the converters, see {@link PngEncoder#FAST} and {@link PngEncoder#SMALL}
+     */
+    @Getter
+    @Setter
+    private PngEncoder pngEncoder = PngEncoder.DEFAULT;
+
+    /**
+     * Encoder for the TGA images written by the converters, see {@link TgaEncoder#RLE}
+     */
+    @Getter
+    @Setter
+    private TgaEncoder tgaEncoder = TgaEncoder.RAW;
+
+    /**
+     * Cache shared by every pack to reuse converter outputs from, null runs every converter
+     */
+    @Getter
+    @Setter
+    private ConversionCache conversionCache;
+
+    /**
+     * Budget on the decoded pixels held in memory shared by every pack, null leaves memory unbounded
+     */
+    @Getter
+    @Setter
+    private MemoryBudget memoryBudget;
+
+    @Setter
+    private OnLogListener onLogListener;
+
+    /**
+     * @param parallelism Amount of packs to convert at the same time
+     */
+    public BatchConverter(int parallelism) {
+        this(parallelism, Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, parallelism)), new DiskPackStorage(), false);
+    }
+
+    /**
+     * @param parallelism Amount of packs to convert at the same time
+     * @param threads Amount of threads every pack is extracted and converted with
+     * @param storage Where to extract and convert the packs
+     * @param streaming Only extract the files the converters read, see {@link PackConverter}
+     */
+    public BatchConverter(int parallelism, int threads, PackStorage storage, boolean streaming) {
+        this.parallelism = Math.max(1, parallelism);
+        this.threads = threads;
+        this.storage = storage;
+        this.streaming = streaming;
+    }
+
+    /**
+     * Find every zip directly inside a folder
+     *
+     * @param directory Folder to search
+     * @return The zips, sorted by name
+     * @throws IOException If the folder couldn't be listed
+     */
+    public static List<Path> findPacks(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> Files.isRegularFile(file) && file.toString().endsWith(".zip"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Get the location a pack is converted to
+     *
+     * @param input Java pack zip
+     * @return The output mcpack
+     */
+    public Path getOutput(Path input) {
+        Path output = input.resolveSibling(input.getFileName().toString().replaceFirst("[.][^.]+$", ".mcpack"));
+        return outputDirectory != null ? outputDirectory.resolve(output.getFileName().toString()) : output;
+    }
+
+    /**
+     * Get the location the item mappings of a pack's custom model data are written to
+     *
+     * @param output Output mcpack of the pack
+     * @return The item mappings file next to the output
+     */
+    public Path getItemMappingsFile(Path output) {
+        return output.resolveSibling(output.getFileName().toString().replaceFirst("[.][^.]+$", "_item_mappings.json"));
+    }
+
+    /**
+     * Convert every pack, a pack that fails doesn't stop the others
+     *
+     * @param packs Java pack zips to convert
+     * @return The report of every pack, in the order they were given in
+     */
+    public BatchReport convert(List<Path> packs) {
+        long start = System.nanoTime();
+
+        // Warm up once up front so the packs don't all do it at the same time
+        PackConverter.loadPlugins();
+        ConverterHandler.preload();
+
+        List<BatchReport.PackResult> results = new ArrayList<>();
+        if (parallelism <= 1) {
+            for (Path pack : packs) {
+                results.add(convert(pack));
+            }
+            return new BatchReport(results, System.nanoTime() - start);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<BatchReport.PackResult>> futures = new ArrayList<>();
+            for (Path pack : packs) {
+                futures.add(executor.submit(() -> convert(pack)));
+            }
+
+            for (Future<BatchReport.PackResult> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Every failure is caught and reported per pack
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new BatchReport(results, System.nanoTime() - start);
+    }
+
+    private BatchReport.PackResult convert(Path input) {
+        Path output = getOutput(input);
+        long start = System.nanoTime();
+
+        PackConverter packConverter = null;
+        try {
+            packConverter = new PackConverter(input, output, threads, storage, streaming);
+            // Output of concurrent packs would be interleaved, so only the batch logs
+            packConverter.setOnLogListener(() -> { });
+            packConverter.setConversionCache(conversionCache);
+            packConverter.setMemoryBudget(memoryBudget);
+            packConverter.setCompressionLevel(compressionLevel);
+            packConverter.setPngEncoder(pngEncoder);
+            packConverter.setTgaEncoder(tgaEncoder);
+            // Packs in the same folder would overwrite each other's item_mappings.json
+            packConverter.setItemMappingsFile(getItemMappingsFile(output));
+
+            packConverter.convert();
+            packConverter.pack();
+
+            if (writeMetrics) {
+                packConverter.getMetrics().writeJson(output.resolveSibling(output.getFileName().toString().replaceFirst("[.][^.]+$", "_metrics.json")));
+            }
+
+            BatchReport.PackResult result = new BatchReport.PackResult(input, output, System.nanoTime() - start, packConverter.getMetrics(), null);
+            log(String.format("Converted %s in %sms", input.getFileName(), Math.round(result.getTotalTimeMillis())));
+            return result;
+        } catch (Exception e) {
+            log(String.format("Failed to convert %s: %s", input.getFileName(), e));
+            return new BatchReport.PackResult(input, output, System.nanoTime() - start, packConverter != null ? packConverter.getMetrics() : null, e.toString());
+        } finally {
+            if (packConverter != null) {
+                packConverter.cleanup();
+            }
+        }
+    }
+
+    private void log(String message) {
+        if (onLogListener != null) {
+            onLogListener.onLog();
+        } else {
+            System.out.println(message);
+        }
+    }
+}
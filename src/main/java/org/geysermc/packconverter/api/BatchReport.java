@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.Getter;
+import org.geysermc.packconverter.api.metrics.ConversionMetrics;
+import org.geysermc.packconverter.api.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of a {@link BatchConverter} run with the timings of every pack
+ */
+@JsonPropertyOrder({"packs", "succeeded", "failed", "totalTimeMillis", "results"})
+public class BatchReport {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Getter
+    private final List<PackResult> results;
+
+    @JsonIgnore
+    @Getter
+    private final long totalTime;
+
+    public BatchReport(List<PackResult> results, long totalTime) {
+        this.results = Collections.unmodifiableList(results);
+        this.totalTime = totalTime;
+    }
+
+    public int getPacks() {
+        return results.size();
+    }
+
+    public int getSucceeded() {
+        return (int) results.stream().filter(PackResult::isSuccess).count();
+    }
+
+    public int getFailed() {
+        return getPacks() - getSucceeded();
+    }
+
+    /**
+     * @return Wall clock time of the whole batch in milliseconds
+     */
+    public double getTotalTimeMillis() {
+        return totalTime / 1_000_000d;
+    }
+
+    /**
+     * @return A table with the phase timings of every pack
+     */
+    @JsonIgnore
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%-40s %10s %10s %10s %10s  %s%n", "Pack", "Extract", "Convert", "Pack", "Total", "Result"));
+        for (PackResult result : results) {
+            summary.append(String.format("%-40s %8.0fms %8.0fms %8.0fms %8.0fms  %s%n",
+                    result.getInput().getFileName(),
+                    result.getPhaseMillis(ConversionMetrics.EXTRACT),
+                    result.getPhaseMillis(ConversionMetrics.CONVERT),
+                    result.getPhaseMillis(ConversionMetrics.PACK),
+                    result.getTotalTimeMillis(),
+                    result.isSuccess() ? "OK" : result.getError()));
+        }
+        summary.append(String.format("Converted %s of %s packs in %.0fms", getSucceeded(), getPacks(), getTotalTimeMillis()));
+        return summary.toString();
+    }
+
+    /**
+     * @return The report as a JSON document
+     * @throws IOException If the report couldn't be serialized
+     */
+    public String toJson() throws IOException {
+        return MAPPER.writeValueAsString(this);
+    }
+
+    /**
+     * Write the report as a JSON document
+     *
+     * @param file File to write to
+     * @throws IOException If the file couldn't be written
+     */
+    public void writeJson(Path file) throws IOException {
+        Files.writeString(file, toJson());
+    }
+
+    @JsonPropertyOrder({"input", "output", "success", "error", "totalTimeMillis", "phases"})
+    public static class PackResult {
+
+        @JsonSerialize(using = ToStringSerializer.class)
+        @Getter
+        private final Path input;
+
+        @JsonSerialize(using = ToStringSerializer.class)
+        @Getter
+        private final Path output;
+
+        @JsonIgnore
+        @Getter
+        private final long totalTime;
+
+        @JsonIgnore
+        @Getter
+        private final ConversionMetrics metrics;
+
+        /**
+         * The failure, or null if the pack was converted
+         */
+        @Getter
+        private final String error;
+
+        public PackResult(Path input, Path output, long totalTime, ConversionMetrics metrics, String error) {
+            this.input = input;
+            this.output = output;
+            this.totalTime = totalTime;
+            this.metrics = metrics;
+            this.error = error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * @return Wall clock time of the whole pack in milliseconds
+         */
+        public double getTotalTimeMillis() {
+            return totalTime / 1_000_000d;
+        }
+
+        /**
+         * @param phase Name of the phase, see {@link ConversionMetrics}
+         * @return Wall clock time of the phase in milliseconds, 0 if it didn't run
+         */
+        public double getPhaseMillis(String phase) {
+            if (metrics == null) {
+                return 0;
+            }
+
+            Metrics phaseMetrics = metrics.getPhases().get(phase);
+            return phaseMetrics != null ? phaseMetrics.getWallTimeMillis() : 0;
+        }
+
+        /**
+         * @return Metrics of every phase of the pack that ran
+         */
+        public Map<String, Metrics> getPhases() {
+            return metrics != null ? metrics.getPhases() : Collections.emptyMap();
+        }
+    }
+}
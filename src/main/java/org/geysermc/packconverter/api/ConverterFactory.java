@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api;
+
+import org.geysermc.packconverter.api.converters.AbstractConverter;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Creates the converters of a single converter class, see {@link ConverterHandler}
+ * Converters outside of this library are picked up by listing their factory in
+ * META-INF/services/org.geysermc.packconverter.api.ConverterFactory
+ */
+public interface ConverterFactory {
+
+    /**
+     * @return The class of the converters this factory creates
+     */
+    Class<? extends AbstractConverter> getConverterClass();
+
+    /**
+     * @return The data of every converter to run on a pack
+     */
+    List<Object[]> getDefaultData();
+
+    /**
+     * Create a converter
+     *
+     * @param packConverter Conversion the converter is part of
+     * @param storage Root of the pack
+     * @param data Data of the converter, usually one of {@link #getDefaultData()}
+     * @return The converter
+     */
+    AbstractConverter create(PackConverter packConverter, Path storage, Object[] data);
+
+    /**
+     * Create a factory for a converter class from its default data and constructor
+     *
+     * @param converterClass Class of the converters
+     * @param defaultData Supplies the data of every converter to run on a pack
+     * @param creator Constructor of the converter, usually a constructor reference
+     * @return The factory
+     */
+    static <T extends AbstractConverter> ConverterFactory of(Class<T> converterClass, Supplier<List<Object[]>> defaultData, Creator<T> creator) {
+        return new ConverterFactory() {
+            @Override
+            public Class<? extends AbstractConverter> getConverterClass() {
+                return converterClass;
+            }
+
+            @Override
+            public List<Object[]> getDefaultData() {
+                return defaultData.get();
+            }
+
+            @Override
+            public AbstractConverter create(PackConverter packConverter, Path storage, Object[] data) {
+                return creator.create(packConverter, storage, data);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface Creator<T extends AbstractConverter> {
+        T create(PackConverter packConverter, Path storage, Object[] data);
+    }
+}
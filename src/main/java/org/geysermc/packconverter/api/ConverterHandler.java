@@ -28,71 +28,156 @@ package org.geysermc.packconverter.api;
 
 import org.geysermc.packconverter.api.converters.*;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 public class ConverterHandler {
-    public static final List<Class<? extends AbstractConverter>> converterList = new ArrayList<>();
+    private static final List<Class<? extends AbstractConverter>> converterClasses = new CopyOnWriteArrayList<>();
+
+    /**
+     * Classes of the registered converters in the order they run, see {@link #getFactories()}
+     * Read only, converters are added with {@link #register(ConverterFactory)} and removed with {@link #unregister(Class)}
+     */
+    public static final List<Class<? extends AbstractConverter>> converterList = Collections.unmodifiableList(converterClasses);
+
+    private static final List<ConverterFactory> factories = new CopyOnWriteArrayList<>();
 
     public static boolean enableExperimental = false;
 
     static {
-        converterList.add(FixWrongRootFolderConverter.class);
-        converterList.add(MetadataConverter.class);
-        converterList.add(RenameConverter.class);
-        converterList.add(AtlasConverter.class);
-        converterList.add(BannerPatternConverter.class);
-        converterList.add(BedConverter.class);
-        converterList.add(ChestNormalConverter.class);
-        converterList.add(ChestLeftRightDoubleConverter.class);
-        converterList.add(ChestFrontConverter.class);
-        converterList.add(ChestSideConverter.class);
-        converterList.add(DrownedConverter.class);
-        converterList.add(DolphinConverter.class);
-        converterList.add(FireworksConverter.class);
-        converterList.add(FishHookConverter.class);
-        converterList.add(FoxConverter.class);
-        converterList.add(HorseConverter.class);
-        converterList.add(IconsConverter.class);
-        converterList.add(BannerPatternBlackConverter.class);
-        converterList.add(MapIconsConverter.class);
-        converterList.add(PistonArmConverter.class);
-        converterList.add(RedstoneDustConverter.class);
-        converterList.add(SheepConverter.class);
-        converterList.add(VillagerConverter.class);
-        converterList.add(TurtleConverter.class);
-        converterList.add(WeatherConverter.class);
-        converterList.add(OpaqueConverter.class);
-        converterList.add(WaterConverter.class);
-        converterList.add(BeeConverter.class);
-        converterList.add(TitleConverter.class);
-        converterList.add(DespriteConverter.class);
+        register(FixWrongRootFolderConverter.class, FixWrongRootFolderConverter::getDefaultData, FixWrongRootFolderConverter::new);
+        register(MetadataConverter.class, MetadataConverter::getDefaultData, MetadataConverter::new);
+        register(RenameConverter.class, RenameConverter::getBatchData, RenameConverter::new);
+        register(AtlasConverter.class, AtlasConverter::getDefaultData, AtlasConverter::new);
+        register(BannerPatternConverter.class, BannerPatternConverter::getDefaultData, BannerPatternConverter::new);
+        register(BedConverter.class, BedConverter::getDefaultData, BedConverter::new);
+        register(ChestNormalConverter.class, ChestNormalConverter::getDefaultData, ChestNormalConverter::new);
+        register(ChestLeftRightDoubleConverter.class, ChestLeftRightDoubleConverter::getDefaultData, ChestLeftRightDoubleConverter::new);
+        register(ChestFrontConverter.class, ChestFrontConverter::getDefaultData, ChestFrontConverter::new);
+        register(ChestSideConverter.class, ChestSideConverter::getDefaultData, ChestSideConverter::new);
+        register(DrownedConverter.class, DrownedConverter::getDefaultData, DrownedConverter::new);
+        register(DolphinConverter.class, DolphinConverter::getDefaultData, DolphinConverter::new);
+        register(FireworksConverter.class, FireworksConverter::getDefaultData, FireworksConverter::new);
+        register(FishHookConverter.class, FishHookConverter::getDefaultData, FishHookConverter::new);
+        register(FoxConverter.class, FoxConverter::getDefaultData, FoxConverter::new);
+        register(HorseConverter.class, HorseConverter::getDefaultData, HorseConverter::new);
+        register(IconsConverter.class, IconsConverter::getDefaultData, IconsConverter::new);
+        register(BannerPatternBlackConverter.class, BannerPatternBlackConverter::getDefaultData, BannerPatternBlackConverter::new);
+        register(MapIconsConverter.class, MapIconsConverter::getDefaultData, MapIconsConverter::new);
+        register(PistonArmConverter.class, PistonArmConverter::getDefaultData, PistonArmConverter::new);
+        register(RedstoneDustConverter.class, RedstoneDustConverter::getDefaultData, RedstoneDustConverter::new);
+        register(SheepConverter.class, SheepConverter::getDefaultData, SheepConverter::new);
+        register(VillagerConverter.class, VillagerConverter::getDefaultData, VillagerConverter::new);
+        register(TurtleConverter.class, TurtleConverter::getDefaultData, TurtleConverter::new);
+        register(WeatherConverter.class, WeatherConverter::getDefaultData, WeatherConverter::new);
+        register(OpaqueConverter.class, OpaqueConverter::getDefaultData, OpaqueConverter::new);
+        register(WaterConverter.class, WaterConverter::getDefaultData, WaterConverter::new);
+        register(BeeConverter.class, BeeConverter::getDefaultData, BeeConverter::new);
+        register(TitleConverter.class, TitleConverter::getDefaultData, TitleConverter::new);
+        register(DespriteConverter.class, DespriteConverter::getDefaultData, DespriteConverter::new);
         if (enableExperimental) { // Experimental
-            converterList.add(DespriteExperimentalConverter.class);
+            register(DespriteExperimentalConverter.class, DespriteExperimentalConverter::getDefaultData, DespriteExperimentalConverter::new);
         }
-        converterList.add(BarConverter.class);
+        register(BarConverter.class, BarConverter::getDefaultData, BarConverter::new);
         if (enableExperimental) { // Experimental
-            converterList.add(NineSliceConverter.class);
+            register(NineSliceConverter.class, NineSliceConverter::getDefaultData, NineSliceConverter::new);
         }
         /*if (enableExperimental) { // Experimental TODO: Finish
-            converterList.add(DialogConverter.class);
+            register(DialogConverter.class, DialogConverter::getDefaultData, DialogConverter::new);
         }*/
-        converterList.add(OverlayToTranslateConverter.class);
-        converterList.add(ColorizeOverlayConverter.class);
-        converterList.add(PlaceholderConverter.class);
-        converterList.add(SideRotateConverter.class);
-        //converterList.add(ArrowConverter.class); // This is disabled as its broken and the intended output it just the original
-        converterList.add(Particles1_13Converter.class);
-        converterList.add(SpriteConverter.class);
-        converterList.add(DestroyStageConverter.class);
-        converterList.add(EnchantedItemGlintConverter.class);
-        converterList.add(BannerPatternPreviewMaxSizeConverter.class);
-        converterList.add(PngToTgaConverter.class);
-        converterList.add(CopyConverter.class);
+        register(OverlayToTranslateConverter.class, OverlayToTranslateConverter::getDefaultData, OverlayToTranslateConverter::new);
+        register(ColorizeOverlayConverter.class, ColorizeOverlayConverter::getDefaultData, ColorizeOverlayConverter::new);
+        register(PlaceholderConverter.class, PlaceholderConverter::getDefaultData, PlaceholderConverter::new);
+        register(SideRotateConverter.class, SideRotateConverter::getDefaultData, SideRotateConverter::new);
+        //register(ArrowConverter.class, ArrowConverter::getDefaultData, ArrowConverter::new); // This is disabled as its broken and the intended output it just the original
+        register(Particles1_13Converter.class, Particles1_13Converter::getDefaultData, Particles1_13Converter::new);
+        register(SpriteConverter.class, SpriteConverter::getDefaultData, SpriteConverter::new);
+        register(DestroyStageConverter.class, DestroyStageConverter::getDefaultData, DestroyStageConverter::new);
+        register(EnchantedItemGlintConverter.class, EnchantedItemGlintConverter::getDefaultData, EnchantedItemGlintConverter::new);
+        register(BannerPatternPreviewMaxSizeConverter.class, BannerPatternPreviewMaxSizeConverter::getDefaultData, BannerPatternPreviewMaxSizeConverter::new);
+        register(PngToTgaConverter.class, PngToTgaConverter::getDefaultData, PngToTgaConverter::new);
+        register(CopyConverter.class, CopyConverter::getDefaultData, CopyConverter::new);
 
         // Custom, not part of the original lib
-        converterList.add(CustomModelDataConverter.class);
+        register(CustomModelDataConverter.class, CustomModelDataConverter::getDefaultData, CustomModelDataConverter::new);
+
+        Iterator<ConverterFactory> discovered = ServiceLoader.load(ConverterFactory.class).iterator();
+        while (discovered.hasNext()) {
+            try {
+                register(discovered.next());
+            } catch (ServiceConfigurationError e) {
+                // A broken converter shouldn't stop the others from running
+                e.printStackTrace();
+            }
+        }
+
+        register(DeleteConverter.class, DeleteConverter::getDefaultData, DeleteConverter::new);
+    }
+
+    private static <T extends AbstractConverter> void register(Class<T> converterClass, Supplier<List<Object[]>> defaultData, ConverterFactory.Creator<T> creator) {
+        register(ConverterFactory.of(converterClass, defaultData, creator));
+    }
+
+    /**
+     * Register a converter to run on every pack
+     * Converters run in the order they are registered, but always before the Java only files are deleted
+     *
+     * @param factory Factory of the converter
+     */
+    public static synchronized void register(ConverterFactory factory) {
+        int index = factories.size();
+        if (index > 0 && factories.get(index - 1).getConverterClass() == DeleteConverter.class) {
+            index--;
+        }
 
-        converterList.add(DeleteConverter.class);
+        factories.add(index, factory);
+        converterClasses.add(index, factory.getConverterClass());
+    }
+
+    /**
+     * Stop a registered converter from running on packs
+     *
+     * @param converterClass Class of the converter
+     * @return True if the converter was registered
+     */
+    public static synchronized boolean unregister(Class<? extends AbstractConverter> converterClass) {
+        converterClasses.removeIf(registered -> registered == converterClass);
+        return factories.removeIf(factory -> factory.getConverterClass() == converterClass);
+    }
+
+    /**
+     * @return The factories of every registered converter in the order they run
+     */
+    public static List<ConverterFactory> getFactories() {
+        return Collections.unmodifiableList(factories);
+    }
+
+    /**
+     * Get the factory of a registered converter
+     *
+     * @param converterClass Name of the converter class
+     * @return The factory, or null if the converter isn't registered
+     */
+    public static ConverterFactory getFactory(String converterClass) {
+        for (ConverterFactory factory : factories) {
+            if (factory.getConverterClass().getName().equals(converterClass)) {
+                return factory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Load the default data of every converter up front, used to warm up before converting many packs
+     */
+    public static void preload() {
+        for (ConverterFactory factory : factories) {
+            factory.getDefaultData();
+        }
     }
 }
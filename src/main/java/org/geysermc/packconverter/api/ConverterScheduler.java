@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api;
+
+import org.geysermc.packconverter.api.converters.AbstractConverter;
+import org.geysermc.packconverter.api.metrics.ConversionMetrics;
+import org.geysermc.packconverter.api.metrics.Metrics;
+import org.geysermc.packconverter.api.utils.ConversionCache;
+import org.geysermc.packconverter.api.utils.MemoryBudget;
+import org.geysermc.packconverter.api.utils.PackLineage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs converters concurrently where the paths they read and write don't overlap
+ * Converters that do overlap always run in the order they were given in, so the
+ * result is the same as running them one after the other
+ * With a {@link MemoryBudget} every converter runs under its own lease, so converters
+ * wait to start and to decode images while the budget is used up
+ */
+public class ConverterScheduler {
+
+    private final int threads;
+    private final ConversionMetrics metrics;
+    private final ConversionCache conversionCache;
+    private final MemoryBudget memoryBudget;
+
+    /**
+     * @param threads Amount of converters to run at the same time, 1 or less runs them on the calling thread
+     */
+    public ConverterScheduler(int threads) {
+        this(threads, new ConversionMetrics());
+    }
+
+    /**
+     * @param threads Amount of converters to run at the same time, 1 or less runs them on the calling thread
+     * @param metrics Metrics to record the time and I/O of every converter class into
+     */
+    public ConverterScheduler(int threads, ConversionMetrics metrics) {
+        this(threads, metrics, null);
+    }
+
+    /**
+     * @param threads Amount of converters to run at the same time, 1 or less runs them on the calling thread
+     * @param metrics Metrics to record the time and I/O of every converter class into
+     * @param conversionCache Cache to reuse the output of earlier runs from, or null to always run the converters
+     */
+    public ConverterScheduler(int threads, ConversionMetrics metrics, ConversionCache conversionCache) {
+        this(threads, metrics, conversionCache, null);
+    }
+
+    /**
+     * @param threads Amount of converters to run at the same time, 1 or less runs them on the calling thread
+     * @param metrics Metrics to record the time and I/O of every converter class into
+     * @param conversionCache Cache to reuse the output of earlier runs from, or null to always run the converters
+     * @param memoryBudget Budget every converter acquires the images it decodes from, or null to leave memory unbounded
+     */
+    public ConverterScheduler(int threads, ConversionMetrics metrics, ConversionCache conversionCache, MemoryBudget memoryBudget) {
+        this.threads = threads;
+        this.metrics = metrics;
+        this.conversionCache = conversionCache;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Run the given converters
+     *
+     * @param converters Converters to run, in the order they would run sequentially
+     * @return The additional converters returned by the converters, in the same order
+     */
+    public List<AbstractConverter> run(List<AbstractConverter> converters) {
+        List<AbstractConverter> additionalConverters = new ArrayList<>();
+
+        if (threads <= 1) {
+            for (AbstractConverter converter : converters) {
+                additionalConverters.addAll(convert(converter));
+            }
+            return additionalConverters;
+        }
+
+        List<Collection<String>> readPaths = new ArrayList<>(converters.size());
+        List<Collection<String>> writePaths = new ArrayList<>(converters.size());
+        List<CompletableFuture<List<AbstractConverter>>> futures = new ArrayList<>(converters.size());
+
+        // Count the work done on the pool towards the sections of the calling thread
+        Metrics[] current = metrics.current();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int i = 0; i < converters.size(); i++) {
+                AbstractConverter converter = converters.get(i);
+                Collection<String> reads = converter.getReadPaths();
+                Collection<String> writes = converter.getWritePaths();
+
+                // Wait for every earlier converter that touches the same files
+                List<CompletableFuture<?>> dependencies = new ArrayList<>();
+                for (int j = 0; j < i; j++) {
+                    if (overlaps(writePaths.get(j), reads) || overlaps(writePaths.get(j), writes) || overlaps(readPaths.get(j), writes)) {
+                        dependencies.add(futures.get(j));
+                    }
+                }
+
+                readPaths.add(reads);
+                writePaths.add(writes);
+                futures.add(CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                        .thenApplyAsync(ignored -> {
+                            ConversionMetrics.Section section = metrics.attach(current);
+                            try {
+                                return convert(converter);
+                            } finally {
+                                section.close();
+                            }
+                        }, pool));
+            }
+
+            for (CompletableFuture<List<AbstractConverter>> future : futures) {
+                try {
+                    additionalConverters.addAll(future.join());
+                } catch (CompletionException e) {
+                    // Surface the original failure the same way a sequential run would
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return additionalConverters;
+    }
+
+    private List<AbstractConverter> convert(AbstractConverter converter) {
+        PackLineage.Run run = converter.getPackConverter().getLineage().begin(converter.getClass().getSimpleName());
+        ConversionMetrics.Section section = metrics.start(metrics.getConverter(converter.getClass().getSimpleName()));
+        try {
+            MemoryBudget.Lease lease = memoryBudget != null ? memoryBudget.open() : null;
+            try {
+                return conversionCache != null ? conversionCache.convert(converter) : converter.convert();
+            } finally {
+                if (lease != null) {
+                    lease.close();
+                }
+            }
+        } catch (IOException e) {
+            // Only thrown when interrupted while waiting for budget
+            throw new UncheckedIOException(e);
+        } finally {
+            section.close();
+            run.close();
+        }
+    }
+
+    /**
+     * Check if two sets of pack paths overlap, a path also covers anything inside it
+     *
+     * @param a First set of paths, null covers the whole pack
+     * @param b Second set of paths, null covers the whole pack
+     * @return True if any of the paths overlap
+     */
+    private static boolean overlaps(Collection<String> a, Collection<String> b) {
+        if (a == null || b == null) {
+            return true;
+        }
+
+        for (String pathA : a) {
+            for (String pathB : b) {
+                if (pathA.startsWith(pathB) || pathB.startsWith(pathA)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
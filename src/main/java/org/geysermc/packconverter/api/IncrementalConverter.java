@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.geysermc.packconverter.api.metrics.ConversionMetrics;
+import org.geysermc.packconverter.api.storage.DiskPackStorage;
+import org.geysermc.packconverter.api.storage.PackStorage;
+import org.geysermc.packconverter.api.utils.ConversionCache;
+import org.geysermc.packconverter.api.utils.ConversionManifest;
+import org.geysermc.packconverter.api.utils.MemoryBudget;
+import org.geysermc.packconverter.api.utils.OnLogListener;
+import org.geysermc.packconverter.api.utils.PackIndex;
+import org.geysermc.packconverter.api.utils.PackLineage;
+import org.geysermc.packconverter.api.utils.PngEncoder;
+import org.geysermc.packconverter.api.utils.TgaEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Converts a new version of a pack by reusing the output of an earlier conversion
+ *
+ * The {@link ConversionManifest} written next to the earlier output says which input entries every output
+ * entry came from. Only the outputs of changed inputs are converted again, the outputs of deleted inputs
+ * are removed and everything else is copied from the earlier output.
+ */
+public class IncrementalConverter {
+
+    private final Path input;
+    private final Path output;
+    private final Path previous;
+
+    private final int threads;
+    private final PackStorage storage;
+    private final boolean streaming;
+
+    /**
+     * Deflate level of the output zip from 0 to 9, see {@link java.util.zip.Deflater}
+     */
+    @Getter
+    @Setter
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Encoder for the PNG images written by the converters, see {@link PngEncoder#FAST} and {@link PngEncoder#SMALL}
+     */
+    @Getter
+    @Setter
+    private PngEncoder pngEncoder = PngEncoder.DEFAULT;
+
+    /**
+     * Encoder for the TGA images written by the converters, see {@link TgaEncoder#RLE}
+     */
+    @Getter
+    @Setter
+    private TgaEncoder tgaEncoder = TgaEncoder.RAW;
+
+    /**
+     * Persistent cache to reuse converter outputs from, null runs every converter
+     */
+    @Getter
+    @Setter
+    private ConversionCache conversionCache;
+
+    /**
+     * Budget on the decoded pixels held in memory, null leaves memory unbounded
+     */
+    @Getter
+    @Setter
+    private MemoryBudget memoryBudget;
+
+    @Setter
+    private OnLogListener onLogListener;
+
+    /**
+     * Timing and I/O of the last conversion, see {@link PackConverter#getMetrics()}
+     */
+    @Getter
+    private ConversionMetrics metrics;
+
+    /**
+     * Amount of output files converted again by the last conversion
+     */
+    @Getter
+    private int regenerated;
+
+    /**
+     * Amount of output files copied from the earlier output by the last conversion
+     */
+    @Getter
+    private int reused;
+
+    /**
+     * Amount of output files of the earlier output left out by the last conversion
+     */
+    @Getter
+    private int removed;
+
+    /**
+     * @param input Java pack zip to convert
+     * @param output Location to write the converted pack to, may be the same as the earlier output
+     * @param previous Earlier output of the pack, with its manifest next to it
+     */
+    public IncrementalConverter(Path input, Path output, Path previous) {
+        this(input, output, previous, 1, new DiskPackStorage(), false);
+    }
+
+    /**
+     * @param input Java pack zip to convert
+     * @param output Location to write the converted pack to, may be the same as the earlier output
+     * @param previous Earlier output of the pack, with its manifest next to it
+     * @param threads Amount of threads to extract and convert with, see {@link PackConverter}
+     * @param storage Where to extract and convert the pack
+     * @param streaming Only extract the files the converters read, see {@link PackConverter}
+     */
+    public IncrementalConverter(Path input, Path output, Path previous, int threads, PackStorage storage, boolean streaming) {
+        this.input = input;
+        this.output = output;
+        this.previous = previous;
+        this.threads = threads;
+        this.storage = storage;
+        this.streaming = streaming;
+    }
+
+    /**
+     * Convert the pack and write it to the output along with its new manifest
+     * The whole pack is converted if the earlier output or its manifest can't be used
+     *
+     * @throws IOException If any of the packs couldn't be read or written
+     */
+    public void convert() throws IOException {
+        regenerated = 0;
+        reused = 0;
+        removed = 0;
+
+        Path manifestFile = ConversionManifest.getPath(previous);
+        ConversionManifest manifest = null;
+        if (Files.isRegularFile(previous) && Files.isRegularFile(manifestFile)) {
+            manifest = ConversionManifest.read(manifestFile);
+        }
+
+        // Outputs of unknown origin could depend on anything
+        if (manifest == null || manifest.outputs.values().stream().anyMatch(entry -> entry.inputs == null)) {
+            PackConverter packConverter = create(name -> true);
+            try {
+                packConverter.log(String.format("No usable manifest found at %s, converting the whole pack", manifestFile));
+                packConverter.convert();
+                packConverter.getImageCache().flush();
+                regenerated = packConverter.getIndex().getFiles("").size();
+                pack(packConverter);
+            } finally {
+                packConverter.cleanup();
+            }
+            return;
+        }
+
+        Map<String, Long> inputs = ConversionManifest.readInputs(input);
+
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, Long> entry : inputs.entrySet()) {
+            if (!Objects.equals(manifest.inputs.get(entry.getKey()), entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+
+        Set<String> stale = new HashSet<>(changed);
+        for (String name : manifest.inputs.keySet()) {
+            if (!inputs.containsKey(name)) {
+                stale.add(name);
+            }
+        }
+
+        Set<String> dirty = new HashSet<>();
+        for (Map.Entry<String, ConversionManifest.Output> entry : manifest.outputs.entrySet()) {
+            if (intersects(entry.getValue().inputs, stale)) {
+                dirty.add(entry.getKey());
+            }
+        }
+
+        // Converters combine inputs into one output, so every input of an output that is made again is needed
+        Set<String> needed = new HashSet<>(changed);
+        for (String name : inputs.keySet()) {
+            // Needed to find the root folder of the pack
+            if (name.endsWith("pack.mcmeta")) {
+                needed.add(name);
+            }
+        }
+
+        List<Collection<String>> related = new ArrayList<>(manifest.groups);
+        for (ConversionManifest.Output entry : manifest.outputs.values()) {
+            related.add(entry.inputs);
+        }
+
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (Collection<String> group : related) {
+                if (intersects(group, stale) || intersects(group, needed)) {
+                    for (String name : group) {
+                        if (inputs.containsKey(name)) {
+                            grown |= needed.add(name);
+                        }
+                    }
+                }
+            }
+        }
+
+        PackConverter packConverter = create(needed::contains);
+        try {
+            packConverter.log(String.format("%s of %s files changed and %s were deleted since %s", changed.size(), inputs.size(), stale.size() - changed.size(), previous));
+
+            packConverter.convert();
+            packConverter.getImageCache().flush();
+
+            // Keep what came from the changed inputs and what is new, anything else is the same as in the earlier output
+            Path tmpDir = packConverter.getTmpDir();
+            PackLineage lineage = packConverter.getLineage();
+            for (List<String> group : manifest.groups) {
+                // Groups of the converters that ran again were recorded again
+                if (!intersects(group, needed)) {
+                    lineage.addGroup(group);
+                }
+            }
+
+            PackIndex index = packConverter.getIndex();
+            Set<String> kept = new HashSet<>();
+            for (PackIndex.Entry file : index.getFiles("")) {
+                String name = file.getPath();
+                PackLineage.Origin origin = lineage.getOrigin(name);
+                if (dirty.contains(name) || !manifest.outputs.containsKey(name) || origin == null || intersects(origin.getInputs(), changed)) {
+                    kept.add(name);
+                } else {
+                    Files.delete(tmpDir.resolve(name));
+                    index.delete(name);
+                    lineage.delete(name);
+                }
+            }
+
+            try (ZipFile previousZip = new ZipFile(previous.toFile())) {
+                for (Map.Entry<String, ConversionManifest.Output> entry : manifest.outputs.entrySet()) {
+                    String name = entry.getKey();
+                    ZipEntry zipEntry = previousZip.getEntry(name);
+                    if (dirty.contains(name) || kept.contains(name) || zipEntry == null) {
+                        continue;
+                    }
+
+                    Path target = tmpDir.resolve(name);
+                    Files.createDirectories(target.getParent());
+                    try (InputStream stream = previousZip.getInputStream(zipEntry)) {
+                        Files.copy(stream, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    index.add(name, zipEntry.getSize(), zipEntry.getCrc());
+                    lineage.put(name, entry.getValue().toOrigin());
+                    reused++;
+                }
+            }
+
+            regenerated = kept.size();
+            removed = (int) dirty.stream().filter(name -> !kept.contains(name)).count();
+            packConverter.log(String.format("Converted %s files again, reused %s and removed %s", regenerated, reused, removed));
+
+            pack(packConverter);
+        } finally {
+            packConverter.cleanup();
+        }
+    }
+
+    private static void pack(PackConverter packConverter) throws IOException {
+        try {
+            packConverter.pack();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private PackConverter create(Predicate<String> entryFilter) throws IOException {
+        PackConverter packConverter = new PackConverter(input, output, threads, storage, streaming, entryFilter);
+        packConverter.setCompressionLevel(compressionLevel);
+        packConverter.setPngEncoder(pngEncoder);
+        packConverter.setTgaEncoder(tgaEncoder);
+        packConverter.setConversionCache(conversionCache);
+        packConverter.setMemoryBudget(memoryBudget);
+        packConverter.setOnLogListener(onLogListener);
+        metrics = packConverter.getMetrics();
+        return packConverter;
+    }
+
+    private static boolean intersects(Collection<String> a, Set<String> b) {
+        return a != null && a.stream().anyMatch(b::contains);
+    }
+}
@@ -29,20 +29,37 @@ package org.geysermc.packconverter.api;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import lombok.Getter;
 import lombok.Setter;
+import org.geysermc.packconverter.api.metrics.ConversionMetrics;
+import org.geysermc.packconverter.api.metrics.Metrics;
+import org.geysermc.packconverter.api.storage.DiskPackStorage;
+import org.geysermc.packconverter.api.storage.PackStorage;
+import org.geysermc.packconverter.api.utils.ConversionCache;
+import org.geysermc.packconverter.api.utils.ConversionManifest;
+import org.geysermc.packconverter.api.utils.ImageCache;
+import org.geysermc.packconverter.api.utils.MemoryBudget;
 import org.geysermc.packconverter.api.utils.OnLogListener;
+import org.geysermc.packconverter.api.utils.PackIndex;
+import org.geysermc.packconverter.api.utils.PackLineage;
+import org.geysermc.packconverter.api.utils.PngEncoder;
+import org.geysermc.packconverter.api.utils.TgaEncoder;
+import org.geysermc.packconverter.api.utils.ZipEntryPlaceholders;
 import org.geysermc.packconverter.api.utils.ZipUtils;
 import org.geysermc.packconverter.api.converters.AbstractConverter;
 
 import javax.imageio.ImageIO;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.InvocationTargetException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -51,88 +68,363 @@ public class PackConverter {
     @Getter
     private final Map<String, Int2ObjectMap<String>> customModelData = new HashMap<>();
 
+    @Getter
     private Path input;
     private Path output;
 
+    /**
+     * Amount of threads to extract and convert with, 1 or less runs everything on the calling thread
+     */
+    @Getter
+    private int threads;
+    private PackStorage storage;
+
+    @Getter
     private Path tmpDir;
 
+    private ZipEntryPlaceholders placeholders;
+
+    @Getter
+    private final ImageCache imageCache;
+
+    /**
+     * Timing and I/O of the extract, convert and pack phases and of every converter class
+     */
+    @Getter
+    private final ConversionMetrics metrics = new ConversionMetrics();
+
+    /**
+     * Which input entries and converters every file in the pack came from
+     */
+    @Getter
+    private final PackLineage lineage = new PackLineage();
+
+    /**
+     * Every file and folder in the pack, so converters can check for files without going to the disk
+     */
+    @Getter
+    private final PackIndex index = new PackIndex();
+
+    /**
+     * Write a {@link ConversionManifest} next to the output when packing
+     */
+    @Getter
+    @Setter
+    private boolean writeManifest = true;
+
+    /**
+     * File to write the item mappings of custom model data to, null writes item_mappings.json next to the input
+     */
+    @Setter
+    private Path itemMappingsFile;
+
+    /**
+     * Deflate level of the output zip from 0 to 9, see {@link java.util.zip.Deflater}
+     */
+    @Getter
+    @Setter
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Encoder for the PNG images written by the converters, see {@link PngEncoder#FAST} and {@link PngEncoder#SMALL}
+     */
+    @Getter
+    @Setter
+    private PngEncoder pngEncoder = PngEncoder.DEFAULT;
+
+    /**
+     * Encoder for the TGA images written by the converters, see {@link TgaEncoder#RLE}
+     */
+    @Getter
+    @Setter
+    private TgaEncoder tgaEncoder = TgaEncoder.RAW;
+
+    /**
+     * Persistent cache to reuse converter outputs from, null runs every converter
+     */
+    @Getter
+    @Setter
+    private ConversionCache conversionCache;
+
+    /**
+     * Budget on the decoded pixels held in memory, can be shared between packs, null leaves memory unbounded
+     */
+    @Getter
+    private MemoryBudget memoryBudget;
+
     @Setter
     private OnLogListener onLogListener;
 
+    private static volatile boolean pluginsLoaded;
+
     public PackConverter(Path input, Path output) throws IOException {
+        this(input, output, 1);
+    }
+
+    /**
+     * Create a converter for the given pack and extract it
+     *
+     * @param input Java pack zip to convert
+     * @param output Location to write the converted pack to
+     * @param threads Amount of threads to extract and convert with, 1 or less runs everything on the calling thread
+     * @throws IOException If the zip couldn't be read or extracted
+     */
+    public PackConverter(Path input, Path output, int threads) throws IOException {
+        this(input, output, threads, new DiskPackStorage());
+    }
+
+    /**
+     * Create a converter for the given pack and extract it
+     *
+     * @param input Java pack zip to convert
+     * @param output Location to write the converted pack to
+     * @param threads Amount of threads to extract and convert with, 1 or less runs everything on the calling thread
+     * @param storage Where to extract and convert the pack, see {@link org.geysermc.packconverter.api.storage.MemoryPackStorage}
+     * @throws IOException If the zip couldn't be read or extracted
+     */
+    public PackConverter(Path input, Path output, int threads, PackStorage storage) throws IOException {
+        this(input, output, threads, storage, false);
+    }
+
+    /**
+     * Create a converter for the given pack and extract it
+     *
+     * @param input Java pack zip to convert
+     * @param output Location to write the converted pack to
+     * @param threads Amount of threads to extract and convert with, 1 or less runs everything on the calling thread
+     * @param storage Where to extract and convert the pack, see {@link org.geysermc.packconverter.api.storage.MemoryPackStorage}
+     * @param streaming Only extract the files the converters read, everything else is copied
+     *                  straight from the input zip into the output when packing
+     * @throws IOException If the zip couldn't be read or extracted
+     */
+    public PackConverter(Path input, Path output, int threads, PackStorage storage, boolean streaming) throws IOException {
+        this(input, output, threads, storage, streaming, name -> true);
+    }
+
+    /**
+     * Create a converter for the given pack and extract part of it
+     *
+     * @param input Java pack zip to convert
+     * @param output Location to write the converted pack to
+     * @param threads Amount of threads to extract and convert with, 1 or less runs everything on the calling thread
+     * @param storage Where to extract and convert the pack, see {@link org.geysermc.packconverter.api.storage.MemoryPackStorage}
+     * @param streaming Only extract the files the converters read, everything else is copied
+     *                  straight from the input zip into the output when packing
+     * @param entryFilter Filter on the names of the zip entries to extract, see {@link IncrementalConverter}
+     * @throws IOException If the zip couldn't be read or extracted
+     */
+    public PackConverter(Path input, Path output, int threads, PackStorage storage, boolean streaming, Predicate<String> entryFilter) throws IOException {
         this.input = input;
         this.output = output;
+        this.threads = threads;
+        this.storage = storage;
+        this.imageCache = new ImageCache(this, threads);
 
-        // Load any image plugins
-        ImageIO.scanForPlugins();
+        loadPlugins();
 
         // Extract the zip to a temp location
-        // This is quite slow, maybe try and find a faster method?
-        tmpDir = input.toAbsolutePath().getParent().resolve(input.getFileName() + "_mcpack/");
-        ZipFile zipFile = new ZipFile(input.toFile());
-
-        if (Files.exists(tmpDir)) {
-            Stream<Path> walk = Files.walk(tmpDir);
-            walk.sorted(Comparator.reverseOrder())
-                    .map(Path::toFile)
-                    .forEach(File::delete);
+        tmpDir = storage.create(input);
+
+        long start = System.currentTimeMillis();
+        List<String> extracted;
+        ConversionMetrics.Section section = metrics.start(metrics.getPhase(ConversionMetrics.EXTRACT));
+        try {
+            if (streaming) {
+                // The input stays open until cleanup so placeholders can be extracted and copied later on
+                placeholders = new ZipEntryPlaceholders(input);
+                extracted = placeholders.extract(tmpDir, entryFilter, index);
+            } else {
+                try (ZipFile zipFile = new ZipFile(input.toFile())) {
+                    extracted = extract(zipFile, threads, entryFilter);
+                }
+            }
+        } finally {
+            section.close();
         }
 
-        ZipEntry entry;
-        final Enumeration<? extends ZipEntry> entries = zipFile.entries();
-        while (entries.hasMoreElements()) {
-            entry = entries.nextElement();
+        for (String name : extracted) {
+            lineage.extracted(name);
+        }
 
-            if (!entry.isDirectory()) {
-                File newFile = tmpDir.resolve(entry.getName()).toFile();
-                newFile.getParentFile().mkdirs();
+        log(String.format("Extracted %s files in %sms", extracted.size(), System.currentTimeMillis() - start));
+    }
 
-                InputStream fileStream = zipFile.getInputStream(entry);
-                FileOutputStream outStream = new FileOutputStream(newFile);
+    /**
+     * Load any image plugins on the classpath, only done once so many packs can be converted without rescanning
+     */
+    public static void loadPlugins() {
+        if (pluginsLoaded) {
+            return;
+        }
 
-                byte[] buf = new byte[fileStream.available()];
-                int length;
-                while ((length = fileStream.read(buf)) != -1) {
-                    outStream.write(buf, 0, length);
-                }
+        synchronized (PackConverter.class) {
+            if (!pluginsLoaded) {
+                ImageIO.scanForPlugins();
+                pluginsLoaded = true;
+            }
+        }
+    }
+
+    /**
+     * Extract the files in the zip to the temp location
+     *
+     * @param zipFile Zip to extract
+     * @param threads Amount of threads to extract with
+     * @param entryFilter Filter on the names of the entries to extract
+     * @return The names of the extracted entries
+     * @throws IOException If any of the files couldn't be extracted
+     */
+    private List<String> extract(ZipFile zipFile, int threads, Predicate<String> entryFilter) throws IOException {
+        List<ZipEntry> entries = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Set<Path> directories = new HashSet<>();
+        for (ZipEntry entry : Collections.list(zipFile.entries())) {
+            if (!entry.isDirectory() && entryFilter.test(entry.getName())) {
+                entries.add(entry);
+                names.add(entry.getName());
+                index.add(entry.getName(), entry.getSize(), entry.getCrc());
+                directories.add(tmpDir.resolve(entry.getName()).getParent());
+            }
+        }
+
+        // Create each directory once so the files can be written without checking their parents
+        for (Path directory : directories) {
+            Files.createDirectories(directory);
+        }
+
+        if (threads <= 1) {
+            for (ZipEntry entry : entries) {
+                extractEntry(zipFile, entry);
+            }
+            return names;
+        }
+
+        Metrics[] current = metrics.current();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (ZipEntry entry : entries) {
+                futures.add(executor.submit(() -> {
+                    ConversionMetrics.Section section = metrics.attach(current);
+                    try {
+                        extractEntry(zipFile, entry);
+                    } finally {
+                        section.close();
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting " + input, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to extract " + input, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
 
-                outStream.flush();
-                outStream.close();
+        return names;
+    }
+
+    private void extractEntry(ZipFile zipFile, ZipEntry entry) throws IOException {
+        Path file = tmpDir.resolve(entry.getName());
+        try (InputStream fileStream = zipFile.getInputStream(entry)) {
+            metrics.bytesWritten(Files.copy(fileStream, file, StandardCopyOption.REPLACE_EXISTING));
+        }
+
+        metrics.bytesRead(entry.getCompressedSize());
+        metrics.fileTouched(file);
+    }
+
+    /**
+     * Make sure a file in the pack holds its actual contents.
+     * In streaming mode files are only extracted from the input zip once something reads them.
+     *
+     * @param file File in the pack to materialize
+     * @throws IOException If the file couldn't be extracted
+     */
+    public void materialize(Path file) throws IOException {
+        if (placeholders != null) {
+            long bytes = placeholders.materialize(file);
+            if (bytes > 0) {
+                metrics.bytesWritten(bytes);
             }
         }
     }
 
     /**
-     * Convert all resources in the pack using the converters
+     * Get the file to write the item mappings of custom model data to
+     *
+     * @return The set file, or item_mappings.json next to the input
      */
-    public void convert() {
-        List<AbstractConverter> additionalConverters = new ArrayList<>();
+    public Path getItemMappingsFile() {
+        return itemMappingsFile != null ? itemMappingsFile : input.toAbsolutePath().getParent().resolve("item_mappings.json");
+    }
 
-        for (Class<? extends AbstractConverter> converterClass : ConverterHandler.converterList) {
-            try {
-                List<Object[]> defaultData = (List<Object[]>) converterClass.getMethod("getDefaultData").invoke(null);
+    /**
+     * Set the budget on the decoded pixels held in memory
+     * Converters wait for budget before decoding images and cached images are written out once it is used up
+     *
+     * @param memoryBudget Budget to use, or null to leave memory unbounded
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        imageCache.setMemoryBudget(memoryBudget);
+    }
 
-                AbstractConverter converter;
-                for (Object[] data : defaultData) {
-                    converter = converterClass.getDeclaredConstructor(PackConverter.class, Path.class, Object[].class).newInstance(this, tmpDir, data);
+    /**
+     * Convert all resources in the pack using the converters
+     * Converters that don't touch the same files run concurrently, see {@link ConverterScheduler}
+     */
+    public void convert() {
+        List<AbstractConverter> converters = new ArrayList<>();
 
-                    additionalConverters.addAll(converter.convert());
-                }
-            } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) { }
+        for (ConverterFactory factory : ConverterHandler.getFactories()) {
+            for (Object[] data : factory.getDefaultData()) {
+                converters.add(factory.create(this, tmpDir, data));
+            }
         }
 
-        for (AbstractConverter converter : additionalConverters) {
-            converter.convert();
+        ConversionMetrics.Section section = metrics.start(metrics.getPhase(ConversionMetrics.CONVERT));
+        try {
+            ConverterScheduler scheduler = new ConverterScheduler(threads, metrics, conversionCache, memoryBudget);
+            List<AbstractConverter> additionalConverters = scheduler.run(converters);
+            scheduler.run(additionalConverters);
+        } finally {
+            section.close();
         }
     }
 
     /**
      * Convert the temporary folder into the output zip
+     *
+     * @throws UncheckedIOException If the zip or its manifest couldn't be written
      */
     public void pack() {
-        ZipUtils zipUtils = new ZipUtils(this, tmpDir.toFile());
-        zipUtils.generateFileList();
-        zipUtils.zipIt(output.toString());
+        ConversionMetrics.Section section = metrics.start(metrics.getPhase(ConversionMetrics.PACK));
+        try {
+            imageCache.flush();
+
+            ZipUtils zipUtils = new ZipUtils(this, tmpDir, placeholders, threads, compressionLevel);
+            zipUtils.generateFileList();
+            // Nothing usable was written if this fails, so there is no manifest to write either
+            zipUtils.zipIt(output.toString());
+
+            if (writeManifest) {
+                ConversionManifest.create(input, zipUtils.getFileList(), lineage).write(ConversionManifest.getPath(output));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            section.close();
+        }
     }
 
     /**
@@ -140,8 +432,17 @@ public class PackConverter {
      * Silently fails.
      */
     public void cleanup() {
+        // Hand back the budget of the images still cached
+        imageCache.setMemoryBudget(null);
+
+        try {
+            if (placeholders != null) {
+                placeholders.close();
+            }
+        } catch (IOException ignored) { }
+
         try {
-            Files.delete(tmpDir);
+            storage.delete(tmpDir);
         } catch (IOException ignored) { }
     }
 
@@ -27,21 +27,268 @@
 package org.geysermc.packconverter.api.converters;
 
 import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.metrics.ConversionMetrics;
+import org.geysermc.packconverter.api.metrics.Metrics;
+import org.geysermc.packconverter.api.utils.MemoryBudget;
 
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @AllArgsConstructor
+@Getter
 public abstract class AbstractConverter {
-    PackConverter packConverter;
-    Path storage;
-    Object[] data;
+    protected PackConverter packConverter;
+    protected Path storage;
+    protected Object[] data;
 
     public static List<Object[]> getDefaultData() {
         return new ArrayList<>();
     };
 
     public abstract List<AbstractConverter> convert();
+
+    /**
+     * Get the paths this converter reads, used to decide which converters can run at the same time
+     * A path also covers anything inside it, so folders and path prefixes can be used
+     * By default this is every string in the converter data
+     *
+     * @return Paths relative to the pack root, or null if the converter may read anything
+     */
+    public Collection<String> getReadPaths() {
+        List<String> paths = new ArrayList<>();
+        collectPaths(data, paths);
+        return paths;
+    }
+
+    /**
+     * Get the paths this converter writes, moves or deletes, see {@link #getReadPaths()}
+     *
+     * @return Paths relative to the pack root, or null if the converter may write anything
+     */
+    public Collection<String> getWritePaths() {
+        return getReadPaths();
+    }
+
+    /**
+     * Check if the output of this converter is worth storing in a {@link org.geysermc.packconverter.api.utils.ConversionCache}
+     * Plain file operations are quicker to redo than to hash and replay
+     *
+     * @return True if the output can be cached
+     */
+    public boolean isCacheable() {
+        return true;
+    }
+
+    private static void collectPaths(Object value, List<String> paths) {
+        if (value instanceof String) {
+            paths.add((String) value);
+        } else if (value instanceof Object[]) {
+            for (Object child : (Object[]) value) {
+                collectPaths(child, paths);
+            }
+        }
+    }
+
+    /**
+     * Check if a file exists in the pack storage, answered from the {@link org.geysermc.packconverter.api.utils.PackIndex}
+     *
+     * @param path Path relative to the pack root
+     * @return True if the file exists
+     */
+    protected boolean exists(String path) {
+        boolean exists = packConverter.getIndex().exists(path);
+        if (exists) {
+            // Converters skip work when files exist, so that counts as reading them
+            packConverter.getLineage().read(path);
+        }
+        return exists;
+    }
+
+    /**
+     * Read an image from the pack storage, decoded images are cached for the rest of the conversion
+     *
+     * @param path Path relative to the pack root
+     * @return The read image
+     * @throws IOException If the image could not be read
+     */
+    protected BufferedImage readImage(String path) throws IOException {
+        packConverter.getLineage().read(path);
+        return packConverter.getImageCache().read(storage.resolve(path));
+    }
+
+    /**
+     * Read several images from the pack storage, decoding them in parallel
+     *
+     * @param paths Paths relative to the pack root
+     * @return The read images in the same order as the paths
+     * @throws IOException If any of the images could not be read
+     */
+    protected List<BufferedImage> readImages(List<String> paths) throws IOException {
+        // Lineage is tracked per thread, so record the reads before handing out the work
+        for (String path : paths) {
+            packConverter.getLineage().read(path);
+        }
+
+        int threads = Math.min(packConverter.getThreads(), paths.size());
+        if (threads <= 1) {
+            List<BufferedImage> images = new ArrayList<>();
+            for (String path : paths) {
+                images.add(packConverter.getImageCache().read(storage.resolve(path)));
+            }
+            return images;
+        }
+
+        // Not a parallel stream, joining one from the scheduler's pool could run other converters on this thread
+        Metrics[] current = packConverter.getMetrics().current();
+        MemoryBudget.Lease lease = MemoryBudget.current();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<BufferedImage>> futures = new ArrayList<>();
+            for (String path : paths) {
+                futures.add(executor.submit(() -> {
+                    ConversionMetrics.Section section = packConverter.getMetrics().attach(current);
+                    MemoryBudget.Scope scope = MemoryBudget.attach(lease);
+                    try {
+                        return packConverter.getImageCache().read(storage.resolve(path));
+                    } finally {
+                        scope.close();
+                        section.close();
+                    }
+                }));
+            }
+
+            List<BufferedImage> images = new ArrayList<>();
+            for (Future<BufferedImage> future : futures) {
+                images.add(future.get());
+            }
+            return images;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading images", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to read images", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Write an image to the pack storage, creating any missing parent folders
+     * The image is only encoded once it is flushed or evicted from the image cache
+     *
+     * @param image Image to write
+     * @param format Format to write the image in
+     * @param path Path relative to the pack root
+     * @throws IOException If the image could not be written
+     */
+    protected void writeImage(BufferedImage image, String format, String path) throws IOException {
+        // Nothing is written if no writer supports the format, so the file is left as it was
+        if (packConverter.getImageCache().write(image, format, storage.resolve(path))) {
+            packConverter.getIndex().write(path);
+            packConverter.getLineage().write(path);
+        }
+    }
+
+    /**
+     * Open a file in the pack storage for reading
+     *
+     * @param path Path relative to the pack root
+     * @return Stream of the file contents
+     * @throws IOException If the file could not be opened
+     */
+    protected InputStream newInputStream(String path) throws IOException {
+        Path file = storage.resolve(path);
+        packConverter.getImageCache().flush(file);
+        packConverter.materialize(file);
+        packConverter.getMetrics().fileTouched(file);
+        packConverter.getLineage().read(path);
+        return packConverter.getMetrics().count(Files.newInputStream(file));
+    }
+
+    /**
+     * Open a file in the pack storage for writing, replacing any existing content
+     *
+     * @param path Path relative to the pack root
+     * @return Stream to write the file contents to
+     * @throws IOException If the file could not be opened
+     */
+    protected OutputStream newOutputStream(String path) throws IOException {
+        Path file = storage.resolve(path);
+        packConverter.getImageCache().discard(file);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        packConverter.getMetrics().fileTouched(file);
+        packConverter.getIndex().write(path);
+        packConverter.getLineage().write(path);
+        return packConverter.getMetrics().count(Files.newOutputStream(file));
+    }
+
+    /**
+     * Move a file or folder in the pack storage, fails if the target already exists
+     *
+     * @param from Path relative to the pack root to move
+     * @param to Path relative to the pack root to move to
+     * @throws IOException If the file could not be moved
+     */
+    protected void move(String from, String to) throws IOException {
+        packConverter.getImageCache().flush(storage.resolve(from));
+        packConverter.getImageCache().flush(storage.resolve(to));
+        // Fails if the target exists, so the outcome depends on it as well
+        packConverter.getLineage().read(to);
+        try {
+            Files.move(storage.resolve(from), storage.resolve(to));
+        } catch (FileAlreadyExistsException e) {
+            packConverter.getLineage().blocked(from, to);
+            throw e;
+        }
+        packConverter.getIndex().move(from, to);
+        packConverter.getLineage().move(from, to);
+        packConverter.getMetrics().fileTouched(storage.resolve(from));
+        packConverter.getMetrics().fileTouched(storage.resolve(to));
+    }
+
+    /**
+     * Copy a file in the pack storage, fails if the target already exists
+     *
+     * @param from Path relative to the pack root to copy
+     * @param to Path relative to the pack root to copy to
+     * @throws IOException If the file could not be copied
+     */
+    protected void copy(String from, String to) throws IOException {
+        packConverter.getImageCache().flush(storage.resolve(from));
+        packConverter.getImageCache().flush(storage.resolve(to));
+        packConverter.getLineage().read(to);
+        try {
+            Files.copy(storage.resolve(from), storage.resolve(to));
+        } catch (FileAlreadyExistsException e) {
+            packConverter.getLineage().blocked(from, to);
+            throw e;
+        }
+        packConverter.getIndex().copy(from, to);
+        packConverter.getLineage().copy(from, to);
+        packConverter.getMetrics().fileTouched(storage.resolve(from));
+        packConverter.getMetrics().fileTouched(storage.resolve(to));
+
+        long bytes = Files.size(storage.resolve(to));
+        packConverter.getMetrics().bytesRead(bytes);
+        packConverter.getMetrics().bytesWritten(bytes);
+    }
 }
@@ -28,11 +28,9 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
-import org.geysermc.packconverter.api.utils.ImageUtils;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,8 +46,13 @@ public class AtlasConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/items/compass_", 31, "textures/items/compass_atlas.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(AtlasConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public AtlasConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -57,21 +60,20 @@ public class AtlasConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String base = (String) this.data[0];
-            int count = (int) this.data[1];
-            String to = (String) this.data[2];
+            String base = rule.base();
+            int count = rule.count();
+            String to = rule.to();
             
             BufferedImage atlasImage = null;
 
             for (int i = 0; i <= count; i++) {
                 String step = base + String.format("%1$2s", i).replace(" ", "0") + ".png";
-                File stepFile = storage.resolve(step).toFile();
                 
-                if (!stepFile.exists()) {
+                if (!exists(step)) {
                     continue;
                 }
 
-                BufferedImage stepImage = ImageIO.read(stepFile);
+                BufferedImage stepImage = readImage(step);
                 
                 if (atlasImage == null) {
                     packConverter.log(String.format("Create atlas %s", to));
@@ -85,10 +87,18 @@ public class AtlasConverter extends AbstractConverter {
             }
 
             if (atlasImage != null) {
-                ImageUtils.write(atlasImage, "png", storage.resolve(to).toFile());
+                writeImage(atlasImage, "png", to);
             }
         } catch (IOException e) { }
 
         return delete;
     }
+
+    public record Rule(String base, int count, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, Integer.class),
+                    ConverterRules.get(data, 2, String.class));
+        }
+    }
 }
@@ -28,12 +28,10 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
-import org.geysermc.packconverter.api.utils.ImageUtils;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -86,23 +84,27 @@ public class BannerPatternBlackConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/banner/triangles_top.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(BannerPatternBlackConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public BannerPatternBlackConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
+            String from = rule.from();
 
-            File patternFile = storage.resolve(from).toFile();
-            if (!patternFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Fix banner pattern black %s", from));
 
-            BufferedImage patternImage = ImageIO.read(patternFile);
+            BufferedImage patternImage = readImage(from);
 
             for (int x = 0; x < patternImage.getWidth(); x++) {
                 for (int y = 0; y < patternImage.getHeight(); y++) {
@@ -113,9 +115,15 @@ public class BannerPatternBlackConverter extends AbstractConverter {
                 }
             }
 
-            ImageUtils.write(patternImage, "png", patternFile);
+            writeImage(patternImage, "png", from);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class));
+        }
+    }
 }
@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -59,35 +58,37 @@ public class BannerPatternConverter extends AbstractConverter {
             }, "textures/entity/banner/banner_pattern_illager.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(BannerPatternConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public BannerPatternConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String base = (String) this.data[0];
-            Object[] patterns = (Object[]) this.data[1];
-            String to = (String) this.data[2];
+            String base = rule.base();
+            String to = rule.to();
             
             BufferedImage bannerImage = null;
 
-            for (Object pattern : patterns) {
-                Object[] patternArr = (Object[]) pattern;
-                String path = (String) patternArr[0];
-                Color color = (Color) patternArr[1];
+            for (Pattern pattern : rule.patterns()) {
+                String path = pattern.path();
+                Color color = pattern.color();
 
-                File patternFile = storage.resolve(path).toFile();
-                if (!patternFile.exists()) {
+                if (!exists(path)) {
                     continue;
                 }
 
-                BufferedImage patternImage = ImageIO.read(patternFile);
+                BufferedImage patternImage = readImage(path);
                 
                 if (bannerImage == null) {
                     packConverter.log(String.format("Convert pattern banner %s", to));
 
-                    bannerImage = ImageIO.read(storage.resolve(base).toFile());
+                    bannerImage = readImage(base);
 
                     int factor = bannerImage.getWidth() / 64;
 
@@ -107,10 +108,24 @@ public class BannerPatternConverter extends AbstractConverter {
             }
 
             if (bannerImage != null) {
-                ImageUtils.write(bannerImage, "png", storage.resolve(to).toFile());
+                writeImage(bannerImage, "png", to);
             }
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String base, List<Pattern> patterns, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.list(data, 1, Pattern::parse),
+                    ConverterRules.get(data, 2, String.class));
+        }
+    }
+
+    public record Pattern(String path, Color color) {
+        static Pattern parse(Object[] data) {
+            return new Pattern(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, Color.class));
+        }
+    }
 }
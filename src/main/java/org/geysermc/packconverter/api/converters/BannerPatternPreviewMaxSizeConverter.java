@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -87,30 +86,40 @@ public class BannerPatternPreviewMaxSizeConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/banner/triangles_top.png", 64});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(BannerPatternPreviewMaxSizeConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public BannerPatternPreviewMaxSizeConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-            Integer max_width = (Integer) this.data[1];
+            String from = rule.from();
+            Integer max_width = rule.max_width();
 
-            File patternFile = storage.resolve(from).toFile();
-            if (!patternFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Fix banner pattern preview max size %s", from));
 
-            BufferedImage patternImage = ImageIO.read(patternFile);
+            BufferedImage patternImage = readImage(from);
 
             patternImage = ImageUtils.ensureMaxWidth(patternImage, max_width);
 
-            ImageUtils.write(patternImage, "png", patternFile);
+            writeImage(patternImage, "png", from);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from, Integer max_width) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, Integer.class));
+        }
+    }
 }
@@ -31,12 +31,11 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -79,24 +78,26 @@ public class BarConverter extends AbstractConverter {
         });
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(BarConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public BarConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-            int factorDetect = (int) this.data[1];
-            Object[] bars = (Object[]) this.data[2];
-            String[] nubs = (String[]) this.data[3];
+            String from = rule.from();
+            int factorDetect = rule.factorDetect();
 
-            File fromFile = storage.resolve(from).toFile();
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
             
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
             fromImage = ImageUtils.ensureMinWidth(fromImage, factorDetect);
 
             int factor = (fromImage.getWidth() / factorDetect);
@@ -105,35 +106,53 @@ public class BarConverter extends AbstractConverter {
 
             JsonNode metadata = mapper.readTree("{nineslice_size: [1, 0, 1, 0], base_size: [182, 5]}");
 
-            for (Object bar : bars) {
-                Object[] barArr = (Object[]) bar;
-                int y = (int) barArr[0];
-                Object[] tos = (Object[]) barArr[1];
+            for (Bar bar : rule.bars()) {
+                int y = bar.y();
 
                 BufferedImage toImage = ImageUtils.crop(fromImage, 0, (y * factor), (182 * factor), (5 * factor));
 
-                for (Object to : tos) {
-                    Object[] toArr = (Object[]) to;
-                    String toPath = (String) toArr[0];
-                    Color color = toArr.length > 1 && toArr[1] != null ? (Color) toArr[1] : Color.white;
+                for (Target to : bar.tos()) {
+                    String toPath = to.path();
+                    Color color = to.color();
 
                     packConverter.log(String.format("Convert bar %s", toPath));
 
-                    ImageUtils.write(ImageUtils.colorize(toImage, color), "png", storage.resolve(toPath + ".png").toFile());
+                    writeImage(ImageUtils.colorize(toImage, color), "png", toPath + ".png");
 
-                    mapper.writeValue(storage.resolve(toPath + ".json").toFile(), metadata);
+                    mapper.writeValue(newOutputStream(toPath + ".json"), metadata);
                 }
             }
             
             BufferedImage transparentImage = new BufferedImage(factor, (5 * factor), BufferedImage.TYPE_INT_ARGB);
-            for (String nub : nubs) {
+            for (String nub : rule.nubs()) {
                 packConverter.log(String.format("Convert bar %s", nub));
 
-                ImageUtils.write(transparentImage, "png", storage.resolve(nub).toFile());
+                writeImage(transparentImage, "png", nub);
             }
             
         } catch (IOException e) { e.printStackTrace(); }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from, int factorDetect, List<Bar> bars, List<String> nubs) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, Integer.class),
+                    ConverterRules.list(data, 2, Bar::parse),
+                    ConverterRules.strings(data, 3));
+        }
+    }
+
+    public record Bar(int y, List<Target> tos) {
+        static Bar parse(Object[] data) {
+            return new Bar(ConverterRules.get(data, 0, Integer.class), ConverterRules.list(data, 1, Target::parse));
+        }
+    }
+
+    public record Target(String path, Color color) {
+        static Target parse(Object[] data) {
+            return new Target(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, Color.class, Color.white));
+        }
+    }
 }
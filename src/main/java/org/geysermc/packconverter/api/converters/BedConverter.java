@@ -28,12 +28,12 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.ImageRemap;
+import org.geysermc.packconverter.api.utils.ImageRemap.Transform;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -63,66 +63,81 @@ public class BedConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/bed/yellow.png"});
     }
 
+    private static final ImageRemap LAYOUT;
+
+    static {
+        ImageRemap.Builder layout = ImageRemap.builder()
+                // Top part
+                .copy(0, 0, 44, 22, 0, 0)
+
+                // Bottom part
+                .copy(0, 28, 44, 16, 0, 22)
+
+                // Bottom side
+                .copy(22, 22, 16, 6, 22, 0);
+
+        // Feeds
+        List<int[]> feedsList = new ArrayList<>();
+        feedsList.add(new int[] {50, 0, 0, 44, 0});
+        feedsList.add(new int[] {50, 6, 0, 38, 90});
+        feedsList.add(new int[] {50, 12, 12, 44, -90});
+        feedsList.add(new int[] {50, 18, 12, 38, 180});
+
+        for (int[] values : feedsList) {
+            int from_x = values[0];
+            int from_y = values[1];
+            int to_x = values[2];
+            int to_y = values[3];
+            Transform rotate_bottom = Transform.ofRotation(values[4]);
+
+            layout.copy(from_x + 3, from_y, 3, 3, to_x + 3, to_y + 3);
+            layout.copy(from_x + 6, from_y, 3, 3, to_x + 9, to_y + 3, rotate_bottom);
+            layout.copy(from_x, from_y + 3, 3, 3, to_x, to_y + 3, Transform.ROTATE_270);
+            layout.copy(from_x + 3, from_y + 3, 3, 3, to_x + 6, to_y, Transform.ROTATE_180);
+            layout.copy(from_x + 6, from_y + 3, 3, 3, to_x + 6, to_y + 3, Transform.ROTATE_90);
+            layout.copy(from_x + 9, from_y + 3, 3, 3, to_x + 3, to_y, Transform.ROTATE_180);
+        }
+
+        LAYOUT = layout.build();
+    }
+
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(BedConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public BedConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String bed = (String) this.data[0];
-
-            File bedFile = storage.resolve(bed).toFile();
+            String bed = rule.bed();
 
-            if (!bedFile.exists()) {
+            if (!exists(bed)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Convert bed %s", bed));
 
-            BufferedImage bedImage = ImageIO.read(bedFile);
+            BufferedImage bedImage = readImage(bed);
 
             bedImage = ImageUtils.ensureMinWidth(bedImage, 64);
 
             int factor = bedImage.getWidth() / 64;
 
-            BufferedImage newBedImage = new BufferedImage(bedImage.getWidth(), bedImage.getHeight(), BufferedImage.TYPE_INT_ARGB);
-            Graphics g = newBedImage.getGraphics();
-
-            // Top part
-            g.drawImage(ImageUtils.crop(bedImage, 0, 0, (44 * factor), (22 * factor)), 0, 0, null);
-
-            // Bottom part
-            g.drawImage(ImageUtils.crop(bedImage, 0, (28 * factor), (44 * factor), (16 * factor)), 0, (22 * factor), null);
-
-            // Bottom side
-            g.drawImage(ImageUtils.crop(bedImage, (22 * factor), (22 * factor), (16 * factor), (6 * factor)), (22 * factor), 0, null);
-
-            // Feeds
-            List<int[]> feedsList = new ArrayList<>();
-            feedsList.add(new int[] {50, 0, 0, 44, 0});
-            feedsList.add(new int[] {50, 6, 0, 38, 90});
-            feedsList.add(new int[] {50, 12, 12, 44, -90});
-            feedsList.add(new int[] {50, 18, 12, 38, 180});
-
-            for (int[] values : feedsList) {
-                int from_x = values[0];
-                int from_y = values[1];
-                int to_x = values[2];
-                int to_y = values[3];
-                int rotate_bottom = values[4];
-
-                g.drawImage(ImageUtils.crop(bedImage, ((from_x + 3) * factor), (from_y * factor), (3 * factor), (3 * factor)), ((to_x + 3) * factor), ((to_y + 3) * factor), null);
-                g.drawImage(ImageUtils.rotate(ImageUtils.crop(bedImage, ((from_x + 6) * factor), (from_y * factor), (3 * factor), (3 * factor)), rotate_bottom), ((to_x + 9) * factor), ((to_y + 3) * factor), null);
-                g.drawImage(ImageUtils.rotate(ImageUtils.crop(bedImage, (from_x * factor), ((from_y + 3) * factor), (3 * factor), (3 * factor)), -90), (to_x * factor), ((to_y + 3) * factor), null);
-                g.drawImage(ImageUtils.rotate(ImageUtils.crop(bedImage, ((from_x + 3) * factor), ((from_y + 3) * factor), (3 * factor), (3 * factor)), 180), ((to_x + 6) * factor), (to_y * factor), null);
-                g.drawImage(ImageUtils.rotate(ImageUtils.crop(bedImage, ((from_x + 6) * factor), ((from_y + 3) * factor), (3 * factor), (3 * factor)), 90), ((to_x + 6) * factor), ((to_y + 3) * factor), null);
-                g.drawImage(ImageUtils.rotate(ImageUtils.crop(bedImage, ((from_x + 9) * factor), ((from_y + 3) * factor), (3 * factor), (3 * factor)), 180), ((to_x + 3) * factor), (to_y * factor), null);
-            }
+            BufferedImage newBedImage = LAYOUT.apply(bedImage.getWidth(), bedImage.getHeight(), factor, bedImage);
 
-            ImageUtils.write(newBedImage, "png", bedFile);
+            writeImage(newBedImage, "png", bed);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String bed) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class));
+        }
+    }
 }
@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -51,24 +50,27 @@ public class BeeConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/bee/bee_nectar.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(BeeConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public BeeConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Convert bee %s", from));
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
 
             int factor = fromImage.getWidth() / 64;
 
@@ -77,10 +79,16 @@ public class BeeConverter extends AbstractConverter {
 
                 g.drawImage(ImageUtils.flip(ImageUtils.crop(fromImage, (8 * factor), (18 * factor), (7 * factor), (6 * factor)), true, false), (15 * factor), (24 * factor), null);
 
-                ImageUtils.write(fromImage, "png", fromFile);
+                writeImage(fromImage, "png", from);
             }
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class));
+        }
+    }
 }
@@ -28,12 +28,12 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.ImageRemap;
+import org.geysermc.packconverter.api.utils.ImageRemap.Transform;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -50,74 +50,102 @@ public class ChestLeftRightDoubleConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/chest/christmas_left.png", "textures/entity/chest/christmas_right.png", "textures/entity/chest/christmas_double.png"});
     }
 
-    public ChestLeftRightDoubleConverter(PackConverter packConverter, Path storage, Object[] data) {
-        super(packConverter, storage, data);
-    }
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
 
-    @Override
-    public List<AbstractConverter> convert() {
-        List<AbstractConverter> delete = new ArrayList<>();
+    private static final ImageRemap LAYOUT = ImageRemap.builder()
+            .from(RIGHT)
+            .copy(0, 14, 14, 5, 0, 14, Transform.ROTATE_180)
+            .from(LEFT)
+            .copy(29, 14, 14, 5, 44, 14, Transform.ROTATE_180)
 
-        try {
-            String fromLeft = (String) this.data[0];
-            String fromRight = (String) this.data[1];
-            String to = (String) this.data[2];
+            .from(RIGHT)
+            .copy(0, 33, 14, 10, 0, 33, Transform.ROTATE_180)
+            .from(LEFT)
+            .copy(29, 33, 14, 10, 44, 33, Transform.ROTATE_180)
 
-            File leftFile = storage.resolve(fromLeft).toFile();
-            File rightFile = storage.resolve(fromRight).toFile();
+            .from(RIGHT)
+            .copy(29, 0, 15, 14, 14, 0, Transform.FLIP_VERTICAL)
+            .from(LEFT)
+            .copy(29, 0, 15, 14, 29, 0, Transform.FLIP_VERTICAL)
 
-            if (!leftFile.exists() || !rightFile.exists()) {
-                return delete;
-            }
+            .from(RIGHT)
+            .copy(43, 14, 15, 5, 14, 14, Transform.ROTATE_180)
+            .from(LEFT)
+            .copy(43, 14, 15, 5, 29, 14, Transform.ROTATE_180)
 
-            packConverter.log(String.format("Convert double chest %s", to));
+            .from(RIGHT)
+            .copy(29, 19, 15, 14, 14, 19, Transform.FLIP_VERTICAL)
+            .from(LEFT)
+            .copy(29, 19, 15, 14, 29, 19, Transform.FLIP_VERTICAL)
 
-            BufferedImage leftImage = ImageIO.read(leftFile);
-            BufferedImage rightImage = ImageIO.read(rightFile);
+            .from(RIGHT)
+            .copy(43, 33, 15, 10, 14, 33, Transform.ROTATE_180)
+            .from(LEFT)
+            .copy(43, 33, 15, 10, 29, 33, Transform.ROTATE_180)
 
-            leftImage = ImageUtils.ensureMinWidth(leftImage, 64);
-            rightImage = ImageUtils.ensureMinWidth(rightImage, 64);
+            .from(RIGHT)
+            .copy(14, 0, 15, 14, 44, 0, Transform.FLIP_VERTICAL)
+            .from(LEFT)
+            .copy(14, 0, 15, 14, 59, 0, Transform.FLIP_VERTICAL)
 
-            int factor = leftImage.getWidth() / 64;
+            .from(RIGHT)
+            .copy(14, 19, 15, 14, 44, 19, Transform.FLIP_VERTICAL)
+            .from(LEFT)
+            .copy(14, 19, 15, 14, 59, 19, Transform.FLIP_VERTICAL)
+
+            .from(RIGHT)
+            .copy(14, 14, 15, 5, 73, 14, Transform.ROTATE_180)
+
+            .from(LEFT)
+            .copy(14, 14, 15, 5, 58, 14, Transform.ROTATE_180)
+            .from(RIGHT)
+            .copy(14, 14, 15, 5, 73, 14, Transform.ROTATE_180)
 
-            BufferedImage newImage = new BufferedImage((128 * factor), (64 * factor), BufferedImage.TYPE_INT_ARGB);
-            Graphics g = newImage.getGraphics();
+            .from(LEFT)
+            .copy(14, 33, 15, 10, 58, 33, Transform.ROTATE_180)
+            .from(RIGHT)
+            .copy(14, 33, 15, 10, 73, 33, Transform.ROTATE_180)
 
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(rightImage, 0, (14 * factor), (14 * factor), (5 * factor)), 180), 0, (14 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(leftImage, (29 * factor), (14 * factor), (14 * factor), (5 * factor)), 180), (44 * factor), (14 * factor), null);
+            .from(LEFT)
+            .copy(0, 0, 6, 6, 0, 0)
+            .build();
 
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(rightImage, 0, (33 * factor), (14 * factor), (10 * factor)), 180), 0, (33 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(leftImage, (29 * factor), (33 * factor), (14 * factor), (10 * factor)), 180), (44 * factor), (33 * factor), null);
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(ChestLeftRightDoubleConverter.class, defaultData, Rule::parse);
 
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(rightImage, (29 * factor), 0, (15 * factor), (14 * factor)), false, true), (14 * factor), 0, null);
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(leftImage, (29 * factor), 0, (15 * factor), (14 * factor)), false, true), (29 * factor), 0, null);
+    private final Rule rule;
 
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(rightImage, (43 * factor), (14 * factor), (15 * factor), (5 * factor)), 180), (14 * factor), (14 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(leftImage, (43 * factor), (14 * factor), (15 * factor), (5 * factor)), 180), (29 * factor), (14 * factor), null);
+    public ChestLeftRightDoubleConverter(PackConverter packConverter, Path storage, Object[] data) {
+        super(packConverter, storage, data);
+        this.rule = RULES.get(data);
+    }
 
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(rightImage, (29 * factor), (19 * factor), (15 * factor), (14 * factor)), false, true), (14 * factor), (19 * factor), null);
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(leftImage, (29 * factor), (19 * factor), (15 * factor), (14 * factor)), false, true), (29 * factor), (19 * factor), null);
+    @Override
+    public List<AbstractConverter> convert() {
+        List<AbstractConverter> delete = new ArrayList<>();
 
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(rightImage, (43 * factor), (33 * factor), (15 * factor), (10 * factor)), 180), (14 * factor), (33 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(leftImage, (43 * factor), (33 * factor), (15 * factor), (10 * factor)), 180), (29 * factor), (33 * factor), null);
+        try {
+            String fromLeft = rule.fromLeft();
+            String fromRight = rule.fromRight();
+            String to = rule.to();
 
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(rightImage, (14 * factor), 0, (15 * factor), (14 * factor)), false, true), (44 * factor), 0, null);
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(leftImage, (14 * factor), 0, (15 * factor), (14 * factor)), false, true), (59 * factor), 0, null);
+            if (!exists(fromLeft) || !exists(fromRight)) {
+                return delete;
+            }
 
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(rightImage, (14 * factor), (19 * factor), (15 * factor), (14 * factor)), false, true), (44 * factor), (19 * factor), null);
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(leftImage, (14 * factor), (19 * factor), (15 * factor), (14 * factor)), false, true), (59 * factor), (19 * factor), null);
+            packConverter.log(String.format("Convert double chest %s", to));
 
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(rightImage, (14 * factor), (14 * factor), (15 * factor), (5 * factor)), 180), (73 * factor), (14 * factor), null);
+            BufferedImage leftImage = readImage(fromLeft);
+            BufferedImage rightImage = readImage(fromRight);
 
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(leftImage, (14 * factor), (14 * factor), (15 * factor), (5 * factor)), 180), (58 * factor), (14 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(rightImage, (14 * factor), (14 * factor), (15 * factor), (5 * factor)), 180), (73 * factor), (14 * factor), null);
+            leftImage = ImageUtils.ensureMinWidth(leftImage, 64);
+            rightImage = ImageUtils.ensureMinWidth(rightImage, 64);
 
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(leftImage, (14 * factor), (33 * factor), (15 * factor), (10 * factor)), 180), (58 * factor), (33 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(rightImage, (14 * factor), (33 * factor), (15 * factor), (10 * factor)), 180), (73 * factor), (33 * factor), null);
+            int factor = leftImage.getWidth() / 64;
 
-            g.drawImage(ImageUtils.crop(leftImage, 0, 0, (6 * factor), (6 * factor)), 0, 0, null);
+            BufferedImage newImage = LAYOUT.apply((128 * factor), (64 * factor), factor, leftImage, rightImage);
 
-            ImageUtils.write(newImage, "png", storage.resolve(to).toFile());
+            writeImage(newImage, "png", to);
 
             delete.add(new DeleteConverter(packConverter, storage, new Object[] {fromLeft}));
             delete.add(new DeleteConverter(packConverter, storage, new Object[] {fromRight}));
@@ -125,4 +153,12 @@ public class ChestLeftRightDoubleConverter extends AbstractConverter {
 
         return delete;
     }
+
+    public record Rule(String fromLeft, String fromRight, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, String.class),
+                    ConverterRules.get(data, 2, String.class));
+        }
+    }
 }
@@ -28,12 +28,12 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.ImageRemap;
+import org.geysermc.packconverter.api.utils.ImageRemap.Transform;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -51,61 +51,59 @@ public class ChestNormalConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/chest/christmas.png"});
     }
 
+    private static final ImageRemap LAYOUT = ImageRemap.builder()
+            .copy(0, 14, 14, 5, 0, 14, Transform.ROTATE_180)
+            .copy(0, 33, 14, 10, 0, 33, Transform.ROTATE_180)
+            .copy(28, 0, 14, 14, 14, 0, Transform.FLIP_VERTICAL)
+            .copy(42, 14, 14, 5, 14, 14, Transform.ROTATE_180)
+            .copy(28, 19, 14, 14, 14, 19, Transform.FLIP_VERTICAL)
+            .copy(42, 33, 14, 10, 14, 33, Transform.ROTATE_180)
+            .copy(14, 0, 14, 14, 28, 0, Transform.FLIP_VERTICAL)
+            .copy(28, 14, 14, 5, 28, 14, Transform.ROTATE_180)
+            .copy(14, 19, 14, 14, 28, 19, Transform.FLIP_VERTICAL)
+            .copy(28, 33, 14, 10, 28, 33, Transform.ROTATE_180)
+            .copy(14, 14, 14, 5, 42, 14, Transform.ROTATE_180)
+            .copy(14, 33, 14, 10, 42, 33, Transform.ROTATE_180)
+            .copy(0, 0, 6, 6, 0, 0)
+            .build();
+
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(ChestNormalConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public ChestNormalConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String chest = (String) this.data[0];
-
-            File chestFile = storage.resolve(chest).toFile();
+            String chest = rule.chest();
 
-            if (!chestFile.exists()) {
+            if (!exists(chest)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Convert normal chest %s", chest));
 
-            BufferedImage chestImage = ImageIO.read(chestFile);
+            BufferedImage chestImage = readImage(chest);
 
             chestImage = ImageUtils.ensureMinWidth(chestImage, 64);
 
             int factor = chestImage.getWidth() / 64;
 
-            BufferedImage newChestImage = new BufferedImage((64 * factor), (64 * factor), BufferedImage.TYPE_INT_ARGB);
-            Graphics g = newChestImage.getGraphics();
-
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(chestImage, 0, (14 * factor), (14 * factor), (5 * factor)), 180), 0, (14 * factor), null);
-
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(chestImage, 0, (33 * factor), (14 * factor), (10 * factor)), 180), 0, (33 * factor), null);
-
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(chestImage, (28 * factor), 0, (14 * factor), (14 * factor)), false, true), (14 * factor), 0, null);
-
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(chestImage, (42 * factor), (14 * factor), (14 * factor), (5 * factor)), 180), (14 * factor), (14 * factor), null);
-
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(chestImage, (28 * factor), (19 * factor), (14 * factor), (14 * factor)),false, true), (14 * factor), (19 * factor), null);
-
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(chestImage, (42 * factor), (33 * factor), (14 * factor), (10 * factor)), 180), (14 * factor), (33 * factor), null);
-
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(chestImage, (14 * factor), 0, (14 * factor), (14 * factor)),false, true), (28 * factor), 0, null);
+            BufferedImage newChestImage = LAYOUT.apply((64 * factor), (64 * factor), factor, chestImage);
 
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(chestImage, (28 * factor), (14 * factor), (14 * factor), (5 * factor)), 180), (28 * factor), (14 * factor), null);
-
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(chestImage, (14 * factor), (19 * factor), (14 * factor), (14 * factor)),false, true), (28 * factor), (19 * factor), null);
-
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(chestImage, (28 * factor), (33 * factor), (14 * factor), (10 * factor)), 180), (28 * factor), (33 * factor), null);
-
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(chestImage, (14 * factor), (14 * factor), (14 * factor), (5 * factor)), 180), (42 * factor), (14 * factor), null);
-
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(chestImage, (14 * factor), (33 * factor), (14 * factor), (10 * factor)), 180), (42 * factor), (33 * factor), null);
-
-            g.drawImage(ImageUtils.crop(chestImage, 0, 0, (6 * factor), (6 * factor)), 0, 0, null);
-
-            ImageUtils.write(newChestImage, "png", chestFile);
+            writeImage(newChestImage, "png", chest);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String chest) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class));
+        }
+    }
 }
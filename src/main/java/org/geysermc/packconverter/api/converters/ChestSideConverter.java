@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -49,25 +48,28 @@ public class ChestSideConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/chest/ender.png", "textures/blocks/ender_chest_side.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(ChestSideConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public ChestSideConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
+            String to = rule.to();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Create chest side %s", to));
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
 
             fromImage = ImageUtils.ensureMinWidth(fromImage, 64);
 
@@ -80,9 +82,15 @@ public class ChestSideConverter extends AbstractConverter {
 
             g.drawImage(ImageUtils.crop(fromImage, (28 * factor), (34 * factor), (14 * factor), (9 * factor)), 0, (5 * factor), null);
 
-            ImageUtils.write(newImage, "png", storage.resolve(to).toFile());
+            writeImage(newImage, "png", to);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
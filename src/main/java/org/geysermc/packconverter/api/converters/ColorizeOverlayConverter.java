@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -246,8 +245,13 @@ public class ColorizeOverlayConverter extends AbstractConverter {
         defaultData.add(new Object[] {new Object[] {new Object[] {"textures/items/tipped_arrow_base.png"}, new Object[] {"textures/items/tipped_arrow_head.png", new Color(50, 39, 36)}}, "textures/items/tipped_arrow_wither.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(ColorizeOverlayConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public ColorizeOverlayConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -255,23 +259,20 @@ public class ColorizeOverlayConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            Object[] overlays = (Object[]) this.data[0];
-            String to = (String) this.data[1];
+            String to = rule.to();
             
             BufferedImage finalImage = null;
 
-            for (Object overlay : overlays) {
-                Object[] overlayArr = (Object[]) overlay;
-                String overlayPath = (String) overlayArr[0];
-                Color color = overlayArr.length > 1 && overlayArr[1] != null ? (Color) overlayArr[1] : Color.white;
-                boolean deleteOverlay = overlayArr.length > 2 ? (boolean) overlayArr[2] : false;
+            for (Overlay overlay : rule.overlays()) {
+                String overlayPath = overlay.path();
+                Color color = overlay.color();
+                boolean deleteOverlay = overlay.delete();
 
-                File overlayFile = storage.resolve(overlayPath).toFile();
-                if (!overlayFile.exists()) {
+                if (!exists(overlayPath)) {
                     continue;
                 }
 
-                BufferedImage overlayImage = ImageIO.read(overlayFile);
+                BufferedImage overlayImage = readImage(overlayPath);
                 
                 if (finalImage == null) {
                     packConverter.log(String.format("Colorize and overlay %s", to));
@@ -289,10 +290,24 @@ public class ColorizeOverlayConverter extends AbstractConverter {
             }
 
             if (finalImage != null) {
-                ImageUtils.write(finalImage, "png", storage.resolve(to).toFile());
+                writeImage(finalImage, "png", to);
             }
         } catch (IOException e) { }
 
         return delete;
     }
+
+    public record Rule(List<Overlay> overlays, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.list(data, 0, Overlay::parse), ConverterRules.get(data, 1, String.class));
+        }
+    }
+
+    public record Overlay(String path, Color color, boolean delete) {
+        static Overlay parse(Object[] data) {
+            return new Overlay(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, Color.class, Color.white),
+                    ConverterRules.get(data, 2, Boolean.class, false));
+        }
+    }
 }
@@ -28,11 +28,13 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class CopyConverter extends AbstractConverter {
@@ -107,25 +109,51 @@ public class CopyConverter extends AbstractConverter {
         defaultData.add(new String[] {"bedrock_textures/", "textures/"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(CopyConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public CopyConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
+            String from = rule.from();
+            String to = rule.to();
 
-            if (!storage.resolve(from).toFile().exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Copy %s to %s", from, to));
 
-            Files.copy(storage.resolve(from), storage.resolve(to));
+            copy(from, to);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    @Override
+    public Collection<String> getReadPaths() {
+        return Collections.singletonList(rule.from());
+    }
+
+    @Override
+    public Collection<String> getWritePaths() {
+        return Collections.singletonList(rule.to());
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return false;
+    }
+
+    public record Rule(String from, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
@@ -34,17 +34,19 @@ import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.CustomModelDataHandler;
+import org.geysermc.packconverter.api.utils.PackIndex;
+import org.geysermc.packconverter.api.utils.PackLineage;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class CustomModelDataConverter extends AbstractConverter {
 
@@ -55,16 +57,29 @@ public class CustomModelDataConverter extends AbstractConverter {
         defaultData.add(new String[] {"assets/minecraft/models/item", "textures/item_texture.json"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(CustomModelDataConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public CustomModelDataConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         packConverter.log("Checking for custom model data");
 
-        String from = (String) this.data[0];
-        String to = (String) this.data[1];
+        // Models and textures are read and copied directly so anything pending has to be on disk
+        try {
+            packConverter.getImageCache().flush();
+        } catch (IOException e) {
+            packConverter.log("Unable to write pending images before making custom model data mappings: " + e.getMessage());
+            return new ArrayList<>();
+        }
+
+        String from = rule.from();
+        String to = rule.to();
 
         ObjectMapper mapper = new ObjectMapper();
 
@@ -77,29 +92,30 @@ public class CustomModelDataConverter extends AbstractConverter {
         // Create the item mappings file
         ObjectNode itemMappings = mapper.createObjectNode();
 
-        List<File> allFiles;
-        try {
-            allFiles = Files.walk(storage.resolve(from))
-                    .filter(Files::isRegularFile)
-                    .map(path -> path.toFile())
-                    .collect(Collectors.toList());
-        } catch (IOException e) {
-            packConverter.log("Unable to list all the model files to make custom model data mappings: " + e.getMessage());
+        if (!packConverter.getIndex().isFolder(from)) {
+            packConverter.log("Unable to list all the model files to make custom model data mappings: " + storage.resolve(from) + " is not a folder");
             return new ArrayList<>();
         }
 
-        for (File file : allFiles) {
+        List<Path> allFiles = new ArrayList<>();
+        for (PackIndex.Entry file : packConverter.getIndex().getFiles(from)) {
+            allFiles.add(storage.resolve(file.getPath()));
+        }
+
+        for (Path file : allFiles) {
             JsonNode node;
             try {
-                InputStream stream = new FileInputStream(file);
+                packConverter.materialize(file);
+                packConverter.getLineage().read(PackLineage.relativize(storage, file));
+                InputStream stream = Files.newInputStream(file);
                 node = mapper.readTree(stream);
             } catch (IOException e) {
-                packConverter.log("Unable to read the model file at " + file.getAbsolutePath() + ": " + e.getMessage());
+                packConverter.log("Unable to read the model file at " + file.toAbsolutePath() + ": " + e.getMessage());
                 continue;
             }
 
             if (node.has("overrides")) {
-                String javaItem = file.getName().replace(".json", "");
+                String javaItem = file.getFileName().toString().replace(".json", "");
                 List<ObjectNode> tmpMappings = new ArrayList<>();
 
                 for (JsonNode override : node.get("overrides")) {
@@ -135,16 +151,16 @@ public class CustomModelDataConverter extends AbstractConverter {
                             modelPath = "assets/minecraft/models/" + modelPath + ".json";
                         }
 
-                        File itemModel = storage.resolve(modelPath).toFile();
-                        if (!itemModel.exists()) {
+                        Path itemModel = storage.resolve(modelPath);
+                        if (!packConverter.getIndex().exists(modelPath)) {
                             packConverter.log("Could not find model for " + javaItem + " -> " + cleanIdentifier);
                             continue;
                         }
 
                         String texturePath = CustomModelDataHandler.handleItemTexture(packConverter, mapper, storage, itemModel);
-                        File textureFile = null;
+                        String textureFile = null;
                         if (texturePath != null) {
-                            textureFile = storage.resolve("assets/minecraft/" + texturePath + ".png").toFile();
+                            textureFile = "assets/minecraft/" + texturePath + ".png";
 
                             ObjectNode textureInfo = mapper.createObjectNode();
                             ObjectNode textureName = mapper.createObjectNode();
@@ -161,9 +177,9 @@ public class CustomModelDataConverter extends AbstractConverter {
                         mapping.put("name", cleanIdentifier);
                         mapping.put("custom_model_data", id);
 
-                        if (textureFile != null && textureFile.exists()) {
+                        if (textureFile != null && exists(textureFile)) {
                             try {
-                                BufferedImage image = ImageIO.read(textureFile);
+                                BufferedImage image = readImage(textureFile);
                                 if (image.getWidth() != 16) {
                                     mapping.put("texture_size", image.getWidth());
                                 }
@@ -173,7 +189,8 @@ public class CustomModelDataConverter extends AbstractConverter {
                         }
 
                         try {
-                            JsonNode model = mapper.readTree(itemModel);
+                            packConverter.materialize(itemModel);
+                            JsonNode model = mapper.readTree(Files.newInputStream(itemModel));
                             if (model.has("parent")) {
                                 mapping.put("is_tool", model.get("parent").asText().endsWith("item/handheld"));
                             }
@@ -199,7 +216,7 @@ public class CustomModelDataConverter extends AbstractConverter {
             mappingFile.put("format_version", "1.0.0");
             mappingFile.set("items", itemMappings);
 
-            Path mappingsFile = storage.getParent().resolve("item_mappings.json");
+            Path mappingsFile = packConverter.getItemMappingsFile();
             packConverter.log("Writing item mappings to " + mappingsFile.toAbsolutePath());
 
             try {
@@ -220,6 +237,8 @@ public class CustomModelDataConverter extends AbstractConverter {
                 // We have custom model data, so let's write the textures
                 OutputStream outputStream = Files.newOutputStream(itemTextures, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE);
                 mapper.writer(new DefaultPrettyPrinter()).writeValue(outputStream, textureData);
+                packConverter.getIndex().write(to);
+                packConverter.getLineage().write(to);
             } catch (IOException e) {
                 packConverter.log("Failed to write item textures to " + itemTextures.toAbsolutePath() + ": " + e.getMessage());
             }
@@ -228,4 +247,21 @@ public class CustomModelDataConverter extends AbstractConverter {
 
         return new ArrayList<>();
     }
+
+    @Override
+    public Collection<String> getReadPaths() {
+        // Reads and copies textures referenced from the models, which aren't known up front
+        return null;
+    }
+
+    @Override
+    public Collection<String> getWritePaths() {
+        return null;
+    }
+
+    public record Rule(String from, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
@@ -28,15 +28,16 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class DeleteConverter extends AbstractConverter {
 
@@ -54,40 +55,57 @@ public class DeleteConverter extends AbstractConverter {
         defaultData.add(new Object[] {"bedrock_textures/"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(DeleteConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public DeleteConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Delete %s", from));
 
-            if (fromFile.isDirectory()) {
-                deleteDirectory(fromFile);
+            Path fromPath = storage.resolve(from);
+            packConverter.getImageCache().discard(fromPath);
+            packConverter.getMetrics().fileTouched(fromPath);
+            if (Files.isDirectory(fromPath)) {
+                deleteDirectory(fromPath);
             } else {
-                Files.delete(fromFile.toPath());
+                Files.delete(fromPath);
             }
+            packConverter.getIndex().delete(from);
+            packConverter.getLineage().delete(from);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
 
-    private void deleteDirectory(File directoryToBeDeleted) {
-        File[] allContents = directoryToBeDeleted.listFiles();
-        if (allContents != null) {
-            for (File file : allContents) {
-                deleteDirectory(file);
+    @Override
+    public boolean isCacheable() {
+        return false;
+    }
+
+    private void deleteDirectory(Path directoryToBeDeleted) throws IOException {
+        try (Stream<Path> paths = Files.walk(directoryToBeDeleted)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
             }
         }
-        directoryToBeDeleted.delete();
+    }
+
+    public record Rule(String from) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class));
+        }
     }
 }
@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -89,35 +88,37 @@ public class DespriteConverter extends AbstractConverter {
         });
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(DespriteConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public DespriteConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-            int factorDetect = (int) this.data[1];
-            Object[] sprites = (Object[]) this.data[2];
+            String from = rule.from();
+            int factorDetect = rule.factorDetect();
 
-            File fromFile = storage.resolve(from).toFile();
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
             
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
             fromImage = ImageUtils.ensureMinWidth(fromImage, factorDetect);
 
             int factor = (fromImage.getWidth() / factorDetect);
 
-            for (Object sprite : sprites) {
-                Object[] spriteArr = (Object[]) sprite;
-                int x = (int) spriteArr[0];
-                int y = (int) spriteArr[1];
-                int width = (int) spriteArr[2];
-                int height = (int) spriteArr[3];
-                String to = (String) spriteArr[4];
-                int[] emptyOverlay = spriteArr.length > 5 ? (int[]) spriteArr[5] : null;
+            for (Sprite sprite : rule.sprites()) {
+                int x = sprite.x();
+                int y = sprite.y();
+                int width = sprite.width();
+                int height = sprite.height();
+                String to = sprite.to();
+                int[] emptyOverlay = sprite.emptyOverlay();
 
                 packConverter.log(String.format("Desprite %s", to));
 
@@ -129,10 +130,29 @@ public class DespriteConverter extends AbstractConverter {
                     g.fillRect((emptyOverlay[0] * factor), (emptyOverlay[1] * factor), (emptyOverlay[2] * factor), (emptyOverlay[3] * factor));
                 }
 
-                ImageUtils.write(spriteImage, "png", storage.resolve(to).toFile());
+                writeImage(spriteImage, "png", to);
             }
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from, int factorDetect, List<Sprite> sprites) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, Integer.class),
+                    ConverterRules.list(data, 2, Sprite::parse));
+        }
+    }
+
+    public record Sprite(int x, int y, int width, int height, String to, int[] emptyOverlay) {
+        static Sprite parse(Object[] data) {
+            return new Sprite(ConverterRules.get(data, 0, Integer.class),
+                    ConverterRules.get(data, 1, Integer.class),
+                    ConverterRules.get(data, 2, Integer.class),
+                    ConverterRules.get(data, 3, Integer.class),
+                    ConverterRules.get(data, 4, String.class),
+                    ConverterRules.get(data, 5, int[].class, null));
+        }
+    }
 }
@@ -28,12 +28,12 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.ImageRegion;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -166,55 +166,79 @@ public class DespriteExperimentalConverter extends AbstractConverter {
         });
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(DespriteExperimentalConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public DespriteExperimentalConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-            int factorDetect = (int) this.data[1];
-            Object[] sprites = (Object[]) this.data[2];
+            String from = rule.from();
+            int factorDetect = rule.factorDetect();
 
-            File fromFile = storage.resolve(from).toFile();
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
             
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
             fromImage = ImageUtils.ensureMinWidth(fromImage, factorDetect);
 
             int factor = (fromImage.getWidth() / factorDetect);
 
-            for (Object sprite : sprites) {
-                Object[] spriteArr = (Object[]) sprite;
-                int x = (int) spriteArr[0];
-                int y = (int) spriteArr[1];
-                int width = (int) spriteArr[2];
-                int height = (int) spriteArr[3];
-                String to = (String) spriteArr[4];
-                int[] emptyOverlayAlt = spriteArr.length > 5 ? (int[]) spriteArr[5] : null;
-                int[] emptyOverlay = spriteArr.length > 6 ? (int[]) spriteArr[6] : null;
+            for (Sprite sprite : rule.sprites()) {
+                int x = sprite.x();
+                int y = sprite.y();
+                int width = sprite.width();
+                int height = sprite.height();
+                String to = sprite.to();
+                int[] emptyOverlayAlt = sprite.emptyOverlayAlt();
+                int[] emptyOverlay = sprite.emptyOverlay();
 
                 packConverter.log(String.format("Desprite %s (Experimental)", to));
 
-                BufferedImage spriteImage = ImageUtils.crop(fromImage, (x * factor), (y * factor), (width * factor), (height * factor));
+                ImageRegion spriteRegion = ImageRegion.of(fromImage, (x * factor), (y * factor), (width * factor), (height * factor));
 
-                if (emptyOverlayAlt != null && ImageUtils.isEmptyArea(spriteImage, 0, 0, spriteImage.getWidth(), spriteImage.getHeight())) {
-                    spriteImage = ImageUtils.crop(spriteImage, (emptyOverlayAlt[0] * factor), (emptyOverlayAlt[1] * factor), (emptyOverlayAlt[2] * factor), (emptyOverlayAlt[3] * factor));
+                if (emptyOverlayAlt != null && spriteRegion.isEmpty()) {
+                    spriteRegion = spriteRegion.region((emptyOverlayAlt[0] * factor), (emptyOverlayAlt[1] * factor), (emptyOverlayAlt[2] * factor), (emptyOverlayAlt[3] * factor));
                 }
 
+                BufferedImage spriteImage = spriteRegion.toImage();
+
                 if (emptyOverlay != null) {
                     Graphics g = spriteImage.getGraphics();
                     g.setColor(new Color(Color.TRANSLUCENT, true));
                     g.fillRect((emptyOverlay[0] * factor), (emptyOverlay[1] * factor), (emptyOverlay[2] * factor), (emptyOverlay[3] * factor));
                 }
 
-                ImageUtils.write(spriteImage, "png", storage.resolve(to).toFile());
+                writeImage(spriteImage, "png", to);
             }
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from, int factorDetect, List<Sprite> sprites) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, Integer.class),
+                    ConverterRules.list(data, 2, Sprite::parse));
+        }
+    }
+
+    public record Sprite(int x, int y, int width, int height, String to, int[] emptyOverlayAlt, int[] emptyOverlay) {
+        static Sprite parse(Object[] data) {
+            return new Sprite(ConverterRules.get(data, 0, Integer.class),
+                    ConverterRules.get(data, 1, Integer.class),
+                    ConverterRules.get(data, 2, Integer.class),
+                    ConverterRules.get(data, 3, Integer.class),
+                    ConverterRules.get(data, 4, String.class),
+                    ConverterRules.get(data, 5, int[].class, null),
+                    ConverterRules.get(data, 6, int[].class, null));
+        }
+    }
 }
@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
-import org.geysermc.packconverter.api.utils.ImageUtils;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.PixelKernels;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -57,38 +56,40 @@ public class DestroyStageConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/environment/destroy_stage_9.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(DestroyStageConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public DestroyStageConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Convert destroy stage %s", from));
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
 
-            Color blank = new Color(255, 255, 255, 0);
-            for (int x = 0; x < fromImage.getWidth(); x++) {
-                for (int y = 0; y < fromImage.getHeight(); y++) {
-                    Color c = new Color(fromImage.getRGB(x, y), true);
-                    if (c.getAlpha() == 0) {
-                        fromImage.setRGB(x, y, blank.getRGB());
-                    }
-                }
-            }
+            int blank = new Color(255, 255, 255, 0).getRGB();
+            PixelKernels.apply(fromImage, fromImage, (src, srcOffset, dst, dstOffset, length) -> PixelKernels.replaceTransparent(src, srcOffset, dst, dstOffset, length, blank));
 
-            ImageUtils.write(fromImage, "png", fromFile);
+            writeImage(fromImage, "png", from);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class));
+        }
+    }
 }
@@ -33,10 +33,8 @@ import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -83,12 +81,11 @@ public class DialogConverter extends AbstractConverter {
             int factorDetect = (int) this.data[1];
             Object[] dialogs = (Object[]) this.data[2];
 
-            File fromFile = storage.resolve(from).toFile();
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
             
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
             fromImage = ImageUtils.ensureMinWidth(fromImage, factorDetect);
 
             int factor = (fromImage.getWidth() / factorDetect);
@@ -129,9 +126,9 @@ public class DialogConverter extends AbstractConverter {
 
                     packConverter.log(String.format("Convert dialog %s (Experimental)", toPath));
 
-                    ImageUtils.write(toImage, "png", storage.resolve(toPath + ".png").toFile());
+                    writeImage(toImage, "png", toPath + ".png");
 
-                    mapper.writeValue(storage.resolve(toPath + ".json").toFile(), metadata);
+                    mapper.writeValue(newOutputStream(toPath + ".json"), metadata);
                 }
             }
             
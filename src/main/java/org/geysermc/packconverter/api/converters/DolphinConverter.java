@@ -28,12 +28,12 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.ImageRemap;
+import org.geysermc.packconverter.api.utils.ImageRemap.Transform;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,8 +48,56 @@ public class DolphinConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/dolphin.png"});
     }
 
+    private static final ImageRemap LAYOUT = ImageRemap.builder()
+            // Nose
+            .copy(0, 13, 12, 6, 0, 13)
+
+            // Head
+            .copy(0, 0, 28, 13, 0, 0)
+
+            // Body
+            .copy(35, 0, 16, 13, 13, 13)
+            .copy(22, 13, 42, 7, 0, 26)
+
+            // Tail 1
+            .copy(11, 19, 8, 11, 11, 33)
+            .copy(0, 30, 30, 5, 0, 44)
+
+            // Tail 2
+            .copy(19, 20, 32, 7, 0, 49)
+
+            // Top
+            .copy(62, 5, 1, 4, 33, 0)
+            .copy(56, 5, 1, 4, 34, 0)
+            .copy(51, 5, 5, 4, 29, 4, Transform.ROTATE_270)
+            .copy(56, 0, 1, 5, 33, 4)
+            .copy(57, 5, 5, 4, 34, 4, Transform.ROTATE_90)
+            .copy(57, 0, 1, 5, 38, 4)
+
+            // Right
+            .copy(56, 27, 8, 4, 44, 0)
+            .copy(48, 27, 8, 4, 52, 0, Transform.FLIP_HORIZONTAL)
+            .copy(55, 20, 1, 7, 40, 4, Transform.ROTATE_90)
+            .copy(55, 20, 1, 5, 47, 4, Transform.ROTATE_90)
+            .copy(56, 20, 1, 7, 52, 4, Transform.ROTATE_90)
+            .copy(56, 20, 1, 5, 59, 4, Transform.ROTATE_90)
+
+            // Left
+            .copy(56, 27, 8, 4, 44, 6, Transform.FLIP_HORIZONTAL)
+            .copy(48, 27, 8, 4, 52, 6)
+            .copy(55, 20, 1, 7, 40, 10, Transform.ROTATE_90)
+            .copy(55, 20, 1, 5, 47, 10, Transform.ROTATE_90)
+            .copy(56, 20, 1, 7, 52, 10, Transform.ROTATE_90)
+            .copy(56, 20, 1, 5, 59, 10, Transform.ROTATE_90)
+            .build();
+
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(DolphinConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public DolphinConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -57,69 +105,31 @@ public class DolphinConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String from = (String) this.data[0];
+            String from = rule.from();
 
-            File fromFile = storage.resolve(from).toFile();
-
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return delete;
             }
 
             packConverter.log("Convert dolphin");
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
 
             fromImage = ImageUtils.ensureMinWidth(fromImage, 64);
 
             int factor = fromImage.getWidth() / 64;
 
-            BufferedImage newImage = new BufferedImage((64 * factor), (64 * factor), BufferedImage.TYPE_INT_ARGB);
-            Graphics g = newImage.getGraphics();
-
-            // Nose
-            g.drawImage(ImageUtils.crop(fromImage, 0, (13 * factor), (12 * factor), (6 * factor)), 0, (13 * factor), null);
-
-            // Head
-            g.drawImage(ImageUtils.crop(fromImage, 0, 0, (28 * factor), (13 * factor)), 0, 0, null);
-
-            // Body
-            g.drawImage(ImageUtils.crop(fromImage, (35 * factor), 0, (16 * factor), (13 * factor)), (13 * factor), (13 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (22 * factor), (13 * factor), (42 * factor), (7 * factor)), 0, (26 * factor), null);
-
-            // Tail 1
-            g.drawImage(ImageUtils.crop(fromImage, (11 * factor), (19 * factor), (8 * factor), (11 * factor)), (11 * factor), (33 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage,0, (30 * factor), (30 * factor), (5 * factor)), 0, (44 * factor), null);
-
-            // Tail 2
-            g.drawImage(ImageUtils.crop(fromImage, (19 * factor), (20 * factor), (32 * factor), (7 * factor)), 0, (49 * factor), null);
+            BufferedImage newImage = LAYOUT.apply((64 * factor), (64 * factor), factor, fromImage);
 
-            // Top
-            g.drawImage(ImageUtils.crop(fromImage, (62 * factor), (5 * factor), factor, (4 * factor)), (33 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (56 * factor), (5 * factor), factor, (4 * factor)), (34 * factor), 0, null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(fromImage, (51 * factor), (5 * factor), (5 * factor), (4 * factor)),-90), (29 * factor), (4 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (56 * factor), 0, factor, (5 * factor)), (33 * factor), (4 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(fromImage, (57 * factor), (5 * factor), (5 * factor), (4 * factor)),90), (34 * factor), (4 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (57 * factor), 0, factor, (5 * factor)), (38 * factor), (4 * factor), null);
-
-            // Right
-            g.drawImage(ImageUtils.crop(fromImage, (56 * factor), (27 * factor), (8 * factor), (4 * factor)), (44 * factor), 0, null);
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(fromImage, (48 * factor), (27 * factor), (8 * factor), (4 * factor)), true, false), (52 * factor), 0, null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(fromImage, (55 * factor), (20 * factor), factor, (7 * factor)),90), (40 * factor), (4 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(fromImage, (55 * factor), (20 * factor), factor, (5 * factor)),90), (47 * factor), (4 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(fromImage, (56 * factor), (20 * factor), factor, (7 * factor)),90), (52 * factor), (4 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(fromImage, (56 * factor), (20 * factor), factor, (5 * factor)),90), (59 * factor), (4 * factor), null);
-
-            // Left
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(fromImage, (56 * factor), (27 * factor), (8 * factor), (4 * factor)), true, false), (44 * factor), (6 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (27 * factor), (8 * factor), (4 * factor)), (52 * factor), (6 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(fromImage, (55 * factor), (20 * factor), factor, (7 * factor)),90), (40 * factor), (10 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(fromImage, (55 * factor), (20 * factor), factor, (5 * factor)),90), (47 * factor), (10 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(fromImage, (56 * factor), (20 * factor), factor, (7 * factor)),90), (52 * factor), (10 * factor), null);
-            g.drawImage(ImageUtils.rotate(ImageUtils.crop(fromImage, (56 * factor), (20 * factor), factor, (5 * factor)),90), (59 * factor), (10 * factor), null);
-
-            ImageUtils.write(newImage, "png", fromFile);
+            writeImage(newImage, "png", from);
         } catch (IOException e) { }
 
         return delete;
     }
+
+    public record Rule(String from) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class));
+        }
+    }
 }
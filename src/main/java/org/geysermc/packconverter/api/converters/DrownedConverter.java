@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,8 +47,13 @@ public class DrownedConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/zombie/drowned.png", "textures/entity/zombie/drowned_outer_layer.png", "textures/entity/zombie/drowned.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(DrownedConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public DrownedConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -57,21 +61,18 @@ public class DrownedConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String from = (String) this.data[0];
-            String overlay = (String) this.data[1];
-            String to = (String) this.data[2];
-
-            File fromFile = storage.resolve(from).toFile();
-            File overlayFile = storage.resolve(overlay).toFile();
+            String from = rule.from();
+            String overlay = rule.overlay();
+            String to = rule.to();
 
-            if (!fromFile.exists() || !overlayFile.exists()) {
+            if (!exists(from) || !exists(overlay)) {
                 return delete;
             }
 
             packConverter.log("Convert drowned");
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
-            BufferedImage overlayImage = ImageIO.read(overlayFile);
+            BufferedImage fromImage = readImage(from);
+            BufferedImage overlayImage = readImage(overlay);
 
             fromImage = ImageUtils.ensureMinWidth(fromImage, 64);
 
@@ -90,11 +91,19 @@ public class DrownedConverter extends AbstractConverter {
 
             g.drawImage(ImageUtils.crop(overlayImage, (32 * factor), (48 * factor), (16 * factor), (16 * factor)), (48 * factor), (48 * factor), null);
 
-            ImageUtils.write(newImage, "png", storage.resolve(to).toFile());
+            writeImage(newImage, "png", to);
 
             delete.add(new DeleteConverter(packConverter, storage, new Object[] {overlay}));
         } catch (IOException e) { }
 
         return delete;
     }
+
+    public record Rule(String from, String overlay, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, String.class),
+                    ConverterRules.get(data, 2, String.class));
+        }
+    }
 }
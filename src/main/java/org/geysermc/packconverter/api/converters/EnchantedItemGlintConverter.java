@@ -28,11 +28,10 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -47,31 +46,40 @@ public class EnchantedItemGlintConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/misc/enchanted_item_glint.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(EnchantedItemGlintConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public EnchantedItemGlintConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Convert enchanted item glint %s", from));
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
 
             fromImage = ImageUtils.saturate(fromImage, -100);
             fromImage = ImageUtils.rotate(fromImage, -90);
 
-            ImageUtils.write(fromImage, "png", fromFile);
+            writeImage(fromImage, "png", from);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class));
+        }
+    }
 }
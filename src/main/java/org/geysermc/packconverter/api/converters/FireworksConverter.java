@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,8 +47,13 @@ public class FireworksConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/items/fireworks.png", "textures/entity/fireworks.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(FireworksConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public FireworksConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -57,18 +61,16 @@ public class FireworksConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
+            String to = rule.to();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return delete;
             }
 
             packConverter.log("Convert fireworks");
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
 
             int factor = fromImage.getWidth() / 16;
 
@@ -77,9 +79,15 @@ public class FireworksConverter extends AbstractConverter {
 
             g.drawImage(ImageUtils.rotate(fromImage, -90), 0, 0, null);
 
-            ImageUtils.write(newImage, "png", storage.resolve(to).toFile());
+            writeImage(newImage, "png", to);
         } catch (IOException e) { }
 
         return delete;
     }
+
+    public record Rule(String from, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
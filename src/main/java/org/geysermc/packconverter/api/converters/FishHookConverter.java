@@ -28,12 +28,10 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
-import org.geysermc.packconverter.api.utils.ImageUtils;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.ImageRemap;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,8 +46,43 @@ public class FishHookConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/fishhook.png", "textures/entity/fishhook.png"});
     }
 
+    private static final ImageRemap LAYOUT = ImageRemap.builder()
+            .copy(3, 1, 1, 1, 0, 0)
+            .copy(3, 1, 1, 1, 2, 0)
+            .copy(3, 1, 1, 1, 2, 2)
+            .copy(3, 1, 1, 1, 0, 2)
+            .copy(4, 1, 1, 1, 1, 0)
+            .copy(4, 1, 1, 1, 2, 1)
+            .copy(4, 1, 1, 1, 1, 2)
+            .copy(4, 1, 1, 1, 0, 1)
+            .copy(4, 4, 1, 1, 1, 1)
+
+            .copy(5, 3, 1, 1, 3, 0)
+            .copy(5, 3, 1, 1, 5, 0)
+            .copy(5, 3, 1, 1, 5, 2)
+            .copy(5, 3, 1, 1, 3, 2)
+            .copy(4, 3, 1, 1, 4, 0)
+            .copy(4, 3, 1, 1, 5, 1)
+            .copy(4, 3, 1, 1, 4, 2)
+            .copy(4, 3, 1, 1, 3, 1)
+            .copy(4, 4, 1, 1, 4, 1)
+
+            .copy(3, 1, 3, 3, 6, 0)
+            .copy(3, 1, 3, 3, 9, 0)
+            .copy(3, 1, 3, 3, 12, 0)
+            .copy(3, 1, 3, 3, 15, 0)
+
+            .copy(2, 5, 3, 3, 18, 0)
+            .copy(4, 4, 1, 1, 22, 2)
+            .build();
+
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(FishHookConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public FishHookConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -57,55 +90,30 @@ public class FishHookConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
+            String to = rule.to();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return delete;
             }
 
             packConverter.log("Convert fishhook");
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
 
             int factor = fromImage.getWidth() / 8;
 
-            BufferedImage newImage = new BufferedImage((24 * factor), (3 * factor), BufferedImage.TYPE_INT_ARGB);
-            Graphics g = newImage.getGraphics();
-
-            g.drawImage(ImageUtils.crop(fromImage, (3 * factor), factor, factor, factor), 0, 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (3 * factor), factor, factor, factor), (2 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (3 * factor), factor, factor, factor), (2 * factor), (2 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (3 * factor), factor, factor, factor), 0, (2 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (4 * factor), factor, factor, factor), factor, 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (4 * factor), factor, factor, factor), (2 * factor), factor, null);
-            g.drawImage(ImageUtils.crop(fromImage, (4 * factor), factor, factor, factor), factor, (2 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (4 * factor), factor, factor, factor), 0, factor, null);
-            g.drawImage(ImageUtils.crop(fromImage, (4 * factor), (4 * factor), factor, factor), factor, factor, null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (5 * factor), (3 * factor), factor, factor), (3 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (5 * factor), (3 * factor), factor, factor), (5 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (5 * factor), (3 * factor), factor, factor), (5 * factor), (2 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (5 * factor), (3 * factor), factor, factor), (3 * factor), (2 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (4 * factor), (3 * factor), factor, factor), (4 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (4 * factor), (3 * factor), factor, factor), (5 * factor), factor, null);
-            g.drawImage(ImageUtils.crop(fromImage, (4 * factor), (3 * factor), factor, factor), (4 * factor), (2 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (4 * factor), (3 * factor), factor, factor), (3 * factor), factor, null);
-            g.drawImage(ImageUtils.crop(fromImage, (4 * factor), (4 * factor), factor, factor), (4 * factor), factor, null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (3 * factor), factor, (3 * factor), (3 * factor)), (6 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (3 * factor), factor, (3 * factor), (3 * factor)), (9 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (3 * factor), factor, (3 * factor), (3 * factor)), (12 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (3 * factor), factor, (3 * factor), (3 * factor)), (15 * factor), 0, null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (2 * factor), (5 * factor), (3 * factor), (3 * factor)), (18 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (4 * factor), (4 * factor), factor, factor), (22 * factor), (2 * factor), null);
-
-            ImageUtils.write(newImage, "png", storage.resolve(to).toFile());
+            BufferedImage newImage = LAYOUT.apply((24 * factor), (3 * factor), factor, fromImage);
+
+            writeImage(newImage, "png", to);
         } catch (IOException e) { }
 
         return delete;
     }
+
+    public record Rule(String from, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
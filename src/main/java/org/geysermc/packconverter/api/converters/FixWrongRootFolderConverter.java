@@ -33,6 +33,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.PackIndex;
+import org.geysermc.packconverter.api.utils.PackLineage;
 import org.geysermc.packconverter.api.utils.ResourcePackManifest;
 
 import java.io.FileNotFoundException;
@@ -41,7 +44,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class FixWrongRootFolderConverter extends AbstractConverter {
 
@@ -52,24 +54,33 @@ public class FixWrongRootFolderConverter extends AbstractConverter {
         defaultData.add(new Object[] {"pack.mcmeta", new String[] {"pack.png", "assets/", "bedrock_textures/", "bedrock_uuid_header", "bedrock_uuid_module"}});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(FixWrongRootFolderConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public FixWrongRootFolderConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String packMcmeta = (String) this.data[0];
-            String[] moveFiles = (String[]) this.data[1];
+            String packMcmeta = rule.packMcmeta();
+            List<String> moveFiles = rule.moveFiles();
+
+            // Works with the files directly so anything pending has to be on disk
+            packConverter.getImageCache().flush();
 
-            if (storage.resolve(packMcmeta).toFile().exists()) {
+            if (exists(packMcmeta)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("%s not found in root folder (But are needed in the root folder, even in the Java version) - Try to lookup in sub folders ...", packMcmeta));
 
             Path rootPath = null;
-            for (Path filePath : Files.walk(storage).filter(Files::isRegularFile).collect(Collectors.toList())) {
+            for (PackIndex.Entry file : packConverter.getIndex().getFiles("")) {
+                Path filePath = storage.resolve(file.getPath());
                 if (filePath.getFileName().toString().equals(packMcmeta)) {
                     rootPath = filePath.getParent();
                     break;
@@ -84,11 +95,14 @@ public class FixWrongRootFolderConverter extends AbstractConverter {
 
             List<String> moveFilesList = new ArrayList<>();
             moveFilesList.add(packMcmeta);
-            moveFilesList.addAll(Arrays.asList(moveFiles));
+            moveFilesList.addAll(moveFiles);
 
             for (String fileName : moveFilesList) {
-                if (rootPath.resolve(fileName).toFile().exists()) {
+                String path = PackLineage.relativize(storage, rootPath.resolve(fileName));
+                if (packConverter.getIndex().exists(path)) {
                     Files.move(rootPath.resolve(fileName), storage.resolve(fileName));
+                    packConverter.getIndex().move(path, fileName);
+                    packConverter.getLineage().move(path, fileName);
                 }
             }
         } catch (IOException e) {
@@ -97,4 +111,21 @@ public class FixWrongRootFolderConverter extends AbstractConverter {
 
         return new ArrayList<>();
     }
+
+    @Override
+    public Collection<String> getReadPaths() {
+        // Searches and moves files anywhere in the pack
+        return null;
+    }
+
+    @Override
+    public Collection<String> getWritePaths() {
+        return null;
+    }
+
+    public record Rule(String packMcmeta, List<String> moveFiles) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.strings(data, 1));
+        }
+    }
 }
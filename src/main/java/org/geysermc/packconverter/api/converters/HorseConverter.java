@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
-import org.geysermc.packconverter.api.utils.ImageUtils;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.ImageRemap;
+import org.geysermc.packconverter.api.utils.ImageRemap.Transform;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -66,196 +65,214 @@ public class HorseConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/horse2/armor/horse_armor_leather.png", "textures/entity/horse/armor/horse_armor_leather.png"});
     }
 
-    public HorseConverter(PackConverter packConverter, Path storage, Object[] data) {
-        super(packConverter, storage, data);
-    }
+    private static final ImageRemap LAYOUT = ImageRemap.builder()
+            // Chest
+            .copy(26, 21, 22, 11, 0, 34)
+            .copy(26, 21, 22, 11, 0, 47)
 
-    @Override
-    public List<AbstractConverter> convert() {
-        List<AbstractConverter> delete = new ArrayList<>();
+            // Saddle (Gray part)
+            .copy(29, 5, 6, 4, 74, 0)
+            .copy(29, 5, 6, 4, 74, 4)
+            .copy(29, 5, 6, 4, 74, 13)
 
-        try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
+            .copy(31, 5, 1, 1, 81, 26)
+            .copy(31, 5, 1, 1, 87, 26)
 
-            File fromFile = storage.resolve(from).toFile();
+            .copy(31, 5, 1, 1, 101, 26)
+            .copy(31, 5, 1, 1, 107, 26)
 
-            if (!fromFile.exists()) {
-                return delete;
-            }
+            // Saddle (Color part)
+            .copy(35, 0, 10, 9, 88, 0)
+            .copy(35, 0, 10, 9, 98, 0)
 
-            packConverter.log(String.format("Convert horse %s", to));
+            .copy(26, 9, 9, 2, 82, 9)
+            .copy(26, 9, 7, 2, 91, 9)
+            .copy(26, 9, 6, 2, 108, 9)
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            .copy(26, 9, 8, 1, 80, 8)
+            .copy(26, 9, 8, 1, 108, 8)
 
-            int factor = fromImage.getWidth() / 64;
+            .copy(26, 9, 9, 1, 80, 11)
+            .copy(26, 9, 9, 1, 89, 11)
+            .copy(26, 9, 2, 1, 98, 11)
+            .copy(26, 9, 9, 1, 106, 11)
+            .copy(26, 9, 1, 1, 115, 11)
 
-            BufferedImage newImage = new BufferedImage((fromImage.getWidth() * 2), (fromImage.getWidth() * 2), BufferedImage.TYPE_INT_ARGB);
-            Graphics g = newImage.getGraphics();
+            .copy(26, 9, 9, 1, 92, 13)
+            .copy(26, 9, 1, 1, 101, 13)
 
-            // Chest
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (21 * factor), (22 * factor), (11 * factor)), 0, (34 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (21 * factor), (22 * factor), (11 * factor)), 0, (47 * factor), null);
+            .copy(26, 9, 9, 1, 92, 19)
+            .copy(26, 9, 1, 1, 101, 19)
 
-            // Saddle (Gray part)
-            g.drawImage(ImageUtils.crop(fromImage, (29 * factor), (5 * factor), (6 * factor), (4 * factor)), (74 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (29 * factor), (5 * factor), (6 * factor), (4 * factor)), (74 * factor), (4 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (29 * factor), (5 * factor), (6 * factor), (4 * factor)), (74 * factor), (13 * factor), null);
+            .copy(26, 9, 2, 1, 71, 0)
+            .copy(35, 0, 4, 6, 70, 1)
 
-            g.drawImage(ImageUtils.crop(fromImage, (31 * factor), (5 * factor), factor, factor), (81 * factor), (26 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (31 * factor), (5 * factor), factor, factor), (87 * factor), (26 * factor), null);
+            .copy(26, 9, 2, 1, 81, 0)
+            .copy(35, 0, 4, 6, 80, 1)
 
-            g.drawImage(ImageUtils.crop(fromImage, (31 * factor), (5 * factor), factor, factor), (101 * factor), (26 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (31 * factor), (5 * factor), factor, factor), (107 * factor), (26 * factor), null);
+            .copy(26, 9, 3, 1, 60, 22)
+            .copy(26, 9, 8, 1, 63, 23)
+            .copy(26, 9, 3, 1, 71, 22)
+            .copy(26, 9, 2, 1, 74, 21)
 
-            // Saddle (Color part)
-            g.drawImage(ImageUtils.crop(fromImage, (35 * factor), 0, (10 * factor), (9 * factor)), (88 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (35 * factor), 0, (10 * factor), (9 * factor)), (98 * factor), 0, null);
+            .copy(26, 9, 3, 1, 60, 27)
+            .copy(26, 9, 8, 1, 63, 28)
+            .copy(26, 9, 3, 1, 71, 27)
+            .copy(26, 9, 2, 1, 74, 26)
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (9 * factor), (2 * factor)), (82 * factor), (9 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (7 * factor), (2 * factor)), (91 * factor), (9 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (6 * factor), (2 * factor)), (108 * factor), (9 * factor), null);
+            .copy(26, 9, 1, 2, 81, 24)
+            .copy(26, 9, 1, 2, 81, 27)
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (8 * factor), factor), (80 * factor), (8 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (8 * factor), factor), (108 * factor), (8 * factor), null);
+            .copy(26, 9, 5, 1, 82, 26)
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (9 * factor), factor), (80 * factor), (11 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (9 * factor), factor), (89 * factor), (11 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (2 * factor), factor), (98 * factor), (11 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (9 * factor), factor), (106 * factor), (11 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), factor, factor), (115 * factor), (11 * factor), null);
+            .copy(26, 9, 1, 2, 87, 24)
+            .copy(26, 9, 1, 2, 87, 27)
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (9 * factor), factor), (92 * factor), (13 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), factor, factor), (101 * factor), (13 * factor), null);
+            .copy(26, 9, 1, 2, 101, 24)
+            .copy(26, 9, 1, 2, 101, 27)
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (9 * factor), factor), (92 * factor), (19 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), factor, factor), (101 * factor), (19 * factor), null);
+            .copy(26, 9, 5, 1, 102, 26)
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (2 * factor), factor), (71 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (35 * factor), 0, (4 * factor), (6 * factor)), (70 * factor), factor, null);
+            .copy(26, 9, 1, 2, 107, 24)
+            .copy(26, 9, 1, 2, 107, 27)
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (2 * factor), factor), (81 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, (35 * factor), 0, (4 * factor), (6 * factor)), (80 * factor), factor, null);
+            // Horse
+            .copy(0, 54, 1, 10, 0, 58)
+            .copy(0, 54, 1, 10, 1, 58)
+            .copy(0, 54, 64, 10, 2, 58)
+            .copy(62, 54, 1, 10, 66, 58)
+            .copy(62, 54, 1, 10, 67, 58)
+
+            .copy(22, 32, 20, 1, 24, 34)
+            .copy(22, 32, 20, 22, 24, 35)
+            .copy(22, 53, 20, 1, 24, 57)
+
+            .copy(0, 35, 22, 1, 1, 12)
+            .copy(0, 35, 22, 1, 1, 13)
+            .copy(0, 35, 22, 19, 1, 14)
+            .copy(15, 42, 7, 1, 16, 20)
+            .copy(0, 42, 7, 1, 1, 20)
+            .copy(0, 53, 22, 1, 1, 33)
+            .from(ImageRemap.TARGET)
+            .copy(1, 20, 1, 14, 0, 20)
+            .copy(22, 20, 1, 14, 23, 20)
+
+            .from(0)
+            .copy(48, 25, 14, 8, 44, 33)
+            .copy(48, 25, 14, 8, 60, 33)
+
+            .copy(48, 25, 16, 8, 79, 34)
+            .copy(48, 32, 16, 1, 79, 42)
+            .from(ImageRemap.TARGET)
+            .copy(79, 34, 1, 9, 78, 34)
+            .copy(94, 34, 1, 9, 95, 34)
+            .copy(78, 34, 18, 9, 96, 34)
+
+            .from(0)
+            .copy(52, 21, 8, 4, 48, 51)
+            .copy(52, 21, 8, 4, 64, 51)
+            .copy(52, 21, 8, 4, 82, 51)
+            .copy(52, 21, 8, 4, 100, 51)
+
+            .copy(48, 33, 16, 3, 44, 55)
+            .copy(48, 33, 16, 3, 60, 55)
+            .copy(48, 33, 16, 3, 78, 55)
+            .copy(48, 33, 16, 3, 96, 55)
+
+            .copy(0, 12, 6, 8, 0, 12)
+
+            .copy(7, 13, 10, 8, 7, 0)
+            .copy(0, 20, 9, 5, 0, 7)
+            .copy(10, 20, 14, 5, 9, 7)
+            .copy(25, 20, 1, 5, 23, 7)
+
+            .copy(0, 25, 18, 1, 25, 18)
+            .copy(0, 25, 18, 8, 25, 19)
+            .copy(0, 25, 1, 8, 24, 19)
+            .copy(0, 25, 1, 8, 43, 19)
+            .copy(0, 25, 18, 5, 24, 27)
+            .copy(0, 33, 18, 2, 24, 32)
+
+            .copy(48, 25, 6, 4, 48, 29)
+            .copy(48, 25, 6, 4, 64, 29)
+            .from(ImageRemap.TARGET)
+            .copy(78, 34, 8, 5, 83, 29)
+            .copy(78, 34, 8, 5, 101, 29)
+
+            .from(0)
+            .copy(48, 25, 6, 3, 47, 41)
+            .copy(48, 25, 6, 3, 63, 41)
+            .copy(48, 25, 6, 3, 81, 43)
+            .copy(48, 25, 6, 3, 99, 43)
+
+            .copy(48, 25, 6, 5, 44, 44)
+            .copy(48, 25, 6, 5, 50, 44)
+            .copy(48, 25, 6, 5, 60, 44)
+            .copy(48, 25, 6, 5, 66, 44)
+            .copy(48, 25, 6, 5, 78, 46)
+            .copy(48, 25, 6, 5, 84, 46)
+            .copy(48, 25, 6, 5, 96, 46)
+            .copy(48, 25, 6, 5, 102, 46)
+
+            .copy(48, 25, 4, 3, 47, 0)
+            .from(ImageRemap.TARGET)
+            .copy(78, 34, 1, 2, 44, 3)
+            .copy(78, 34, 8, 2, 45, 3)
+            .copy(85, 34, 1, 2, 53, 3)
+
+            .from(0)
+            .copy(42, 40, 6, 7, 45, 7)
+            .copy(42, 40, 10, 4, 38, 14)
+            .copy(42, 40, 10, 4, 48, 14)
+
+            .copy(42, 40, 6, 5, 31, 5)
+            .copy(42, 40, 13, 4, 26, 10)
+            .copy(43, 52, 2, 2, 39, 11)
+            .copy(43, 52, 2, 2, 24, 11, Transform.FLIP_HORIZONTAL)
+            .copy(43, 52, 2, 2, 31, 3, Transform.ROTATE_180)
+            .copy(43, 52, 2, 2, 34, 3, Transform.ROTATE_180)
+
+            .copy(19, 16, 6, 4, 0, 0)
+            .build();
+
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(HorseConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (3 * factor), factor), (60 * factor), (22 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (8 * factor), factor), (63 * factor), (23 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (3 * factor), factor), (71 * factor), (22 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (2 * factor), factor), (74 * factor), (21 * factor), null);
+    public HorseConverter(PackConverter packConverter, Path storage, Object[] data) {
+        super(packConverter, storage, data);
+        this.rule = RULES.get(data);
+    }
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (3 * factor), factor), (60 * factor), (27 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (8 * factor), factor), (63 * factor), (28 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (3 * factor), factor), (71 * factor), (27 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (2 * factor), factor), (74 * factor), (26 * factor), null);
+    @Override
+    public List<AbstractConverter> convert() {
+        List<AbstractConverter> delete = new ArrayList<>();
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), factor, (2 * factor)), (81 * factor), (24 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), factor, (2 * factor)), (81 * factor), (27 * factor), null);
+        try {
+            String from = rule.from();
+            String to = rule.to();
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (5 * factor), factor), (82 * factor), (26 * factor), null);
+            if (!exists(from)) {
+                return delete;
+            }
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), factor, (2 * factor)), (87 * factor), (24 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), factor, (2 * factor)), (87 * factor), (27 * factor), null);
+            packConverter.log(String.format("Convert horse %s", to));
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), factor, (2 * factor)), (101 * factor), (24 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), factor, (2 * factor)), (101 * factor), (27 * factor), null);
+            BufferedImage fromImage = readImage(from);
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), (5 * factor), factor), (102 * factor), (26 * factor), null);
+            int factor = fromImage.getWidth() / 64;
 
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), factor, (2 * factor)), (107 * factor), (24 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (26 * factor), (9 * factor), factor, (2 * factor)), (107 * factor), (27 * factor), null);
+            BufferedImage newImage = LAYOUT.apply((fromImage.getWidth() * 2), (fromImage.getWidth() * 2), factor, fromImage);
 
-            // Horse
-            g.drawImage(ImageUtils.crop(fromImage, 0, (54 * factor), factor, (10 * factor)), 0, (58 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (54 * factor), factor, (10 * factor)), factor, (58 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (54 * factor), (64 * factor), (10 * factor)), (2 * factor), (58 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (62 * factor), (54 * factor), factor, (10 * factor)), (66 * factor), (58 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (62 * factor), (54 * factor), factor, (10 * factor)), (67 * factor), (58 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (22 * factor), (32 * factor), (20 * factor), factor), (24 * factor), (34 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (22 * factor), (32 * factor), (20 * factor), (22 * factor)), (24 * factor), (35 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (22 * factor), (53 * factor), (20 * factor), factor), (24 * factor), (57 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, 0, (35 * factor), (22 * factor), factor), factor, (12 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (35 * factor), (22 * factor), factor), factor, (13 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (35 * factor), (22 * factor), (19 * factor)), factor, (14 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (15 * factor), (42 * factor), (7 * factor), factor), (16 * factor), (20 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (42 * factor), (7 * factor), factor), factor, (20 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (53 * factor), (22 * factor), factor), factor, (33 * factor), null);
-            g.drawImage(ImageUtils.crop(newImage, factor, (20 * factor), factor, (14 * factor)), 0, (20 * factor), null);
-            g.drawImage(ImageUtils.crop(newImage, (22 * factor), (20 * factor), factor, (14 * factor)), (23 * factor), (20 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (14 * factor), (8 * factor)), (44 * factor), (33 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (14 * factor), (8 * factor)), (60 * factor), (33 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (16 * factor), (8 * factor)), (79 * factor), (34 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (32 * factor), (16 * factor), factor), (79 * factor), (42 * factor), null);
-            g.drawImage(ImageUtils.crop(newImage, (79 * factor), (34 * factor), factor, (9 * factor)), (78 * factor), (34 * factor), null);
-            g.drawImage(ImageUtils.crop(newImage, (94 * factor), (34 * factor), factor, (9 * factor)), (95 * factor), (34 * factor), null);
-            g.drawImage(ImageUtils.crop(newImage, (78 * factor), (34 * factor), (18 * factor), (9 * factor)), (96 * factor), (34 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (52 * factor), (21 * factor), (8 * factor), (4 * factor)), (48 * factor), (51 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (52 * factor), (21 * factor), (8 * factor), (4 * factor)), (64 * factor), (51 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (52 * factor), (21 * factor), (8 * factor), (4 * factor)), (82 * factor), (51 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (52 * factor), (21 * factor), (8 * factor), (4 * factor)), (100 * factor), (51 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (33 * factor), (16 * factor), (3 * factor)), (44 * factor), (55 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (33 * factor), (16 * factor), (3 * factor)), (60 * factor), (55 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (33 * factor), (16 * factor), (3 * factor)), (78 * factor), (55 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (33 * factor), (16 * factor), (3 * factor)), (96 * factor), (55 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, 0, (12 * factor), (6 * factor), (8 * factor)), 0, (12 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (7 * factor), (13 * factor), (10 * factor), (8 * factor)), (7 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (20 * factor), (9 * factor), (5 * factor)), 0, (7 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (10 * factor), (20 * factor), (14 * factor), (5 * factor)), (9 * factor), (7 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (25 * factor), (20 * factor), factor, (5 * factor)), (23 * factor), (7 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, 0, (25 * factor), (18 * factor), factor), (25 * factor), (18 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (25 * factor), (18 * factor), (8 * factor)), (25 * factor), (19 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (25 * factor), factor, (8 * factor)), (24 * factor), (19 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (25 * factor), factor, (8 * factor)), (43 * factor), (19 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (25 * factor), (18 * factor), (5 * factor)), (24 * factor), (27 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (33 * factor), (18 * factor), (2 * factor)), (24 * factor), (32 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (4 * factor)), (48 * factor), (29 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (4 * factor)), (64 * factor), (29 * factor), null);
-            g.drawImage(ImageUtils.crop(newImage, (78 * factor), (34 * factor), (8 * factor), (5 * factor)), (83 * factor), (29 * factor), null);
-            g.drawImage(ImageUtils.crop(newImage, (78 * factor), (34 * factor), (8 * factor), (5 * factor)), (101 * factor), (29 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (3 * factor)), (47 * factor), (41 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (3 * factor)), (63 * factor), (41 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (3 * factor)), (81 * factor), (43 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (3 * factor)), (99 * factor), (43 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (5 * factor)), (44 * factor), (44 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (5 * factor)), (50 * factor), (44 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (5 * factor)), (60 * factor), (44 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (5 * factor)), (66 * factor), (44 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (5 * factor)), (78 * factor), (46 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (5 * factor)), (84 * factor), (46 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (5 * factor)), (96 * factor), (46 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (6 * factor), (5 * factor)), (102 * factor), (46 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (48 * factor), (25 * factor), (4 * factor), (3 * factor)), (47 * factor), 0, null);
-            g.drawImage(ImageUtils.crop(newImage, (78 * factor), (34 * factor), factor, (2 * factor)), (44 * factor), (3 * factor), null);
-            g.drawImage(ImageUtils.crop(newImage, (78 * factor), (34 * factor), (8 * factor), (2 * factor)), (45 * factor), (3 * factor), null);
-            g.drawImage(ImageUtils.crop(newImage, (85 * factor), (34 * factor), factor, (2 * factor)), (53 * factor), (3 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (42 * factor), (40 * factor), (6 * factor), (7 * factor)), (45 * factor), (7 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (42 * factor), (40 * factor), (10 * factor), (4 * factor)), (38 * factor), (14 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (42 * factor), (40 * factor), (10 * factor), (4 * factor)), (48 * factor), (14 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (42 * factor), (40 * factor), (6 * factor), (5 * factor)), (31 * factor), (5 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (42 * factor), (40 * factor), (13 * factor), (4 * factor)), (26 * factor), (10 * factor), null);
-            g.drawImage(ImageUtils.crop(fromImage, (43 * factor), (52 * factor), (2 * factor), (2 * factor)), (39 * factor), (11 * factor), null);
-            g.drawImage(ImageUtils.flip(ImageUtils.crop(fromImage, (43 * factor), (52 * factor), (2 * factor), (2 * factor)), true, false), (24 * factor), (11 * factor), null);
-            g.drawImage(ImageUtils.flip(ImageUtils.flip(ImageUtils.crop(fromImage, (43 * factor), (52 * factor), (2 * factor), (2 * factor)), true, false), false, true), (31 * factor), (3 * factor), null);
-            g.drawImage(ImageUtils.flip(ImageUtils.flip(ImageUtils.crop(fromImage, (43 * factor), (52 * factor), (2 * factor), (2 * factor)), true, false), false, true), (34 * factor), (3 * factor), null);
-
-            g.drawImage(ImageUtils.crop(fromImage, (19 * factor), (16 * factor), (6 * factor), (4 * factor)), 0, 0, null);
-
-            ImageUtils.write(newImage, "png", storage.resolve(to).toFile());
+            writeImage(newImage, "png", to);
         } catch (IOException e) { }
 
         return delete;
     }
+
+    public record Rule(String from, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
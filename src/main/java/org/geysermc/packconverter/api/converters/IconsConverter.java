@@ -28,12 +28,10 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
-import org.geysermc.packconverter.api.utils.ImageUtils;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,24 +46,27 @@ public class IconsConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/gui/icons.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(IconsConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public IconsConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-
-            File iconsFile = storage.resolve(from).toFile();
+            String from = rule.from();
 
-            if (!iconsFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Convert icons %s", from));
 
-            BufferedImage iconsImage = ImageIO.read(iconsFile);
+            BufferedImage iconsImage = readImage(from);
 
             for (int x = 0; x < iconsImage.getWidth(); x++) {
                 for (int y = 0; y < iconsImage.getHeight(); y++) {
@@ -76,9 +77,15 @@ public class IconsConverter extends AbstractConverter {
                 }
             }
 
-            ImageUtils.write(iconsImage, "png", iconsFile);
+            writeImage(iconsImage, "png", from);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class));
+        }
+    }
 }
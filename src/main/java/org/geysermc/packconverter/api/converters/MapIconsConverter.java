@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,25 +47,28 @@ public class MapIconsConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/map/map_icons.png", "textures/map/map_icons.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(MapIconsConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public MapIconsConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
-
-            File iconsFile = storage.resolve(from).toFile();
+            String from = rule.from();
+            String to = rule.to();
 
-            if (!iconsFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Convert map icons %s", to));
 
-            BufferedImage iconsImage = ImageIO.read(iconsFile);
+            BufferedImage iconsImage = readImage(from);
 
             int factor = iconsImage.getWidth() / 128;
 
@@ -93,9 +95,15 @@ public class MapIconsConverter extends AbstractConverter {
             g.drawImage(ImageUtils.scale(ImageUtils.crop(iconsImage, (64 * factor), 0, (8 * factor), (8 * factor)), 2f), (32 * factor), (48 * factor), null);
             g.drawImage(ImageUtils.scale(ImageUtils.crop(iconsImage, (72 * factor), 0, (8 * factor), (8 * factor)), 2f), (48 * factor), (48 * factor), null);
 
-            ImageUtils.write(newIconsImage, "png", storage.resolve(to).toFile());
+            writeImage(newIconsImage, "png", to);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
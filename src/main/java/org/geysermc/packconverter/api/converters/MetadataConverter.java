@@ -37,6 +37,7 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ResourcePackManifest;
 
 import java.io.FileNotFoundException;
@@ -56,8 +57,13 @@ public class MetadataConverter extends AbstractConverter {
         defaultData.add(new Object[] {"pack.mcmeta", "manifest.json"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(MetadataConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public MetadataConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -65,18 +71,18 @@ public class MetadataConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
+            String from = rule.from();
+            String to = rule.to();
 
             packConverter.log(String.format("Create metadata %s", to));
 
-            if (!storage.resolve(from).toFile().exists()) {
+            if (!exists(from)) {
                 throw new FileNotFoundException(String.format("Missing %s! Is this really a Java texture pack?", from));
             }
 
             ObjectMapper mapper = new ObjectMapper().enable(JsonParser.Feature.ALLOW_COMMENTS);
 
-            JsonNode packmeta = mapper.readTree(storage.resolve(from).toFile()).get("pack");
+            JsonNode packmeta = mapper.readTree(newInputStream(from)).get("pack");
             int packFormat = packmeta.get("pack_format").asInt();
             String packDesc = packmeta.get("description").asText();
 
@@ -111,7 +117,7 @@ public class MetadataConverter extends AbstractConverter {
             manifest.setModules(modules);
 
             ObjectWriter writer = mapper.writer(new DefaultPrettyPrinter());
-            writer.writeValue(storage.resolve(to).toFile(), manifest);
+            writer.writeValue(newOutputStream(to), manifest);
 
             delete.add(new DeleteConverter(packConverter, storage, new Object[] {from}));
         } catch (IOException e) {
@@ -120,4 +126,10 @@ public class MetadataConverter extends AbstractConverter {
 
         return delete;
     }
+
+    public record Rule(String from, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
@@ -31,12 +31,11 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -236,38 +235,38 @@ public class NineSliceConverter extends AbstractConverter {
         });
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(NineSliceConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public NineSliceConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-            int factorDetect = (int) this.data[1];
-            Object[] buttons = (Object[]) this.data[2];
-            String[] borders = (String[]) this.data[3];
+            String from = rule.from();
+            int factorDetect = rule.factorDetect();
 
-            File fromFile = storage.resolve(from).toFile();
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
             
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
             fromImage = ImageUtils.ensureMinWidth(fromImage, factorDetect);
 
             int factor = (fromImage.getWidth() / factorDetect);
 
             ObjectMapper mapper = new ObjectMapper().enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES);
 
-            for (Object button : buttons) {
-                Object[] buttonArr = (Object[]) button;
-                int x = (int) buttonArr[0];
-                int y = (int) buttonArr[1];
-                int width = (int) buttonArr[2];
-                int height = (int) buttonArr[3];
-                int size = (int) buttonArr[4];
-                String[] tos = (String[]) buttonArr[5];
+            for (Button button : rule.buttons()) {
+                int x = button.x();
+                int y = button.y();
+                int width = button.width();
+                int height = button.height();
+                int size = button.size();
 
                 BufferedImage toImage = ImageUtils.crop(fromImage, (x * factor), (y * factor), (width * factor), (height * factor));
 
@@ -275,27 +274,47 @@ public class NineSliceConverter extends AbstractConverter {
 
                 JsonNode metadata = mapper.readTree("{nineslice_size: " + size + ", base_size: [" + width + ", " + height + "]}");
 
-                for (String toPath : tos) {
+                for (String toPath : button.tos()) {
                     packConverter.log(String.format("Convert button %s (Experimental)", toPath));
 
-                    ImageUtils.write(toImage, "png", storage.resolve(toPath + ".png").toFile());
+                    writeImage(toImage, "png", toPath + ".png");
 
-                    mapper.writeValue(storage.resolve(toPath + ".json").toFile(), metadata);
+                    mapper.writeValue(newOutputStream(toPath + ".json"), metadata);
                 }
             }
             
             BufferedImage transparentImage = new BufferedImage(factor, factor, BufferedImage.TYPE_INT_ARGB);
             JsonNode metadata = mapper.readTree("{nineslice_size: 0, base_size: [1, 1]}");
-            for (String border : borders) {
+            for (String border : rule.borders()) {
                 packConverter.log(String.format("Convert button %s (Experimental)", border));
 
-                ImageUtils.write(transparentImage, "png", storage.resolve(border + ".png").toFile());
+                writeImage(transparentImage, "png", border + ".png");
 
-                mapper.writeValue(storage.resolve(border + ".json").toFile(), metadata);
+                mapper.writeValue(newOutputStream(border + ".json"), metadata);
             }
             
         } catch (IOException e) { e.printStackTrace(); }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from, int factorDetect, List<Button> buttons, List<String> borders) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, Integer.class),
+                    ConverterRules.list(data, 2, Button::parse),
+                    ConverterRules.strings(data, 3));
+        }
+    }
+
+    public record Button(int x, int y, int width, int height, int size, List<String> tos) {
+        static Button parse(Object[] data) {
+            return new Button(ConverterRules.get(data, 0, Integer.class),
+                    ConverterRules.get(data, 1, Integer.class),
+                    ConverterRules.get(data, 2, Integer.class),
+                    ConverterRules.get(data, 3, Integer.class),
+                    ConverterRules.get(data, 4, Integer.class),
+                    ConverterRules.strings(data, 5));
+        }
+    }
 }
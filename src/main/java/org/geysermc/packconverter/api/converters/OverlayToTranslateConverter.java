@@ -28,12 +28,10 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
-import org.geysermc.packconverter.api.utils.ImageUtils;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.PixelKernels;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -87,8 +85,13 @@ public class OverlayToTranslateConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/wolf/wolf_collar.png", "textures/entity/wolf/wolf_tame.png", "textures/entity/wolf/wolf_tame.png", false, true});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(OverlayToTranslateConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public OverlayToTranslateConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -96,37 +99,25 @@ public class OverlayToTranslateConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String from = (String) this.data[0];
-            String overlay = (String) this.data[1];
-            String to = (String) this.data[2];
-            boolean reverse = (boolean) this.data[3];
-            boolean dontDelete = this.data.length > 4 && (boolean) this.data[4];
+            String from = rule.from();
+            String overlay = rule.overlay();
+            String to = rule.to();
+            boolean reverse = rule.reverse();
+            boolean dontDelete = rule.dontDelete();
 
-            File fromFile = storage.resolve(from).toFile();
-            File overlayFile = storage.resolve(overlay).toFile();
-
-            if (!fromFile.exists() || !overlayFile.exists()) {
+            if (!exists(from) || !exists(overlay)) {
                 return delete;
             }
 
             packConverter.log(String.format("Create translated overlay %s", to));
 
-            BufferedImage image = ImageIO.read(fromFile);
-            BufferedImage imageOverlay = ImageIO.read(overlayFile);
+            BufferedImage image = readImage(from);
+            BufferedImage imageOverlay = readImage(overlay);
 
-            for (int x = 0; x < image.getWidth(); x++) {
-                for (int y = 0; y < image.getHeight(); y++) {
-                    Color c = new Color(image.getRGB(x, y), true);
-                    if (reverse ? c.getAlpha() > 0 : c.getAlpha() < 255) {
-                        Color newCol = new Color(imageOverlay.getRGB(x, y), true);
-                        newCol = new Color(newCol.getRed(), newCol.getGreen(), newCol.getBlue(), 2);
+            // Keep the overlay color but make it nearly invisible
+            PixelKernels.apply(image, imageOverlay, image, (src, srcOffset, overlayRow, overlayOffset, dst, dstOffset, length) -> PixelKernels.maskOverlay(src, srcOffset, overlayRow, overlayOffset, dst, dstOffset, length, reverse));
 
-                        image.setRGB(x, y, ImageUtils.colorToARGB(newCol));
-                    }
-                }
-            }
-
-            ImageUtils.write(image, "png", storage.resolve(to).toFile());
+            writeImage(image, "png", to);
 
             if (!dontDelete) {
                 delete.add(new DeleteConverter(packConverter, storage, new Object[] {overlay}));
@@ -135,4 +126,14 @@ public class OverlayToTranslateConverter extends AbstractConverter {
 
         return delete;
     }
+
+    public record Rule(String from, String overlay, String to, boolean reverse, boolean dontDelete) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, String.class),
+                    ConverterRules.get(data, 2, String.class),
+                    ConverterRules.get(data, 3, Boolean.class),
+                    ConverterRules.get(data, 4, Boolean.class, false));
+        }
+    }
 }
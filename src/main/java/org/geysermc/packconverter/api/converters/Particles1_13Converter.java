@@ -28,11 +28,10 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -47,31 +46,40 @@ public class Particles1_13Converter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/particle/particles.png", "textures/particle/particles.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(Particles1_13Converter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public Particles1_13Converter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
+            String to = rule.to();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Convert particles %s", from));
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
 
             fromImage = ImageUtils.crop(fromImage, (fromImage.getWidth() / 2), (fromImage.getHeight() / 2)); // Bedrock only uses the first 25% of the image (Rest is transparent on Java)
 
-            ImageUtils.write(fromImage, "png", storage.resolve(to).toFile());
+            writeImage(fromImage, "png", to);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -49,8 +48,13 @@ public class PistonArmConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/blocks/piston_top_sticky.png", "textures/blocks/piston_top_normal.png", "textures/blocks/piston_side.png", "textures/entity/pistonarm/pistonArmSticky.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(PistonArmConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public PistonArmConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -58,24 +62,20 @@ public class PistonArmConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String top1 = (String) this.data[0];
-            String top2 = (String) this.data[1];
-            String side = (String) this.data[2];
-            String to = (String) this.data[3];
-
-            File top1File = storage.resolve(top1).toFile();
-            File top2File = storage.resolve(top2).toFile();
-            File sideFile = storage.resolve(side).toFile();
+            String top1 = rule.top1();
+            String top2 = rule.top2();
+            String side = rule.side();
+            String to = rule.to();
 
-            if (!top1File.exists() || !top2File.exists() || !sideFile.exists()) {
+            if (!exists(top1) || !exists(top2) || !exists(side)) {
                 return delete;
             }
 
             packConverter.log(String.format("Create piston arm %s", to));
 
-            BufferedImage top1Image = ImageIO.read(top1File);
-            BufferedImage top2Image = ImageIO.read(top2File);
-            BufferedImage sideImage = ImageIO.read(sideFile);
+            BufferedImage top1Image = readImage(top1);
+            BufferedImage top2Image = readImage(top2);
+            BufferedImage sideImage = readImage(side);
 
             top1Image = ImageUtils.ensureMinWidth(top1Image, 16);
             top2Image = ImageUtils.ensureMinWidth(top2Image, 16);
@@ -155,9 +155,18 @@ public class PistonArmConverter extends AbstractConverter {
             g.drawImage(side5Image, (83 * factor), (25 * factor), null);
             g.drawImage(side5Image, (83 * factor), (29 * factor), null);
 
-            ImageUtils.write(newImage, "png", storage.resolve(to).toFile());
+            writeImage(newImage, "png", to);
         } catch (IOException e) { }
 
         return delete;
     }
+
+    public record Rule(String top1, String top2, String side, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, String.class),
+                    ConverterRules.get(data, 2, String.class),
+                    ConverterRules.get(data, 3, String.class));
+        }
+    }
 }
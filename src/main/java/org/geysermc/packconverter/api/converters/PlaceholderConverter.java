@@ -28,12 +28,12 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.ImageRegion;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -126,40 +126,43 @@ public class PlaceholderConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/zombie/zombie.png", 0, 0, 64, 32, 64, "textures/entity/zombie/zombie.png", 2});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(PlaceholderConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public PlaceholderConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-            int x = (int) this.data[1];
-            int y = (int) this.data[2];
-            int width = (int) this.data[3];
-            int height = (int) this.data[4];
-            int factorDetect = (int) this.data[5];
-            String to = (String) this.data[6];
-            int squareMode = this.data.length > 7 ? (int) this.data[7] : 0;
-            int minPackFormat = this.data.length > 8 ? (int) this.data[8] : -1;
+            String from = rule.from();
+            int x = rule.x();
+            int y = rule.y();
+            int width = rule.width();
+            int height = rule.height();
+            int factorDetect = rule.factorDetect();
+            String to = rule.to();
+            int squareMode = rule.squareMode();
+            int minPackFormat = rule.minPackFormat();
 
             if (minPackFormat > -1) {
                 // TODO: Add support for min pack format
             }
 
-            File placeholderFile = storage.resolve(from).toFile();
-
-            if (!placeholderFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Create placeholder %s", to));
 
-            BufferedImage placeholderImage = ImageUtils.ensureMinWidth(ImageIO.read(placeholderFile), factorDetect);
+            BufferedImage placeholderImage = ImageUtils.ensureMinWidth(readImage(from), factorDetect);
 
             int factor = placeholderImage.getWidth() / factorDetect;
 
-            placeholderImage = ImageUtils.crop(placeholderImage, (x * factor), (y * factor), (width * factor), (height * factor));
+            ImageRegion placeholderRegion = ImageRegion.of(placeholderImage, (x * factor), (y * factor), (width * factor), (height * factor));
 
             int size;
             BufferedImage newPlaceholderImage;
@@ -169,13 +172,14 @@ public class PlaceholderConverter extends AbstractConverter {
                     size = Math.max(width, height);
                     newPlaceholderImage = new BufferedImage((size * factor), (size * factor), BufferedImage.TYPE_INT_ARGB);
 
-                    newPlaceholderImage.getGraphics().drawImage(placeholderImage, 0, 0, null);
+                    placeholderRegion.drawTo(newPlaceholderImage, 0, 0);
 
                     placeholderImage = newPlaceholderImage;
                     break;
 
                 case 2:
                     // No
+                    placeholderImage = placeholderRegion.toImage();
                     break;
 
                 case 0:
@@ -184,14 +188,28 @@ public class PlaceholderConverter extends AbstractConverter {
                     size = Math.max(width, height);
                     newPlaceholderImage = new BufferedImage((size * factor), (size * factor), BufferedImage.TYPE_INT_ARGB);
 
-                    newPlaceholderImage.getGraphics().drawImage(placeholderImage, (((size * factor) - (width * factor)) / 2), (((size * factor) - (height * factor)) / 2), null);
+                    placeholderRegion.drawTo(newPlaceholderImage, (((size * factor) - (width * factor)) / 2), (((size * factor) - (height * factor)) / 2));
 
                     placeholderImage = newPlaceholderImage;
             }
 
-            ImageUtils.write(placeholderImage, "png", storage.resolve(to).toFile());
+            writeImage(placeholderImage, "png", to);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from, int x, int y, int width, int height, int factorDetect, String to, int squareMode, int minPackFormat) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, Integer.class),
+                    ConverterRules.get(data, 2, Integer.class),
+                    ConverterRules.get(data, 3, Integer.class),
+                    ConverterRules.get(data, 4, Integer.class),
+                    ConverterRules.get(data, 5, Integer.class),
+                    ConverterRules.get(data, 6, String.class),
+                    ConverterRules.get(data, 7, Integer.class, 0),
+                    ConverterRules.get(data, 8, Integer.class, -1));
+        }
+    }
 }
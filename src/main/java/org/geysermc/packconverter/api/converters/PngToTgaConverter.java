@@ -28,11 +28,9 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
-import org.geysermc.packconverter.api.utils.ImageUtils;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -196,8 +194,13 @@ public class PngToTgaConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/models/armor/leather_2.png", "textures/models/armor/leather_2.tga"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(PngToTgaConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public PngToTgaConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -205,20 +208,18 @@ public class PngToTgaConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
-            boolean dont_delete = this.data.length > 2 ? (boolean) this.data[2] : false;
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
+            String to = rule.to();
+            boolean dont_delete = rule.dont_delete();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return delete;
             }
 
             packConverter.log(String.format("Create tga %s", from));
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
-            ImageUtils.write(fromImage, "tga", storage.resolve(to).toFile());
+            BufferedImage fromImage = readImage(from);
+            writeImage(fromImage, "tga", to);
 
             if (!dont_delete) {
                 delete.add(new DeleteConverter(packConverter, storage, new Object[] {from}));
@@ -227,4 +228,12 @@ public class PngToTgaConverter extends AbstractConverter {
 
         return delete;
     }
+
+    public record Rule(String from, String to, boolean dont_delete) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, String.class),
+                    ConverterRules.get(data, 2, Boolean.class, false));
+        }
+    }
 }
@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,8 +47,13 @@ public class RedstoneDustConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/blocks/redstone_dust_dot.png", "textures/blocks/redstone_dust_line0.png", "textures/blocks/redstone_dust_line1.png", "textures/blocks/redstone_dust_cross.png", "textures/blocks/redstone_dust_line.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(RedstoneDustConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public RedstoneDustConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -57,37 +61,33 @@ public class RedstoneDustConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String dot = (String) this.data[0];
-            String line0 = (String) this.data[1];
-            String line1 = (String) this.data[2];
-            String to_cross = (String) this.data[3];
-            String to_line = (String) this.data[4];
-
-            File dotFile = storage.resolve(dot).toFile();
-            File line0File = storage.resolve(line0).toFile();
-            File line1File = storage.resolve(line1).toFile();
+            String dot = rule.dot();
+            String line0 = rule.line0();
+            String line1 = rule.line1();
+            String to_cross = rule.to_cross();
+            String to_line = rule.to_line();
 
-            if (!dotFile.exists() || !line0File.exists() || !line1File.exists()) {
+            if (!exists(dot) || !exists(line0) || !exists(line1)) {
                 return delete;
             }
 
             packConverter.log("Convert redstone dust");
 
-            BufferedImage newImage = ImageIO.read(line0File);
+            BufferedImage newImage = readImage(line0);
             newImage = ImageUtils.rotate(newImage, 90);
-            ImageUtils.write(newImage, "png", storage.resolve(to_line).toFile());
+            writeImage(newImage, "png", to_line);
 
-            BufferedImage line1Image = ImageIO.read(line1File);
+            BufferedImage line1Image = readImage(line1);
             if (ImageUtils.isEmptyArea(line1Image, 0, 0, line1Image.getWidth(), (line1Image.getHeight() / 16))) {
                 line1Image = ImageUtils.rotate(line1Image, 90);
             }
             newImage.getGraphics().drawImage(line1Image, 0, 0, null);
 
 
-            BufferedImage dotImage = ImageIO.read(dotFile);
+            BufferedImage dotImage = readImage(dot);
             newImage.getGraphics().drawImage(dotImage, 0, 0, null);
 
-            ImageUtils.write(newImage, "png", storage.resolve(to_cross).toFile());
+            writeImage(newImage, "png", to_cross);
 
             delete.add(new DeleteConverter(packConverter, storage, new Object[] {dot}));
             delete.add(new DeleteConverter(packConverter, storage, new Object[] {line0}));
@@ -96,4 +96,14 @@ public class RedstoneDustConverter extends AbstractConverter {
 
         return delete;
     }
+
+    public record Rule(String dot, String line0, String line1, String to_cross, String to_line) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, String.class),
+                    ConverterRules.get(data, 2, String.class),
+                    ConverterRules.get(data, 3, String.class),
+                    ConverterRules.get(data, 4, String.class));
+        }
+    }
 }
@@ -28,12 +28,15 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.PackLineage;
+import org.geysermc.packconverter.api.utils.RenameEngine;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class RenameConverter extends AbstractConverter {
@@ -1060,27 +1063,80 @@ public class RenameConverter extends AbstractConverter {
         defaultData.add(new String[] {"textures/entity/zombie_villager2/professions/mason.png", "textures/entity/zombie_villager2/professions/stonemason.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(RenameConverter.class, defaultData, Rule::parse);
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    /**
+     * @param data Either a single rename rule or a row of rules, see {@link #getBatchData()}
+     */
     public RenameConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+
+        if (data.length > 0 && data[0] instanceof Object[]) {
+            for (Object row : data) {
+                rules.add(RULES.get((Object[]) row));
+            }
+        } else {
+            rules.add(RULES.get(data));
+        }
+    }
+
+    /**
+     * Get all of the default rules as a single row, so they are applied by one converter
+     *
+     * @return Converter data with the default rules in order
+     */
+    public static List<Object[]> getBatchData() {
+        return Collections.singletonList(defaultData.toArray());
     }
 
     @Override
     public List<AbstractConverter> convert() {
-        try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
+        // Work out which rules apply in one go, most of them don't find their file
+        RenameEngine engine = RenameEngine.of(packConverter.getIndex());
+        List<Rule> found = new ArrayList<>();
+        List<RenameEngine.Result> results = new ArrayList<>();
+        for (Rule rule : rules) {
+            RenameEngine.Result result = engine.rename(rule.from(), rule.to());
+            if (result != RenameEngine.Result.MISSING) {
+                found.add(rule);
+                results.add(result);
+            }
+        }
 
-            Path fromPath = storage.resolve(from);
+        PackLineage lineage = packConverter.getLineage();
+        for (int i = 0; i < found.size(); i++) {
+            String from = found.get(i).from();
+            String to = found.get(i).to();
 
-            if (!fromPath.toFile().exists()) {
-                return new ArrayList<>();
-            }
+            lineage.split();
+            lineage.read(from);
 
             packConverter.log(String.format("Rename %s to %s", from, to));
 
-            Files.move(fromPath, storage.resolve(to));
-        } catch (IOException e) { }
+            if (results.get(i) == RenameEngine.Result.RENAMED) {
+                try {
+                    move(from, to);
+                } catch (IOException e) { }
+            } else {
+                // Failed because of the target, so the outcome and the file left in place depend on it as well
+                lineage.read(to);
+                lineage.blocked(from, to);
+            }
+        }
 
         return new ArrayList<>();
     }
+
+    @Override
+    public boolean isCacheable() {
+        return false;
+    }
+
+    public record Rule(String from, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,8 +47,13 @@ public class SheepConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/sheep/sheep.png", "textures/entity/sheep/sheep_fur.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(SheepConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public SheepConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -57,20 +61,17 @@ public class SheepConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String sheep = (String) this.data[0];
-            String sheepFur = (String) this.data[1];
-
-            File sheepFile = storage.resolve(sheep).toFile();
-            File sheepFurFile = storage.resolve(sheepFur).toFile();
+            String sheep = rule.sheep();
+            String sheepFur = rule.sheepFur();
 
-            if (!sheepFile.exists() || !sheepFurFile.exists()) {
+            if (!exists(sheep) || !exists(sheepFur)) {
                 return delete;
             }
 
             packConverter.log("Convert sheep");
 
-            BufferedImage sheepImage = ImageIO.read(sheepFile);
-            BufferedImage sheepFurImage = ImageIO.read(sheepFurFile);
+            BufferedImage sheepImage = readImage(sheep);
+            BufferedImage sheepFurImage = readImage(sheepFur);
 
             int width = Math.max(sheepImage.getWidth(), sheepFurImage.getWidth());
             sheepImage = ImageUtils.ensureMinWidth(sheepImage, width);
@@ -93,11 +94,17 @@ public class SheepConverter extends AbstractConverter {
                 }
             }
 
-            ImageUtils.write(newImage, "png", sheepFile);
+            writeImage(newImage, "png", sheep);
 
             delete.add(new DeleteConverter(packConverter, storage, new Object[] {sheepFur}));
         } catch (IOException e) { }
 
         return delete;
     }
+
+    public record Rule(String sheep, String sheepFur) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
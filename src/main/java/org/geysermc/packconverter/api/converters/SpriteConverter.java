@@ -28,16 +28,15 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
-import org.geysermc.packconverter.api.utils.ImageUtils;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.SpriteAtlas;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class SpriteConverter extends AbstractConverter {
 
@@ -269,8 +268,13 @@ public class SpriteConverter extends AbstractConverter {
         }, "textures/particle/soul.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(SpriteConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public SpriteConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -278,73 +282,83 @@ public class SpriteConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            int width = (int) this.data[0];
-            int height = (int) this.data[1];
-            Object[] sprites = (Object[]) this.data[2];
-            String to = (String) this.data[3];
-            int additional_factor = this.data.length > 4 ? (int) this.data[4] : 1;
+            int width = rule.width();
+            int height = rule.height();
+            String to = rule.to();
+            int additional_factor = rule.additionalFactor();
 
-            File toFile = storage.resolve(to).toFile();
-
-            BufferedImage newImage = null;
+            SpriteAtlas atlas = null;
             int factor = 0;
+            List<Sprite> sprites = new ArrayList<>();
             List<String> missingSprites = new ArrayList<>();
 
-            if (toFile.exists()) {
+            if (exists(to)) {
                 packConverter.log(String.format("Convert sprite %s", to));
 
-                newImage = ImageIO.read(toFile); // Load already exists sprites image - Some texture packs have may a mix with sprites (1.13) and separate images (1.14)
+                BufferedImage existing = readImage(to); // Load already exists sprites image - Some texture packs have may a mix with sprites (1.13) and separate images (1.14)
+                atlas = new SpriteAtlas(existing);
 
-                factor = (newImage.getWidth() / width);
+                factor = (existing.getWidth() / width);
             }
 
-            for (Object sprite : sprites) {
-                Object[] spriteArr = (Object[]) sprite;
-                String spritePath = (String) spriteArr[0];
-                int x = (int) spriteArr[1];
-                int y = (int) spriteArr[2];
-                int factorDetect = (int) spriteArr[3];
-
-                File spriteFile = storage.resolve(spritePath).toFile();
-
-                if (!spriteFile.exists()) {
-                    missingSprites.add(spritePath);
-                    continue;
+            for (Sprite sprite : rule.sprites()) {
+                if (exists(sprite.path())) {
+                    sprites.add(sprite);
+                } else {
+                    missingSprites.add(sprite.path());
                 }
+            }
+
+            List<BufferedImage> images = readImages(sprites.stream().map(Sprite::path).collect(Collectors.toList()));
 
-                BufferedImage imageSprite = ImageIO.read(spriteFile);
+            for (int i = 0; i < sprites.size(); i++) {
+                Sprite sprite = sprites.get(i);
+                BufferedImage imageSprite = images.get(i);
+                int factorDetect = sprite.factorDetect();
 
                 if (factor == 0) {
                     factor = (imageSprite.getWidth() / factorDetect * additional_factor); // Take the factor of the first image
                 }
 
-                if (newImage == null) {
+                if (atlas == null) {
                     packConverter.log(String.format("Create sprite %s", to));
 
-                    newImage = new BufferedImage((width * factor), (height * factor), BufferedImage.TYPE_INT_ARGB);
+                    atlas = new SpriteAtlas((width * factor), (height * factor));
                 }
 
-                BufferedImage imageSpritedScaled = ImageUtils.scale(imageSprite, ((factorDetect * factor) / imageSprite.getWidth()));
+                atlas.blit(imageSprite, (sprite.x() * factor), (sprite.y() * factor), ((factorDetect * factor) / imageSprite.getWidth()));
 
-                Graphics g = newImage.getGraphics();
-
-                g.setColor(new Color(Color.TRANSLUCENT, true));
-                g.fillRect((x * factor), (y * factor), imageSpritedScaled.getWidth(), imageSpritedScaled.getHeight()); // Delete previous area, if the sprite already exists
-
-                g.drawImage(imageSpritedScaled, (x * factor), (y * factor), null);
-
-                delete.add(new DeleteConverter(packConverter, storage, new Object[] {spritePath}));
+                delete.add(new DeleteConverter(packConverter, storage, new Object[] {sprite.path()}));
             }
 
-            if (newImage != null) {
+            if (atlas != null) {
                 for (String sprite : missingSprites) {
                     packConverter.log(String.format("Missing texture %s - May used a transparent image", sprite));
                 }
 
-                ImageUtils.write(newImage, "png", storage.resolve(to).toFile());
+                writeImage(atlas.getImage(), "png", to);
             }
         } catch (IOException e) { }
 
         return delete;
     }
+
+    public record Rule(int width, int height, List<Sprite> sprites, String to, int additionalFactor) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, Integer.class),
+                    ConverterRules.get(data, 1, Integer.class),
+                    ConverterRules.list(data, 2, Sprite::parse),
+                    ConverterRules.get(data, 3, String.class),
+                    ConverterRules.get(data, 4, Integer.class, 1));
+        }
+    }
+
+    public record Sprite(String path, int x, int y, int factorDetect) {
+        static Sprite parse(Object[] data) {
+            return new Sprite(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, Integer.class),
+                    ConverterRules.get(data, 2, Integer.class),
+                    ConverterRules.get(data, 3, Integer.class));
+        }
+    }
 }
@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.ImageRemap;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,39 +47,49 @@ public class TitleConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/gui/title/minecraft.png", "textures/ui/title.png"});
     }
 
+    private static final ImageRemap LAYOUT = ImageRemap.builder()
+            .copy(0, 0, 155, 45, 0, 0)
+            .copy(0, 45, 119, 45, 154, 0)
+            .build();
+
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(TitleConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public TitleConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
+            String to = rule.to();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Convert title %s", from));
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
 
             int factor = fromImage.getWidth() / 255;
 
-            BufferedImage newImage = new BufferedImage((273 * factor), (45 * factor), BufferedImage.TYPE_INT_ARGB);
-            Graphics g = newImage.getGraphics();
-
-            g.drawImage(ImageUtils.crop(fromImage, 0, 0, (155 * factor), (45 * factor)), 0, 0, null);
-            g.drawImage(ImageUtils.crop(fromImage, 0, (45 * factor), (119 * factor), (45 * factor)), (154 * factor), 0, null);
+            BufferedImage newImage = LAYOUT.apply((273 * factor), (45 * factor), factor, fromImage);
 
             newImage = ImageUtils.ensureMinHeight(newImage, 360);
 
-            ImageUtils.write(newImage, "png", storage.resolve(to).toFile());
+            writeImage(newImage, "png", to);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class), ConverterRules.get(data, 1, String.class));
+        }
+    }
 }
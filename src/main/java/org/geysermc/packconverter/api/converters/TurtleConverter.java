@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,24 +47,27 @@ public class TurtleConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/sea_turtle.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(TurtleConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public TurtleConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Convert turtle %s", from));
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
 
             int factor = fromImage.getWidth() / 128;
 
@@ -74,9 +76,15 @@ public class TurtleConverter extends AbstractConverter {
 
             g.drawImage(ImageUtils.crop(fromImage, factor, 0, (fromImage.getWidth() - factor), fromImage.getHeight()), 0, 0, null);
 
-            ImageUtils.write(newImage, "png", fromFile);
+            writeImage(newImage, "png", from);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class));
+        }
+    }
 }
@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
-import org.geysermc.packconverter.api.utils.ImageUtils;
+import org.geysermc.packconverter.api.utils.ConverterRules;
+import org.geysermc.packconverter.api.utils.PixelKernels;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -76,43 +75,41 @@ public class VillagerConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/entity/zombie_villager2/professions/weaponsmith.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(VillagerConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public VillagerConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
     public List<AbstractConverter> convert() {
         try {
-            String from = (String) this.data[0];
-
-            File fromFile = storage.resolve(from).toFile();
+            String from = rule.from();
 
-            if (!fromFile.exists()) {
+            if (!exists(from)) {
                 return new ArrayList<>();
             }
 
             packConverter.log(String.format("Convert villager %s", from));
 
-            BufferedImage fromImage = ImageIO.read(fromFile);
+            BufferedImage fromImage = readImage(from);
 
             BufferedImage newImage = new BufferedImage(fromImage.getWidth(), fromImage.getHeight(), BufferedImage.TYPE_INT_ARGB);
-            Graphics g = newImage.getGraphics();
-
-            Color blank = new Color(255, 255, 255, 0);
-            for (int x = 0; x < newImage.getWidth(); x++) {
-                for (int y = 0; y < newImage.getHeight(); y++) {
-                    Color c = new Color(fromImage.getRGB(x, y), true);
-                    if (c.getAlpha() == 0) {
-                        newImage.setRGB(x, y, blank.getRGB());
-                    } else {
-                        newImage.setRGB(x, y, c.getRGB());
-                    }
-                }
-            }
+            int blank = new Color(255, 255, 255, 0).getRGB();
+            PixelKernels.apply(fromImage, newImage, (src, srcOffset, dst, dstOffset, length) -> PixelKernels.replaceTransparent(src, srcOffset, dst, dstOffset, length, blank));
 
-            ImageUtils.write(newImage, "png", fromFile);
+            writeImage(newImage, "png", from);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class));
+        }
+    }
 }
@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -51,8 +50,13 @@ public class WaterConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/blocks/water_still_grey.png", "textures/blocks/water_still_grey.png", 16, true});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(WaterConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public WaterConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -60,20 +64,18 @@ public class WaterConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String from = (String) this.data[0];
-            String to = (String) this.data[1];
-            int minWidth = (int) this.data[2];
-            boolean grayscale = this.data.length > 3 ? (boolean) this.data[3] : false;
-
-            File waterFile = storage.resolve(from).toFile();
+            String from = rule.from();
+            String to = rule.to();
+            int minWidth = rule.minWidth();
+            boolean grayscale = rule.grayscale();
 
-            if (!waterFile.exists()) {
+            if (!exists(from)) {
                 return delete;
             }
 
             packConverter.log(String.format("Convert water %s", from));
 
-            BufferedImage waterImage = ImageIO.read(waterFile);
+            BufferedImage waterImage = readImage(from);
 
             if (grayscale) {
                 waterImage = ImageUtils.grayscale(waterImage);
@@ -81,9 +83,18 @@ public class WaterConverter extends AbstractConverter {
 
             waterImage = ImageUtils.ensureMinWidth(waterImage, minWidth);
 
-            ImageUtils.write(waterImage, "png", storage.resolve(to).toFile());
+            writeImage(waterImage, "png", to);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String from, String to, int minWidth, boolean grayscale) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, String.class),
+                    ConverterRules.get(data, 2, Integer.class),
+                    ConverterRules.get(data, 3, Boolean.class, false));
+        }
+    }
 }
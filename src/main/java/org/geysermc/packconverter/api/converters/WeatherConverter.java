@@ -28,12 +28,11 @@ package org.geysermc.packconverter.api.converters;
 
 import lombok.Getter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.utils.ConverterRules;
 import org.geysermc.packconverter.api.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -49,8 +48,13 @@ public class WeatherConverter extends AbstractConverter {
         defaultData.add(new Object[] {"textures/environment/snow.png", "textures/environment/rain.png", "textures/environment/weather.png"});
     }
 
+    private static final ConverterRules<Rule> RULES = new ConverterRules<>(WeatherConverter.class, defaultData, Rule::parse);
+
+    private final Rule rule;
+
     public WeatherConverter(PackConverter packConverter, Path storage, Object[] data) {
         super(packConverter, storage, data);
+        this.rule = RULES.get(data);
     }
 
     @Override
@@ -58,21 +62,18 @@ public class WeatherConverter extends AbstractConverter {
         List<AbstractConverter> delete = new ArrayList<>();
 
         try {
-            String snow = (String) this.data[0];
-            String rain = (String) this.data[1];
-            String to = (String) this.data[2];
-
-            File snowFile = storage.resolve(snow).toFile();
-            File rainFile = storage.resolve(rain).toFile();
+            String snow = rule.snow();
+            String rain = rule.rain();
+            String to = rule.to();
 
-            if (!snowFile.exists() || !rainFile.exists()) {
+            if (!exists(snow) || !exists(rain)) {
                 return delete;
             }
 
             packConverter.log("Convert weather");
 
-            BufferedImage snowImage = ImageIO.read(snowFile);
-            BufferedImage rainImage = ImageIO.read(rainFile);
+            BufferedImage snowImage = readImage(snow);
+            BufferedImage rainImage = readImage(rain);
 
             int factor = snowImage.getWidth() / 64;
 
@@ -90,9 +91,17 @@ public class WeatherConverter extends AbstractConverter {
 
             delete.add(new DeleteConverter(packConverter, storage, new Object[] {rain}));
 
-            ImageUtils.write(weatherImage, "png", storage.resolve(to).toFile());
+            writeImage(weatherImage, "png", to);
         } catch (IOException e) { }
 
         return new ArrayList<>();
     }
+
+    public record Rule(String snow, String rain, String to) {
+        static Rule parse(Object[] data) {
+            return new Rule(ConverterRules.get(data, 0, String.class),
+                    ConverterRules.get(data, 1, String.class),
+                    ConverterRules.get(data, 2, String.class));
+        }
+    }
 }
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.metrics;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records timing and I/O metrics of a conversion, per phase (extract, convert, pack) and per converter class
+ *
+ * Work is measured in sections, see {@link #start(Metrics...)}. Anything recorded on a thread is added to
+ * every section open on that thread, so the I/O of a converter counts for both the converter and the phase.
+ * Threads working on behalf of another thread join its sections with {@link #attach(Metrics...)}.
+ */
+@JsonPropertyOrder({"phases", "converters"})
+public class ConversionMetrics {
+
+    public static final String EXTRACT = "extract";
+    public static final String CONVERT = "convert";
+    public static final String PACK = "pack";
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Map<String, Metrics> phases = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, Metrics> converters = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Deque<Section>> sections = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Get the metrics of a phase, created if it wasn't measured yet
+     *
+     * @param name Name of the phase, see {@link #EXTRACT}, {@link #CONVERT} and {@link #PACK}
+     * @return The metrics of the phase
+     */
+    public Metrics getPhase(String name) {
+        return phases.computeIfAbsent(name, key -> new Metrics());
+    }
+
+    /**
+     * Get the metrics of a converter class, created if it wasn't measured yet
+     *
+     * @param name Simple name of the converter class
+     * @return The metrics of the converter
+     */
+    public Metrics getConverter(String name) {
+        return converters.computeIfAbsent(name, key -> new Metrics());
+    }
+
+    /**
+     * @return Metrics of every measured phase, in the order they ran
+     */
+    public Map<String, Metrics> getPhases() {
+        synchronized (phases) {
+            return new LinkedHashMap<>(phases);
+        }
+    }
+
+    /**
+     * @return Metrics of every measured converter class, sorted by name
+     */
+    public Map<String, Metrics> getConverters() {
+        return new TreeMap<>(converters);
+    }
+
+    /**
+     * Start measuring wall and CPU time on the current thread, recorded once the section is closed
+     * Anything already counted by a section further up on this thread is left to that section
+     *
+     * @param metrics Metrics to record into
+     * @return The section to close once the work is done
+     */
+    public Section start(Metrics... metrics) {
+        return open(metrics, true);
+    }
+
+    /**
+     * Count the I/O and CPU time of the current thread towards metrics started on another thread,
+     * without adding to the wall time or amount of runs
+     *
+     * @param metrics Metrics to record into, usually {@link #current()} of the thread handing out the work
+     * @return The section to close once the work is done
+     */
+    public Section attach(Metrics... metrics) {
+        return open(metrics, false);
+    }
+
+    /**
+     * @return The metrics of every section open on the current thread
+     */
+    public Metrics[] current() {
+        Deque<Section> open = sections.get();
+        return open.isEmpty() ? new Metrics[0] : open.peek().all.toArray(new Metrics[0]);
+    }
+
+    public void bytesRead(long bytes) {
+        for (Metrics metrics : active()) {
+            metrics.addBytesRead(bytes);
+        }
+    }
+
+    public void bytesWritten(long bytes) {
+        for (Metrics metrics : active()) {
+            metrics.addBytesWritten(bytes);
+        }
+    }
+
+    public void imageDecoded() {
+        for (Metrics metrics : active()) {
+            metrics.addImageDecoded();
+        }
+    }
+
+    public void imageEncoded() {
+        for (Metrics metrics : active()) {
+            metrics.addImageEncoded();
+        }
+    }
+
+    public void imageUnchanged() {
+        for (Metrics metrics : active()) {
+            metrics.addImageUnchanged();
+        }
+    }
+
+    /**
+     * @param file File that was read, written, moved or deleted
+     */
+    public void fileTouched(Path file) {
+        Set<Metrics> active = active();
+        if (active.isEmpty()) {
+            return;
+        }
+
+        String name = file.toAbsolutePath().normalize().toString();
+        for (Metrics metrics : active) {
+            metrics.addFileTouched(name);
+        }
+    }
+
+    /**
+     * Count the bytes read from a stream towards the sections open on the current thread
+     *
+     * @param stream Stream to count
+     * @return The counting stream
+     */
+    public InputStream count(InputStream stream) {
+        Metrics[] metrics = current();
+        return new FilterInputStream(stream) {
+            @Override
+            public int read() throws IOException {
+                int read = super.read();
+                if (read != -1) {
+                    add(metrics, 1, true);
+                }
+                return read;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    add(metrics, read, true);
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * Count the bytes written to a stream towards the sections open on the current thread
+     *
+     * @param stream Stream to count
+     * @return The counting stream
+     */
+    public OutputStream count(OutputStream stream) {
+        Metrics[] metrics = current();
+        return new FilterOutputStream(stream) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                add(metrics, 1, false);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                add(metrics, len, false);
+            }
+        };
+    }
+
+    /**
+     * @return The metrics as a JSON document
+     * @throws IOException If the metrics couldn't be serialized
+     */
+    public String toJson() throws IOException {
+        return MAPPER.writeValueAsString(this);
+    }
+
+    /**
+     * Write the metrics as a JSON document
+     *
+     * @param file File to write to
+     * @throws IOException If the file couldn't be written
+     */
+    public void writeJson(Path file) throws IOException {
+        Files.writeString(file, toJson());
+    }
+
+    private static void add(Metrics[] metrics, long bytes, boolean read) {
+        for (Metrics target : metrics) {
+            if (read) {
+                target.addBytesRead(bytes);
+            } else {
+                target.addBytesWritten(bytes);
+            }
+        }
+    }
+
+    private Set<Metrics> active() {
+        Deque<Section> open = sections.get();
+        return open.isEmpty() ? Collections.emptySet() : open.peek().all;
+    }
+
+    private Section open(Metrics[] metrics, boolean timed) {
+        Deque<Section> open = sections.get();
+        Section section = new Section(open.peek(), metrics, timed);
+        open.push(section);
+        return section;
+    }
+
+    private static long cpuTime() {
+        return THREAD_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * Work being measured on a single thread, must be closed on the thread that opened it
+     */
+    public class Section implements AutoCloseable {
+        private final Set<Metrics> all = Collections.newSetFromMap(new LinkedHashMap<>());
+        private final Set<Metrics> own = Collections.newSetFromMap(new LinkedHashMap<>());
+        private final boolean timed;
+
+        private final long wallStart = System.nanoTime();
+        private final long cpuStart = cpuTime();
+
+        private Section(Section parent, Metrics[] metrics, boolean timed) {
+            this.timed = timed;
+
+            if (parent != null) {
+                all.addAll(parent.all);
+            }
+            for (Metrics target : metrics) {
+                if (all.add(target)) {
+                    own.add(target);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            sections.get().remove(this);
+
+            long wallTime = System.nanoTime() - wallStart;
+            long cpuTime = cpuTime() - cpuStart;
+            for (Metrics metrics : own) {
+                if (timed) {
+                    metrics.addRun(wallTime, cpuTime);
+                } else {
+                    metrics.addCpuTime(cpuTime);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.metrics;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timing and I/O totals of a single converter class or conversion phase
+ * Everything is updated atomically so any thread can record into it
+ */
+@JsonPropertyOrder({"runs", "wallTimeMillis", "cpuTimeMillis", "bytesRead", "bytesWritten", "imagesDecoded", "imagesEncoded", "imagesUnchanged", "filesTouched"})
+public class Metrics {
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder wallTime = new LongAdder();
+    private final LongAdder cpuTime = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder imagesDecoded = new LongAdder();
+    private final LongAdder imagesEncoded = new LongAdder();
+    private final LongAdder imagesUnchanged = new LongAdder();
+    private final Set<String> filesTouched = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @return The amount of times this was measured, for a converter the amount of instances that ran
+     */
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    /**
+     * @return Total wall clock time in nanoseconds
+     */
+    @JsonIgnore
+    public long getWallTime() {
+        return wallTime.sum();
+    }
+
+    /**
+     * @return Total wall clock time in milliseconds
+     */
+    public double getWallTimeMillis() {
+        return wallTime.sum() / 1_000_000d;
+    }
+
+    /**
+     * @return Total CPU time of every thread involved in nanoseconds, 0 if the JVM can't measure it
+     */
+    @JsonIgnore
+    public long getCpuTime() {
+        return cpuTime.sum();
+    }
+
+    /**
+     * @return Total CPU time of every thread involved in milliseconds
+     */
+    public double getCpuTimeMillis() {
+        return cpuTime.sum() / 1_000_000d;
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public long getImagesDecoded() {
+        return imagesDecoded.sum();
+    }
+
+    public long getImagesEncoded() {
+        return imagesEncoded.sum();
+    }
+
+    /**
+     * @return The amount of images written back without changes, which kept the file instead of encoding it
+     */
+    public long getImagesUnchanged() {
+        return imagesUnchanged.sum();
+    }
+
+    /**
+     * @return The amount of distinct files read, written, moved or deleted
+     */
+    public int getFilesTouched() {
+        return filesTouched.size();
+    }
+
+    void addRun(long wallTime, long cpuTime) {
+        this.runs.increment();
+        this.wallTime.add(wallTime);
+        this.cpuTime.add(cpuTime);
+    }
+
+    void addCpuTime(long cpuTime) {
+        this.cpuTime.add(cpuTime);
+    }
+
+    void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    void addBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    void addImageDecoded() {
+        imagesDecoded.increment();
+    }
+
+    void addImageEncoded() {
+        imagesEncoded.increment();
+    }
+
+    void addImageUnchanged() {
+        imagesUnchanged.increment();
+    }
+
+    void addFileTouched(String file) {
+        filesTouched.add(file);
+    }
+}
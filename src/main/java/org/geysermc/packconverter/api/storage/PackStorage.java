@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Where the pack is extracted to and converted in before it is packed into the output
+ */
+public interface PackStorage {
+
+    /**
+     * Create an empty folder to extract the given pack into
+     *
+     * @param input Java pack zip that is being converted
+     * @return The root folder of the pack
+     * @throws IOException If the folder couldn't be created
+     */
+    Path create(Path input) throws IOException;
+
+    /**
+     * Remove a folder previously returned by {@link #create(Path)} and everything in it
+     *
+     * @param root The root folder of the pack
+     * @throws IOException If the folder couldn't be removed
+     */
+    void delete(Path root) throws IOException;
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.geysermc.packconverter.api.ConverterFactory;
+import org.geysermc.packconverter.api.ConverterHandler;
+import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.converters.AbstractConverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of converter outputs, shared between conversions and packs
+ *
+ * A converter run is keyed by its class, its data and the contents of every file it can read or write.
+ * The files it leaves behind in its write paths are stored content addressed, so converting a pack again
+ * after a few textures changed only runs the converters that touch those textures.
+ * Converters that may touch the whole pack or aren't {@link AbstractConverter#isCacheable()} always run.
+ */
+public class ConversionCache {
+
+    // Bump when the stored format or the output of any converter changes
+    private static final int VERSION = 1;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path directory;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param directory Folder to store the cache in, created if it doesn't exist
+     * @throws IOException If the folder couldn't be created
+     */
+    public ConversionCache(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory.resolve("entries"));
+        Files.createDirectories(directory.resolve("blobs"));
+    }
+
+    /**
+     * @return The amount of converter runs replayed from the cache
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The amount of converter runs that weren't cached yet
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Run a converter, or replay its stored output if it ran on the same input before
+     *
+     * @param converter Converter to run
+     * @return The additional converters returned by the converter
+     */
+    public List<AbstractConverter> convert(AbstractConverter converter) {
+        PackConverter packConverter = converter.getPackConverter();
+        Path storage = converter.getStorage();
+        Collection<String> readPaths = converter.getReadPaths();
+        Collection<String> writePaths = converter.getWritePaths();
+        if (!converter.isCacheable() || readPaths == null || writePaths == null) {
+            return converter.convert();
+        }
+
+        try {
+            TreeSet<String> paths = new TreeSet<>(readPaths);
+            paths.addAll(writePaths);
+
+            // Everything the converter can see has to be on disk to hash it
+            Map<String, SortedMap<String, Path>> files = new HashMap<>();
+            for (String path : paths) {
+                packConverter.getImageCache().flush(matches(storage, path));
+                files.put(path, files(storage, path));
+                for (Path file : files.get(path).values()) {
+                    packConverter.materialize(file);
+                }
+            }
+
+            String key = key(converter, files);
+            Path entryFile = directory.resolve("entries").resolve(key + ".json");
+
+            // A broken entry is found before the pack is touched, and the converter runs as if nothing was stored
+            Replay replay = Files.exists(entryFile) ? load(packConverter, storage, entryFile) : null;
+            if (replay != null) {
+                // The stored output came from everything the converter could see
+                for (SortedMap<String, Path> pathFiles : files.values()) {
+                    for (String file : pathFiles.keySet()) {
+                        packConverter.getLineage().read(file);
+                    }
+                }
+
+                for (String path : writePaths) {
+                    packConverter.getImageCache().discard(matches(storage, path));
+                    for (Map.Entry<String, Path> file : files.get(path).entrySet()) {
+                        Files.deleteIfExists(file.getValue());
+                        packConverter.getIndex().delete(file.getKey());
+                        packConverter.getLineage().delete(file.getKey());
+                    }
+                }
+
+                replay(packConverter, storage, replay);
+                hits.incrementAndGet();
+                packConverter.log(String.format("Reused cached output of %s", converter.getClass().getSimpleName()));
+                return replay.converters();
+            }
+
+            misses.incrementAndGet();
+            List<AbstractConverter> additionalConverters = converter.convert();
+
+            Entry entry = new Entry();
+            for (String path : new TreeSet<>(writePaths)) {
+                packConverter.getImageCache().flush(matches(storage, path));
+                for (Map.Entry<String, Path> file : files(storage, path).entrySet()) {
+                    entry.files.put(file.getKey(), store(file.getValue()));
+                }
+            }
+            for (AbstractConverter additionalConverter : additionalConverters) {
+                entry.converters.add(Arrays.asList(additionalConverter.getClass().getName(), additionalConverter.getData()));
+            }
+
+            write(entryFile, MAPPER.writeValueAsBytes(entry));
+            return additionalConverters;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to use the conversion cache for " + converter.getClass().getSimpleName(), e);
+        }
+    }
+
+    private String key(AbstractConverter converter, Map<String, SortedMap<String, Path>> files) throws IOException {
+        MessageDigest digest = sha256();
+        update(digest, String.valueOf(VERSION));
+        update(digest, converter.getClass().getName());
+        update(digest, Arrays.deepToString(converter.getData()));
+        // Stored images are encoded with the settings of the conversion that stored them
+        update(digest, converter.getPackConverter().getPngEncoder().toString());
+        update(digest, converter.getPackConverter().getTgaEncoder().toString());
+
+        for (String path : new TreeSet<>(files.keySet())) {
+            update(digest, path);
+            for (Map.Entry<String, Path> file : files.get(path).entrySet()) {
+                update(digest, file.getKey());
+                update(digest, hash(file.getValue()));
+            }
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Read a stored entry along with all of its files and additional converters
+     * Entries or blobs may be pruned or corrupted by anything sharing the cache, so any failure is a miss
+     *
+     * @return The output to replay, or null if the entry couldn't be used
+     */
+    private Replay load(PackConverter packConverter, Path storage, Path entryFile) {
+        try {
+            Entry entry = MAPPER.readValue(entryFile.toFile(), Entry.class);
+
+            Map<String, byte[]> files = new TreeMap<>();
+            for (Map.Entry<String, String> file : entry.files.entrySet()) {
+                byte[] bytes = Files.readAllBytes(blob(file.getValue()));
+                if (!toHex(sha256().digest(bytes)).equals(file.getValue())) {
+                    throw new IOException("Stored contents of " + file.getKey() + " don't match their hash");
+                }
+                files.put(file.getKey(), bytes);
+            }
+
+            List<AbstractConverter> additionalConverters = new ArrayList<>();
+            for (List<Object> converter : entry.converters) {
+                Object[] data = (Object[]) toArray(converter.get(1));
+                ConverterFactory factory = ConverterHandler.getFactory((String) converter.get(0));
+                if (factory != null) {
+                    additionalConverters.add(factory.create(packConverter, storage, data));
+                    continue;
+                }
+
+                // Converters that only run as follow ups of others don't have to be registered
+                Class<? extends AbstractConverter> converterClass = Class.forName((String) converter.get(0)).asSubclass(AbstractConverter.class);
+                additionalConverters.add(converterClass.getDeclaredConstructor(PackConverter.class, Path.class, Object[].class).newInstance(packConverter, storage, data));
+            }
+
+            return new Replay(files, additionalConverters);
+        } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+            packConverter.log(String.format("Ignoring broken conversion cache entry %s: %s", entryFile.getFileName(), e));
+            try {
+                Files.deleteIfExists(entryFile);
+            } catch (IOException ignored) { }
+            return null;
+        }
+    }
+
+    /**
+     * Write the stored files of an entry into the pack
+     */
+    private void replay(PackConverter packConverter, Path storage, Replay replay) throws IOException {
+        for (Map.Entry<String, byte[]> file : replay.files().entrySet()) {
+            Path target = storage.resolve(file.getKey());
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            Files.write(target, file.getValue());
+            packConverter.getIndex().write(file.getKey());
+            packConverter.getLineage().write(file.getKey());
+        }
+    }
+
+    /**
+     * Get every file whose path relative to the pack root starts with the given path
+     * Matches the prefix rule of {@link AbstractConverter#getReadPaths()}
+     *
+     * @return The files by their path relative to the pack root
+     */
+    private static SortedMap<String, Path> files(Path storage, String path) throws IOException {
+        int separator = path.lastIndexOf('/');
+        Path folder = separator == -1 ? storage : storage.resolve(path.substring(0, separator));
+        String prefix = path.substring(separator + 1);
+
+        SortedMap<String, Path> files = new TreeMap<>();
+        if (!Files.isDirectory(folder)) {
+            return files;
+        }
+
+        // Only list the folder itself, other converters may be changing anything next to these paths
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(folder, child -> child.getFileName().toString().startsWith(prefix))) {
+            for (Path child : children) {
+                if (Files.isDirectory(child)) {
+                    try (Stream<Path> nested = Files.walk(child)) {
+                        for (Path file : (Iterable<Path>) nested.filter(Files::isRegularFile)::iterator) {
+                            files.put(PackLineage.relativize(storage, file), file);
+                        }
+                    }
+                } else if (Files.isRegularFile(child)) {
+                    files.put(PackLineage.relativize(storage, child), child);
+                }
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Filter for image cache paths matching the prefix rule of {@link AbstractConverter#getReadPaths()}
+     */
+    private static Predicate<Path> matches(Path storage, String path) {
+        // Resolving drops a trailing slash, which still has to stop the prefix from matching sibling names
+        String prefix = storage.normalize().resolve(path).toString();
+        if (path.endsWith("/")) {
+            prefix += storage.getFileSystem().getSeparator();
+        }
+
+        String filePrefix = prefix;
+        return file -> file.toString().startsWith(filePrefix);
+    }
+
+    /**
+     * Store a file in the blob store
+     *
+     * @return The hash of the file contents
+     */
+    private String store(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        String hash = toHex(sha256().digest(bytes));
+
+        Path blob = blob(hash);
+        if (!Files.exists(blob)) {
+            Files.createDirectories(blob.getParent());
+            write(blob, bytes);
+        }
+        return hash;
+    }
+
+    private Path blob(String hash) {
+        return directory.resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Write a file atomically so other conversions never see it half written
+     */
+    private static void write(Path file, byte[] bytes) throws IOException {
+        Path tmpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmpFile, bytes);
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[8192];
+        try (InputStream stream = Files.newInputStream(file)) {
+            int len;
+            while ((len = stream.read(buffer)) > 0) {
+                digest.update(buffer, 0, len);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Turn the lists json data is read as back into the arrays converters expect
+     */
+    private static Object toArray(Object value) {
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            Object[] array = new Object[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = toArray(list.get(i));
+            }
+            return array;
+        }
+        return value;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Loaded output of a stored converter run, ready to be written into the pack
+     *
+     * @param files Path relative to the pack root to its contents
+     * @param converters The additional converters of the run
+     */
+    private record Replay(Map<String, byte[]> files, List<AbstractConverter> converters) {
+    }
+
+    /**
+     * Stored output of a single converter run
+     */
+    private static class Entry {
+        // Path relative to the pack root to the hash of its contents
+        public Map<String, String> files = new TreeMap<>();
+
+        // Class name and data of every additional converter
+        public List<List<Object>> converters = new ArrayList<>();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Sidecar file of a converted pack recording which input entries and converters every output entry came from,
+ * see {@link org.geysermc.packconverter.api.IncrementalConverter}
+ */
+public class ConversionManifest {
+
+    // Bump when the stored format or the output of any converter changes
+    public static final int VERSION = 1;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public int version = VERSION;
+
+    // Entry name in the input zip to its CRC-32
+    public Map<String, Long> inputs = new TreeMap<>();
+
+    // Entry name in the output zip to where it came from
+    public Map<String, Output> outputs = new TreeMap<>();
+
+    // Input entries that converters used together, see {@link PackLineage#getGroups()}
+    public List<List<String>> groups = new ArrayList<>();
+
+    /**
+     * Record where every output entry came from
+     *
+     * @param input Java pack zip that was converted
+     * @param outputs Names of the entries in the output zip
+     * @param lineage Lineage of the conversion
+     * @return The manifest
+     * @throws IOException If the input zip couldn't be read
+     */
+    public static ConversionManifest create(Path input, Collection<String> outputs, PackLineage lineage) throws IOException {
+        ConversionManifest manifest = new ConversionManifest();
+        manifest.inputs.putAll(readInputs(input));
+
+        for (String name : outputs) {
+            PackLineage.Origin origin = lineage.getOrigin(name);
+            Output output = new Output();
+            if (origin != null) {
+                output.inputs = new ArrayList<>(origin.getInputs());
+                output.converters = new ArrayList<>(origin.getConverters());
+            }
+            manifest.outputs.put(name, output);
+        }
+
+        for (Set<String> group : lineage.getGroups()) {
+            manifest.groups.add(new ArrayList<>(group));
+        }
+        manifest.groups.sort(Comparator.comparing(Object::toString));
+
+        return manifest;
+    }
+
+    /**
+     * Get the CRC-32 of every file in a zip, only the central directory is read
+     *
+     * @param zip Zip to read
+     * @return Entry names to their CRC-32
+     * @throws IOException If the zip couldn't be read
+     */
+    public static Map<String, Long> readInputs(Path zip) throws IOException {
+        Map<String, Long> inputs = new TreeMap<>();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                if (!entry.isDirectory()) {
+                    inputs.put(entry.getName(), entry.getCrc());
+                }
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * Get the location of the manifest of a converted pack
+     *
+     * @param output Converted pack
+     * @return The manifest file next to it
+     */
+    public static Path getPath(Path output) {
+        return output.resolveSibling(output.getFileName().toString().replaceFirst("[.][^.]+$", "") + "_manifest.json");
+    }
+
+    /**
+     * @param file Manifest file to read
+     * @return The manifest, or null if it was written by an incompatible version
+     * @throws IOException If the file couldn't be read
+     */
+    public static ConversionManifest read(Path file) throws IOException {
+        ConversionManifest manifest = MAPPER.readValue(file.toFile(), ConversionManifest.class);
+        return manifest.version == VERSION ? manifest : null;
+    }
+
+    public void write(Path file) throws IOException {
+        Files.write(file, MAPPER.writeValueAsBytes(this));
+    }
+
+    /**
+     * Where an output entry came from
+     */
+    public static class Output {
+        // Input entries the output was made from, null if they aren't known
+        public List<String> inputs;
+
+        // Converters that had a hand in making the output
+        public List<String> converters = new ArrayList<>();
+
+        public PackLineage.Origin toOrigin() {
+            return new PackLineage.Origin(inputs, converters);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import org.geysermc.packconverter.api.converters.AbstractConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Typed rules of a converter, parsed once from the rows of its default data and shared by every conversion
+ * A malformed row fails when the converter class is loaded instead of halfway through a conversion
+ *
+ * @param <R> Type of the rules
+ */
+public class ConverterRules<R> {
+
+    private final Class<? extends AbstractConverter> converterClass;
+    private final Function<Object[], R> parser;
+
+    // Only written while constructing, so it can be read from any thread
+    private final Map<Object[], R> rules = new IdentityHashMap<>();
+
+    /**
+     * @param converterClass Converter the rules are for, used in error messages
+     * @param rows Rows of the default data to parse up front
+     * @param parser Turns a row into a rule, throwing if the row is malformed
+     */
+    public ConverterRules(Class<? extends AbstractConverter> converterClass, List<Object[]> rows, Function<Object[], R> parser) {
+        this.converterClass = converterClass;
+        this.parser = parser;
+
+        for (Object[] row : rows) {
+            rules.put(row, parse(row));
+        }
+    }
+
+    /**
+     * Get the rule of a row, rows that aren't part of the default data are parsed on the spot
+     *
+     * @param row Data of the converter
+     * @return The rule
+     */
+    public R get(Object[] row) {
+        R rule = rules.get(row);
+        return rule != null ? rule : parse(row);
+    }
+
+    private R parse(Object[] row) {
+        try {
+            return parser.apply(row);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(String.format("Invalid %s rule %s", converterClass.getSimpleName(), Arrays.deepToString(row)), e);
+        }
+    }
+
+    /**
+     * Get a required value of a row
+     *
+     * @param row Row to read
+     * @param index Index of the value
+     * @param type Type of the value
+     * @return The value
+     */
+    public static <T> T get(Object[] row, int index, Class<T> type) {
+        if (index >= row.length || row[index] == null) {
+            throw new IllegalArgumentException(String.format("Missing %s at index %s", type.getSimpleName(), index));
+        }
+        if (!type.isInstance(row[index])) {
+            throw new IllegalArgumentException(String.format("Expected %s at index %s but got %s", type.getSimpleName(), index, row[index].getClass().getSimpleName()));
+        }
+        return type.cast(row[index]);
+    }
+
+    /**
+     * Get an optional value of a row
+     *
+     * @param row Row to read
+     * @param index Index of the value
+     * @param type Type of the value
+     * @param fallback Value to use if the row is too short or the value is null
+     * @return The value
+     */
+    public static <T> T get(Object[] row, int index, Class<T> type, T fallback) {
+        if (index >= row.length || row[index] == null) {
+            return fallback;
+        }
+        return get(row, index, type);
+    }
+
+    /**
+     * Parse a nested array of rows
+     *
+     * @param row Row to read
+     * @param index Index of the nested rows
+     * @param parser Turns a nested row into its rule
+     * @return The nested rules
+     */
+    public static <T> List<T> list(Object[] row, int index, Function<Object[], T> parser) {
+        List<T> list = new ArrayList<>();
+        for (Object child : get(row, index, Object[].class)) {
+            if (!(child instanceof Object[])) {
+                throw new IllegalArgumentException(String.format("Expected rows at index %s", index));
+            }
+            list.add(parser.apply((Object[]) child));
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Get a required array of strings
+     *
+     * @param row Row to read
+     * @param index Index of the array
+     * @return The strings
+     */
+    public static List<String> strings(Object[] row, int index) {
+        return Collections.unmodifiableList(Arrays.asList(get(row, index, String[].class)));
+    }
+}
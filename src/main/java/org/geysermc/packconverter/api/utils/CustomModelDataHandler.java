@@ -36,15 +36,17 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 
 public class CustomModelDataHandler {
-    public static String handleItemTexture(PackConverter packConverter, ObjectMapper mapper, Path storage, File modelFile) {
+    public static String handleItemTexture(PackConverter packConverter, ObjectMapper mapper, Path storage, Path modelFile) {
         InputStream stream;
         JsonNode textureFile;
         try {
             // Read the model information for the Java CustomModelData
-            stream = new FileInputStream(modelFile);
+            packConverter.materialize(modelFile);
+            packConverter.getLineage().read(PackLineage.relativize(storage, modelFile));
+            stream = Files.newInputStream(modelFile);
             textureFile = mapper.readTree(stream);
         } catch (IOException e) {
-            packConverter.log("Failed to read model file at " + modelFile.getAbsolutePath() + ": " + e.getMessage());
+            packConverter.log("Failed to read model file at " + modelFile.toAbsolutePath() + ": " + e.getMessage());
             return null;
         }
 
@@ -73,10 +75,13 @@ public class CustomModelDataHandler {
                 if (!namespace.equals("minecraft")) {
                     Path output = storage.resolve(path + ".png").toAbsolutePath();
                     try {
-                        output.getParent().toFile().mkdirs();
+                        Files.createDirectories(output.getParent());
                         Files.copy(input, output, StandardCopyOption.REPLACE_EXISTING);
+                        packConverter.getLineage().read(PackLineage.relativize(storage.toAbsolutePath(), input));
+                        packConverter.getIndex().write(path + ".png");
+                        packConverter.getLineage().write(path + ".png");
                     } catch (IOException e) {
-                        packConverter.log("Failed to copy needed texture for " + modelFile.getAbsolutePath() + ": " + e.getMessage());
+                        packConverter.log("Failed to copy needed texture for " + modelFile.toAbsolutePath() + ": " + e.getMessage());
                         return null;
                     }
                 }
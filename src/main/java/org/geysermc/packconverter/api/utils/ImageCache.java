@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.utils;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.metrics.ConversionMetrics;
+import org.geysermc.packconverter.api.metrics.Metrics;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Keeps decoded images of a single conversion in memory so the same file isn't decoded more than once
+ * Writes are lazy, an image is only encoded once it is flushed or evicted from the cache
+ * Every image handed out or stored is a copy, so converters are free to modify them
+ * With a {@link MemoryBudget} the cached images count towards it and are spilled once it is used up
+ */
+public class ImageCache implements MemoryBudget.Spiller {
+
+    private final PackConverter packConverter;
+    private final int threads;
+
+    // Access ordered so the first entry is always the least recently used one
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Held while touching a file so an evicted image can't be written at the same time as it is moved or deleted
+    private final Map<Path, Object> fileLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum amount of bytes of decoded images to keep in memory, 0 writes every image straight away
+     */
+    @Getter
+    @Setter
+    private volatile long budget = Runtime.getRuntime().maxMemory() / 4;
+
+    /**
+     * Global budget the cached images count towards, or null to only keep to {@link #budget}
+     */
+    @Getter
+    private MemoryBudget memoryBudget;
+
+    private long size;
+
+    /**
+     * @param packConverter Converter the images belong to
+     * @param threads Amount of threads to encode images with when flushing
+     */
+    public ImageCache(PackConverter packConverter, int threads) {
+        this.packConverter = packConverter;
+        this.threads = threads;
+    }
+
+    /**
+     * Set the global budget the cached images count towards, moving the images already cached over to it
+     *
+     * @param memoryBudget Budget to use, or null for none
+     */
+    public synchronized void setMemoryBudget(MemoryBudget memoryBudget) {
+        if (this.memoryBudget != null) {
+            this.memoryBudget.removeSpiller(this);
+            this.memoryBudget.reserve(-size);
+        }
+
+        this.memoryBudget = memoryBudget;
+        if (memoryBudget != null) {
+            memoryBudget.reserve(size);
+            memoryBudget.addSpiller(this);
+        }
+    }
+
+    /**
+     * Read an image, decoding it only if it isn't cached yet
+     * The copy handed out is acquired from the {@link MemoryBudget} of the calling thread before it is made
+     *
+     * @param file File to read
+     * @return A copy of the image, or null if no reader supports the format
+     * @throws IOException If the image could not be read
+     */
+    public BufferedImage read(Path file) throws IOException {
+        file = file.normalize();
+        packConverter.getMetrics().fileTouched(file);
+
+        Entry cached;
+        synchronized (this) {
+            cached = entries.get(file);
+        }
+
+        if (cached != null) {
+            // No locks are held while waiting for budget, so the converter that has held budget the longest can always go on
+            MemoryBudget.acquire(cached.bytes);
+            return ImageUtils.copy(cached.image);
+        }
+
+        byte[] bytes;
+        synchronized (lock(file)) {
+            packConverter.materialize(file);
+            bytes = Files.readAllBytes(file);
+            packConverter.getMetrics().bytesRead(bytes.length);
+        }
+
+        // PNGs tell their size up front, anything else is only counted once it is decoded
+        long decodedSize = PngDecoder.getDecodedSize(bytes);
+        MemoryBudget.acquire(decodedSize);
+
+        BufferedImage image = ImageUtils.read(bytes);
+        String encoding = PngDecoder.isPng(bytes) ? "png" : null;
+
+        if (image != null) {
+            if (decodedSize < 0) {
+                MemoryBudget.acquire(MemoryBudget.sizeOf(image));
+            }
+
+            packConverter.getMetrics().imageDecoded();
+            put(file, new Entry(ImageUtils.copy(image), null, encoding));
+        }
+        return image;
+    }
+
+    /**
+     * Store an image to be written later on
+     * Nothing is stored if no writer supports the format, the same as {@link ImageIO#write}
+     * Writing back the pixels the file already has in the same format keeps the file as it is without encoding it
+     *
+     * @param image Image to write, a copy is stored
+     * @param format Format to write the image in
+     * @param file File to write to
+     * @return True if the file holds the image now, false if nothing was stored
+     * @throws IOException If an evicted image could not be written
+     */
+    public boolean write(BufferedImage image, String format, Path file) throws IOException {
+        if (!ImageUtils.canWrite(image, format)) {
+            return false;
+        }
+
+        file = file.normalize();
+        packConverter.getMetrics().fileTouched(file);
+
+        synchronized (this) {
+            Entry current = entries.get(file);
+            if (current != null && format.equalsIgnoreCase(current.encoding) && ImageUtils.samePixels(current.image, image)) {
+                packConverter.getMetrics().imageUnchanged();
+                return true;
+            }
+        }
+
+        // Make sure the folder exists for anyone checking the pack on disk
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        put(file, new Entry(ImageUtils.copy(image), format, format));
+        return true;
+    }
+
+    /**
+     * Check if a file exists, either as a pending image or in the pack
+     *
+     * @param file File to check
+     * @return True if the file exists
+     */
+    public boolean exists(Path file) {
+        file = file.normalize();
+        synchronized (this) {
+            if (entries.containsKey(file)) {
+                return true;
+            }
+        }
+
+        return Files.exists(file);
+    }
+
+    /**
+     * Write any pending image at or inside the given path and drop it from the cache
+     * Used before something works with the files directly
+     *
+     * @param path File or folder to flush
+     * @throws IOException If an image could not be written
+     */
+    public void flush(Path path) throws IOException {
+        Path root = path.normalize();
+        flush(file -> file.startsWith(root));
+    }
+
+    /**
+     * Write any pending image matching the filter and drop it from the cache
+     *
+     * @param filter Filter on the normalized paths of the images
+     * @throws IOException If an image could not be written
+     */
+    public void flush(Predicate<Path> filter) throws IOException {
+        for (Map.Entry<Path, Entry> entry : remove(filter)) {
+            writeEntry(entry.getKey(), entry.getValue(), false);
+        }
+    }
+
+    /**
+     * Drop any image at or inside the given path without writing it, used before it is deleted or overwritten
+     *
+     * @param path File or folder to discard
+     */
+    public void discard(Path path) {
+        Path root = path.normalize();
+        discard(file -> file.startsWith(root));
+    }
+
+    /**
+     * Drop any image matching the filter without writing it
+     *
+     * @param filter Filter on the normalized paths of the images
+     */
+    public void discard(Predicate<Path> filter) {
+        for (Map.Entry<Path, Entry> entry : remove(filter)) {
+            // Wait for an eviction that already started writing the file
+            synchronized (lock(entry.getKey())) { }
+        }
+    }
+
+    /**
+     * Write every pending image in the cache, the images stay cached
+     *
+     * @throws IOException If an image could not be written
+     */
+    public void flush() throws IOException {
+        List<Map.Entry<Path, Entry>> dirty = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Path, Entry> entry : entries.entrySet()) {
+                if (entry.getValue().format != null) {
+                    dirty.add(Map.entry(entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+
+        if (threads <= 1) {
+            for (Map.Entry<Path, Entry> entry : dirty) {
+                writeEntry(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+
+        Metrics[] current = packConverter.getMetrics().current();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (Map.Entry<Path, Entry> entry : dirty) {
+                tasks.add(pool.submit(() -> {
+                    ConversionMetrics.Section section = packConverter.getMetrics().attach(current);
+                    try {
+                        writeEntry(entry.getKey(), entry.getValue());
+                    } finally {
+                        section.close();
+                    }
+                    return null;
+                }));
+            }
+
+            for (ForkJoinTask<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing images", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to write images", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Evict the least recently used images until the given amount of bytes is freed or nothing is left to evict
+     *
+     * @param bytes Amount of bytes wanted
+     * @return The amount of bytes freed
+     * @throws IOException If an evicted image could not be written
+     */
+    @Override
+    public long spill(long bytes) throws IOException {
+        long target;
+        synchronized (this) {
+            target = size - bytes;
+        }
+
+        return evict(() -> size <= target);
+    }
+
+    private void put(Path file, Entry entry) throws IOException {
+        synchronized (this) {
+            Entry previous = entries.put(file, entry);
+            if (previous != null) {
+                resize(-previous.bytes);
+            }
+            resize(entry.bytes);
+        }
+
+        evict(() -> size <= budget && (memoryBudget == null || !memoryBudget.isExhausted()));
+    }
+
+    /**
+     * Evict the least recently used images until the cache is done evicting
+     * Pending images are written first and can still be read from the cache while that happens
+     *
+     * @param done Checked while holding the cache lock
+     * @return The amount of bytes freed
+     */
+    private long evict(BooleanSupplier done) throws IOException {
+        long freed = 0;
+        while (true) {
+            Path file = null;
+            Entry entry = null;
+            synchronized (this) {
+                if (done.getAsBoolean()) {
+                    return freed;
+                }
+
+                for (Map.Entry<Path, Entry> candidate : entries.entrySet()) {
+                    if (!candidate.getValue().evicting) {
+                        file = candidate.getKey();
+                        entry = candidate.getValue();
+                        break;
+                    }
+                }
+
+                if (entry == null) {
+                    // Everything left is already being written by another thread
+                    return freed;
+                }
+
+                if (entry.format == null) {
+                    entries.remove(file);
+                    resize(-entry.bytes);
+                    freed += entry.bytes;
+                    continue;
+                }
+
+                entry.evicting = true;
+            }
+
+            writeEntry(file, entry);
+
+            synchronized (this) {
+                if (entries.get(file) == entry) {
+                    entries.remove(file);
+                    resize(-entry.bytes);
+                    freed += entry.bytes;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a pending image if it is still the latest version of the file
+     */
+    private void writeEntry(Path file, Entry entry) throws IOException {
+        writeEntry(file, entry, true);
+    }
+
+    /**
+     * Write a pending image unless an eviction wrote it already
+     *
+     * @param cached True if the image must still be the cached version of the file, false if it was removed to be written
+     */
+    private void writeEntry(Path file, Entry entry, boolean cached) throws IOException {
+        synchronized (lock(file)) {
+            synchronized (this) {
+                // Replaced, moved or deleted since, so the file must not be touched
+                if ((cached && entries.get(file) != entry) || entry.format == null) {
+                    return;
+                }
+            }
+
+            write(file, entry);
+
+            synchronized (this) {
+                entry.format = null;
+            }
+        }
+    }
+
+    /**
+     * Encode an image, counted towards the metrics of whoever caused the write
+     */
+    private void write(Path file, Entry entry) throws IOException {
+        int bytes = ImageUtils.write(entry.image, entry.format, file, packConverter.getPngEncoder(), packConverter.getTgaEncoder());
+        if (bytes > 0) {
+            packConverter.getMetrics().bytesWritten(bytes);
+            packConverter.getMetrics().imageEncoded();
+        }
+    }
+
+    /**
+     * Remove every entry matching the filter
+     */
+    private synchronized List<Map.Entry<Path, Entry>> remove(Predicate<Path> filter) {
+        List<Map.Entry<Path, Entry>> removed = new ArrayList<>();
+        Iterator<Map.Entry<Path, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Entry> entry = iterator.next();
+            if (filter.test(entry.getKey())) {
+                iterator.remove();
+                resize(-entry.getValue().bytes);
+                if (entry.getValue().format != null) {
+                    removed.add(Map.entry(entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Change the size of the cache, must hold the cache lock
+     */
+    private void resize(long bytes) {
+        size += bytes;
+        if (memoryBudget != null) {
+            memoryBudget.reserve(bytes);
+        }
+    }
+
+    private Object lock(Path file) {
+        return fileLocks.computeIfAbsent(file, path -> new Object());
+    }
+
+    private static class Entry {
+        private final BufferedImage image;
+        private final long bytes;
+
+        // The format the file is in once it is up to date, null if it was read from a format we can't write
+        private final String encoding;
+
+        // The format to write the image in, or null if the file is up to date
+        private String format;
+        private boolean evicting;
+
+        private Entry(BufferedImage image, String format, String encoding) {
+            this.image = image;
+            this.format = format;
+            this.encoding = encoding;
+            this.bytes = MemoryBudget.sizeOf(image);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import lombok.Getter;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+/**
+ * Read only view of a rectangle of an image, sharing the pixels of the image instead of copying them
+ *
+ * Reading a view gives the same pixels {@link ImageUtils#crop} would have stored,
+ * anything outside of the image is transparent.
+ * Views of images that are not plain ARGB images copy the part of the image they cover once.
+ * As a view shares its pixels it only stays valid as long as the image is not modified,
+ * use {@link #toImage()} to get an image that can be modified.
+ */
+public class ImageRegion {
+
+    private final int[] data;
+
+    // Index of the top left pixel of the region in data, only pixels inside the bounds below are ever read
+    private final int offset;
+    private final int stride;
+
+    @Getter
+    private final int width;
+
+    @Getter
+    private final int height;
+
+    // Part of the region covered by the image, in region coordinates
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+
+    private ImageRegion(int[] data, int offset, int stride, int width, int height, int minX, int minY, int maxX, int maxY) {
+        this.data = data;
+        this.offset = offset;
+        this.stride = stride;
+        this.width = width;
+        this.height = height;
+
+        if (minX >= maxX || minY >= maxY) {
+            minX = maxX = minY = maxY = 0;
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * @see ImageRegion#of(BufferedImage, int, int, int, int)
+     */
+    public static ImageRegion of(BufferedImage img) {
+        return of(img, 0, 0, img.getWidth(), img.getHeight());
+    }
+
+    /**
+     * Get a view of a rectangle of an image
+     *
+     * @param img Image to use
+     * @param x Starting X
+     * @param y Starting Y
+     * @param width Width of the region
+     * @param height Height of the region
+     * @return View of the region
+     */
+    public static ImageRegion of(BufferedImage img, int x, int y, int width, int height) {
+        int minX = Math.max(0, -x);
+        int minY = Math.max(0, -y);
+        int maxX = Math.min(width, img.getWidth() - x);
+        int maxY = Math.min(height, img.getHeight() - y);
+
+        int[] data = PixelKernels.compactData(img);
+        if (data != null) {
+            return new ImageRegion(data, y * img.getWidth() + x, img.getWidth(), width, height, minX, minY, maxX, maxY);
+        }
+
+        // Copy the covered part the way crop always did, as Java2D converts some image types differently to getRGB
+        int copyWidth = Math.max(0, maxX - minX);
+        int copyHeight = Math.max(0, maxY - minY);
+        if (copyWidth == 0 || copyHeight == 0) {
+            return new ImageRegion(new int[0], 0, 0, width, height, 0, 0, 0, 0);
+        }
+
+        BufferedImage copy = new BufferedImage(copyWidth, copyHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = copy.getGraphics();
+        g.drawImage(img, 0, 0, copyWidth, copyHeight, x + minX, y + minY, x + maxX, y + maxY, null);
+        g.dispose();
+        return new ImageRegion(PixelKernels.compactData(copy), -(minY * copyWidth + minX), copyWidth, width, height, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Get a view of a rectangle of this view, without copying
+     *
+     * @param x Starting X
+     * @param y Starting Y
+     * @param width Width of the region
+     * @param height Height of the region
+     * @return View of the region
+     */
+    public ImageRegion region(int x, int y, int width, int height) {
+        return new ImageRegion(data, offset + y * stride + x, stride, width, height,
+                Math.max(minX - x, 0), Math.max(minY - y, 0), Math.min(maxX - x, width), Math.min(maxY - y, height));
+    }
+
+    /**
+     * Get a pixel of the region
+     *
+     * @param x X in the region
+     * @param y Y in the region
+     * @return The pixel as non premultiplied ARGB, transparent outside of the image
+     */
+    public int getRGB(int x, int y) {
+        if (x < minX || x >= maxX || y < minY || y >= maxY) {
+            return 0;
+        }
+        return PixelKernels.normalize(data[offset + y * stride + x]);
+    }
+
+    /**
+     * Check if every pixel of the region is fully transparent
+     *
+     * @return True if nothing in the region is visible
+     */
+    public boolean isEmpty() {
+        for (int y = minY; y < maxY; y++) {
+            int index = offset + y * stride;
+            for (int x = minX; x < maxX; x++) {
+                if ((data[index + x] >>> 24) != 0) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Copy the region into a new image, the same as {@link ImageUtils#crop} does
+     *
+     * @return New {@link BufferedImage#TYPE_INT_ARGB} image
+     */
+    public BufferedImage toImage() {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        draw(PixelKernels.compactData(img), width, height, 0, 0, false);
+        return img;
+    }
+
+    /**
+     * Draw the region onto an image, the same as {@link Graphics#drawImage} with the image from {@link #toImage()} does
+     *
+     * @param target Image to draw onto
+     * @param x X to draw the region at
+     * @param y Y to draw the region at
+     */
+    public void drawTo(BufferedImage target, int x, int y) {
+        int[] targetData = PixelKernels.compactData(target);
+        if (targetData == null) {
+            Graphics g = target.getGraphics();
+            g.drawImage(toImage(), x, y, null);
+            g.dispose();
+            return;
+        }
+
+        draw(targetData, target.getWidth(), target.getHeight(), x, y, false);
+    }
+
+    /**
+     * Draw the region onto the pixels of an image, copying whole rows when they are opaque
+     *
+     * @param target Pixels to draw onto, one row after another
+     * @param targetWidth Width of the target
+     * @param targetHeight Height of the target
+     * @param toX X to draw the region at
+     * @param toY Y to draw the region at
+     * @param flip If the rows should be drawn upside down
+     */
+    void draw(int[] target, int targetWidth, int targetHeight, int toX, int toY, boolean flip) {
+        // Columns that are inside both the image and the target
+        int start = Math.max(minX, -toX);
+        int end = Math.min(maxX, targetWidth - toX);
+        if (start >= end) {
+            return;
+        }
+
+        int length = end - start;
+        for (int y = minY; y < maxY; y++) {
+            int targetY = toY + (flip ? height - 1 - y : y);
+            if (targetY < 0 || targetY >= targetHeight) {
+                continue;
+            }
+
+            int index = offset + y * stride + start;
+            int targetIndex = targetY * targetWidth + toX + start;
+
+            boolean opaque = true;
+            for (int i = 0; i < length; i++) {
+                if ((data[index + i] >>> 24) != 0xFF) {
+                    opaque = false;
+                    break;
+                }
+            }
+
+            if (opaque) {
+                System.arraycopy(data, index, target, targetIndex, length);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    target[targetIndex + i] = PixelKernels.blend(PixelKernels.normalize(data[index + i]), target[targetIndex + i]);
+                }
+            }
+        }
+    }
+}
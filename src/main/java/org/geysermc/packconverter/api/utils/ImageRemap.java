@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import lombok.Getter;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Declarative description of how to cut regions out of images and lay them out in a new one
+ *
+ * Coordinates are in texture units and multiplied by the factor of the pack when the remap runs,
+ * so a remap can be built once and reused for every resolution.
+ * Running a remap gives exactly what drawing {@link ImageUtils#crop}, {@link ImageUtils#flip} and
+ * {@link ImageUtils#rotate} results onto the target with {@link java.awt.Graphics#drawImage} did,
+ * without any of the intermediate images: rows are copied straight between the pixel arrays,
+ * only translucent pixels are blended.
+ */
+public class ImageRemap {
+
+    /**
+     * Source index of the image being built, to copy regions that were already drawn
+     */
+    public static final int TARGET = -1;
+
+    /**
+     * The regions to draw, in order
+     */
+    @Getter
+    private final List<Region> regions;
+
+    private ImageRemap(List<Region> regions) {
+        this.regions = Collections.unmodifiableList(regions);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Create a transparent image and draw every region onto it
+     *
+     * @param width Width of the new image in pixels
+     * @param height Height of the new image in pixels
+     * @param factor Amount of pixels per texture unit
+     * @param sources Images the regions are copied from
+     * @return The new image
+     */
+    public BufferedImage apply(int width, int height, int factor, BufferedImage... sources) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        apply(target, factor, sources);
+        return target;
+    }
+
+    /**
+     * Draw every region onto an image
+     *
+     * @param target Image to draw onto, has to be a {@link BufferedImage#TYPE_INT_ARGB} image as created by its constructor
+     * @param factor Amount of pixels per texture unit
+     * @param sources Images the regions are copied from
+     */
+    public void apply(BufferedImage target, int factor, BufferedImage... sources) {
+        int[] targetPixels = PixelKernels.compactData(target);
+        if (targetPixels == null) {
+            throw new IllegalArgumentException("Remap target must be a plain ARGB image");
+        }
+
+        int targetWidth = target.getWidth();
+        int targetHeight = target.getHeight();
+
+        ImageRegion[] sourceRegions = new ImageRegion[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            sourceRegions[i] = ImageRegion.of(sources[i]);
+        }
+
+        for (Region region : regions) {
+            int x = region.x() * factor;
+            int y = region.y() * factor;
+            int width = region.width() * factor;
+            int height = region.height() * factor;
+            int toX = region.toX() * factor;
+            int toY = region.toY() * factor;
+
+            ImageRegion piece;
+            if (region.source() == TARGET) {
+                // Copy the region first as drawing it may overwrite what is still to be read
+                piece = ImageRegion.of(ImageRegion.of(target, x, y, width, height).toImage());
+            } else {
+                piece = sourceRegions[region.source()].region(x, y, width, height);
+            }
+
+            switch (region.transform()) {
+                case NONE -> piece.draw(targetPixels, targetWidth, targetHeight, toX, toY, false);
+                case FLIP_VERTICAL -> piece.draw(targetPixels, targetWidth, targetHeight, toX, toY, true);
+                default -> drawTransformed(piece, targetPixels, targetWidth, targetHeight, toX, toY, region.transform());
+            }
+        }
+    }
+
+    private static void drawTransformed(ImageRegion piece, int[] target, int targetWidth, int targetHeight, int toX, int toY, Transform transform) {
+        int width = piece.getWidth();
+        int height = piece.getHeight();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = piece.getRGB(x, y);
+                if (argb == 0) {
+                    continue;
+                }
+
+                int targetX;
+                int targetY;
+                if (transform == Transform.FLIP_HORIZONTAL) {
+                    targetX = toX + width - 1 - x;
+                    targetY = toY + y;
+                } else {
+                    int position = transform.rotate(x, y, width, height);
+                    if (position == -1) {
+                        continue;
+                    }
+                    targetX = toX + (position >>> 16);
+                    targetY = toY + (position & 0xFFFF);
+                }
+
+                if (targetX >= 0 && targetX < targetWidth && targetY >= 0 && targetY < targetHeight) {
+                    int index = targetY * targetWidth + targetX;
+                    target[index] = PixelKernels.blend(argb, target[index]);
+                }
+            }
+        }
+    }
+
+    /**
+     * A region to cut out of a source image and draw onto the target, in texture units
+     *
+     * @param source Index of the source image, or {@link #TARGET}
+     * @param x Left of the region in the source
+     * @param y Top of the region in the source
+     * @param width Width of the region
+     * @param height Height of the region
+     * @param toX Left of the transformed region in the target
+     * @param toY Top of the transformed region in the target
+     * @param transform Transform to apply to the region
+     */
+    public record Region(int source, int x, int y, int width, int height, int toX, int toY, Transform transform) {
+    }
+
+    public enum Transform {
+        NONE(0),
+        /**
+         * The same as {@link ImageUtils#flip} horizontally
+         */
+        FLIP_HORIZONTAL(0),
+        /**
+         * The same as {@link ImageUtils#flip} vertically
+         */
+        FLIP_VERTICAL(0),
+        /**
+         * The same as {@link ImageUtils#rotate} by 90
+         */
+        ROTATE_90(90),
+        /**
+         * The same as {@link ImageUtils#rotate} by 180
+         */
+        ROTATE_180(180),
+        /**
+         * The same as {@link ImageUtils#rotate} by -90
+         */
+        ROTATE_270(-90);
+
+        private final int cos;
+        private final int sin;
+
+        Transform(int angle) {
+            this.cos = (int) Math.round(Math.cos(Math.toRadians(-angle)));
+            this.sin = (int) Math.round(Math.sin(Math.toRadians(-angle)));
+        }
+
+        /**
+         * Get the transform for an angle passed to {@link ImageUtils#rotate}
+         *
+         * @param angle Angle in degrees, a multiple of 90
+         * @return The transform
+         */
+        public static Transform ofRotation(int angle) {
+            return switch (Math.floorMod(angle, 360)) {
+                case 0 -> NONE;
+                case 90 -> ROTATE_90;
+                case 180 -> ROTATE_180;
+                case 270 -> ROTATE_270;
+                default -> throw new IllegalArgumentException("Unsupported rotation " + angle);
+            };
+        }
+
+        /**
+         * Get where a pixel ends up when rotating a region
+         * {@link ImageUtils#rotate} turns around the center rounded down, so regions with odd sizes shift by a pixel
+         * and lose a row or column, which is kept here to give the same result
+         *
+         * @return The position as x << 16 | y, or -1 if the pixel falls outside the rotated region
+         */
+        private int rotate(int x, int y, int width, int height) {
+            int rotatedWidth = sin != 0 ? height : width;
+            int rotatedHeight = sin != 0 ? width : height;
+
+            // Centers of pixels are at half pixels, so work in doubled coordinates
+            int centerX = 2 * x + 1 - 2 * (width / 2);
+            int centerY = 2 * y + 1 - 2 * (height / 2);
+            int rotatedX = (2 * (rotatedWidth / 2) + cos * centerX - sin * centerY - 1) >> 1;
+            int rotatedY = (2 * (rotatedHeight / 2) + sin * centerX + cos * centerY - 1) >> 1;
+            if (rotatedX < 0 || rotatedX >= rotatedWidth || rotatedY < 0 || rotatedY >= rotatedHeight) {
+                return -1;
+            }
+            return rotatedX << 16 | rotatedY;
+        }
+    }
+
+    public static class Builder {
+        private final List<Region> regions = new ArrayList<>();
+        private int source = 0;
+
+        /**
+         * Copy the following regions from another source image
+         *
+         * @param source Index of the source image, or {@link #TARGET}
+         * @return This builder
+         */
+        public Builder from(int source) {
+            this.source = source;
+            return this;
+        }
+
+        /**
+         * Copy a region as it is
+         *
+         * @see #copy(int, int, int, int, int, int, Transform)
+         */
+        public Builder copy(int x, int y, int width, int height, int toX, int toY) {
+            return copy(x, y, width, height, toX, toY, Transform.NONE);
+        }
+
+        /**
+         * Copy a region of the current source image, in texture units
+         *
+         * @param x Left of the region in the source
+         * @param y Top of the region in the source
+         * @param width Width of the region
+         * @param height Height of the region
+         * @param toX Left of the transformed region in the target
+         * @param toY Top of the transformed region in the target
+         * @param transform Transform to apply to the region
+         * @return This builder
+         */
+        public Builder copy(int x, int y, int width, int height, int toX, int toY, Transform transform) {
+            regions.add(new Region(source, x, y, width, height, toX, toY, transform));
+            return this;
+        }
+
+        public ImageRemap build() {
+            return new ImageRemap(new ArrayList<>(regions));
+        }
+    }
+}
@@ -27,12 +27,21 @@
 package org.geysermc.packconverter.api.utils;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 public class ImageUtils {
 
@@ -54,11 +63,7 @@ public class ImageUtils {
      * @return Cropped image
      */
     public static BufferedImage crop(BufferedImage img, int x, int y, int width, int height) {
-        BufferedImage dest = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics g = dest.getGraphics();
-        g.drawImage(img, 0, 0, width, height, x, y, x + width, y+ height, null);
-        g.dispose();
-        return dest;
+        return ImageRegion.of(img, x, y, width, height).toImage();
     }
 
     /**
@@ -184,6 +189,138 @@ public class ImageUtils {
         ImageIO.write(img, format, output);
     }
 
+    /**
+     * Check if two images have the same size and the same ARGB value in every pixel
+     *
+     * @param a First image
+     * @param b Second image
+     * @return True if the images look the same, whatever their types are
+     */
+    public static boolean samePixels(BufferedImage a, BufferedImage b) {
+        int width = a.getWidth();
+        int height = a.getHeight();
+        if (width != b.getWidth() || height != b.getHeight()) {
+            return false;
+        }
+
+        int[] rowA = new int[width];
+        int[] rowB = new int[width];
+        for (int y = 0; y < height; y++) {
+            a.getRGB(0, y, width, 1, rowA, 0, width);
+            b.getRGB(0, y, width, 1, rowB, 0, width);
+            if (!Arrays.equals(rowA, rowB)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if an image can be written in a format
+     * PNG and TGA are always written by our own encoders, so only other formats look for an ImageIO writer
+     *
+     * @param img Image to write
+     * @param format Format to write
+     * @return True if {@link #write(BufferedImage, String, Path)} would write the image
+     */
+    public static boolean canWrite(BufferedImage img, String format) {
+        if (format.equalsIgnoreCase("png") || format.equalsIgnoreCase("tga")) {
+            return true;
+        }
+        return ImageIO.getImageWriters(ImageTypeSpecifier.createFromRenderedImage(img), format).hasNext();
+    }
+
+    /**
+     * Write an image to a path and ensure the directory exists
+     * The image is encoded in memory so this works on any {@link java.nio.file.FileSystem}
+     *
+     * @param img Image to write
+     * @param format Format to write
+     * @param output Path to write to
+     * @return The amount of bytes written, 0 if no writer supports the format
+     * @throws IOException
+     */
+    public static int write(BufferedImage img, String format, Path output) throws IOException {
+        return write(img, format, output, PngEncoder.DEFAULT, TgaEncoder.RAW);
+    }
+
+    /**
+     * Write an image to a path and ensure the directory exists
+     * PNG and TGA images are written by the given encoders, anything else goes through ImageIO
+     *
+     * @param img Image to write
+     * @param format Format to write
+     * @param output Path to write to
+     * @param pngEncoder Encoder to write PNG images with
+     * @param tgaEncoder Encoder to write TGA images with
+     * @return The amount of bytes written, 0 if no writer supports the format
+     * @throws IOException
+     */
+    public static int write(BufferedImage img, String format, Path output, PngEncoder pngEncoder, TgaEncoder tgaEncoder) throws IOException {
+        if (format.equalsIgnoreCase("png") || format.equalsIgnoreCase("tga")) {
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            return format.equalsIgnoreCase("png") ? pngEncoder.write(img, output) : tgaEncoder.write(img, output);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(bytes)) {
+            if (!ImageIO.write(img, format, stream)) {
+                return 0;
+            }
+        }
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        Files.write(output, bytes.toByteArray());
+        return bytes.size();
+    }
+
+    /**
+     * Read an image from a path without using a disk cache
+     * Most PNG images are decoded by {@link PngDecoder} into the same kind of image ImageIO gives, anything else goes through ImageIO
+     *
+     * @param input Path to read from
+     * @return The read image, or null if no reader supports the format
+     * @throws IOException
+     */
+    public static BufferedImage read(Path input) throws IOException {
+        return read(Files.readAllBytes(input));
+    }
+
+    /**
+     * Read an image from the bytes of a file
+     *
+     * @param bytes Contents of the file
+     * @return The read image, or null if no reader supports the format
+     * @throws IOException
+     */
+    public static BufferedImage read(byte[] bytes) throws IOException {
+        if (PngDecoder.isPng(bytes)) {
+            BufferedImage image = PngDecoder.decode(bytes);
+            if (image != null) {
+                return image;
+            }
+        }
+
+        ImageInputStream imageStream = new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes));
+        return ImageIO.read(imageStream);
+    }
+
+    /**
+     * Copy a {@link BufferedImage} keeping its exact type and pixel layout
+     *
+     * @param img Image to copy
+     * @return A copy of the image
+     */
+    public static BufferedImage copy(BufferedImage img) {
+        ColorModel colorModel = img.getColorModel();
+        WritableRaster raster = img.copyData(img.getRaster().createCompatibleWritableRaster(img.getWidth(), img.getHeight()));
+        return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+    }
+
     /**
      * Convert a {@link BufferedImage} to grayscale
      *
@@ -192,22 +329,23 @@ public class ImageUtils {
      */
     public static BufferedImage grayscale(BufferedImage img) {
         BufferedImage newImage = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        for (int x = 0; x < newImage.getWidth(); x++) {
-            for (int y = 0; y < newImage.getHeight(); y++) {
-                Color newCol = new Color(img.getRGB(x, y), true);
-
-                int grey = Math.round(0.2126f * newCol.getRed() +
-                        0.7152f * newCol.getGreen() +
-                        0.0722f * newCol.getBlue());
-
-                newCol = new Color(grey, grey, grey, newCol.getAlpha());
-                newImage.setRGB(x, y, colorToARGB(newCol));
+        PixelKernels.apply(img, newImage, (src, srcOffset, dst, dstOffset, length) -> {
+            for (int i = 0; i < length; i++) {
+                dst[dstOffset + i] = grayscale(src[srcOffset + i]);
             }
-        }
+        });
 
         return newImage;
     }
 
+    private static int grayscale(int argb) {
+        int grey = Math.round(0.2126f * ((argb >> 16) & 0xFF) +
+                0.7152f * ((argb >> 8) & 0xFF) +
+                0.0722f * (argb & 0xFF));
+
+        return (argb & 0xFF000000) | (grey << 16) | (grey << 8) | grey;
+    }
+
     /**
      * Tint a {@link BufferedImage} by a given {@link Color}
      *
@@ -216,15 +354,19 @@ public class ImageUtils {
      * @return Tinted image
      */
     public static BufferedImage colorize(BufferedImage img, Color color) {
-        BufferedImage newImage = grayscale(img);
+        // The grey value is all that's left of a pixel, so every possible result can be worked out up front
+        int[] tint = new int[256];
+        for (int grey = 0; grey < 256; grey++) {
+            tint[grey] = (Math.round(grey / 255f * color.getRed()) << 16) | (Math.round(grey / 255f * color.getGreen()) << 8) | Math.round(grey / 255f * color.getBlue());
+        }
 
-        for (int x = 0; x < newImage.getWidth(); x++) {
-            for (int y = 0; y < newImage.getHeight(); y++) {
-                Color newCol = new Color(newImage.getRGB(x, y), true);
-                newCol = new Color(Math.round(newCol.getRed() / 255f * color.getRed()), Math.round(newCol.getGreen() / 255f * color.getGreen()), Math.round(newCol.getBlue() / 255f * color.getBlue()), newCol.getAlpha());
-                newImage.setRGB(x, y, colorToARGB(newCol));
+        BufferedImage newImage = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        PixelKernels.apply(img, newImage, (src, srcOffset, dst, dstOffset, length) -> {
+            for (int i = 0; i < length; i++) {
+                int grey = grayscale(src[srcOffset + i]);
+                dst[dstOffset + i] = (grey & 0xFF000000) | tint[grey & 0xFF];
             }
-        }
+        });
 
         return newImage;
     }
@@ -281,16 +423,7 @@ public class ImageUtils {
      * @return True if the area is empty
      */
     public static boolean isEmptyArea(BufferedImage img, int subX, int subY, int width, int height) {
-        BufferedImage subImage = img.getSubimage(subX, subY, width, height);
-        for (int x = 0; x < subImage.getWidth(); x++) {
-            for (int y = 0; y < subImage.getHeight(); y++) {
-                if (!(new Color(subImage.getRGB(x, y), true).equals(Color.TRANSLUCENT))) {
-                    return false;
-                }
-            }
-        }
-
-        return true;
+        return ImageRegion.of(img, subX, subY, width, height).isEmpty();
     }
 
     /**
@@ -348,11 +481,12 @@ public class ImageUtils {
     public static BufferedImage saturate(BufferedImage img, int amount) {
         BufferedImage newImage = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
 
-        for (int x = 0; x < newImage.getWidth(); x++) {
-            for (int y = 0; y < newImage.getHeight(); y++) {
-                Color newCol = new Color(img.getRGB(x, y), true);
+        float[] hsb = new float[3];
+        PixelKernels.apply(img, newImage, (src, srcOffset, dst, dstOffset, length) -> {
+            for (int i = 0; i < length; i++) {
+                int argb = src[srcOffset + i];
 
-                float[] hsb = Color.RGBtoHSB(newCol.getRed(), newCol.getGreen(), newCol.getBlue(), null);
+                Color.RGBtoHSB((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, hsb);
                 float hue = hsb[0];
                 float saturation = hsb[1];
                 float brightness = hsb[2];
@@ -361,19 +495,13 @@ public class ImageUtils {
 
                 int pixel = Color.HSBtoRGB(hue, saturation, brightness);
 
-                int red = (0xff & (pixel >> 16));
-                int green = (0xff & (pixel >> 8));
-                int blue = (0xff & pixel);
-
-                red = clamp(red, 0, 255);
-                green = clamp(green, 0, 255);
-                blue = clamp(blue, 0, 255);
+                int red = clamp(0xff & (pixel >> 16), 0, 255);
+                int green = clamp(0xff & (pixel >> 8), 0, 255);
+                int blue = clamp(0xff & pixel, 0, 255);
 
-                newCol = new Color(red, green, blue, newCol.getAlpha());
-
-                newImage.setRGB(x, y, colorToARGB(newCol));
+                dst[dstOffset + i] = (argb & 0xFF000000) | (red << 16) | (green << 8) | blue;
             }
-        }
+        });
 
         return newImage;
     }
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.utils;
+
+import lombok.Getter;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Global limit on the bytes of decoded pixels held in memory, shared by every conversion that is given the same budget
+ * Converters acquire budget through their {@link Lease} before decoding an image and hold it until they finish,
+ * waiting while the budget is used up. Before anyone waits the registered {@link Spiller}s are asked to free memory.
+ * The converter that has held budget the longest never waits, so conversions always make progress and at most
+ * that one converter goes over the limit
+ */
+public class MemoryBudget {
+
+    private static final ThreadLocal<Lease> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Maximum amount of bytes of decoded pixels
+     */
+    @Getter
+    private final long limit;
+
+    private final List<Spiller> spillers = new CopyOnWriteArrayList<>();
+
+    // Leases holding budget in the order they got it, the first one never waits
+    private final LinkedHashSet<Lease> holders = new LinkedHashSet<>();
+
+    private long used;
+    private long peak;
+
+    /**
+     * @param limit Maximum amount of bytes of decoded pixels
+     */
+    public MemoryBudget(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Something holding pixels it can let go of, such as an {@link ImageCache}
+     */
+    @FunctionalInterface
+    public interface Spiller {
+        /**
+         * Free memory by writing or dropping pixels
+         *
+         * @param bytes Amount of bytes wanted
+         * @return The amount of bytes freed, 0 if nothing could be
+         * @throws IOException If pixels could not be written
+         */
+        long spill(long bytes) throws IOException;
+    }
+
+    /**
+     * Get the lease of the work running on the current thread
+     *
+     * @return The lease, or null if the thread isn't working under a budget
+     */
+    public static Lease current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Acquire budget for the work running on the current thread, see {@link Lease#acquire}
+     * Does nothing if the thread isn't working under a budget
+     *
+     * @param bytes Amount of bytes to acquire
+     * @throws IOException If interrupted while waiting for budget
+     */
+    public static void acquire(long bytes) throws IOException {
+        Lease lease = CURRENT.get();
+        if (lease != null) {
+            lease.acquire(bytes);
+        }
+    }
+
+    /**
+     * Count the budget acquired on the current thread towards a lease opened on another thread
+     *
+     * @param lease Lease to acquire budget for, usually {@link #current()} of the thread handing out the work, or null for none
+     * @return The scope to close once the work is done
+     */
+    public static Scope attach(Lease lease) {
+        Lease previous = CURRENT.get();
+        CURRENT.set(lease);
+        return () -> CURRENT.set(previous);
+    }
+
+    /**
+     * Get the amount of bytes of pixels a decoded image holds
+     *
+     * @param image Image to measure
+     * @return The size of its pixel data in bytes
+     */
+    public static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * Start a unit of work that acquires budget, such as a converter, waiting while the budget is used up
+     * The lease is current on the calling thread until it is closed, which releases everything it acquired
+     *
+     * @return The lease to close once the work is done
+     * @throws IOException If interrupted while waiting for budget
+     */
+    public Lease open() throws IOException {
+        Lease lease = new Lease(CURRENT.get());
+        await(lease, 0);
+        CURRENT.set(lease);
+        return lease;
+    }
+
+    /**
+     * Register something to free memory from when the budget is used up
+     *
+     * @param spiller Spiller to add
+     */
+    public void addSpiller(Spiller spiller) {
+        spillers.add(spiller);
+    }
+
+    /**
+     * @param spiller Spiller to remove
+     */
+    public void removeSpiller(Spiller spiller) {
+        spillers.remove(spiller);
+    }
+
+    /**
+     * Count memory that is held outside of a lease, such as the images of a cache, without waiting
+     *
+     * @param bytes Amount of bytes to add, or remove if negative
+     */
+    public synchronized void reserve(long bytes) {
+        used += bytes;
+        peak = Math.max(peak, used);
+        if (bytes < 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return True if more bytes are in use than the limit allows
+     */
+    public synchronized boolean isExhausted() {
+        return used > limit;
+    }
+
+    /**
+     * @return The amount of bytes currently in use
+     */
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    /**
+     * @return The most bytes that were in use at the same time
+     */
+    public synchronized long getPeak() {
+        return peak;
+    }
+
+    /**
+     * Wait until the lease can take the given amount of bytes and take them,
+     * with 0 bytes only wait until the budget isn't used up.
+     * The oldest holder only spills what it can and then takes the bytes regardless
+     */
+    private void await(Lease lease, long bytes) throws IOException {
+        while (true) {
+            long wanted;
+            synchronized (this) {
+                if (fits(bytes)) {
+                    take(lease, bytes);
+                    return;
+                }
+                wanted = Math.max(1, used + bytes - limit);
+            }
+
+            // Spill outside the lock as it may have to encode images
+            long freed = 0;
+            for (Spiller spiller : spillers) {
+                if (freed >= wanted) {
+                    break;
+                }
+                freed += spiller.spill(wanted - freed);
+            }
+
+            synchronized (this) {
+                if (fits(bytes) || holders.isEmpty() || holders.iterator().next() == lease) {
+                    take(lease, bytes);
+                    return;
+                }
+
+                if (freed > 0) {
+                    continue;
+                }
+
+                try {
+                    // Lets a ForkJoinPool such as the converter scheduler's start another thread while this one waits
+                    ForkJoinPool.managedBlock(new Waiter());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for memory budget");
+                }
+            }
+        }
+    }
+
+    private boolean fits(long bytes) {
+        return bytes == 0 ? used < limit : used + bytes <= limit;
+    }
+
+    private void take(Lease lease, long bytes) {
+        if (bytes > 0) {
+            used += bytes;
+            peak = Math.max(peak, used);
+            lease.held += bytes;
+            holders.add(lease);
+        }
+    }
+
+    /**
+     * Waits once on the budget, must hold its lock
+     */
+    private class Waiter implements ForkJoinPool.ManagedBlocker {
+        private boolean woken;
+
+        @Override
+        public boolean block() throws InterruptedException {
+            MemoryBudget.this.wait();
+            woken = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return woken;
+        }
+    }
+
+    /**
+     * Closes without throwing, for use in try with resources
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Budget held by a unit of work, released all at once when it is closed
+     */
+    public class Lease implements Scope {
+        // Lease that was current on the opening thread before this one
+        private final Lease previous;
+
+        private long held;
+
+        private Lease(Lease previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * Acquire budget for the pixels of an image about to be decoded, waiting while the budget is used up
+         *
+         * @param bytes Amount of bytes to acquire
+         * @throws IOException If interrupted while waiting for budget
+         */
+        public void acquire(long bytes) throws IOException {
+            if (bytes > 0) {
+                await(this, bytes);
+            }
+        }
+
+        /**
+         * @return The amount of bytes this lease holds
+         */
+        public long getHeld() {
+            synchronized (MemoryBudget.this) {
+                return held;
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (MemoryBudget.this) {
+                used -= held;
+                held = 0;
+                holders.remove(this);
+                MemoryBudget.this.notifyAll();
+            }
+            CURRENT.set(previous);
+        }
+    }
+}
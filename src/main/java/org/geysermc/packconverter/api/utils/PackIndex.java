@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index of every file and folder in the pack being converted, so converters don't have to ask the disk
+ *
+ * Built from the zip entries while extracting and kept up to date by the {@link org.geysermc.packconverter.api.converters.AbstractConverter}
+ * helpers. Files extracted from the zip know their size and CRC, files written during the conversion don't.
+ */
+public class PackIndex {
+
+    /**
+     * Size or CRC of a file that was written during the conversion
+     */
+    public static final long UNKNOWN = -1;
+
+    // Path relative to the pack root, "path/" up to "path0" is everything inside a folder
+    private final NavigableMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+
+    /**
+     * Add a file extracted from the input zip
+     *
+     * @param path Name of the entry in the zip
+     * @param size Uncompressed size of the entry
+     * @param crc CRC-32 of the entry
+     */
+    public void add(String path, long size, long crc) {
+        path = normalize(path);
+        entries.put(path, new Entry(path, Type.FILE, size, crc));
+        addParents(path);
+    }
+
+    /**
+     * Add or replace a file written during the conversion
+     *
+     * @param path Path relative to the pack root
+     */
+    public void write(String path) {
+        add(path, UNKNOWN, UNKNOWN);
+    }
+
+    /**
+     * Add a folder, along with its parents
+     *
+     * @param path Path relative to the pack root
+     */
+    public void addFolder(String path) {
+        path = normalize(path);
+        if (!path.isEmpty()) {
+            entries.putIfAbsent(path, new Entry(path, Type.FOLDER, UNKNOWN, UNKNOWN));
+            addParents(path);
+        }
+    }
+
+    /**
+     * @param path Path relative to the pack root
+     * @return True if a file or folder exists at the path
+     */
+    public boolean exists(String path) {
+        path = normalize(path);
+        return path.isEmpty() || entries.containsKey(path);
+    }
+
+    /**
+     * @param path Path relative to the pack root
+     * @return The file or folder at the path, or null if there is none
+     */
+    public Entry get(String path) {
+        return entries.get(normalize(path));
+    }
+
+    /**
+     * @param path Path relative to the pack root
+     * @return True if there is a folder at the path
+     */
+    public boolean isFolder(String path) {
+        path = normalize(path);
+        if (path.isEmpty()) {
+            return true;
+        }
+
+        Entry entry = entries.get(path);
+        return entry != null && entry.getType() == Type.FOLDER;
+    }
+
+    /**
+     * Get every file inside a folder and its sub folders, sorted by path
+     *
+     * @param folder Path relative to the pack root, or an empty string for the whole pack
+     * @return The files in the folder
+     */
+    public List<Entry> getFiles(String folder) {
+        List<Entry> files = new ArrayList<>();
+        for (Entry entry : inside(normalize(folder)).values()) {
+            if (entry.getType() == Type.FILE) {
+                files.add(entry);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Get every folder inside a folder and its sub folders, sorted by path
+     *
+     * @param folder Path relative to the pack root, or an empty string for the whole pack
+     * @return The folders in the folder
+     */
+    public List<Entry> getFolders(String folder) {
+        List<Entry> folders = new ArrayList<>();
+        for (Entry entry : inside(normalize(folder)).values()) {
+            if (entry.getType() == Type.FOLDER) {
+                folders.add(entry);
+            }
+        }
+        return folders;
+    }
+
+    /**
+     * @param from Path relative to the pack root of the file or folder that was moved
+     * @param to Path relative to the pack root it was moved to
+     */
+    public void move(String from, String to) {
+        transfer(normalize(from), normalize(to), true);
+    }
+
+    /**
+     * Like {@link java.nio.file.Files#copy(java.nio.file.Path, java.nio.file.Path, java.nio.file.CopyOption...)} a folder is copied without what is inside it
+     *
+     * @param from Path relative to the pack root of the file or folder that was copied
+     * @param to Path relative to the pack root it was copied to
+     */
+    public void copy(String from, String to) {
+        transfer(normalize(from), normalize(to), false);
+    }
+
+    /**
+     * @param path Path relative to the pack root of the file or folder that was deleted
+     */
+    public void delete(String path) {
+        path = normalize(path);
+        inside(path).clear();
+        entries.remove(path);
+    }
+
+    private void transfer(String from, String to, boolean remove) {
+        Entry entry = entries.get(from);
+        if (entry == null) {
+            return;
+        }
+
+        List<Entry> moved = new ArrayList<>();
+        moved.add(entry);
+        if (remove) {
+            moved.addAll(inside(from).values());
+            delete(from);
+        }
+
+        for (Entry file : moved) {
+            String target = to + file.getPath().substring(from.length());
+            entries.put(target, new Entry(target, file.getType(), file.getSize(), file.getCrc()));
+        }
+        addParents(to);
+    }
+
+    private Map<String, Entry> inside(String folder) {
+        if (folder.isEmpty()) {
+            return entries;
+        }
+        // Every path starting with "folder/" sorts before "folder0"
+        return entries.subMap(folder + "/", true, folder + "0", false);
+    }
+
+    private void addParents(String path) {
+        // Once a parent is known so are its own parents
+        int index = path.lastIndexOf('/');
+        while (index > 0) {
+            String parent = path.substring(0, index);
+            if (entries.putIfAbsent(parent, new Entry(parent, Type.FOLDER, UNKNOWN, UNKNOWN)) != null) {
+                break;
+            }
+            index = parent.lastIndexOf('/');
+        }
+    }
+
+    private static String normalize(String path) {
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    /**
+     * A file or folder in the pack
+     */
+    @Getter
+    public static class Entry {
+        private final String path;
+        private final Type type;
+        private final long size;
+        private final long crc;
+
+        public Entry(String path, Type type, long size, long crc) {
+            this.path = path;
+            this.type = type;
+            this.size = size;
+            this.crc = crc;
+        }
+    }
+
+    public enum Type {
+        FILE,
+        FOLDER
+    }
+}
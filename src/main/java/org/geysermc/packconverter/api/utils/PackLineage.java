@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps track of which input entries and converters every file in the pack came from
+ *
+ * Converters report what they read and write through the {@link org.geysermc.packconverter.api.converters.AbstractConverter}
+ * helpers. A file written by a converter run comes from every input the run read, so outputs whose inputs
+ * haven't changed can be reused by an incremental conversion.
+ * Finding a file exists counts as reading it, a converter that checks a file doesn't exist can't be told apart from
+ * one that ignores it.
+ */
+public class PackLineage {
+
+    // Path relative to the pack root to where it came from
+    private final NavigableMap<String, Origin> origins = new ConcurrentSkipListMap<>();
+
+    // Inputs that converter runs used together, even if they didn't write anything
+    private final Set<Set<String>> groups = ConcurrentHashMap.newKeySet();
+
+    // Converters run concurrently, each on their own thread
+    private final ThreadLocal<Run> run = new ThreadLocal<>();
+
+    /**
+     * Register a file extracted from the input zip as its own origin
+     *
+     * @param path Name of the entry in the input zip
+     */
+    public void extracted(String path) {
+        origins.put(path, new Origin(Collections.singleton(path), Collections.emptySet()));
+    }
+
+    /**
+     * Start recording the reads and writes of a converter on this thread
+     * Runs nest, a run started while another is recording on the same thread hands the thread back to it once closed
+     *
+     * @param converter Name of the converter
+     * @return The run to close once the converter is done
+     */
+    public Run begin(String converter) {
+        Run started = new Run(converter, run.get());
+        run.set(started);
+        return started;
+    }
+
+    /**
+     * Record the origins of what the run on this thread wrote so far and start over for the same converter
+     * Used by converters that apply many unrelated rules, so each rule only depends on what it read itself
+     */
+    public void split() {
+        Run current = run.get();
+        if (current != null) {
+            record(current);
+            current.clear();
+        }
+    }
+
+    /**
+     * Every file written during the run comes from everything the run read
+     */
+    private void record(Run current) {
+        Origin origin = new Origin(current.inputs, current.converters);
+        for (String path : current.written) {
+            Origin replaced = origins.put(path, origin);
+            if (replaced != null && !current.inputs.containsAll(replaced.inputs)) {
+                // Without this run the file would hold what it replaced
+                Set<String> group = new HashSet<>(current.inputs);
+                group.addAll(replaced.inputs);
+                addGroup(group);
+            }
+        }
+
+        if (current.inputs.size() > 1) {
+            addGroup(current.inputs);
+        }
+    }
+
+    /**
+     * Record inputs that were used together, for groups of an earlier conversion
+     *
+     * @param inputs Names of the entries in the input zip
+     */
+    public void addGroup(Collection<String> inputs) {
+        groups.add(Collections.unmodifiableSet(new TreeSet<>(inputs)));
+    }
+
+    /**
+     * Get the sets of inputs that were used together by a converter run
+     * A converter that skipped its work because of one input could do something else once it is gone
+     *
+     * @return The groups of input entry names
+     */
+    public Set<Set<String>> getGroups() {
+        return Collections.unmodifiableSet(groups);
+    }
+
+    /**
+     * @param path Path relative to the pack root that was read
+     */
+    public void read(String path) {
+        Run current = run.get();
+        Origin origin = origins.get(normalize(path));
+        if (current != null && origin != null) {
+            current.inputs.addAll(origin.inputs);
+            current.converters.addAll(origin.converters);
+        }
+    }
+
+    /**
+     * @param path Path relative to the pack root that was written
+     */
+    public void write(String path) {
+        Run current = run.get();
+        if (current != null) {
+            current.written.add(normalize(path));
+        } else {
+            // Written outside of a converter, so there is no telling where it came from
+            // Without an origin the next incremental conversion converts the whole pack
+            origins.remove(normalize(path));
+        }
+    }
+
+    /**
+     * @param from Path relative to the pack root of the file or folder that was moved
+     * @param to Path relative to the pack root it was moved to
+     */
+    public void move(String from, String to) {
+        transfer(normalize(from), normalize(to), true);
+    }
+
+    /**
+     * Like {@link java.nio.file.Files#copy(java.nio.file.Path, java.nio.file.Path, java.nio.file.CopyOption...)} a folder is copied without what is inside it
+     *
+     * @param from Path relative to the pack root of the file or folder that was copied
+     * @param to Path relative to the pack root it was copied to
+     */
+    public void copy(String from, String to) {
+        transfer(normalize(from), normalize(to), false);
+    }
+
+    /**
+     * Record a move or copy that failed because the target exists
+     * The source is left as it was, which it only is because of the target, so it comes from the target as well
+     *
+     * @param from Path relative to the pack root of the file or folder that wasn't moved or copied
+     * @param to Path relative to the pack root that was taken
+     */
+    public void blocked(String from, String to) {
+        from = normalize(from);
+        to = normalize(to);
+
+        Set<String> inputs = new HashSet<>();
+        Set<String> converters = new HashSet<>();
+        for (Origin origin : under(to).values()) {
+            inputs.addAll(origin.inputs);
+            converters.addAll(origin.converters);
+        }
+
+        Run current = run.get();
+        if (current != null) {
+            converters.add(current.converter);
+        }
+
+        for (Map.Entry<String, Origin> entry : under(from).entrySet()) {
+            Set<String> sourceInputs = new HashSet<>(entry.getValue().inputs);
+            sourceInputs.addAll(inputs);
+            Set<String> sourceConverters = new HashSet<>(entry.getValue().converters);
+            sourceConverters.addAll(converters);
+            origins.put(entry.getKey(), new Origin(sourceInputs, sourceConverters));
+        }
+    }
+
+    /**
+     * @param path Path relative to the pack root of the file or folder that was deleted
+     */
+    public void delete(String path) {
+        path = normalize(path);
+        origins.keySet().removeAll(under(path).keySet());
+
+        Run current = run.get();
+        if (current != null) {
+            String deleted = path;
+            current.written.removeIf(written -> contains(deleted, written));
+        }
+    }
+
+    /**
+     * Set where a file came from, for files that are restored from an earlier conversion
+     *
+     * @param path Path relative to the pack root
+     * @param origin Where the file came from
+     */
+    public void put(String path, Origin origin) {
+        origins.put(normalize(path), origin);
+    }
+
+    /**
+     * @param path Path relative to the pack root
+     * @return Where the file came from, or null if it isn't known
+     */
+    public Origin getOrigin(String path) {
+        return origins.get(normalize(path));
+    }
+
+    private void transfer(String from, String to, boolean remove) {
+        Run current = run.get();
+        String converter = current != null ? current.converter : null;
+
+        Map<String, Origin> transferred = remove ? under(from) : single(from);
+        for (Map.Entry<String, Origin> entry : new ArrayList<>(transferred.entrySet())) {
+            String target = to + entry.getKey().substring(from.length());
+            Set<String> converters = new TreeSet<>(entry.getValue().converters);
+            if (converter != null) {
+                converters.add(converter);
+            }
+
+            origins.put(target, new Origin(entry.getValue().inputs, converters));
+            if (remove) {
+                origins.remove(entry.getKey());
+            }
+        }
+
+        if (current != null) {
+            List<String> moved = new ArrayList<>();
+            for (String path : current.written) {
+                if (remove ? contains(from, path) : path.equals(from)) {
+                    moved.add(to + path.substring(from.length()));
+                }
+            }
+            if (remove) {
+                current.written.removeIf(path -> contains(from, path));
+            }
+            current.written.addAll(moved);
+        }
+    }
+
+    /**
+     * Get the file at the given path and every file inside it if it is a folder
+     */
+    private Map<String, Origin> under(String path) {
+        Map<String, Origin> files = new HashMap<>();
+        Origin origin = origins.get(path);
+        if (origin != null) {
+            files.put(path, origin);
+        }
+        // Every path starting with "path/" sorts before "path0"
+        files.putAll(origins.subMap(path + "/", true, path + "0", false));
+        return files;
+    }
+
+    /**
+     * Get the file at the given path, without what is inside it if it is a folder
+     */
+    private Map<String, Origin> single(String path) {
+        Origin origin = origins.get(path);
+        return origin != null ? Collections.singletonMap(path, origin) : Collections.emptyMap();
+    }
+
+    /**
+     * Check if a path is the given file or folder or inside it
+     */
+    private static boolean contains(String folder, String path) {
+        return path.equals(folder) || path.startsWith(folder + "/");
+    }
+
+    private static String normalize(String path) {
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    /**
+     * Get a path relative to the pack root the way it is named in the zips, with forward slashes
+     *
+     * @param root Pack root
+     * @param file File inside the pack
+     * @return The relative path
+     */
+    public static String relativize(Path root, Path file) {
+        StringBuilder relative = new StringBuilder();
+        for (Path name : root.relativize(file)) {
+            if (relative.length() > 0) {
+                relative.append('/');
+            }
+            relative.append(name);
+        }
+        return relative.toString();
+    }
+
+    /**
+     * Input entries and converters a file came from
+     */
+    @Getter
+    public static class Origin {
+        private final Set<String> inputs;
+        private final Set<String> converters;
+
+        public Origin(Collection<String> inputs, Collection<String> converters) {
+            this.inputs = Collections.unmodifiableSet(new TreeSet<>(inputs));
+            this.converters = Collections.unmodifiableSet(new TreeSet<>(converters));
+        }
+    }
+
+    /**
+     * Reads and writes of a converter on one thread, see {@link #begin(String)}
+     */
+    public class Run implements MemoryBudget.Scope {
+        // Run that was recording on the thread before this one
+        private final Run previous;
+
+        private final String converter;
+        private final Set<String> inputs = new HashSet<>();
+        private final Set<String> converters = new HashSet<>();
+        private final Set<String> written = new HashSet<>();
+
+        private Run(String converter, Run previous) {
+            this.converter = converter;
+            this.previous = previous;
+            this.converters.add(converter);
+        }
+
+        private void clear() {
+            inputs.clear();
+            converters.clear();
+            converters.add(converter);
+            written.clear();
+        }
+
+        /**
+         * Stop recording, every file written during the run comes from everything the run read
+         * The run that was recording on the thread before this one records again
+         */
+        @Override
+        public void close() {
+            record(this);
+            if (previous != null) {
+                run.set(previous);
+            } else {
+                run.remove();
+            }
+        }
+    }
+}
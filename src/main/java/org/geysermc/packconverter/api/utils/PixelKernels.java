@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Runs primitive loops over the ARGB pixels of images a row at a time
+ * {@link BufferedImage#TYPE_INT_ARGB} images are accessed directly through their {@link DataBufferInt},
+ * any other image goes through {@link BufferedImage#getRGB} and {@link BufferedImage#setRGB} one row at a time
+ *
+ * The masking row kernels below run on SIMD instructions in builds with the {@code vector} profile when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}, otherwise they fall back to plain loops that give exactly the same pixels
+ */
+public class PixelKernels {
+
+    private static final VectorBackend VECTOR = loadVectorBackend();
+
+    // Java2D's 8 bit multiply and divide tables, indexed by (a << 8) | b
+    private static final byte[] MUL8 = new byte[256 * 256];
+    private static final byte[] DIV8 = new byte[256 * 256];
+
+    static {
+        for (int a = 1; a < 256; a++) {
+            long increment = (a << 16) + (a << 8) + a;
+            long value = increment + (1 << 23);
+            for (int b = 1; b < 256; b++) {
+                MUL8[a << 8 | b] = (byte) (value >> 24);
+                value += increment;
+            }
+        }
+
+        for (int a = 1; a < 256; a++) {
+            long increment = ((0xFFL << 24) + a / 2) / a;
+            long value = 1 << 23;
+            for (int b = 0; b < 256; b++) {
+                DIV8[a << 8 | b] = b < a ? (byte) (value >> 24) : (byte) 0xFF;
+                value += increment;
+            }
+        }
+    }
+
+    /**
+     * SIMD versions of the masking row kernels,
+     * each returns how many pixels from the start of the row it handled so the rest can be done one at a time
+     */
+    interface VectorBackend {
+        int replaceTransparent(int[] src, int srcOffset, int[] dst, int dstOffset, int length, int replacement);
+
+        int maskOverlay(int[] src, int srcOffset, int[] overlay, int overlayOffset, int[] dst, int dstOffset, int length, boolean reverse);
+    }
+
+    @FunctionalInterface
+    public interface RowKernel {
+        /**
+         * Process a single row of pixels
+         *
+         * @param src ARGB pixels to read
+         * @param srcOffset Index of the first pixel of the row in src
+         * @param dst ARGB pixels to write, can be the same array as src
+         * @param dstOffset Index of the first pixel of the row in dst
+         * @param length Amount of pixels in the row
+         */
+        void apply(int[] src, int srcOffset, int[] dst, int dstOffset, int length);
+    }
+
+    @FunctionalInterface
+    public interface BlendRowKernel {
+        /**
+         * Process a single row of pixels using the same row of a second image
+         *
+         * @param src ARGB pixels to read
+         * @param srcOffset Index of the first pixel of the row in src
+         * @param other ARGB pixels of the second image
+         * @param otherOffset Index of the first pixel of the row in other
+         * @param dst ARGB pixels to write, can be the same array as src
+         * @param dstOffset Index of the first pixel of the row in dst
+         * @param length Amount of pixels in the row
+         */
+        void apply(int[] src, int srcOffset, int[] other, int otherOffset, int[] dst, int dstOffset, int length);
+    }
+
+    /**
+     * Run a kernel over every row of an image
+     *
+     * @param src Image to read
+     * @param dst Image to write, the same size as src or src itself to modify it in place
+     * @param kernel Kernel to run
+     */
+    public static void apply(BufferedImage src, BufferedImage dst, RowKernel kernel) {
+        apply(src, null, dst, (srcRow, srcOffset, other, otherOffset, dstRow, dstOffset, length) -> kernel.apply(srcRow, srcOffset, dstRow, dstOffset, length));
+    }
+
+    /**
+     * Run a kernel over every row of an image together with a second image
+     *
+     * @param src Image to read
+     * @param other Second image to read, at least as big as src
+     * @param dst Image to write, the same size as src or src itself to modify it in place
+     * @param kernel Kernel to run
+     */
+    public static void apply(BufferedImage src, BufferedImage other, BufferedImage dst, BlendRowKernel kernel) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        if (dst.getWidth() != width || dst.getHeight() != height) {
+            throw new IllegalArgumentException("Destination image must be the same size as the source image");
+        }
+        if (other != null && (other.getWidth() < width || other.getHeight() < height)) {
+            throw new IllegalArgumentException("Second image must be at least as big as the source image");
+        }
+
+        Rows srcRows = new Rows(src, width);
+        Rows otherRows = other != null ? new Rows(other, width) : null;
+        Rows dstRows = dst == src ? null : new Rows(dst, width);
+
+        // Pixels of the current row before the kernel ran, so only changed pixels get converted back
+        int[] original = dst == src && srcRows.data == null ? new int[width] : null;
+
+        for (int y = 0; y < height; y++) {
+            srcRows.read(y);
+            if (otherRows != null) {
+                otherRows.read(y);
+            }
+
+            if (dstRows == null) {
+                if (original != null) {
+                    System.arraycopy(srcRows.buffer, 0, original, 0, width);
+                }
+
+                kernel.apply(srcRows.array(), srcRows.offset(y), otherRows != null ? otherRows.array() : null, otherRows != null ? otherRows.offset(y) : 0, srcRows.array(), srcRows.offset(y), width);
+
+                if (original != null) {
+                    for (int x = 0; x < width; x++) {
+                        if (srcRows.buffer[x] != original[x]) {
+                            src.setRGB(x, y, srcRows.buffer[x]);
+                        }
+                    }
+                }
+            } else {
+                kernel.apply(srcRows.array(), srcRows.offset(y), otherRows != null ? otherRows.array() : null, otherRows != null ? otherRows.offset(y) : 0, dstRows.array(), dstRows.offset(y), width);
+                dstRows.write(y);
+            }
+        }
+    }
+
+    /**
+     * Check if the masking row kernels run on SIMD instructions
+     *
+     * @return True if the vector API is available
+     */
+    public static boolean isVectorized() {
+        return VECTOR != null;
+    }
+
+    /**
+     * Replace every fully transparent pixel of a row with a fixed one and copy the others as they are
+     *
+     * @param replacement ARGB pixel to use instead of transparent ones
+     * @see RowKernel#apply
+     */
+    public static void replaceTransparent(int[] src, int srcOffset, int[] dst, int dstOffset, int length, int replacement) {
+        int i = VECTOR != null ? VECTOR.replaceTransparent(src, srcOffset, dst, dstOffset, length, replacement) : 0;
+        for (; i < length; i++) {
+            int argb = src[srcOffset + i];
+            dst[dstOffset + i] = (argb >>> 24) == 0 ? replacement : argb;
+        }
+    }
+
+    /**
+     * Replace the pixels of a row that are not fully opaque, or only those that are at least partly visible when reversed,
+     * with the color of an overlay at an alpha of 2, leaving the other pixels of dst alone
+     *
+     * @param reverse If the visible pixels should be replaced instead
+     * @see BlendRowKernel#apply
+     */
+    public static void maskOverlay(int[] src, int srcOffset, int[] overlay, int overlayOffset, int[] dst, int dstOffset, int length, boolean reverse) {
+        int i = VECTOR != null ? VECTOR.maskOverlay(src, srcOffset, overlay, overlayOffset, dst, dstOffset, length, reverse) : 0;
+        for (; i < length; i++) {
+            int alpha = src[srcOffset + i] >>> 24;
+            if (reverse ? alpha > 0 : alpha < 255) {
+                dst[dstOffset + i] = (overlay[overlayOffset + i] & 0x00FFFFFF) | (2 << 24);
+            }
+        }
+    }
+
+    /**
+     * Blend a non premultiplied ARGB pixel over another one the way Java2D draws images in its default source over mode,
+     * rounding included, so the result is exactly what {@link java.awt.Graphics#drawImage} would have stored
+     *
+     * @param src ARGB pixel to draw
+     * @param dst ARGB pixel to draw over
+     * @return The blended ARGB pixel
+     */
+    public static int blend(int src, int dst) {
+        int srcA = src >>> 24;
+        if (srcA == 0) {
+            return dst;
+        }
+        if (srcA == 0xFF) {
+            return src;
+        }
+
+        int dstF = mul(0xFF - srcA, dst >>> 24);
+        int resA = srcA + dstF;
+        int resR = mul(srcA, src >> 16 & 0xFF) + mul(dstF, dst >> 16 & 0xFF);
+        int resG = mul(srcA, src >> 8 & 0xFF) + mul(dstF, dst >> 8 & 0xFF);
+        int resB = mul(srcA, src & 0xFF) + mul(dstF, dst & 0xFF);
+        if (resA < 0xFF) {
+            resR = div(resR, resA);
+            resG = div(resG, resA);
+            resB = div(resB, resA);
+        }
+        return resA << 24 | resR << 16 | resG << 8 | resB;
+    }
+
+    /**
+     * Get the pixel Java2D stores when drawing a pixel onto a transparent image,
+     * which loses precision in the colors of translucent pixels and drops the color of invisible ones
+     *
+     * @param argb ARGB pixel to draw
+     * @return The stored ARGB pixel
+     */
+    public static int normalize(int argb) {
+        return blend(argb, 0);
+    }
+
+    private static int mul(int a, int b) {
+        return MUL8[a << 8 | b] & 0xFF;
+    }
+
+    private static int div(int value, int alpha) {
+        return DIV8[alpha << 8 | value] & 0xFF;
+    }
+
+    /**
+     * Load the SIMD kernels if the incubating vector API was added to the JVM
+     * They are built from a separate source folder, so the class is missing unless the {@code vector} profile was used
+     *
+     * @return The SIMD kernels, or null to use plain loops
+     */
+    private static VectorBackend loadVectorBackend() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+
+        try {
+            return (VectorBackend) Class.forName(PixelKernels.class.getPackageName() + ".VectorPixelKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the pixels of a {@link BufferedImage#TYPE_INT_ARGB} image that is stored as one compact array
+     *
+     * @param image Image to use
+     * @return The backing array of the image with the pixel at x, y at y * width + x, or null if it is stored any other way
+     */
+    static int[] compactData(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB
+                && raster.getDataBuffer() instanceof DataBufferInt dataBuffer
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel
+                && sampleModel.getScanlineStride() == image.getWidth()
+                && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+                && dataBuffer.getOffset() == 0) {
+            return dataBuffer.getData();
+        }
+        return null;
+    }
+
+    /**
+     * Get the pixels of a {@link BufferedImage#TYPE_INT_ARGB} image without copying them
+     *
+     * @param img Image to use
+     * @return The backing array of the image, or null if the image isn't stored as plain ARGB integers
+     */
+    private static int[] directData(BufferedImage img) {
+        WritableRaster raster = img.getRaster();
+        if (img.getType() != BufferedImage.TYPE_INT_ARGB
+                || !(raster.getDataBuffer() instanceof DataBufferInt)
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+            return null;
+        }
+
+        return ((DataBufferInt) raster.getDataBuffer()).getData();
+    }
+
+    /**
+     * Gives access to the rows of an image, either directly or through a reused buffer
+     */
+    private static class Rows {
+        private final BufferedImage image;
+        private final int width;
+        private final int[] data;
+        private final int[] buffer;
+        private int offset;
+        private int stride;
+
+        private Rows(BufferedImage image, int width) {
+            this.image = image;
+            this.width = width;
+            this.data = directData(image);
+            this.buffer = data == null ? new int[width] : null;
+
+            if (data != null) {
+                WritableRaster raster = image.getRaster();
+                SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+                // Sub images share the data of their parent, so skip to where this one starts
+                this.stride = sampleModel.getScanlineStride();
+                this.offset = raster.getDataBuffer().getOffset() + sampleModel.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+            }
+        }
+
+        private int[] array() {
+            return data != null ? data : buffer;
+        }
+
+        private int offset(int y) {
+            return data != null ? offset + y * stride : 0;
+        }
+
+        private void read(int y) {
+            if (data == null) {
+                image.getRGB(0, y, width, 1, buffer, 0, width);
+            }
+        }
+
+        private void write(int y) {
+            if (data == null) {
+                image.setRGB(0, y, width, 1, buffer, 0, width);
+            }
+        }
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes the common kinds of PNG images without going through ImageIO
+ *
+ * Images come out with the same type and color model ImageIO would give them, so converters editing them in place
+ * behave the same: 8 bit RGB as {@link BufferedImage#TYPE_3BYTE_BGR}, palettes as {@link IndexColorModel} images and
+ * 8 bit RGBA or RGB with a transparent color as {@link BufferedImage#TYPE_INT_ARGB}, which holds the same pixels as the
+ * {@link BufferedImage#TYPE_4BYTE_ABGR} ImageIO uses but is faster to work with.
+ * Gray, 16 bit and interlaced images aren't supported, {@link #decode(byte[])} returns null for those so the caller
+ * can fall back to ImageIO.
+ * The inflater and row buffers are reused between images decoded on the same thread.
+ */
+public class PngDecoder {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final int COLOR_GRAY = 0;
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_PALETTE = 3;
+    private static final int COLOR_GRAY_ALPHA = 4;
+    private static final int COLOR_RGBA = 6;
+
+    private static final ThreadLocal<PngDecoder> DECODERS = ThreadLocal.withInitial(PngDecoder::new);
+
+    private final Inflater inflater = new Inflater();
+    private byte[] currentRow = new byte[0];
+    private byte[] previousRow = new byte[0];
+
+    // Offsets and lengths of the IDAT chunks of the image being decoded
+    private int[] dataChunks = new int[16];
+
+    private PngDecoder() {
+    }
+
+    /**
+     * Check if the data starts with the PNG signature
+     *
+     * @param data Data to check
+     * @return True if the data looks like a PNG
+     */
+    public static boolean isPng(byte[] data) {
+        if (data.length < SIGNATURE.length) {
+            return false;
+        }
+
+        for (int i = 0; i < SIGNATURE.length; i++) {
+            if (data[i] != SIGNATURE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Work out how many bytes of pixels a PNG decodes to from its header, without decoding it
+     *
+     * @param data Contents of the PNG file
+     * @return The size of the decoded ARGB pixels, or -1 if the data doesn't start with a valid PNG header
+     */
+    public static long getDecodedSize(byte[] data) {
+        // The IHDR chunk always comes first, straight after the signature
+        if (!isPng(data) || data.length < SIGNATURE.length + 16 || readInt(data, SIGNATURE.length) < 13
+                || !new String(data, SIGNATURE.length + 4, 4, StandardCharsets.US_ASCII).equals("IHDR")) {
+            return -1;
+        }
+
+        int width = readInt(data, SIGNATURE.length + 8);
+        int height = readInt(data, SIGNATURE.length + 12);
+        if (width <= 0 || height <= 0) {
+            return -1;
+        }
+        return (long) width * height * 4;
+    }
+
+    /**
+     * Decode a PNG image on the calling thread
+     *
+     * @param data Contents of the PNG file
+     * @return The decoded image, or null if ImageIO has to decode it
+     * @throws IOException If the data isn't a valid PNG
+     */
+    public static BufferedImage decode(byte[] data) throws IOException {
+        return DECODERS.get().read(data);
+    }
+
+    private BufferedImage read(byte[] data) throws IOException {
+        if (!isPng(data)) {
+            throw new IOException("Not a PNG file");
+        }
+
+        int width = 0;
+        int height = 0;
+        int bitDepth = 0;
+        int colorType = -1;
+        int interlace = 0;
+        int paletteOffset = -1;
+        int paletteLength = 0;
+        byte[] transparency = null;
+        int chunkCount = 0;
+
+        int offset = SIGNATURE.length;
+        while (true) {
+            if (offset + 8 > data.length) {
+                throw new IOException("Unexpected end of PNG file");
+            }
+
+            int length = readInt(data, offset);
+            String type = new String(data, offset + 4, 4, StandardCharsets.US_ASCII);
+            int start = offset + 8;
+            if (length < 0 || start + length + 4 > data.length) {
+                throw new IOException("Unexpected end of PNG file in " + type + " chunk");
+            }
+
+            switch (type) {
+                case "IHDR" -> {
+                    if (length < 13) {
+                        throw new IOException("Invalid IHDR chunk");
+                    }
+                    width = readInt(data, start);
+                    height = readInt(data, start + 4);
+                    bitDepth = data[start + 8] & 0xFF;
+                    colorType = data[start + 9] & 0xFF;
+                    interlace = data[start + 12] & 0xFF;
+                }
+                case "PLTE" -> {
+                    paletteOffset = start;
+                    paletteLength = length;
+                }
+                case "tRNS" -> {
+                    transparency = new byte[length];
+                    System.arraycopy(data, start, transparency, 0, length);
+                }
+                case "IDAT" -> {
+                    if (chunkCount * 2 + 2 > dataChunks.length) {
+                        int[] grown = new int[dataChunks.length * 2];
+                        System.arraycopy(dataChunks, 0, grown, 0, dataChunks.length);
+                        dataChunks = grown;
+                    }
+                    dataChunks[chunkCount * 2] = start;
+                    dataChunks[chunkCount * 2 + 1] = length;
+                    chunkCount++;
+                }
+                default -> { }
+            }
+
+            offset = start + length + 4;
+            if (type.equals("IEND")) {
+                break;
+            }
+        }
+
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IOException("Invalid PNG size " + width + "x" + height);
+        }
+        if (!isValid(colorType, bitDepth)) {
+            throw new IOException("Invalid PNG color type " + colorType + " with bit depth " + bitDepth);
+        }
+        if (colorType == COLOR_PALETTE && paletteOffset < 0) {
+            throw new IOException("Missing PNG palette");
+        }
+        if (chunkCount == 0) {
+            throw new IOException("Missing PNG image data");
+        }
+        if (interlace != 0 || bitDepth == 16 || colorType == COLOR_GRAY || colorType == COLOR_GRAY_ALPHA) {
+            return null;
+        }
+
+        int channels = channels(colorType);
+        int bytesPerPixel = Math.max(1, channels * bitDepth / 8);
+        long rowBits = (long) width * channels * bitDepth;
+        if (rowBits > (long) (Integer.MAX_VALUE - 8) * 8) {
+            throw new IOException("PNG rows are too large");
+        }
+        int rowLength = (int) ((rowBits + 7) / 8);
+        if (currentRow.length < rowLength + 1) {
+            currentRow = new byte[rowLength + 1];
+            previousRow = new byte[rowLength + 1];
+        }
+        Arrays.fill(previousRow, 0, rowLength + 1, (byte) 0);
+
+        BufferedImage image = switch (colorType) {
+            case COLOR_PALETTE -> {
+                IndexColorModel colorModel = createPalette(data, paletteOffset, paletteLength, bitDepth, transparency);
+                yield new BufferedImage(colorModel, colorModel.createCompatibleWritableRaster(width, height), false, null);
+            }
+            // ImageIO ignores a tRNS chunk of the wrong size
+            case COLOR_RGB -> new BufferedImage(width, height, transparency == null || transparency.length != 6 ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_INT_ARGB);
+            default -> new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        };
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+
+        inflater.reset();
+        int nextChunk = 0;
+        try {
+            for (int y = 0; y < height; y++) {
+                int read = 0;
+                while (read < rowLength + 1) {
+                    int inflated = inflater.inflate(currentRow, read, rowLength + 1 - read);
+                    read += inflated;
+                    if (inflated == 0) {
+                        if (inflater.needsInput() && nextChunk < chunkCount) {
+                            inflater.setInput(data, dataChunks[nextChunk * 2], dataChunks[nextChunk * 2 + 1]);
+                            nextChunk++;
+                        } else if (inflater.needsInput() || inflater.finished() || inflater.needsDictionary()) {
+                            throw new IOException("Unexpected end of PNG image data");
+                        }
+                    }
+                }
+
+                unfilter(currentRow, previousRow, rowLength, bytesPerPixel);
+                copyRow(currentRow, buffer, y, width, rowLength, colorType, transparency);
+
+                byte[] swap = previousRow;
+                previousRow = currentRow;
+                currentRow = swap;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid PNG image data", e);
+        }
+
+        return image;
+    }
+
+    /**
+     * Undo the filter of a row in place, the first byte of the row is the filter type
+     */
+    private static void unfilter(byte[] row, byte[] previous, int length, int bpp) throws IOException {
+        int filter = row[0];
+        switch (filter) {
+            case 0 -> { }
+            case 1 -> {
+                for (int i = 1 + bpp; i <= length; i++) {
+                    row[i] += row[i - bpp];
+                }
+            }
+            case 2 -> {
+                for (int i = 1; i <= length; i++) {
+                    row[i] += previous[i];
+                }
+            }
+            case 3 -> {
+                for (int i = 1; i <= length; i++) {
+                    int left = i > bpp ? row[i - bpp] & 0xFF : 0;
+                    row[i] += (left + (previous[i] & 0xFF)) >>> 1;
+                }
+            }
+            case 4 -> {
+                for (int i = 1; i <= length; i++) {
+                    int left = i > bpp ? row[i - bpp] & 0xFF : 0;
+                    int up = previous[i] & 0xFF;
+                    int upLeft = i > bpp ? previous[i - bpp] & 0xFF : 0;
+                    row[i] += paeth(left, up, upLeft);
+                }
+            }
+            default -> throw new IOException("Invalid PNG filter type " + filter);
+        }
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        int estimate = left + up - upLeft;
+        int distanceLeft = Math.abs(estimate - left);
+        int distanceUp = Math.abs(estimate - up);
+        int distanceUpLeft = Math.abs(estimate - upLeft);
+        if (distanceLeft <= distanceUp && distanceLeft <= distanceUpLeft) {
+            return left;
+        }
+        return distanceUp <= distanceUpLeft ? up : upLeft;
+    }
+
+    /**
+     * Build the same color model ImageIO builds for a palette
+     *
+     * ImageIO keeps as many colors as the bit depth allows, rounds that up to 2, 4, 16 or 256 colors filled with black
+     * and then repeats the last of those up to the bit depth. Colors missing from the tRNS chunk are opaque.
+     */
+    private static IndexColorModel createPalette(byte[] data, int offset, int length, int bitDepth, byte[] transparency) {
+        int maxEntries = 1 << bitDepth;
+        int entries = Math.min(length / 3, maxEntries);
+        int rounded = entries > 16 ? 256 : entries > 4 ? 16 : entries > 2 ? 4 : 2;
+
+        byte[] red = new byte[maxEntries];
+        byte[] green = new byte[maxEntries];
+        byte[] blue = new byte[maxEntries];
+        for (int i = 0; i < entries; i++) {
+            red[i] = data[offset + i * 3];
+            green[i] = data[offset + i * 3 + 1];
+            blue[i] = data[offset + i * 3 + 2];
+        }
+        for (int i = rounded; i < maxEntries; i++) {
+            red[i] = red[rounded - 1];
+            green[i] = green[rounded - 1];
+            blue[i] = blue[rounded - 1];
+        }
+
+        if (transparency == null) {
+            return new IndexColorModel(bitDepth, maxEntries, red, green, blue);
+        }
+
+        byte[] alpha = new byte[maxEntries];
+        Arrays.fill(alpha, (byte) 0xFF);
+        System.arraycopy(transparency, 0, alpha, 0, Math.min(transparency.length, rounded));
+        return new IndexColorModel(bitDepth, maxEntries, red, green, blue, alpha);
+    }
+
+    /**
+     * Copy an unfiltered row into the pixels of the image, the row data starts at index 1
+     */
+    private static void copyRow(byte[] row, DataBuffer buffer, int y, int width, int rowLength, int colorType, byte[] transparency) {
+        switch (colorType) {
+            case COLOR_RGBA -> {
+                int[] pixels = ((DataBufferInt) buffer).getData();
+                for (int x = 0, i = 1, offset = y * width; x < width; x++, i += 4) {
+                    pixels[offset + x] = (row[i + 3] & 0xFF) << 24 | (row[i] & 0xFF) << 16 | (row[i + 1] & 0xFF) << 8 | (row[i + 2] & 0xFF);
+                }
+            }
+            case COLOR_RGB -> {
+                if (buffer instanceof DataBufferInt ints) {
+                    int[] pixels = ints.getData();
+                    // The transparent color has 16 bit samples, anything above 255 never matches
+                    int key = (transparency[0] | transparency[2] | transparency[4]) != 0 ? -1
+                            : (transparency[1] & 0xFF) << 16 | (transparency[3] & 0xFF) << 8 | (transparency[5] & 0xFF);
+                    for (int x = 0, i = 1, offset = y * width; x < width; x++, i += 3) {
+                        int rgb = (row[i] & 0xFF) << 16 | (row[i + 1] & 0xFF) << 8 | (row[i + 2] & 0xFF);
+                        pixels[offset + x] = rgb == key ? rgb : 0xFF000000 | rgb;
+                    }
+                } else {
+                    byte[] pixels = ((DataBufferByte) buffer).getData();
+                    for (int i = 1, offset = y * rowLength; i <= rowLength; i += 3, offset += 3) {
+                        pixels[offset] = row[i + 2];
+                        pixels[offset + 1] = row[i + 1];
+                        pixels[offset + 2] = row[i];
+                    }
+                }
+            }
+            // Indexed rasters pack their pixels the same way PNG rows do
+            case COLOR_PALETTE -> System.arraycopy(row, 1, ((DataBufferByte) buffer).getData(), y * rowLength, rowLength);
+        }
+    }
+
+    private static int channels(int colorType) {
+        return switch (colorType) {
+            case COLOR_RGB -> 3;
+            case COLOR_GRAY_ALPHA -> 2;
+            case COLOR_RGBA -> 4;
+            default -> 1;
+        };
+    }
+
+    private static boolean isValid(int colorType, int bitDepth) {
+        return switch (colorType) {
+            case COLOR_GRAY -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16;
+            case COLOR_PALETTE -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8;
+            case COLOR_RGB, COLOR_GRAY_ALPHA, COLOR_RGBA -> bitDepth == 8 || bitDepth == 16;
+            default -> false;
+        };
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16 | (data[offset + 2] & 0xFF) << 8 | (data[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,601 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import lombok.Getter;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes images as PNG without going through ImageIO, trading encoding time against file size
+ *
+ * Opaque images are written without an alpha channel. When palettes are enabled, images with 256 colors or less
+ * are written with the smallest palette that fits, which is still lossless.
+ * The deflater and buffers are reused between images encoded on the same thread, buffers up to the size of a 512x512 texture.
+ */
+@Getter
+public class PngEncoder {
+
+    /**
+     * Quickest to encode, for when conversion time matters more than download size
+     */
+    public static final PngEncoder FAST = new PngEncoder(Deflater.BEST_SPEED, Filter.NONE, false);
+
+    /**
+     * Picks a filter per row and deflates at the default level
+     */
+    public static final PngEncoder DEFAULT = new PngEncoder(Deflater.DEFAULT_COMPRESSION, Filter.ADAPTIVE, false);
+
+    /**
+     * Smallest files, for packs that are downloaded by many clients
+     */
+    public static final PngEncoder SMALL = new PngEncoder(Deflater.BEST_COMPRESSION, Filter.ADAPTIVE, true);
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_PALETTE = 3;
+    private static final int COLOR_RGBA = 6;
+
+    private static final Filter[] SINGLE_FILTERS = {Filter.NONE, Filter.SUB, Filter.UP, Filter.AVERAGE, Filter.PAETH};
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    // Enough for a 512x512 texture, larger buffers are dropped once the image is written so threads don't hold on to them
+    private static final int MAX_RETAINED_BUFFER_SIZE = 2 * 1024 * 1024;
+    private static final int MAX_RETAINED_PIXELS = 512 * 512;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private final int level;
+    private final Filter filter;
+    private final boolean palette;
+
+    /**
+     * @param level Deflate level from 0 to 9, see {@link Deflater}
+     * @param filter Filter to apply to the rows before deflating them
+     * @param palette Write images with 256 colors or less with a palette
+     */
+    public PngEncoder(int level, Filter filter, boolean palette) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid deflate level " + level);
+        }
+
+        this.level = level;
+        this.filter = filter;
+        this.palette = palette;
+    }
+
+    /**
+     * Get one of the presets by name
+     *
+     * @param name fast, default or small, ignoring case
+     * @return The preset, or null if there is none with the name
+     */
+    public static PngEncoder getPreset(String name) {
+        return switch (name.toLowerCase()) {
+            case "fast" -> FAST;
+            case "default" -> DEFAULT;
+            case "small" -> SMALL;
+            default -> null;
+        };
+    }
+
+    /**
+     * Encode an image
+     *
+     * @param image Image to encode
+     * @return The PNG file
+     */
+    public byte[] encode(BufferedImage image) {
+        Buffers buffers = BUFFERS.get();
+        try {
+            encode(image, buffers);
+            return Arrays.copyOf(buffers.out, buffers.size);
+        } finally {
+            buffers.trim();
+        }
+    }
+
+    /**
+     * Encode an image and write it to a file with a single channel write
+     *
+     * @param image Image to encode
+     * @param output File to write to, its parent folder has to exist
+     * @return The amount of bytes written
+     * @throws IOException If the file could not be written
+     */
+    public int write(BufferedImage image, Path output) throws IOException {
+        Buffers buffers = BUFFERS.get();
+        try {
+            encode(image, buffers);
+
+            try (SeekableByteChannel channel = Files.newByteChannel(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(buffers.out, 0, buffers.size);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            return buffers.size;
+        } finally {
+            buffers.trim();
+        }
+    }
+
+    private void encode(BufferedImage image, Buffers buffers) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = pixels(image, buffers);
+
+        boolean opaque = true;
+        for (int i = 0; i < width * height; i++) {
+            if (pixels[i] >>> 24 != 0xFF) {
+                opaque = false;
+                break;
+            }
+        }
+
+        int[] colors = palette ? palette(pixels, width * height, buffers) : null;
+        int colorType;
+        int bitDepth = 8;
+        int bytesPerPixel;
+        if (colors != null) {
+            colorType = COLOR_PALETTE;
+            bitDepth = colors.length <= 2 ? 1 : colors.length <= 4 ? 2 : colors.length <= 16 ? 4 : 8;
+            bytesPerPixel = 1;
+        } else if (opaque) {
+            colorType = COLOR_RGB;
+            bytesPerPixel = 3;
+        } else {
+            colorType = COLOR_RGBA;
+            bytesPerPixel = 4;
+        }
+
+        int rowLength = colors != null ? (width * bitDepth + 7) / 8 : width * bytesPerPixel;
+        buffers.ensureRows(rowLength);
+
+        buffers.size = 0;
+        buffers.put(SIGNATURE, 0, SIGNATURE.length);
+
+        int header = buffers.startChunk("IHDR");
+        buffers.putInt(width);
+        buffers.putInt(height);
+        buffers.put(bitDepth);
+        buffers.put(colorType);
+        buffers.put(0); // Deflate
+        buffers.put(0); // Adaptive filtering
+        buffers.put(0); // Not interlaced
+        buffers.endChunk(header);
+
+        if (colors != null) {
+            int chunk = buffers.startChunk("PLTE");
+            int transparent = 0;
+            for (int color : colors) {
+                buffers.put(color >> 16 & 0xFF);
+                buffers.put(color >> 8 & 0xFF);
+                buffers.put(color & 0xFF);
+                if (color >>> 24 != 0xFF) {
+                    transparent++;
+                }
+            }
+            buffers.endChunk(chunk);
+
+            // The palette is sorted with transparent colors first, so the rest can be left out
+            if (transparent > 0) {
+                chunk = buffers.startChunk("tRNS");
+                for (int i = 0; i < transparent; i++) {
+                    buffers.put(colors[i] >>> 24);
+                }
+                buffers.endChunk(chunk);
+            }
+        }
+
+        // Palette images compress best unfiltered
+        Filter rowFilter = colors != null && filter == Filter.ADAPTIVE ? Filter.NONE : filter;
+
+        Deflater deflater = buffers.deflater;
+        deflater.reset();
+        deflater.setLevel(level);
+
+        int data = buffers.startChunk("IDAT");
+        byte[] raw = buffers.raw;
+        byte[] previous = buffers.previous;
+        Arrays.fill(previous, 0, rowLength, (byte) 0);
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            if (colors != null) {
+                indexRow(pixels, offset, width, bitDepth, buffers, raw, rowLength);
+            } else if (opaque) {
+                for (int x = 0, i = 0; x < width; x++, i += 3) {
+                    int pixel = pixels[offset + x];
+                    raw[i] = (byte) (pixel >> 16);
+                    raw[i + 1] = (byte) (pixel >> 8);
+                    raw[i + 2] = (byte) pixel;
+                }
+            } else {
+                for (int x = 0, i = 0; x < width; x++, i += 4) {
+                    int pixel = pixels[offset + x];
+                    raw[i] = (byte) (pixel >> 16);
+                    raw[i + 1] = (byte) (pixel >> 8);
+                    raw[i + 2] = (byte) pixel;
+                    raw[i + 3] = (byte) (pixel >>> 24);
+                }
+            }
+
+            byte[] filtered = filter(rowFilter, raw, previous, rowLength, bytesPerPixel, buffers);
+            deflater.setInput(filtered, 0, rowLength + 1);
+            while (!deflater.needsInput()) {
+                buffers.deflate();
+            }
+
+            buffers.previous = raw;
+            buffers.raw = previous;
+            raw = buffers.raw;
+            previous = buffers.previous;
+        }
+
+        deflater.finish();
+        while (!deflater.finished()) {
+            buffers.deflate();
+        }
+        buffers.endChunk(data);
+
+        buffers.endChunk(buffers.startChunk("IEND"));
+    }
+
+    /**
+     * Filter a row, the filtered row starts with the filter type
+     */
+    private static byte[] filter(Filter filter, byte[] raw, byte[] previous, int length, int bpp, Buffers buffers) {
+        if (filter != Filter.ADAPTIVE) {
+            byte[] out = buffers.filtered[0];
+            apply(filter, raw, previous, length, bpp, out);
+            return out;
+        }
+
+        // Pick the filter with the smallest sum of absolute differences, the usual heuristic
+        int best = 0;
+        long bestSum = Long.MAX_VALUE;
+        for (int i = 0; i < SINGLE_FILTERS.length; i++) {
+            long sum = apply(SINGLE_FILTERS[i], raw, previous, length, bpp, buffers.filtered[i]);
+            if (sum < bestSum) {
+                bestSum = sum;
+                best = i;
+            }
+        }
+        return buffers.filtered[best];
+    }
+
+    /**
+     * Apply a single filter to a row
+     *
+     * @return The sum of the absolute values of the filtered bytes
+     */
+    private static long apply(Filter filter, byte[] raw, byte[] previous, int length, int bpp, byte[] out) {
+        out[0] = (byte) filter.ordinal();
+        long sum = 0;
+        switch (filter) {
+            case NONE -> {
+                for (int i = 0; i < length; i++) {
+                    byte value = raw[i];
+                    out[i + 1] = value;
+                    sum += Math.abs(value);
+                }
+            }
+            case SUB -> {
+                for (int i = 0; i < bpp && i < length; i++) {
+                    byte value = raw[i];
+                    out[i + 1] = value;
+                    sum += Math.abs(value);
+                }
+                for (int i = bpp; i < length; i++) {
+                    byte value = (byte) (raw[i] - raw[i - bpp]);
+                    out[i + 1] = value;
+                    sum += Math.abs(value);
+                }
+            }
+            case UP -> {
+                for (int i = 0; i < length; i++) {
+                    byte value = (byte) (raw[i] - previous[i]);
+                    out[i + 1] = value;
+                    sum += Math.abs(value);
+                }
+            }
+            case AVERAGE -> {
+                for (int i = 0; i < bpp && i < length; i++) {
+                    byte value = (byte) (raw[i] - ((previous[i] & 0xFF) >>> 1));
+                    out[i + 1] = value;
+                    sum += Math.abs(value);
+                }
+                for (int i = bpp; i < length; i++) {
+                    byte value = (byte) (raw[i] - (((raw[i - bpp] & 0xFF) + (previous[i] & 0xFF)) >>> 1));
+                    out[i + 1] = value;
+                    sum += Math.abs(value);
+                }
+            }
+            case PAETH -> {
+                for (int i = 0; i < bpp && i < length; i++) {
+                    // Without a left neighbour paeth always picks the byte above
+                    byte value = (byte) (raw[i] - previous[i]);
+                    out[i + 1] = value;
+                    sum += Math.abs(value);
+                }
+                for (int i = bpp; i < length; i++) {
+                    byte value = (byte) (raw[i] - paeth(raw[i - bpp] & 0xFF, previous[i] & 0xFF, previous[i - bpp] & 0xFF));
+                    out[i + 1] = value;
+                    sum += Math.abs(value);
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a single filter " + filter);
+        }
+        return sum;
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        int estimate = left + up - upLeft;
+        int distanceLeft = Math.abs(estimate - left);
+        int distanceUp = Math.abs(estimate - up);
+        int distanceUpLeft = Math.abs(estimate - upLeft);
+        if (distanceLeft <= distanceUp && distanceLeft <= distanceUpLeft) {
+            return left;
+        }
+        return distanceUp <= distanceUpLeft ? up : upLeft;
+    }
+
+    /**
+     * Get the colors of an image if there are 256 or less, transparent colors come first
+     *
+     * @return The colors, or null if there are too many
+     */
+    private static int[] palette(int[] pixels, int length, Buffers buffers) {
+        int[] keys = buffers.paletteKeys;
+        byte[] used = buffers.paletteUsed;
+        Arrays.fill(used, (byte) 0);
+
+        int count = 0;
+        int last = 0;
+        boolean hasLast = false;
+        for (int i = 0; i < length; i++) {
+            int color = pixels[i];
+            if (hasLast && color == last) {
+                continue;
+            }
+            last = color;
+            hasLast = true;
+
+            int slot = slot(keys, used, color);
+            if (used[slot] == 0) {
+                if (count == 256) {
+                    return null;
+                }
+                used[slot] = 1;
+                keys[slot] = color;
+                count++;
+            }
+        }
+
+        int[] colors = new int[count];
+        int index = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot] != 0) {
+                colors[index++] = keys[slot];
+            }
+        }
+
+        // Transparent colors first, then by color so the palette is the same for the same image
+        Integer[] sorted = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = colors[i];
+        }
+        Arrays.sort(sorted, (a, b) -> {
+            boolean opaqueA = a >>> 24 == 0xFF;
+            boolean opaqueB = b >>> 24 == 0xFF;
+            return opaqueA != opaqueB ? (opaqueA ? 1 : -1) : Integer.compareUnsigned(a, b);
+        });
+        for (int i = 0; i < count; i++) {
+            colors[i] = sorted[i];
+            buffers.paletteIndexes[slot(keys, used, colors[i])] = (byte) i;
+        }
+        return colors;
+    }
+
+    /**
+     * Find the hash slot of a color, either where it is stored or the free slot it would go in
+     */
+    private static int slot(int[] keys, byte[] used, int color) {
+        int mask = keys.length - 1;
+        int slot = (color * 0x9E3779B9 >>> 22) & mask;
+        while (used[slot] != 0 && keys[slot] != color) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static void indexRow(int[] pixels, int offset, int width, int bitDepth, Buffers buffers, byte[] raw, int rowLength) {
+        if (bitDepth == 8) {
+            for (int x = 0; x < width; x++) {
+                raw[x] = buffers.paletteIndexes[slot(buffers.paletteKeys, buffers.paletteUsed, pixels[offset + x])];
+            }
+            return;
+        }
+
+        Arrays.fill(raw, 0, rowLength, (byte) 0);
+        int perByte = 8 / bitDepth;
+        for (int x = 0; x < width; x++) {
+            int index = buffers.paletteIndexes[slot(buffers.paletteKeys, buffers.paletteUsed, pixels[offset + x])] & 0xFF;
+            int shift = 8 - bitDepth * (x % perByte + 1);
+            raw[x / perByte] |= (byte) (index << shift);
+        }
+    }
+
+    /**
+     * Get the ARGB pixels of an image, without copying them if they are stored that way
+     */
+    private static int[] pixels(BufferedImage image, Buffers buffers) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        WritableRaster raster = image.getRaster();
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB
+                && raster.getDataBuffer() instanceof DataBufferInt
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() == width
+                && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+                && raster.getDataBuffer().getOffset() == 0) {
+            return ((DataBufferInt) raster.getDataBuffer()).getData();
+        }
+
+        if (buffers.pixels.length < width * height) {
+            buffers.pixels = new int[width * height];
+        }
+        return image.getRGB(0, 0, width, height, buffers.pixels, 0, width);
+    }
+
+    @Override
+    public String toString() {
+        return "PngEncoder{level=" + level + ", filter=" + filter + ", palette=" + palette + "}";
+    }
+
+    public enum Filter {
+        NONE,
+        SUB,
+        UP,
+        AVERAGE,
+        PAETH,
+        /**
+         * Try every filter on each row and keep the one that is likely to compress best
+         */
+        ADAPTIVE
+    }
+
+    /**
+     * Buffers of a thread, grown as needed and kept for the next image unless they got too large
+     */
+    private static class Buffers {
+        private final Deflater deflater = new Deflater();
+        private final CRC32 crc = new CRC32();
+
+        private byte[] out = new byte[INITIAL_BUFFER_SIZE];
+        private int size;
+
+        private byte[] raw = new byte[0];
+        private byte[] previous = new byte[0];
+        private final byte[][] filtered = new byte[5][0];
+        private int[] pixels = new int[0];
+
+        private final int[] paletteKeys = new int[1024];
+        private final byte[] paletteUsed = new byte[1024];
+        private final byte[] paletteIndexes = new byte[1024];
+
+        private void ensureRows(int rowLength) {
+            if (raw.length < rowLength) {
+                raw = new byte[rowLength];
+                previous = new byte[rowLength];
+                for (int i = 0; i < filtered.length; i++) {
+                    filtered[i] = new byte[rowLength + 1];
+                }
+            }
+        }
+
+        private void trim() {
+            if (out.length > MAX_RETAINED_BUFFER_SIZE) {
+                out = new byte[INITIAL_BUFFER_SIZE];
+            }
+            if (pixels.length > MAX_RETAINED_PIXELS) {
+                pixels = new int[0];
+            }
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > out.length) {
+                out = Arrays.copyOf(out, Math.max(out.length * 2, size + extra));
+            }
+        }
+
+        private void put(int value) {
+            ensure(1);
+            out[size++] = (byte) value;
+        }
+
+        private void put(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, out, size, length);
+            size += length;
+        }
+
+        private void putInt(int value) {
+            ensure(4);
+            out[size++] = (byte) (value >>> 24);
+            out[size++] = (byte) (value >>> 16);
+            out[size++] = (byte) (value >>> 8);
+            out[size++] = (byte) value;
+        }
+
+        private void deflate() {
+            ensure(16 * 1024);
+            size += deflater.deflate(out, size, out.length - size);
+        }
+
+        /**
+         * Write the header of a chunk, the length is filled in by {@link #endChunk(int)}
+         *
+         * @return The start of the chunk
+         */
+        private int startChunk(String type) {
+            int start = size;
+            putInt(0);
+            for (int i = 0; i < 4; i++) {
+                put(type.charAt(i));
+            }
+            return start;
+        }
+
+        private void endChunk(int start) {
+            int length = size - start - 8;
+            int end = size;
+            size = start;
+            putInt(length);
+            size = end;
+
+            crc.reset();
+            crc.update(out, start + 4, length + 4);
+            putInt((int) crc.getValue());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Works out what a list of renames does to a pack without touching the disk
+ *
+ * Starts from a copy of the {@link PackIndex}, every rename is then checked and applied to the index
+ * the same way {@link Files#move(Path, Path, java.nio.file.CopyOption...)} would, so later renames see the result
+ * of earlier ones. Only the renames that find their source have to be done for real.
+ */
+public class RenameEngine {
+
+    // Paths relative to the pack root, "path/" up to "path0" is everything inside a folder
+    private final NavigableSet<String> files = new TreeSet<>();
+    private final NavigableSet<String> folders = new TreeSet<>();
+
+    /**
+     * @param files Files in the pack, relative to the pack root
+     * @param folders Folders in the pack, relative to the pack root, parents of the files are added automatically
+     */
+    public RenameEngine(Iterable<String> files, Iterable<String> folders) {
+        for (String file : files) {
+            file = normalize(file);
+            this.files.add(file);
+            addParents(file);
+        }
+
+        for (String folder : folders) {
+            folder = normalize(folder);
+            if (!folder.isEmpty()) {
+                this.folders.add(folder);
+                addParents(folder);
+            }
+        }
+    }
+
+    /**
+     * Start from the current files and folders of a pack, the pack index itself isn't changed
+     *
+     * @param index Index of the pack
+     * @return The engine for the pack
+     */
+    public static RenameEngine of(PackIndex index) {
+        List<String> files = new ArrayList<>();
+        for (PackIndex.Entry file : index.getFiles("")) {
+            files.add(file.getPath());
+        }
+
+        List<String> folders = new ArrayList<>();
+        for (PackIndex.Entry folder : index.getFolders("")) {
+            folders.add(folder.getPath());
+        }
+
+        return new RenameEngine(files, folders);
+    }
+
+    /**
+     * @param path Path relative to the pack root
+     * @return True if a file or folder exists at the path
+     */
+    public boolean exists(String path) {
+        path = normalize(path);
+        return path.isEmpty() || files.contains(path) || folders.contains(path);
+    }
+
+    /**
+     * Rename a file or folder in the index
+     * Like a move on disk this fails if the target exists or its parent folder doesn't
+     *
+     * @param from Path relative to the pack root to rename
+     * @param to Path relative to the pack root to rename to
+     * @return What the rename did
+     */
+    public Result rename(String from, String to) {
+        from = normalize(from);
+        to = normalize(to);
+
+        boolean file = files.contains(from);
+        if (!file && !folders.contains(from)) {
+            return Result.MISSING;
+        }
+
+        if (from.equals(to)) {
+            return Result.RENAMED;
+        }
+
+        String parent = parent(to);
+        if (exists(to) || !parent.isEmpty() && !folders.contains(parent) || to.startsWith(from + "/")) {
+            return Result.FAILED;
+        }
+
+        if (file) {
+            files.remove(from);
+            files.add(to);
+        } else {
+            move(files, from, to);
+            move(folders, from, to);
+            folders.remove(from);
+            folders.add(to);
+        }
+
+        return Result.RENAMED;
+    }
+
+    private static void move(NavigableSet<String> paths, String from, String to) {
+        NavigableSet<String> inside = paths.subSet(from + "/", true, from + "0", false);
+        List<String> moved = new ArrayList<>(inside.size());
+        for (String path : inside) {
+            moved.add(to + path.substring(from.length()));
+        }
+        inside.clear();
+        paths.addAll(moved);
+    }
+
+    private void addParents(String path) {
+        // Once a parent is known so are its own parents
+        String parent = parent(path);
+        while (!parent.isEmpty() && folders.add(parent)) {
+            parent = parent(parent);
+        }
+    }
+
+    private static String parent(String path) {
+        int index = path.lastIndexOf('/');
+        return index < 0 ? "" : path.substring(0, index);
+    }
+
+    private static String normalize(String path) {
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    public enum Result {
+        /**
+         * Nothing exists at the source
+         */
+        MISSING,
+        /**
+         * The source exists but the target is taken or has no parent folder
+         */
+        FAILED,
+        /**
+         * The source was renamed
+         */
+        RENAMED
+    }
+}
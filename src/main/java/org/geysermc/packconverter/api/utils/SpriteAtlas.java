@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import lombok.Getter;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Builds a sprite sheet by copying sprites straight into the ARGB pixels of the sheet
+ *
+ * Sprites are scaled up by whole factors with nearest neighbour sampling, the same as {@link ImageUtils#scale}
+ * with a whole scale, and blended over the sheet the way {@link java.awt.Graphics#drawImage} does in the default
+ * source over mode, rounding included. Anything outside the sheet is cut off.
+ * Existing sheets that aren't stored as plain ARGB integers, such as palette or gray images, are drawn on with
+ * {@link java.awt.Graphics#drawImage} instead, so their pixels are rounded to what the sheet can hold.
+ */
+public class SpriteAtlas {
+
+    /**
+     * The sheet, {@link BufferedImage#TYPE_INT_ARGB} unless it was started from an existing image of another type
+     */
+    @Getter
+    private final BufferedImage image;
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    /**
+     * Start an empty transparent sheet
+     *
+     * @param width Width of the sheet in pixels
+     * @param height Height of the sheet in pixels
+     */
+    public SpriteAtlas(int width, int height) {
+        this(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    /**
+     * Start from an existing sheet
+     *
+     * @param image Existing sheet, sprites are drawn into it
+     */
+    public SpriteAtlas(BufferedImage image) {
+        this.image = image;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.pixels = PixelKernels.compactData(image);
+    }
+
+    /**
+     * Draw a sprite onto the sheet
+     *
+     * @param sprite Sprite to copy
+     * @param x Left of the sprite in the sheet in pixels
+     * @param y Top of the sprite in the sheet in pixels
+     * @param scale Whole factor to scale the sprite up by
+     */
+    public void blit(BufferedImage sprite, int x, int y, int scale) {
+        if (scale < 1) {
+            throw new IllegalArgumentException("Invalid sprite scale " + scale);
+        }
+
+        int spriteWidth = sprite.getWidth();
+        int spriteHeight = sprite.getHeight();
+
+        // Clip the scaled sprite to the sheet
+        int startX = Math.max(0, x);
+        int startY = Math.max(0, y);
+        int endX = Math.min(width, x + spriteWidth * scale);
+        int endY = Math.min(height, y + spriteHeight * scale);
+        if (startX >= endX || startY >= endY) {
+            return;
+        }
+
+        if (pixels == null) {
+            Graphics graphics = image.getGraphics();
+            graphics.drawImage(ImageUtils.scale(sprite, scale), x, y, null);
+            graphics.dispose();
+            return;
+        }
+
+        int[] source = PixelKernels.compactData(sprite);
+        if (source == null) {
+            // Convert other types the way ImageUtils#scale does, for gray images that isn't always the same as getRGB
+            source = PixelKernels.compactData(ImageUtils.scale(sprite, 1));
+        }
+
+        int[] row = new int[endX - startX];
+        int sourceY = -1;
+        for (int targetY = startY; targetY < endY; targetY++) {
+            int spriteY = (targetY - y) / scale;
+            if (spriteY != sourceY) {
+                // Consecutive rows that sample the same sprite row are only scaled once
+                sourceY = spriteY;
+                int offset = spriteY * spriteWidth;
+                if (scale == 1) {
+                    System.arraycopy(source, offset + startX - x, row, 0, row.length);
+                } else {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = source[offset + (startX + i - x) / scale];
+                    }
+                }
+            }
+
+            int offset = targetY * width + startX;
+            for (int i = 0; i < row.length; i++) {
+                pixels[offset + i] = PixelKernels.blend(row[i], pixels[offset + i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import lombok.Getter;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Encodes images as 32 bit true color TGA without going through ImageIO
+ *
+ * The layout matches what the ImageIO plugin writes: BGRA pixels, top-left origin and no footer.
+ * The output buffer is reused between images encoded on the same thread, up to the size of a 512x512 texture.
+ */
+@Getter
+public class TgaEncoder {
+
+    /**
+     * Uncompressed pixels, the zip deflates them afterwards
+     */
+    public static final TgaEncoder RAW = new TgaEncoder(false);
+
+    /**
+     * Run length encoded pixels, smaller on disk for textures with large flat areas
+     */
+    public static final TgaEncoder RLE = new TgaEncoder(true);
+
+    private static final int HEADER_SIZE = 18;
+
+    private static final int TYPE_TRUE_COLOR = 2;
+    private static final int TYPE_TRUE_COLOR_RLE = 10;
+
+    // 8 alpha bits and rows stored top to bottom
+    private static final int DESCRIPTOR = 0x08 | 0x20;
+
+    private static final int MAX_PACKET = 128;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    // Enough for a 512x512 texture, larger buffers are dropped once the image is written so threads don't hold on to them
+    private static final int MAX_RETAINED_BUFFER_SIZE = 2 * 1024 * 1024;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private final boolean rle;
+
+    /**
+     * @param rle Run length encode the pixels
+     */
+    public TgaEncoder(boolean rle) {
+        this.rle = rle;
+    }
+
+    /**
+     * Encode an image
+     *
+     * @param image Image to encode
+     * @return The TGA file
+     */
+    public byte[] encode(BufferedImage image) {
+        Buffers buffers = BUFFERS.get();
+        try {
+            encode(image, buffers);
+            return Arrays.copyOf(buffers.out, buffers.size);
+        } finally {
+            buffers.trim();
+        }
+    }
+
+    /**
+     * Encode an image and write it to a file with a single channel write
+     *
+     * @param image Image to encode
+     * @param output File to write to, its parent folder has to exist
+     * @return The amount of bytes written
+     * @throws IOException If the file could not be written
+     */
+    public int write(BufferedImage image, Path output) throws IOException {
+        Buffers buffers = BUFFERS.get();
+        try {
+            encode(image, buffers);
+
+            try (SeekableByteChannel channel = Files.newByteChannel(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(buffers.out, 0, buffers.size);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            return buffers.size;
+        } finally {
+            buffers.trim();
+        }
+    }
+
+    private void encode(BufferedImage image, Buffers buffers) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width > 0xFFFF || height > 0xFFFF) {
+            throw new IllegalArgumentException("Image too large for TGA " + width + "x" + height);
+        }
+
+        // Worst case for rle is one raw packet header every 128 pixels
+        int pixelBytes = width * height * 4;
+        buffers.ensure(HEADER_SIZE + pixelBytes + (rle ? (width + MAX_PACKET - 1) / MAX_PACKET * height : 0));
+        byte[] out = buffers.out;
+
+        Arrays.fill(out, 0, HEADER_SIZE, (byte) 0);
+        out[2] = (byte) (rle ? TYPE_TRUE_COLOR_RLE : TYPE_TRUE_COLOR);
+        out[12] = (byte) width;
+        out[13] = (byte) (width >> 8);
+        out[14] = (byte) height;
+        out[15] = (byte) (height >> 8);
+        out[16] = 32;
+        out[17] = DESCRIPTOR;
+        int size = HEADER_SIZE;
+
+        // Read straight from the backing array of int images, everything else is copied a row at a time
+        int[] data = null;
+        int offset = 0;
+        int stride = width;
+        WritableRaster raster = image.getRaster();
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB
+                && raster.getDataBuffer() instanceof DataBufferInt dataBuffer
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel) {
+            data = dataBuffer.getData();
+            stride = sampleModel.getScanlineStride();
+            offset = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+        } else if (buffers.row.length < width) {
+            buffers.row = new int[width];
+        }
+
+        for (int y = 0; y < height; y++) {
+            int[] row;
+            int start;
+            if (data != null) {
+                row = data;
+                start = offset + y * stride;
+            } else {
+                row = image.getRGB(0, y, width, 1, buffers.row, 0, width);
+                start = 0;
+            }
+
+            size = rle ? putRle(out, size, row, start, width) : putRaw(out, size, row, start, width);
+        }
+
+        buffers.size = size;
+    }
+
+    private static int putRaw(byte[] out, int size, int[] row, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            size = putPixel(out, size, row[i]);
+        }
+        return size;
+    }
+
+    /**
+     * Run length encode a row, packets never cross rows as some readers expect
+     */
+    private static int putRle(byte[] out, int size, int[] row, int start, int length) {
+        int end = start + length;
+        int i = start;
+        while (i < end) {
+            // Repeated pixels become a run packet
+            int run = 1;
+            while (i + run < end && run < MAX_PACKET && row[i + run] == row[i]) {
+                run++;
+            }
+            if (run > 1) {
+                out[size++] = (byte) (0x80 | (run - 1));
+                size = putPixel(out, size, row[i]);
+                i += run;
+                continue;
+            }
+
+            // Otherwise gather pixels up to the next repeat into a raw packet
+            int raw = 1;
+            while (i + raw < end && raw < MAX_PACKET && (i + raw + 1 >= end || row[i + raw] != row[i + raw + 1])) {
+                raw++;
+            }
+            out[size++] = (byte) (raw - 1);
+            size = putRaw(out, size, row, i, raw);
+            i += raw;
+        }
+        return size;
+    }
+
+    private static int putPixel(byte[] out, int size, int argb) {
+        out[size] = (byte) argb;
+        out[size + 1] = (byte) (argb >> 8);
+        out[size + 2] = (byte) (argb >> 16);
+        out[size + 3] = (byte) (argb >>> 24);
+        return size + 4;
+    }
+
+    @Override
+    public String toString() {
+        return "TgaEncoder{rle=" + rle + "}";
+    }
+
+    private static class Buffers {
+        private byte[] out = new byte[INITIAL_BUFFER_SIZE];
+        private int size;
+
+        private int[] row = new int[0];
+
+        private void ensure(int length) {
+            if (out.length < length) {
+                out = new byte[Math.max(out.length * 2, length)];
+            }
+        }
+
+        private void trim() {
+            if (out.length > MAX_RETAINED_BUFFER_SIZE) {
+                out = new byte[INITIAL_BUFFER_SIZE];
+            }
+        }
+    }
+}
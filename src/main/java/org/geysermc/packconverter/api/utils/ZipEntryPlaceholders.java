@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Extracts a pack as small placeholder files which point back at their entry in the input zip
+ * Entries are only extracted for real once something reads them, untouched entries can be
+ * copied into the output zip without being decompressed and compressed again
+ */
+public class ZipEntryPlaceholders implements Closeable {
+
+    private static final int MARKER_SIZE = 16;
+    private static final int PLACEHOLDER_SIZE = MARKER_SIZE + Integer.BYTES;
+
+    private final ZipFile zipFile;
+    private final List<ZipArchiveEntry> entries = new ArrayList<>();
+
+    // Random per conversion so a real file can't be mistaken for a placeholder
+    private final byte[] marker = new byte[MARKER_SIZE];
+
+    public ZipEntryPlaceholders(Path input) throws IOException {
+        this.zipFile = new ZipFile(input.toFile());
+
+        ThreadLocalRandom.current().nextBytes(marker);
+
+        for (ZipArchiveEntry entry : Collections.list(zipFile.getEntriesInPhysicalOrder())) {
+            if (!entry.isDirectory()) {
+                entries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Write a placeholder for every file in the zip
+     *
+     * @param root Folder to write the placeholders to
+     * @return The names of the entries placeholders were written for
+     * @throws IOException If any of the placeholders couldn't be written
+     */
+    public List<String> extract(Path root) throws IOException {
+        return extract(root, name -> true);
+    }
+
+    /**
+     * Write a placeholder for the files in the zip that match the filter
+     *
+     * @param root Folder to write the placeholders to
+     * @param filter Filter on the entry names to write placeholders for
+     * @return The names of the entries placeholders were written for
+     * @throws IOException If any of the placeholders couldn't be written
+     */
+    public List<String> extract(Path root, Predicate<String> filter) throws IOException {
+        return extract(root, filter, new PackIndex());
+    }
+
+    /**
+     * Write a placeholder for the files in the zip that match the filter
+     *
+     * @param root Folder to write the placeholders to
+     * @param filter Filter on the entry names to write placeholders for
+     * @param index Index to add the entries placeholders were written for to
+     * @return The names of the entries placeholders were written for
+     * @throws IOException If any of the placeholders couldn't be written
+     */
+    public List<String> extract(Path root, Predicate<String> filter, PackIndex index) throws IOException {
+        List<String> extracted = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            if (!filter.test(entries.get(i).getName())) {
+                continue;
+            }
+
+            Path target = root.resolve(entries.get(i).getName());
+            Files.createDirectories(target.getParent());
+
+            ByteBuffer placeholder = ByteBuffer.allocate(PLACEHOLDER_SIZE);
+            placeholder.put(marker);
+            placeholder.putInt(i);
+            Files.write(target, placeholder.array());
+            extracted.add(entries.get(i).getName());
+            index.add(entries.get(i).getName(), entries.get(i).getSize(), entries.get(i).getCrc());
+        }
+
+        return extracted;
+    }
+
+    /**
+     * Get the zip entry a placeholder points to
+     *
+     * @param file File to check
+     * @return The entry, or null if the file isn't a placeholder
+     * @throws IOException If the file couldn't be read
+     */
+    public ZipArchiveEntry getEntry(Path file) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) != PLACEHOLDER_SIZE) {
+            return null;
+        }
+
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length != PLACEHOLDER_SIZE || !Arrays.equals(bytes, 0, MARKER_SIZE, marker, 0, MARKER_SIZE)) {
+            return null;
+        }
+
+        int index = ByteBuffer.wrap(bytes, MARKER_SIZE, Integer.BYTES).getInt();
+        if (index < 0 || index >= entries.size()) {
+            return null;
+        }
+
+        return entries.get(index);
+    }
+
+    /**
+     * Replace a placeholder with the contents of its zip entry, does nothing for other files
+     *
+     * @param file File to materialize
+     * @return The amount of bytes extracted, 0 if the file wasn't a placeholder
+     * @throws IOException If the entry couldn't be extracted
+     */
+    public long materialize(Path file) throws IOException {
+        ZipArchiveEntry entry = getEntry(file);
+        if (entry == null) {
+            return 0;
+        }
+
+        try (InputStream stream = zipFile.getInputStream(entry)) {
+            return Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Get the still compressed data of an entry
+     *
+     * @param entry Entry to read
+     * @return Stream of the raw entry data
+     * @throws IOException If the entry couldn't be read
+     */
+    public InputStream getRawInputStream(ZipArchiveEntry entry) throws IOException {
+        return zipFile.getRawInputStream(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+}
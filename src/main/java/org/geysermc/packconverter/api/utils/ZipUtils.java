@@ -26,94 +26,386 @@
 
 package org.geysermc.packconverter.api.utils;
 
+import lombok.Getter;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipMethod;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.metrics.ConversionMetrics;
+import org.geysermc.packconverter.api.metrics.Metrics;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
 /**
  * Adjusted ZipUtils class to better suit the usage
  * From https://stackoverflow.com/a/15970455/5299903
+ *
+ * Entries are deflated in parallel into memory and then written to the zip in order
  */
 public class ZipUtils {
 
+    /**
+     * Extensions of formats that are already compressed, deflating them again barely saves anything
+     * Tga isn't in here as it is written uncompressed
+     */
+    private static final List<String> STORED_EXTENSIONS = Arrays.asList("png", "ogg", "jpg", "jpeg");
+
     private final List <String> fileList = new ArrayList<>();
     private final PackConverter packConverter;
-    private final File sourceFolder;
+    private final Path sourceFolder;
+    private final ZipEntryPlaceholders placeholders;
+    private final int threads;
+    private final int level;
+
+    private final AtomicLong compressTime = new AtomicLong();
+    private final AtomicLong uncompressedSize = new AtomicLong();
+    private final AtomicLong compressedSize = new AtomicLong();
+
+    /**
+     * Time spent listing the files in nanoseconds
+     */
+    @Getter
+    private long listTime;
+
+    /**
+     * Time spent writing the entries to the zip in nanoseconds, including waiting for them to be compressed
+     */
+    @Getter
+    private long writeTime;
 
-    public ZipUtils(PackConverter packConverter, File sourceFolder) {
+    public ZipUtils(PackConverter packConverter, Path sourceFolder) {
+        this(packConverter, sourceFolder, null);
+    }
+
+    /**
+     * @param packConverter Converter to log to
+     * @param sourceFolder Folder to zip
+     * @param placeholders Placeholders to copy raw from the input zip, or null if the folder has none
+     */
+    public ZipUtils(PackConverter packConverter, Path sourceFolder, ZipEntryPlaceholders placeholders) {
+        this(packConverter, sourceFolder, placeholders, 1, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param packConverter Converter to log to
+     * @param sourceFolder Folder to zip
+     * @param placeholders Placeholders to copy raw from the input zip, or null if the folder has none
+     * @param threads Amount of threads to compress with, 1 or less compresses on the calling thread
+     * @param level Deflate level from 0 to 9, see {@link Deflater}
+     */
+    public ZipUtils(PackConverter packConverter, Path sourceFolder, ZipEntryPlaceholders placeholders, int threads, int level) {
         this.packConverter = packConverter;
         this.sourceFolder = sourceFolder;
+        this.placeholders = placeholders;
+        this.threads = threads;
+        this.level = level;
     }
 
+    /**
+     * Write every listed file to a zip, a zip that could not be written completely is deleted again
+     *
+     * @param zipFile Zip to write
+     * @throws UncheckedIOException If a file could not be read, compressed or written
+     */
     public void zipIt(String zipFile) {
-        byte[] buffer = new byte[1024];
-        String source = sourceFolder.getName();
-        FileOutputStream fos = null;
-        ZipOutputStream zos = null;
+        long start = System.nanoTime();
+        long time = System.currentTimeMillis();
+
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        ZipArchiveOutputStream zos = null;
+        boolean complete = false;
         try {
-            fos = new FileOutputStream(zipFile);
-            zos = new ZipOutputStream(fos);
+            zos = new ZipArchiveOutputStream(new BufferedOutputStream(new FileOutputStream(zipFile), 64 * 1024));
 
             packConverter.log("Output to zip " + zipFile);
-            FileInputStream in = null;
-
-            for (String file: this.fileList) {
-                packConverter.log("File added " + file);
-                ZipEntry ze = new ZipEntry(file);
-                zos.putNextEntry(ze);
-                try {
-                    in = new FileInputStream(sourceFolder + File.separator + file);
-                    int len;
-                    while ((len = in .read(buffer)) > 0) {
-                        zos.write(buffer, 0, len);
-                    }
-                } finally {
-                    if (in != null)
-                        in.close();
+
+            Metrics[] current = packConverter.getMetrics().current();
+
+            // Only a few entries are compressed ahead of the writer so the whole pack is never in memory
+            Deque<Future<CompressedEntry>> pending = new ArrayDeque<>();
+            Iterator<String> files = this.fileList.iterator();
+            while (files.hasNext() || !pending.isEmpty()) {
+                while (executor != null && files.hasNext() && pending.size() < threads * 4) {
+                    String file = files.next();
+                    pending.add(executor.submit(() -> {
+                        ConversionMetrics.Section section = packConverter.getMetrics().attach(current);
+                        try {
+                            return compress(file);
+                        } finally {
+                            section.close();
+                        }
+                    }));
                 }
+
+                CompressedEntry entry = executor != null ? pending.poll().get() : compress(files.next());
+
+                long writeStart = System.nanoTime();
+                write(zos, entry, time);
+                writeTime += System.nanoTime() - writeStart;
             }
 
-            zos.closeEntry();
             packConverter.log("Folder successfully compressed");
-
+            packConverter.log(String.format("Compressed %s files from %s to %s bytes (%.1f%%) in %sms, listing %sms, deflating %sms, writing %sms",
+                    fileList.size(), getUncompressedSize(), getCompressedSize(), getCompressionRatio() * 100,
+                    (System.nanoTime() - start) / 1_000_000, listTime / 1_000_000, compressTime.get() / 1_000_000, writeTime / 1_000_000));
+            complete = true;
         } catch (IOException ex) {
-            ex.printStackTrace();
+            throw new UncheckedIOException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while compressing " + zipFile));
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) ex.getCause());
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw new UncheckedIOException(new IOException("Failed to compress " + zipFile, ex.getCause()));
         } finally {
-            try {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+
+            finish(zos, zipFile, complete);
+        }
+    }
+
+    /**
+     * Close the zip and count its size, or delete it if not every entry made it in
+     */
+    private void finish(ZipArchiveOutputStream zos, String zipFile, boolean complete) {
+        Path path = Paths.get(zipFile);
+        try {
+            if (zos != null) {
                 zos.close();
-            } catch (IOException e) {
-                e.printStackTrace();
             }
+
+            if (complete) {
+                packConverter.getMetrics().bytesWritten(Files.size(path));
+                return;
+            }
+        } catch (IOException e) {
+            delete(path);
+            if (complete) {
+                throw new UncheckedIOException(e);
+            }
+            return;
         }
+
+        // Already failing, so a truncated zip that looks valid must not be left behind
+        delete(path);
     }
 
-    public void generateFileList() {
-        generateFileList(sourceFolder);
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) { }
+    }
+
+    /**
+     * Read a file and compress it unless it is already compressed
+     */
+    private CompressedEntry compress(String file) throws IOException {
+        long start = System.nanoTime();
+        Path path = sourceFolder.resolve(file);
+
+        ZipArchiveEntry original = placeholders != null ? placeholders.getEntry(path) : null;
+        if (original != null) {
+            // Untouched by the converters, copied straight from the input when writing
+            return new CompressedEntry(file, path, original, null);
+        }
+
+        byte[] data = Files.readAllBytes(path);
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        ZipArchiveEntry ze = new ZipArchiveEntry(file);
+        ze.setCrc(crc.getValue());
+        ze.setSize(data.length);
+
+        byte[] compressed = shouldDeflate(file) ? deflate(data) : null;
+        if (compressed != null && compressed.length < data.length) {
+            ze.setMethod(ZipMethod.DEFLATED.getCode());
+            ze.setCompressedSize(compressed.length);
+            data = compressed;
+        } else {
+            ze.setMethod(ZipMethod.STORED.getCode());
+            ze.setCompressedSize(data.length);
+        }
+
+        compressTime.addAndGet(System.nanoTime() - start);
+        return new CompressedEntry(file, path, ze, data);
+    }
+
+    private boolean shouldDeflate(String file) {
+        if (level == Deflater.NO_COMPRESSION) {
+            return false;
+        }
+
+        int extension = file.lastIndexOf('.');
+        return extension == -1 || !STORED_EXTENSIONS.contains(file.substring(extension + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+
+            byte[] buffer = new byte[Math.max(64, data.length + data.length / 1000 + 64)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void write(ZipArchiveOutputStream zos, CompressedEntry entry, long time) throws IOException {
+        packConverter.log("File added " + entry.name);
+
+        ZipArchiveEntry ze;
+        if (entry.data == null) {
+            ZipArchiveEntry original = entry.entry;
+            ze = new ZipArchiveEntry(entry.name);
+            ze.setMethod(original.getMethod());
+            ze.setCrc(original.getCrc());
+            ze.setSize(original.getSize());
+            ze.setCompressedSize(original.getCompressedSize());
+            ze.setTime(original.getTime());
+            try (InputStream raw = placeholders.getRawInputStream(original)) {
+                zos.addRawArchiveEntry(ze, raw);
+            }
+            packConverter.getMetrics().bytesRead(original.getCompressedSize());
+        } else {
+            ze = entry.entry;
+            ze.setTime(time);
+            zos.addRawArchiveEntry(ze, new ByteArrayInputStream(entry.data));
+            packConverter.getMetrics().bytesRead(ze.getSize());
+        }
+
+        uncompressedSize.addAndGet(ze.getSize());
+        compressedSize.addAndGet(ze.getCompressedSize());
+        packConverter.getMetrics().fileTouched(entry.path);
     }
 
+    /**
+     * @return Total size of the files before compression
+     */
+    public long getUncompressedSize() {
+        return uncompressedSize.get();
+    }
 
-    public void generateFileList(File node) {
+    /**
+     * @return Total size of the compressed entry data
+     */
+    public long getCompressedSize() {
+        return compressedSize.get();
+    }
+
+    /**
+     * @return Compressed size divided by the uncompressed size, 1 if nothing was written
+     */
+    public double getCompressionRatio() {
+        long uncompressed = uncompressedSize.get();
+        return uncompressed == 0 ? 1 : (double) compressedSize.get() / uncompressed;
+    }
+
+    /**
+     * @return Time spent reading and compressing files in nanoseconds, summed over all threads
+     */
+    public long getCompressTime() {
+        return compressTime.get();
+    }
+
+    /**
+     * @return Names of the entries to write, see {@link #generateFileList()}
+     */
+    public List<String> getFileList() {
+        return Collections.unmodifiableList(fileList);
+    }
+
+    public void generateFileList() throws IOException {
+        long start = System.nanoTime();
+        generateFileList(sourceFolder);
+        listTime += System.nanoTime() - start;
+    }
+
+    public void generateFileList(Path node) throws IOException {
         // Add file only
-        if (node.isFile()) {
-            fileList.add(generateZipEntry(node.getAbsolutePath()));
+        if (Files.isRegularFile(node)) {
+            fileList.add(generateZipEntry(node));
         }
 
-        if (node.isDirectory()) {
-            String[] subNote = node.list();
-            for (String filename : subNote) {
-                generateFileList(new File(node, filename));
+        if (Files.isDirectory(node)) {
+            try (Stream<Path> subNote = Files.list(node)) {
+                for (Path path : (Iterable<Path>) subNote::iterator) {
+                    generateFileList(path);
+                }
             }
         }
     }
 
-    private String generateZipEntry(String file) {
-        return file.substring(sourceFolder.getAbsolutePath().length() + 1);
+    private String generateZipEntry(Path file) {
+        // Zip entries always use forward slashes, whatever the file system uses
+        StringBuilder entry = new StringBuilder();
+        for (Path name : sourceFolder.relativize(file)) {
+            if (entry.length() > 0) {
+                entry.append('/');
+            }
+            entry.append(name);
+        }
+        return entry.toString();
+    }
+
+    private static class CompressedEntry {
+        private final String name;
+        private final Path path;
+
+        // The entry to write, or the entry in the input zip to copy if there is no data
+        private final ZipArchiveEntry entry;
+        private final byte[] data;
+
+        private CompressedEntry(String name, Path path, ZipArchiveEntry entry, byte[] data) {
+            this.name = name;
+            this.path = path;
+            this.entry = entry;
+            this.data = data;
+        }
     }
 }
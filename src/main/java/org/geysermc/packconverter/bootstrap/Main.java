@@ -26,39 +26,226 @@
 
 package org.geysermc.packconverter.bootstrap;
 
+import org.geysermc.packconverter.api.BatchConverter;
+import org.geysermc.packconverter.api.BatchReport;
+import org.geysermc.packconverter.api.IncrementalConverter;
 import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.storage.DiskPackStorage;
+import org.geysermc.packconverter.api.storage.MemoryPackStorage;
+import org.geysermc.packconverter.api.storage.PackStorage;
+import org.geysermc.packconverter.api.utils.ConversionCache;
+import org.geysermc.packconverter.api.utils.MemoryBudget;
+import org.geysermc.packconverter.api.utils.PngEncoder;
+import org.geysermc.packconverter.api.utils.TgaEncoder;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
 
 public class Main {
 
+    /**
+     * Options of the command line, flags take no value and the rest are given as --name=value
+     */
+    private enum Option {
+        MEMORY("--memory", null, Scope.ANY, "convert without a temp folder"),
+        STREAMING("--streaming", null, Scope.ANY, "only extract the files that need converting"),
+        METRICS("--metrics", null, Scope.ANY, "write timings of every converter to a json file"),
+        CACHE("--cache", "<folder>", Scope.ANY, "reuse converter outputs of earlier conversions", value -> !value.isEmpty()),
+        LEVEL("--level", "<0-9>", Scope.ANY, "set the zip compression level", value -> value.matches("\\d")),
+        PNG("--png", "<fast|default|small>", Scope.ANY, "trade image encoding time against size", value -> PngEncoder.getPreset(value) != null),
+        TGA_RLE("--tga-rle", null, Scope.ANY, "run length encode tga images"),
+        BUDGET("--budget", "<megabytes>", Scope.ANY, "limit the memory used by decoded images", value -> value.matches("\\d+")),
+        PREVIOUS("--previous", "<mcpack>", Scope.SINGLE, "only convert what changed since an earlier conversion", value -> !value.isEmpty()),
+        PARALLEL("--parallel", "<packs>", Scope.BATCH, "set how many packs are converted at the same time", value -> value.matches("[1-9]\\d*"));
+
+        private final String name;
+        private final String value;
+        private final Scope scope;
+        private final String description;
+        private final Predicate<String> validator;
+
+        Option(String name, String value, Scope scope, String description) {
+            this(name, value, scope, description, null);
+        }
+
+        Option(String name, String value, Scope scope, String description, Predicate<String> validator) {
+            this.name = name;
+            this.value = value;
+            this.scope = scope;
+            this.description = description;
+            this.validator = validator;
+        }
+
+        private static Option get(String name) {
+            for (Option option : values()) {
+                if (option.name.equals(name)) {
+                    return option;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Which packs an option applies to
+     */
+    private enum Scope {
+        ANY,
+        SINGLE,
+        BATCH
+    }
+
     public static void main(String[] args) throws FileNotFoundException {
-        if (args.length != 1) {
-            throw new AssertionError("Please choose a .zip file to convert");
-        } else {
-            Path packFile = Paths.get(args[0]);
+        List<Path> packFiles = new ArrayList<>();
+        Map<Option, String> options = new EnumMap<>(Option.class);
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                packFiles.add(Paths.get(arg));
+                continue;
+            }
+
+            int split = arg.indexOf('=');
+            Option option = Option.get(split == -1 ? arg : arg.substring(0, split));
+            String value = split == -1 ? null : arg.substring(split + 1);
+            if (option == null || (option.value == null) != (value == null) || (value != null && !option.validator.test(value))) {
+                throw new AssertionError(String.format("Invalid option %s\n%s", arg, usage()));
+            }
+            options.put(option, value);
+        }
+
+        if (packFiles.isEmpty()) {
+            throw new AssertionError(usage());
+        }
 
+        for (Path packFile : packFiles) {
             // Check the file exists
             if (!packFile.toFile().exists()) {
                 throw new FileNotFoundException(String.format("Specified pack zip file not found (%s)", packFile.toString()));
             }
 
             // Check its a zip
-            if (!packFile.toString().endsWith(".zip")) {
+            if (!packFile.toFile().isDirectory() && !packFile.toString().endsWith(".zip")) {
                 throw new AssertionError(String.format("Specified pack is not a zip (%s)", packFile.toString()));
             }
+        }
+
+        boolean batch = packFiles.size() > 1 || packFiles.get(0).toFile().isDirectory();
+        for (Option option : options.keySet()) {
+            if (option.scope == (batch ? Scope.SINGLE : Scope.BATCH)) {
+                throw new AssertionError(String.format("%s can only be used when converting %s\n%s", option.name, batch ? "a single pack" : "many packs", usage()));
+            }
+        }
+
+        PackStorage storage = options.containsKey(Option.MEMORY) ? new MemoryPackStorage() : new DiskPackStorage();
+        boolean streaming = options.containsKey(Option.STREAMING);
+        boolean metrics = options.containsKey(Option.METRICS);
+        int level = options.containsKey(Option.LEVEL) ? Integer.parseInt(options.get(Option.LEVEL)) : Deflater.DEFAULT_COMPRESSION;
+        PngEncoder pngEncoder = options.containsKey(Option.PNG) ? PngEncoder.getPreset(options.get(Option.PNG)) : PngEncoder.DEFAULT;
+        TgaEncoder tgaEncoder = options.containsKey(Option.TGA_RLE) ? TgaEncoder.RLE : TgaEncoder.RAW;
+        MemoryBudget memoryBudget = options.containsKey(Option.BUDGET) ? new MemoryBudget(Long.parseLong(options.get(Option.BUDGET)) * 1024 * 1024) : null;
+
+        ConversionCache conversionCache = null;
+        try {
+            if (options.containsKey(Option.CACHE)) {
+                conversionCache = new ConversionCache(Paths.get(options.get(Option.CACHE)));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        if (!batch) {
+            Path packFile = packFiles.get(0);
+            Path output = Paths.get(packFile.toString().replaceFirst("[.][^.]+$", ".mcpack"));
+            Path metricsFile = Paths.get(packFile.toString().replaceFirst("[.][^.]+$", "_metrics.json"));
+
+            if (options.containsKey(Option.PREVIOUS)) {
+                try {
+                    IncrementalConverter incrementalConverter = new IncrementalConverter(packFile, output, Paths.get(options.get(Option.PREVIOUS)), Runtime.getRuntime().availableProcessors(), storage, streaming);
+                    incrementalConverter.setConversionCache(conversionCache);
+                    incrementalConverter.setCompressionLevel(level);
+                    incrementalConverter.setPngEncoder(pngEncoder);
+                    incrementalConverter.setTgaEncoder(tgaEncoder);
+                    incrementalConverter.setMemoryBudget(memoryBudget);
+                    incrementalConverter.convert();
+
+                    if (metrics) {
+                        incrementalConverter.getMetrics().writeJson(metricsFile);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                return;
+            }
 
             try {
-                PackConverter packConverter = new PackConverter(packFile, Paths.get(packFile.toString().replaceFirst("[.][^.]+$", ".mcpack")));
+                PackConverter packConverter = new PackConverter(packFile, output, Runtime.getRuntime().availableProcessors(), storage, streaming);
+                packConverter.setConversionCache(conversionCache);
+                packConverter.setCompressionLevel(level);
+                packConverter.setPngEncoder(pngEncoder);
+                packConverter.setTgaEncoder(tgaEncoder);
+                packConverter.setMemoryBudget(memoryBudget);
                 packConverter.convert();
                 packConverter.pack();
                 packConverter.cleanup();
-            } catch (IOException e) {
+
+                if (metrics) {
+                    packConverter.getMetrics().writeJson(metricsFile);
+                }
+            } catch (IOException | UncheckedIOException e) {
                 e.printStackTrace();
             }
+            return;
+        }
+
+        try {
+            List<Path> packs = new ArrayList<>();
+            for (Path packFile : packFiles) {
+                if (packFile.toFile().isDirectory()) {
+                    packs.addAll(BatchConverter.findPacks(packFile));
+                } else {
+                    packs.add(packFile);
+                }
+            }
+
+            int processors = Runtime.getRuntime().availableProcessors();
+            int parallel = options.containsKey(Option.PARALLEL) ? Integer.parseInt(options.get(Option.PARALLEL)) : Math.min(packs.size(), processors);
+
+            BatchConverter batchConverter = new BatchConverter(parallel, Math.max(1, processors / Math.max(1, parallel)), storage, streaming);
+            batchConverter.setWriteMetrics(metrics);
+            batchConverter.setConversionCache(conversionCache);
+            batchConverter.setCompressionLevel(level);
+            batchConverter.setPngEncoder(pngEncoder);
+            batchConverter.setTgaEncoder(tgaEncoder);
+            batchConverter.setMemoryBudget(memoryBudget);
+
+            BatchReport report = batchConverter.convert(packs);
+            System.out.println(report.getSummary());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String usage() {
+        StringBuilder usage = new StringBuilder("Please choose a .zip file to convert, or a folder or several .zip files to convert many packs at once, optionally followed by:");
+        for (Option option : Option.values()) {
+            String name = option.value == null ? option.name : option.name + "=" + option.value;
+            String scope = switch (option.scope) {
+                case SINGLE -> ", single pack only";
+                case BATCH -> ", many packs only";
+                default -> "";
+            };
+            usage.append(String.format("%n  %-30s %s%s", name, option.description, scope));
         }
+        return usage.toString();
     }
 }
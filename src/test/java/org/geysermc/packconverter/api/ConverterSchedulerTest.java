@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api;
+
+import org.geysermc.packconverter.api.converters.AbstractConverter;
+import org.geysermc.packconverter.api.storage.MemoryPackStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link ConverterScheduler} keeps converters touching the same paths in order and runs the rest concurrently
+ */
+public class ConverterSchedulerTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void readAfterWrite() throws IOException {
+        // Paths cover anything inside them
+        assertInOrder(converter("first", null, List.of("textures/block")),
+                converter("second", List.of("textures/block/stone.png"), List.of("textures/item")));
+    }
+
+    @Test
+    public void writeAfterRead() throws IOException {
+        assertInOrder(converter("first", List.of("textures/block/stone.png"), List.of("textures/item")),
+                converter("second", List.of("textures/entity"), List.of("textures/block")));
+    }
+
+    @Test
+    public void writeAfterWrite() throws IOException {
+        assertInOrder(converter("first", null, List.of("textures/block/stone.png")),
+                converter("second", null, List.of("textures/block/stone.png")));
+    }
+
+    @Test
+    public void wholePack() throws IOException {
+        // Null reads or writes anything in the pack
+        assertInOrder(converter("first", List.of("textures/block"), null),
+                converter("second", List.of("textures/item"), List.of("textures/item")));
+        assertInOrder(converter("first", List.of("textures/block"), List.of("textures/block")),
+                converter("second", null, List.of("textures/item")));
+    }
+
+    @Test
+    public void independent() throws IOException {
+        // Both only finish once the other has started, so this only passes if they run at the same time
+        CountDownLatch started = new CountDownLatch(2);
+        List<Boolean> concurrent = Collections.synchronizedList(new ArrayList<>());
+        Runnable body = () -> {
+            started.countDown();
+            try {
+                concurrent.add(started.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // Reading the same paths is fine
+        run(new TestConverter(List.of("textures/entity", "textures/block/stone.png"), List.of("textures/block/stone.png"), body),
+                new TestConverter(List.of("textures/entity", "textures/item/stick.png"), List.of("textures/item/stick.png"), body));
+        assertEquals(Arrays.asList(true, true), concurrent);
+    }
+
+    @Test
+    public void additionalConverters() throws IOException {
+        AbstractConverter additional = converter("additional", null, null);
+        TestConverter first = converter("first", List.of("a"), List.of("a"));
+        first.additional = List.of(additional);
+
+        List<AbstractConverter> result = run(converter("other", List.of("b"), List.of("b")), first);
+        assertEquals(List.of(additional), result);
+    }
+
+    /**
+     * Run two converters and check the second only started once the first had finished
+     */
+    private void assertInOrder(TestConverter first, TestConverter second) throws IOException {
+        events.clear();
+        run(first, second);
+        assertEquals(List.of("first start", "first end", "second start", "second end"), events);
+    }
+
+    private List<AbstractConverter> run(TestConverter... converters) throws IOException {
+        Path input = dir.resolve("pack.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(Files.newOutputStream(input))) {
+            stream.putNextEntry(new ZipEntry("pack.mcmeta"));
+            stream.write("{\"pack\":{\"pack_format\":6,\"description\":\"Test\"}}".getBytes());
+            stream.closeEntry();
+        }
+
+        PackConverter packConverter = new PackConverter(input, dir.resolve("pack.mcpack"), 1, new MemoryPackStorage());
+        packConverter.setOnLogListener(() -> { });
+        try {
+            for (TestConverter converter : converters) {
+                converter.attach(packConverter);
+            }
+            return new ConverterScheduler(4).run(Arrays.asList(converters));
+        } finally {
+            packConverter.cleanup();
+        }
+    }
+
+    /**
+     * Create a converter that takes a while, so a converter wrongly run next to it would start before it ends
+     */
+    private TestConverter converter(String name, Collection<String> reads, Collection<String> writes) {
+        return new TestConverter(reads, writes, () -> {
+            events.add(name + " start");
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(name + " end");
+        });
+    }
+
+    private static class TestConverter extends AbstractConverter {
+
+        private final Collection<String> reads;
+        private final Collection<String> writes;
+        private final Runnable body;
+        private List<AbstractConverter> additional = Collections.emptyList();
+
+        TestConverter(Collection<String> reads, Collection<String> writes, Runnable body) {
+            super(null, null, new Object[0]);
+            this.reads = reads;
+            this.writes = writes;
+            this.body = body;
+        }
+
+        void attach(PackConverter packConverter) {
+            this.packConverter = packConverter;
+        }
+
+        @Override
+        public List<AbstractConverter> convert() {
+            body.run();
+            return additional;
+        }
+
+        @Override
+        public Collection<String> getReadPaths() {
+            return reads;
+        }
+
+        @Override
+        public Collection<String> getWritePaths() {
+            return writes;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that converting a changed pack incrementally gives the same output as converting it whole
+ */
+public class IncrementalConverterTest {
+
+    private static final String BLOCKS = "assets/minecraft/textures/block/";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void deletedInput() throws IOException {
+        Map<String, byte[]> pack = pack();
+        Map<String, byte[]> changed = new TreeMap<>(pack);
+        // Blocked the rename of andesite.png, which takes its place now
+        changed.remove(BLOCKS + "stone_andesite.png");
+
+        assertSameAsFull(pack, changed);
+    }
+
+    @Test
+    public void modifiedInput() throws IOException {
+        Map<String, byte[]> pack = pack();
+        Map<String, byte[]> changed = new TreeMap<>(pack);
+        changed.put(BLOCKS + "stone.png", png(0xFF00FF00));
+        changed.put(BLOCKS + "stone_andesite.png", png(0xFF0000FF));
+
+        assertSameAsFull(pack, changed);
+    }
+
+    @Test
+    public void addedInput() throws IOException {
+        Map<String, byte[]> pack = pack();
+        Map<String, byte[]> changed = new TreeMap<>(pack);
+        changed.put(BLOCKS + "dirt.png", png(0xFF806040));
+        changed.put("assets/minecraft/textures/item/stick.png", png(0x80604020));
+
+        assertSameAsFull(pack, changed);
+    }
+
+    /**
+     * Convert the first pack, then the second pack both incrementally and whole and compare the outputs
+     */
+    private void assertSameAsFull(Map<String, byte[]> first, Map<String, byte[]> second) throws IOException {
+        Path previous = dir.resolve("previous.mcpack");
+        convert(zip("first.zip", first), previous);
+
+        Path input = zip("second.zip", second);
+        Path incremental = dir.resolve("incremental.mcpack");
+        IncrementalConverter converter = new IncrementalConverter(input, incremental, previous);
+        converter.setOnLogListener(() -> { });
+        converter.convert();
+
+        Path full = dir.resolve("full.mcpack");
+        convert(input, full);
+
+        Map<String, byte[]> expected = read(full);
+        Map<String, byte[]> actual = read(incremental);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), entry.getKey());
+        }
+    }
+
+    private static Map<String, byte[]> pack() throws IOException {
+        Map<String, byte[]> pack = new TreeMap<>();
+        pack.put("pack.mcmeta", "{\"pack\":{\"pack_format\":6,\"description\":\"Test\"}}".getBytes());
+        pack.put(BLOCKS + "andesite.png", png(0xFF808080));
+        pack.put(BLOCKS + "stone_andesite.png", png(0xFF909090));
+        pack.put(BLOCKS + "stone.png", png(0xFF707070));
+        return pack;
+    }
+
+    private static void convert(Path input, Path output) throws IOException {
+        PackConverter packConverter = new PackConverter(input, output);
+        packConverter.setOnLogListener(() -> { });
+        try {
+            packConverter.convert();
+            packConverter.pack();
+        } finally {
+            packConverter.cleanup();
+        }
+    }
+
+    private Path zip(String name, Map<String, byte[]> entries) throws IOException {
+        Path zip = dir.resolve(name);
+        try (ZipOutputStream stream = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                stream.putNextEntry(new ZipEntry(entry.getKey()));
+                stream.write(entry.getValue());
+                stream.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static Map<String, byte[]> read(Path zip) throws IOException {
+        Map<String, byte[]> entries = new TreeMap<>();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                String name = entry.getName().replace('\\', '/');
+                // The manifest gets new UUIDs every conversion
+                if (entry.isDirectory() || name.equals("manifest.json")) {
+                    continue;
+                }
+                entries.put(name, zipFile.getInputStream(entry).readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] png(int color) throws IOException {
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 16; x++) {
+                // Vary the pixels so every image encodes differently
+                image.setRGB(x, y, color ^ (x * 16 + y));
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.converters;
+
+import org.geysermc.packconverter.api.PackConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Checks that textures stored without an alpha channel or with a palette are edited in place the same way
+ * whether they are decoded by {@link org.geysermc.packconverter.api.utils.PngDecoder} or by ImageIO
+ */
+public class OverlayToTranslateConverterTest {
+
+    private static final String ITEMS = "assets/minecraft/textures/item/";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void opaqueAndIndexedTextures() throws IOException {
+        Random random = new Random(42);
+        BufferedImage rgb = new BufferedImage(16, 16, BufferedImage.TYPE_3BYTE_BGR);
+        BufferedImage indexed = new BufferedImage(16, 16, BufferedImage.TYPE_BYTE_INDEXED, palette(random));
+        BufferedImage overlay = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 16; x++) {
+                rgb.setRGB(x, y, random.nextInt());
+                indexed.setRGB(x, y, random.nextInt());
+                overlay.setRGB(x, y, random.nextBoolean() ? 0 : random.nextInt());
+            }
+        }
+
+        Map<String, BufferedImage> textures = new TreeMap<>();
+        textures.put(ITEMS + "leather_chestplate.png", rgb);
+        textures.put(ITEMS + "leather_chestplate_overlay.png", indexed);
+        textures.put(ITEMS + "leather_boots.png", indexed);
+        textures.put(ITEMS + "leather_boots_overlay.png", overlay);
+
+        // Interlaced PNGs are always read by ImageIO
+        Map<String, byte[]> expected = convert(textures, true);
+        Map<String, byte[]> actual = convert(textures, false);
+
+        assertEquals(expected.keySet(), actual.keySet());
+        assertNotNull(actual.get("textures/items/leather_chestplate.png"));
+        assertNotNull(actual.get("textures/items/leather_boots.tga"));
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            if (entry.getKey().endsWith(".png")) {
+                // The encoder may pick other chunks for the same pixels, so only compare those
+                assertSamePixels(entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+            } else {
+                assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), entry.getKey());
+            }
+        }
+    }
+
+    private static void assertSamePixels(String name, byte[] expected, byte[] actual) throws IOException {
+        BufferedImage expectedImage = ImageIO.read(new ByteArrayInputStream(expected));
+        BufferedImage actualImage = ImageIO.read(new ByteArrayInputStream(actual));
+        assertEquals(expectedImage.getWidth(), actualImage.getWidth(), name);
+        assertEquals(expectedImage.getHeight(), actualImage.getHeight(), name);
+        for (int y = 0; y < expectedImage.getHeight(); y++) {
+            for (int x = 0; x < expectedImage.getWidth(); x++) {
+                assertEquals(Integer.toHexString(expectedImage.getRGB(x, y)), Integer.toHexString(actualImage.getRGB(x, y)), name + " at " + x + "," + y);
+            }
+        }
+    }
+
+    private Map<String, byte[]> convert(Map<String, BufferedImage> textures, boolean interlaced) throws IOException {
+        String name = interlaced ? "interlaced" : "plain";
+        Path input = dir.resolve(name + ".zip");
+        try (ZipOutputStream stream = new ZipOutputStream(Files.newOutputStream(input))) {
+            stream.putNextEntry(new ZipEntry("pack.mcmeta"));
+            stream.write("{\"pack\":{\"pack_format\":6,\"description\":\"Test\"}}".getBytes());
+            stream.closeEntry();
+            for (Map.Entry<String, BufferedImage> texture : textures.entrySet()) {
+                stream.putNextEntry(new ZipEntry(texture.getKey()));
+                stream.write(png(texture.getValue(), interlaced));
+                stream.closeEntry();
+            }
+        }
+
+        Path output = dir.resolve(name + ".mcpack");
+        PackConverter packConverter = new PackConverter(input, output);
+        packConverter.setOnLogListener(() -> { });
+        try {
+            packConverter.convert();
+            packConverter.pack();
+        } finally {
+            packConverter.cleanup();
+        }
+
+        Map<String, byte[]> converted = new TreeMap<>();
+        try (ZipFile zipFile = new ZipFile(output.toFile())) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                String entryName = entry.getName().replace('\\', '/');
+                if (entryName.endsWith(".png") || entryName.endsWith(".tga")) {
+                    converted.put(entryName, zipFile.getInputStream(entry).readAllBytes());
+                }
+            }
+        }
+        return converted;
+    }
+
+    private static IndexColorModel palette(Random random) {
+        byte[] red = new byte[64];
+        byte[] green = new byte[64];
+        byte[] blue = new byte[64];
+        random.nextBytes(red);
+        random.nextBytes(green);
+        random.nextBytes(blue);
+        return new IndexColorModel(8, 64, red, green, blue);
+    }
+
+    private static byte[] png(BufferedImage image, boolean interlaced) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setProgressiveMode(interlaced ? ImageWriteParam.MODE_DEFAULT : ImageWriteParam.MODE_DISABLED);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = new MemoryCacheImageOutputStream(bytes)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.utils;
+
+import org.geysermc.packconverter.api.PackConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that a pruned or corrupted {@link ConversionCache} is treated as a miss instead of failing the conversion
+ */
+public class ConversionCacheTest {
+
+    private static final String BLOCKS = "assets/minecraft/textures/block/";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void reused() throws IOException {
+        Path input = pack();
+        ConversionCache cache = new ConversionCache(dir.resolve("cache"));
+        Map<String, byte[]> expected = convert(input, "first.mcpack", cache);
+
+        assertSame(expected, convert(input, "second.mcpack", cache));
+        assertEquals(cache.getMisses(), cache.getHits());
+    }
+
+    @Test
+    public void missingBlobs() throws IOException {
+        Path input = pack();
+        ConversionCache cache = new ConversionCache(dir.resolve("cache"));
+        Map<String, byte[]> expected = convert(input, "first.mcpack", cache);
+
+        List<Path> blobs = files(dir.resolve("cache/blobs"));
+        assertFalse(blobs.isEmpty());
+        for (int i = 0; i < blobs.size(); i += 2) {
+            Files.delete(blobs.get(i));
+        }
+
+        assertSame(expected, convert(input, "second.mcpack", cache));
+        // The broken entries were stored again, so the next run reuses everything
+        int misses = cache.getMisses();
+        assertSame(expected, convert(input, "third.mcpack", cache));
+        assertEquals(misses, cache.getMisses());
+    }
+
+    @Test
+    public void corruptedFiles() throws IOException {
+        Path input = pack();
+        ConversionCache cache = new ConversionCache(dir.resolve("cache"));
+        Map<String, byte[]> expected = convert(input, "first.mcpack", cache);
+
+        for (Path blob : files(dir.resolve("cache/blobs"))) {
+            Files.write(blob, new byte[] {1, 2, 3});
+        }
+        List<Path> entries = files(dir.resolve("cache/entries"));
+        Files.writeString(entries.get(0), "{\"files\":");
+
+        assertSame(expected, convert(input, "second.mcpack", cache));
+    }
+
+    private Map<String, byte[]> convert(Path input, String output, ConversionCache cache) throws IOException {
+        PackConverter packConverter = new PackConverter(input, dir.resolve(output));
+        packConverter.setOnLogListener(() -> { });
+        packConverter.setConversionCache(cache);
+        try {
+            packConverter.convert();
+            packConverter.pack();
+        } finally {
+            packConverter.cleanup();
+        }
+        return read(dir.resolve(output));
+    }
+
+    private Path pack() throws IOException {
+        Map<String, byte[]> entries = new TreeMap<>();
+        entries.put("pack.mcmeta", "{\"pack\":{\"pack_format\":6,\"description\":\"Test\"}}".getBytes());
+        entries.put(BLOCKS + "cactus_bottom.png", png(0xFF40A040));
+        entries.put(BLOCKS + "cactus_side.png", png(0xFF309030));
+        entries.put(BLOCKS + "fern.png", png(0x8020C020));
+        entries.put("assets/minecraft/textures/entity/blaze.png", png(0xFFC0A020));
+
+        Path zip = dir.resolve("pack.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                stream.putNextEntry(new ZipEntry(entry.getKey()));
+                stream.write(entry.getValue());
+                stream.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static void assertSame(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), entry.getKey());
+        }
+    }
+
+    private static List<Path> files(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static Map<String, byte[]> read(Path zip) throws IOException {
+        Map<String, byte[]> entries = new TreeMap<>();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                String name = entry.getName().replace('\\', '/');
+                // The manifest gets new UUIDs every conversion
+                if (entry.isDirectory() || name.equals("manifest.json")) {
+                    continue;
+                }
+                entries.put(name, zipFile.getInputStream(entry).readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] png(int color) throws IOException {
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 16; x++) {
+                image.setRGB(x, y, color ^ (x * 16 + y));
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import org.geysermc.packconverter.api.utils.ImageRemap.Transform;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that remaps draw the same as the {@link ImageUtils} crop, flip and rotate chains they replace
+ */
+public class ImageRemapTest {
+
+    @Test
+    public void oddSizedTransforms() {
+        Random random = new Random(1);
+        for (Transform transform : Transform.values()) {
+            for (int factor = 1; factor <= 3; factor++) {
+                for (int width = 1; width <= 5; width++) {
+                    for (int height = 1; height <= 5; height++) {
+                        BufferedImage source = image(random, 8 * factor, 8 * factor);
+                        BufferedImage base = image(random, 8 * factor, 8 * factor);
+
+                        BufferedImage expected = ImageUtils.copy(base);
+                        Graphics graphics = expected.getGraphics();
+                        graphics.drawImage(transform(ImageUtils.crop(source, factor, 2 * factor, width * factor, height * factor), transform), 2 * factor, factor, null);
+                        graphics.dispose();
+
+                        BufferedImage actual = ImageUtils.copy(base);
+                        ImageRemap.builder().copy(1, 2, width, height, 2, 1, transform).build().apply(actual, factor, source);
+
+                        assertSame(expected, actual, transform + " " + width + "x" + height + " at factor " + factor);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void randomLayouts() {
+        Random random = new Random(2);
+        for (int i = 0; i < 500; i++) {
+            int factor = 1 + random.nextInt(3);
+            int sourceWidth = 4 + random.nextInt(20);
+            int sourceHeight = 4 + random.nextInt(20);
+            BufferedImage first = image(random, sourceWidth * factor, sourceHeight * factor);
+            BufferedImage second = image(random, sourceWidth * factor, sourceHeight * factor);
+            BufferedImage base = random.nextBoolean() ? image(random, 16 * factor, 16 * factor) : new BufferedImage(16 * factor, 16 * factor, BufferedImage.TYPE_INT_ARGB);
+
+            BufferedImage expected = ImageUtils.copy(base);
+            Graphics graphics = expected.getGraphics();
+            ImageRemap.Builder builder = ImageRemap.builder();
+            for (int j = 0; j < 6; j++) {
+                // Regions partly outside the sources and the target, and regions read back from the target
+                int source = random.nextInt(3) - 1;
+                int x = random.nextInt(sourceWidth + 2) - 1;
+                int y = random.nextInt(sourceHeight + 2) - 1;
+                int width = 1 + random.nextInt(9);
+                int height = 1 + random.nextInt(9);
+                int toX = random.nextInt(18) - 2;
+                int toY = random.nextInt(18) - 2;
+                Transform transform = Transform.values()[random.nextInt(Transform.values().length)];
+
+                BufferedImage from = source == ImageRemap.TARGET ? expected : source == 0 ? first : second;
+                graphics.drawImage(transform(ImageUtils.crop(from, x * factor, y * factor, width * factor, height * factor), transform), toX * factor, toY * factor, null);
+                builder.from(source).copy(x, y, width, height, toX, toY, transform);
+            }
+            graphics.dispose();
+
+            BufferedImage actual = ImageUtils.copy(base);
+            builder.build().apply(actual, factor, first, second);
+
+            assertSame(expected, actual, "layout " + i);
+        }
+    }
+
+    private static BufferedImage transform(BufferedImage image, Transform transform) {
+        return switch (transform) {
+            case NONE -> image;
+            case FLIP_HORIZONTAL -> ImageUtils.flip(image, true, false);
+            case FLIP_VERTICAL -> ImageUtils.flip(image, false, true);
+            case ROTATE_90 -> ImageUtils.rotate(image, 90);
+            case ROTATE_180 -> ImageUtils.rotate(image, 180);
+            case ROTATE_270 -> ImageUtils.rotate(image, -90);
+        };
+    }
+
+    private static void assertSame(BufferedImage expected, BufferedImage actual, String message) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                // Fully transparent pixels have no color
+                int expectedPixel = expected.getRGB(x, y);
+                int actualPixel = actual.getRGB(x, y);
+                if (expectedPixel >>> 24 == 0) {
+                    expectedPixel = 0;
+                }
+                if (actualPixel >>> 24 == 0) {
+                    actualPixel = 0;
+                }
+                if (expectedPixel != actualPixel) {
+                    assertEquals(Integer.toHexString(expectedPixel), Integer.toHexString(actualPixel), message + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Random pixels, a quarter of them transparent and a quarter opaque
+     */
+    private static BufferedImage image(Random random, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = random.nextInt();
+                switch (random.nextInt(4)) {
+                    case 0 -> pixel &= 0x00FFFFFF;
+                    case 1 -> pixel |= 0xFF000000;
+                    default -> { }
+                }
+                image.setRGB(x, y, pixel);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.utils;
+
+import org.geysermc.packconverter.api.PackConverter;
+import org.geysermc.packconverter.api.converters.PngToTgaConverter;
+import org.geysermc.packconverter.api.converters.SpriteConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Checks that a conversion under a {@link MemoryBudget} far smaller than the pack finishes on several threads
+ * and gives the same output as one without a budget
+ */
+public class MemoryBudgetTest {
+
+    private static final int SCALE = 2;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void smallBudgetManyThreads() throws IOException {
+        Path input = pack();
+
+        Map<String, byte[]> expected = convert(input, "unbudgeted", 1, null);
+        // Less than the pixels of the sprites the largest sheet is made of
+        MemoryBudget memoryBudget = new MemoryBudget(2_000_000);
+        Map<String, byte[]> actual = assertTimeoutPreemptively(Duration.ofMinutes(2), () -> convert(input, "budgeted", 8, memoryBudget));
+        assertEquals(0, memoryBudget.getUsed());
+
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            if (entry.getKey().endsWith(".png")) {
+                // An image evicted before it is written back unchanged gets encoded again, so only compare the pixels
+                assertSamePixels(entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+            } else {
+                assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), entry.getKey());
+            }
+        }
+    }
+
+    private static void assertSamePixels(String name, byte[] expected, byte[] actual) throws IOException {
+        BufferedImage expectedImage = ImageIO.read(new ByteArrayInputStream(expected));
+        BufferedImage actualImage = ImageIO.read(new ByteArrayInputStream(actual));
+        assertEquals(expectedImage.getWidth(), actualImage.getWidth(), name);
+        assertEquals(expectedImage.getHeight(), actualImage.getHeight(), name);
+        for (int y = 0; y < expectedImage.getHeight(); y++) {
+            for (int x = 0; x < expectedImage.getWidth(); x++) {
+                assertEquals(expectedImage.getRGB(x, y), actualImage.getRGB(x, y), name + " at " + x + "," + y);
+            }
+        }
+    }
+
+    private Map<String, byte[]> convert(Path input, String name, int threads, MemoryBudget memoryBudget) throws IOException {
+        Path output = dir.resolve(name + ".mcpack");
+        PackConverter packConverter = new PackConverter(input, output, threads);
+        packConverter.setOnLogListener(() -> { });
+        packConverter.setMemoryBudget(memoryBudget);
+        try {
+            packConverter.convert();
+            packConverter.pack();
+        } finally {
+            packConverter.cleanup();
+        }
+
+        Map<String, byte[]> entries = new TreeMap<>();
+        try (ZipFile zipFile = new ZipFile(output.toFile())) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                String entryName = entry.getName().replace('\\', '/');
+                // The manifest gets new UUIDs every conversion
+                if (entry.isDirectory() || entryName.equals("manifest.json")) {
+                    continue;
+                }
+                entries.put(entryName, zipFile.getInputStream(entry).readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Make a pack with every sprite of the sprite sheets at twice their usual size,
+     * and the textures turned into TGAs which are converted by many converters at the same time
+     */
+    private Path pack() throws IOException {
+        Map<String, Integer> textures = new TreeMap<>();
+        for (Object[] data : PngToTgaConverter.defaultData) {
+            textures.put((String) data[0], 64 * SCALE);
+        }
+        for (Object[] data : SpriteConverter.defaultData) {
+            // Each sprite is its path, position in the sheet and usual width
+            for (Object sprite : (Object[]) data[2]) {
+                Object[] spriteData = (Object[]) sprite;
+                textures.put((String) spriteData[0], (Integer) spriteData[3] * SCALE);
+            }
+        }
+
+        Random random = new Random(42);
+        Path zip = dir.resolve("input.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(Files.newOutputStream(zip))) {
+            stream.putNextEntry(new ZipEntry("pack.mcmeta"));
+            stream.write("{\"pack\":{\"pack_format\":6,\"description\":\"Test\"}}".getBytes());
+            stream.closeEntry();
+            for (Map.Entry<String, Integer> texture : textures.entrySet()) {
+                stream.putNextEntry(new ZipEntry(texture.getKey()));
+                stream.write(png(texture.getValue(), random));
+                stream.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static byte[] png(int size, Random random) throws IOException {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that {@link PackLineage} credits reads and writes to the right converter run when runs nest on one thread,
+ * as they do when a converter waits on a thread that runs another one
+ */
+public class PackLineageTest {
+
+    @Test
+    public void nestedRuns() {
+        PackLineage lineage = new PackLineage();
+        lineage.extracted("a.png");
+        lineage.extracted("b.png");
+        lineage.extracted("c.png");
+
+        PackLineage.Run outer = lineage.begin("Outer");
+        lineage.read("a.png");
+
+        PackLineage.Run inner = lineage.begin("Inner");
+        lineage.read("b.png");
+        lineage.write("inner.png");
+        inner.close();
+
+        // The outer run records again, without what the inner run read
+        lineage.read("c.png");
+        lineage.write("outer.png");
+        outer.close();
+
+        assertOrigin(lineage, "inner.png", Set.of("b.png"), Set.of("Inner"));
+        assertOrigin(lineage, "outer.png", Set.of("a.png", "c.png"), Set.of("Outer"));
+
+        // Nothing is recording once both are closed
+        lineage.write("outside.png");
+        assertNull(lineage.getOrigin("outside.png"));
+    }
+
+    @Test
+    public void splitNestedRun() {
+        PackLineage lineage = new PackLineage();
+        lineage.extracted("a.png");
+        lineage.extracted("b.png");
+
+        PackLineage.Run outer = lineage.begin("Outer");
+        lineage.read("a.png");
+        lineage.write("outer.png");
+
+        PackLineage.Run inner = lineage.begin("Inner");
+        lineage.read("b.png");
+        lineage.write("first.png");
+        lineage.split();
+        lineage.write("second.png");
+        inner.close();
+
+        outer.close();
+
+        assertOrigin(lineage, "first.png", Set.of("b.png"), Set.of("Inner"));
+        assertOrigin(lineage, "second.png", Set.of(), Set.of("Inner"));
+        assertOrigin(lineage, "outer.png", Set.of("a.png"), Set.of("Outer"));
+    }
+
+    private static void assertOrigin(PackLineage lineage, String path, Set<String> inputs, Set<String> converters) {
+        PackLineage.Origin origin = lineage.getOrigin(path);
+        assertEquals(inputs, origin.getInputs(), path);
+        assertEquals(converters, origin.getConverters(), path);
+    }
+}
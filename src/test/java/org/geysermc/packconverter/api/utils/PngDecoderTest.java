@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that {@link PngDecoder} gives the same kind of image and the same pixels as ImageIO,
+ * and leaves the images it doesn't support to ImageIO
+ */
+public class PngDecoderTest {
+
+    private static final int GRAY = 0;
+    private static final int RGB = 2;
+    private static final int PALETTE = 3;
+    private static final int GRAY_ALPHA = 4;
+    private static final int RGBA = 6;
+
+    @Test
+    public void palette() throws IOException {
+        for (int bitDepth : new int[] {1, 2, 4, 8}) {
+            // Palettes smaller than the bit depth allows get padded, larger ones cut off
+            for (int entries : new int[] {1, 2, 3, 4, 5, 16, 17, 1 << bitDepth, (1 << bitDepth) + 3}) {
+                byte[] palette = new byte[entries * 3];
+                new Random(bitDepth * 31 + entries).nextBytes(palette);
+                assertSameAsImageIO(png(PALETTE, bitDepth, palette, null), "palette " + bitDepth + " with " + entries + " entries");
+
+                // Entries past the end of the transparency chunk are opaque
+                for (int alphas : new int[] {0, 1, entries / 2, entries, entries + 2}) {
+                    byte[] transparency = new byte[alphas];
+                    new Random(-alphas).nextBytes(transparency);
+                    assertSameAsImageIO(png(PALETTE, bitDepth, palette, transparency), "palette " + bitDepth + " with " + entries + " entries and " + alphas + " alphas");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rgb() throws IOException {
+        assertSameAsImageIO(png(RGB, 8, null, null), "rgb 8");
+        assertSameAsImageIO(png(RGB, 8, null, new byte[] {0, 7, 0, 7, 0, 7}), "rgb 8 keyed");
+        assertSameAsImageIO(png(RGB, 8, null, new byte[] {1, 7, 0, 7, 0, 7}), "rgb 8 keyed above 255");
+        assertSameAsImageIO(png(RGB, 8, null, new byte[] {0, 7, 0, 7}), "rgb 8 with a short tRNS chunk");
+    }
+
+    @Test
+    public void rgba() throws IOException {
+        assertSameAsImageIO(png(RGBA, 8, null, null), "rgba 8");
+    }
+
+    @Test
+    public void filters() throws IOException {
+        // The ImageIO writer picks a filter for every row
+        byte[] colors = new byte[48];
+        new Random(16).nextBytes(colors);
+        IndexColorModel colorModel = new IndexColorModel(4, 16, Arrays.copyOfRange(colors, 0, 16), Arrays.copyOfRange(colors, 16, 32), Arrays.copyOfRange(colors, 32, 48));
+        for (int type : new int[] {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_BYTE_BINARY}) {
+            // Packed pixels need a palette, or ImageIO writes them as gray
+            BufferedImage image = type == BufferedImage.TYPE_BYTE_BINARY ? new BufferedImage(37, 29, type, colorModel) : new BufferedImage(37, 29, type);
+            Random random = new Random(type);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    // Smooth gradients with some noise, so every filter type wins on some row
+                    image.setRGB(x, y, random.nextInt(4) << 24 | (x * 7 + y) << 16 | (y * 5) << 8 | random.nextInt(256));
+                }
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", bytes);
+            assertSameAsImageIO(bytes.toByteArray(), "image type " + type);
+        }
+    }
+
+    @Test
+    public void leftToImageIO() throws IOException {
+        for (int bitDepth : new int[] {1, 2, 4, 8, 16}) {
+            assertLeftToImageIO(png(GRAY, bitDepth, null, null), "gray " + bitDepth);
+            assertLeftToImageIO(png(GRAY, bitDepth, null, new byte[] {0, 1}), "gray " + bitDepth + " keyed");
+        }
+        assertLeftToImageIO(png(GRAY_ALPHA, 8, null, null), "gray alpha 8");
+        assertLeftToImageIO(png(GRAY_ALPHA, 16, null, null), "gray alpha 16");
+        assertLeftToImageIO(png(RGB, 16, null, null), "rgb 16");
+        assertLeftToImageIO(png(RGB, 16, null, new byte[] {7, 7, 7, 7, 7, 7}), "rgb 16 keyed");
+        assertLeftToImageIO(png(RGBA, 16, null, null), "rgba 16");
+    }
+
+    @Test
+    public void interlaced() throws IOException {
+        byte[] data = png(RGB, 8, null, null);
+        // Interlace method is the last byte of IHDR, before its CRC
+        data[8 + 8 + 12] = 1;
+        assertNull(PngDecoder.decode(data));
+    }
+
+    private static void assertLeftToImageIO(byte[] data, String message) throws IOException {
+        assertNull(PngDecoder.decode(data), message);
+
+        BufferedImage expected = ImageIO.read(new ByteArrayInputStream(data));
+        BufferedImage actual = ImageUtils.read(data);
+        assertEquals(expected.getType(), actual.getType(), message);
+        assertEquals(expected.getColorModel(), actual.getColorModel(), message);
+        assertSamePixels(expected, actual, message);
+    }
+
+    private static void assertSameAsImageIO(byte[] data, String message) throws IOException {
+        BufferedImage expected = ImageIO.read(new ByteArrayInputStream(data));
+        BufferedImage actual = PngDecoder.decode(data);
+        assertNotNull(actual, message);
+        if (expected.getType() == BufferedImage.TYPE_4BYTE_ABGR) {
+            // Holds the same pixels, only laid out differently
+            assertEquals(BufferedImage.TYPE_INT_ARGB, actual.getType(), message);
+        } else {
+            assertEquals(expected.getType(), actual.getType(), message);
+            assertEquals(expected.getColorModel(), actual.getColorModel(), message);
+            if (expected.getColorModel() instanceof IndexColorModel expectedModel) {
+                IndexColorModel actualModel = (IndexColorModel) actual.getColorModel();
+                int[] expectedColors = new int[expectedModel.getMapSize()];
+                int[] actualColors = new int[actualModel.getMapSize()];
+                expectedModel.getRGBs(expectedColors);
+                actualModel.getRGBs(actualColors);
+                assertArrayEquals(expectedColors, actualColors, message);
+            }
+        }
+        assertSamePixels(expected, actual, message);
+
+        // Converters edit images in place, which has to round colors the same way
+        Random random = new Random(data.length);
+        for (int i = 0; i < 64; i++) {
+            int x = random.nextInt(expected.getWidth());
+            int y = random.nextInt(expected.getHeight());
+            int color = random.nextInt();
+            expected.setRGB(x, y, color);
+            actual.setRGB(x, y, color);
+        }
+        assertSamePixels(expected, actual, message + " once edited");
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual, String message) {
+        assertEquals(expected.getWidth(), actual.getWidth(), message);
+        assertEquals(expected.getHeight(), actual.getHeight(), message);
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int expectedPixel = expected.getRGB(x, y);
+                int actualPixel = actual.getRGB(x, y);
+                if (expectedPixel != actualPixel) {
+                    assertEquals(Integer.toHexString(expectedPixel), Integer.toHexString(actualPixel), message + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a PNG with every possible sample value, rows are left unfiltered
+     */
+    private static byte[] png(int colorType, int bitDepth, byte[] palette, byte[] transparency) throws IOException {
+        int channels = switch (colorType) {
+            case RGB -> 3;
+            case GRAY_ALPHA -> 2;
+            case RGBA -> 4;
+            default -> 1;
+        };
+
+        // 16 bit gray gets a row for every high byte so every sample shows up
+        int width = 256;
+        int height = colorType == GRAY && bitDepth == 16 ? 256 : 3;
+        int rowLength = (width * channels * bitDepth + 7) / 8;
+        byte[] raw = new byte[height * (rowLength + 1)];
+        Random random = new Random(colorType * 31 + bitDepth);
+        for (int y = 0; y < height; y++) {
+            int row = y * (rowLength + 1) + 1;
+            for (int x = 0; x < width; x++) {
+                for (int channel = 0; channel < channels; channel++) {
+                    // The first channel goes through every value, any others are random
+                    int value = channel == 0 ? (bitDepth == 16 ? y << 8 | x : x) : random.nextInt(1 << 16);
+                    int index = x * channels + channel;
+                    if (bitDepth == 16) {
+                        raw[row + index * 2] = (byte) (value >> 8);
+                        raw[row + index * 2 + 1] = (byte) value;
+                    } else if (bitDepth == 8) {
+                        raw[row + index] = (byte) value;
+                    } else {
+                        int bit = index * bitDepth;
+                        raw[row + (bit >> 3)] |= (byte) ((value & ((1 << bitDepth) - 1)) << (8 - bitDepth - (bit & 7)));
+                    }
+                }
+            }
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(bitDepth);
+        headerData.writeByte(colorType);
+        headerData.writeByte(0);
+        headerData.writeByte(0);
+        headerData.writeByte(0);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream stream = new DeflaterOutputStream(compressed)) {
+            stream.write(raw);
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        png.write(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+        chunk(png, "IHDR", header.toByteArray());
+        if (palette != null) {
+            chunk(png, "PLTE", palette);
+        }
+        if (transparency != null) {
+            chunk(png, "tRNS", transparency);
+        }
+        chunk(png, "IDAT", compressed.toByteArray());
+        chunk(png, "IEND", new byte[0]);
+        return png.toByteArray();
+    }
+
+    private static void chunk(ByteArrayOutputStream png, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+
+        DataOutputStream stream = new DataOutputStream(png);
+        stream.writeInt(data.length);
+        stream.write(typeBytes);
+        stream.write(data);
+        stream.writeInt((int) crc.getValue());
+    }
+}
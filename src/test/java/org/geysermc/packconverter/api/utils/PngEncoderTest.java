@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that images written by {@link PngEncoder} read back the same with ImageIO
+ */
+public class PngEncoderTest {
+
+    @TempDir
+    Path dir;
+
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_PALETTE = 3;
+    private static final int COLOR_RGBA = 6;
+
+    @Test
+    public void everyFilter() throws IOException {
+        for (PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+            for (boolean palette : new boolean[] {false, true}) {
+                PngEncoder encoder = new PngEncoder(Deflater.DEFAULT_COMPRESSION, filter, palette);
+                for (int[] size : new int[][] {{1, 1}, {17, 9}, {64, 33}}) {
+                    // Enough colors to never fit a palette, so the filter is used
+                    assertRoundTrip(encoder, image(size[0], size[1], 1 << 24, false), encoder + " opaque " + size[0] + "x" + size[1]);
+                    assertRoundTrip(encoder, image(size[0], size[1], 1 << 24, true), encoder + " translucent " + size[0] + "x" + size[1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void paletteBitDepths() throws IOException {
+        PngEncoder encoder = new PngEncoder(Deflater.DEFAULT_COMPRESSION, PngEncoder.Filter.ADAPTIVE, true);
+        int[][] expected = {{2, 1}, {3, 2}, {4, 2}, {5, 4}, {16, 4}, {17, 8}, {256, 8}};
+        for (int[] colors : expected) {
+            // Odd widths leave part of the last byte of every row unused below 8 bits
+            for (boolean translucent : new boolean[] {false, true}) {
+                BufferedImage image = image(37, 11, colors[0], translucent);
+                byte[] png = assertRoundTrip(encoder, image, colors[0] + " colors");
+                assertEquals(COLOR_PALETTE, png[25], colors[0] + " colors");
+                assertEquals(colors[1], png[24], colors[0] + " colors");
+            }
+        }
+    }
+
+    @Test
+    public void tooManyColorsForPalette() throws IOException {
+        PngEncoder encoder = new PngEncoder(Deflater.DEFAULT_COMPRESSION, PngEncoder.Filter.ADAPTIVE, true);
+        byte[] png = assertRoundTrip(encoder, image(64, 64, 257, false), "opaque");
+        assertEquals(COLOR_RGB, png[25]);
+        png = assertRoundTrip(encoder, image(64, 64, 257, true), "translucent");
+        assertEquals(COLOR_RGBA, png[25]);
+    }
+
+    @Test
+    public void nonArgbImage() throws IOException {
+        BufferedImage image = new BufferedImage(13, 7, BufferedImage.TYPE_4BYTE_ABGR);
+        image.getGraphics().drawImage(image(13, 7, 1 << 24, true), 0, 0, null);
+        assertRoundTrip(PngEncoder.DEFAULT, image, "4 byte ABGR");
+        assertRoundTrip(PngEncoder.SMALL, image, "4 byte ABGR");
+    }
+
+    @Test
+    public void largeThenSmallImages() throws IOException {
+        // Buffers grown past what is kept between images are dropped, later images get new ones
+        BufferedImage large = new BufferedImage(1024, 640, BufferedImage.TYPE_4BYTE_ABGR);
+        large.getGraphics().drawImage(image(64, 40, 1 << 24, true), 0, 0, 1024, 640, null);
+        for (PngEncoder encoder : new PngEncoder[] {PngEncoder.FAST, PngEncoder.SMALL}) {
+            byte[] png = assertRoundTrip(encoder, large, encoder + " large");
+            Path output = dir.resolve("large.png");
+            assertEquals(png.length, encoder.write(large, output));
+            assertArrayEquals(png, Files.readAllBytes(output));
+
+            BufferedImage small = new BufferedImage(13, 7, BufferedImage.TYPE_4BYTE_ABGR);
+            small.getGraphics().drawImage(image(13, 7, 1 << 24, true), 0, 0, null);
+            assertRoundTrip(encoder, small, encoder + " small");
+        }
+    }
+
+    private static byte[] assertRoundTrip(PngEncoder encoder, BufferedImage image, String message) throws IOException {
+        byte[] png = encoder.encode(image);
+        BufferedImage read = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(image.getWidth(), read.getWidth(), message);
+        assertEquals(image.getHeight(), read.getHeight(), message);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int expected = image.getRGB(x, y);
+                int actual = read.getRGB(x, y);
+                if (expected != actual) {
+                    assertEquals(Integer.toHexString(expected), Integer.toHexString(actual), message + " at " + x + "," + y);
+                }
+            }
+        }
+        return png;
+    }
+
+    /**
+     * Create an image using the given amount of colors, all of them if it has enough pixels
+     */
+    private static BufferedImage image(int width, int height, int colors, boolean translucent) {
+        Random random = new Random(width * 31L + height + colors);
+        int[] palette = new int[Math.min(colors, width * height)];
+        for (int i = 0; i < palette.length; i++) {
+            int alpha = translucent ? (i % 3 == 0 ? 0 : i % 3 == 1 ? random.nextInt(256) : 0xFF) : 0xFF;
+            palette[i] = alpha << 24 | (i * 0x010101 + random.nextInt(1 << 24)) & 0xFFFFFF;
+        }
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int i = 0; i < width * height; i++) {
+            // Every color shows up once, then they are picked at random
+            int color = i < palette.length ? palette[i] : palette[random.nextInt(palette.length)];
+            image.setRGB(i % width, i / width, colors >= 1 << 24 ? (translucent ? random.nextInt() : 0xFF000000 | random.nextInt()) : color);
+        }
+        return image;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link RenameEngine} renames the way moves on disk would, with later renames seeing earlier ones
+ */
+public class RenameEngineTest {
+
+    private static final String TEXTURES = "textures/";
+
+    @Test
+    public void folderThenFile() {
+        RenameEngine engine = engine();
+
+        assertEquals(RenameEngine.Result.RENAMED, engine.rename(TEXTURES + "block", TEXTURES + "blocks"));
+        // The file rules that follow only find the files at their new place
+        assertEquals(RenameEngine.Result.MISSING, engine.rename(TEXTURES + "block/stone.png", TEXTURES + "block/stone_new.png"));
+        assertEquals(RenameEngine.Result.RENAMED, engine.rename(TEXTURES + "blocks/stone.png", TEXTURES + "blocks/stone_new.png"));
+        assertEquals(RenameEngine.Result.RENAMED, engine.rename(TEXTURES + "blocks/ore/iron.png", TEXTURES + "blocks/iron_ore.png"));
+
+        assertFalse(engine.exists(TEXTURES + "block"));
+        assertFalse(engine.exists(TEXTURES + "blocks/stone.png"));
+        assertTrue(engine.exists(TEXTURES + "blocks/stone_new.png"));
+        assertTrue(engine.exists(TEXTURES + "blocks/iron_ore.png"));
+        assertTrue(engine.exists(TEXTURES + "blocks/ore"));
+        // Only what is inside the folder moves, not siblings that start with the same name
+        assertTrue(engine.exists(TEXTURES + "block_old/dirt.png"));
+    }
+
+    @Test
+    public void folderIntoRenamedFolder() {
+        RenameEngine engine = engine();
+
+        assertEquals(RenameEngine.Result.RENAMED, engine.rename(TEXTURES + "block", TEXTURES + "blocks"));
+        assertEquals(RenameEngine.Result.RENAMED, engine.rename(TEXTURES + "item", TEXTURES + "blocks/item"));
+        assertTrue(engine.exists(TEXTURES + "blocks/item/stick.png"));
+        assertEquals(RenameEngine.Result.RENAMED, engine.rename(TEXTURES + "blocks/item/stick.png", TEXTURES + "stick.png"));
+        assertTrue(engine.exists(TEXTURES + "stick.png"));
+    }
+
+    @Test
+    public void missingSource() {
+        RenameEngine engine = engine();
+
+        assertEquals(RenameEngine.Result.MISSING, engine.rename(TEXTURES + "entity", TEXTURES + "entities"));
+        assertEquals(RenameEngine.Result.MISSING, engine.rename(TEXTURES + "block/dirt.png", TEXTURES + "block/grass.png"));
+        assertFalse(engine.exists(TEXTURES + "entities"));
+    }
+
+    @Test
+    public void targetExists() {
+        RenameEngine engine = engine();
+
+        assertEquals(RenameEngine.Result.FAILED, engine.rename(TEXTURES + "block/stone.png", TEXTURES + "block/ore/iron.png"));
+        assertEquals(RenameEngine.Result.FAILED, engine.rename(TEXTURES + "block_old", TEXTURES + "block"));
+        // Trailing slashes name the same folder
+        assertEquals(RenameEngine.Result.FAILED, engine.rename(TEXTURES + "item/", TEXTURES + "block/"));
+        assertUnchanged(engine);
+    }
+
+    @Test
+    public void targetParentMissing() {
+        RenameEngine engine = engine();
+
+        assertEquals(RenameEngine.Result.FAILED, engine.rename(TEXTURES + "block/stone.png", TEXTURES + "blocks/stone.png"));
+        assertEquals(RenameEngine.Result.FAILED, engine.rename(TEXTURES + "item", "models/item/item"));
+        assertFalse(engine.exists(TEXTURES + "blocks"));
+        assertUnchanged(engine);
+    }
+
+    @Test
+    public void targetInsideSource() {
+        RenameEngine engine = engine();
+
+        assertEquals(RenameEngine.Result.FAILED, engine.rename(TEXTURES + "block", TEXTURES + "block/ore/block"));
+        assertUnchanged(engine);
+    }
+
+    @Test
+    public void sameTarget() {
+        RenameEngine engine = engine();
+
+        assertEquals(RenameEngine.Result.RENAMED, engine.rename(TEXTURES + "block", TEXTURES + "block/"));
+        assertUnchanged(engine);
+    }
+
+    private static RenameEngine engine() {
+        return new RenameEngine(List.of(
+                TEXTURES + "block/stone.png",
+                TEXTURES + "block/ore/iron.png",
+                TEXTURES + "block_old/dirt.png",
+                TEXTURES + "item/stick.png"
+        ), List.of(TEXTURES + "empty"));
+    }
+
+    private static void assertUnchanged(RenameEngine engine) {
+        for (String path : List.of("textures", TEXTURES + "block", TEXTURES + "block/stone.png", TEXTURES + "block/ore/iron.png",
+                TEXTURES + "block_old/dirt.png", TEXTURES + "item/stick.png", TEXTURES + "empty")) {
+            assertTrue(engine.exists(path), path);
+        }
+    }
+}
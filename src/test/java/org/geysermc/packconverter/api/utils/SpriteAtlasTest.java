@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+package org.geysermc.packconverter.api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that sprite sheets come out the same as drawing the scaled sprites with {@link Graphics#drawImage},
+ * on new sheets and on existing sheets of any type
+ */
+public class SpriteAtlasTest {
+
+    @Test
+    public void newSheet() {
+        Random random = new Random(1);
+        assertSameAsGraphics(random, new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB), false);
+    }
+
+    @Test
+    public void graySprites() {
+        // Gray sprites are converted to ARGB the same way ImageUtils#scale does
+        Random random = new Random(3);
+        BufferedImage expected = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        SpriteAtlas atlas = new SpriteAtlas(64, 64);
+        Graphics graphics = expected.getGraphics();
+        for (int scale = 1; scale <= 4; scale++) {
+            BufferedImage sprite = image(random, BufferedImage.TYPE_BYTE_GRAY);
+            graphics.drawImage(ImageUtils.scale(sprite, scale), scale * 8, scale * 8, null);
+            atlas.blit(sprite, scale * 8, scale * 8, scale);
+        }
+        graphics.dispose();
+        assertSame(expected, atlas.getImage(), "gray sprites");
+    }
+
+    @Test
+    public void existingSheets() {
+        Random random = new Random(2);
+        byte[] colors = new byte[3 * 16];
+        random.nextBytes(colors);
+        IndexColorModel palette = new IndexColorModel(8, 16, colors, 0, false);
+
+        assertSameAsGraphics(random, image(random, BufferedImage.TYPE_INT_ARGB), true);
+        assertSameAsGraphics(random, image(random, BufferedImage.TYPE_4BYTE_ABGR), true);
+        assertSameAsGraphics(random, image(random, BufferedImage.TYPE_3BYTE_BGR), true);
+        assertSameAsGraphics(random, image(random, BufferedImage.TYPE_BYTE_GRAY), true);
+        // Sprites drawn on a palette sheet are rounded to the colors of the palette
+        BufferedImage indexed = new BufferedImage(32, 32, BufferedImage.TYPE_BYTE_INDEXED, palette);
+        indexed.getGraphics().drawImage(image(random, BufferedImage.TYPE_INT_ARGB), 0, 0, null);
+        assertSameAsGraphics(random, indexed, true);
+    }
+
+    private static void assertSameAsGraphics(Random random, BufferedImage sheet, boolean existing) {
+        BufferedImage expected = ImageUtils.copy(sheet);
+        BufferedImage copy = ImageUtils.copy(sheet);
+        SpriteAtlas atlas = existing ? new SpriteAtlas(copy) : new SpriteAtlas(sheet.getWidth(), sheet.getHeight());
+
+        Graphics graphics = expected.getGraphics();
+        for (int i = 0; i < 20; i++) {
+            // Sprites partly outside the sheet are cut off
+            BufferedImage sprite = sprite(random, 1 + random.nextInt(8), 1 + random.nextInt(8));
+            int scale = 1 + random.nextInt(3);
+            int x = random.nextInt(40) - 8;
+            int y = random.nextInt(40) - 8;
+            graphics.drawImage(ImageUtils.scale(sprite, scale), x, y, null);
+            atlas.blit(sprite, x, y, scale);
+        }
+        graphics.dispose();
+
+        assertEquals(expected.getType(), atlas.getImage().getType(), "sheet type " + sheet.getType());
+        assertSame(expected, atlas.getImage(), "sheet type " + sheet.getType());
+    }
+
+    private static void assertSame(BufferedImage expected, BufferedImage actual, String message) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int expectedPixel = expected.getRGB(x, y);
+                int actualPixel = actual.getRGB(x, y);
+                // Fully transparent pixels have no color
+                if (expectedPixel >>> 24 != 0 || actualPixel >>> 24 != 0) {
+                    assertEquals(Integer.toHexString(expectedPixel), Integer.toHexString(actualPixel), message + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    private static BufferedImage image(Random random, int type) {
+        BufferedImage image = new BufferedImage(32, 32, type);
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 32; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Random pixels, a third of them transparent and a third opaque
+     */
+    private static BufferedImage sprite(Random random, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = random.nextInt();
+                switch (random.nextInt(3)) {
+                    case 0 -> pixel &= 0x00FFFFFF;
+                    case 1 -> pixel |= 0xFF000000;
+                    default -> { }
+                }
+                image.setRGB(x, y, pixel);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that images written by {@link TgaEncoder} read back the same with the ImageIO plugin
+ */
+public class TgaEncoderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void raw() throws IOException {
+        for (BufferedImage image : images()) {
+            byte[] tga = assertRoundTrip(TgaEncoder.RAW, image);
+            assertEquals(2, tga[2]);
+            assertEquals(18 + image.getWidth() * image.getHeight() * 4, tga.length);
+        }
+    }
+
+    @Test
+    public void rle() throws IOException {
+        for (BufferedImage image : images()) {
+            byte[] tga = assertRoundTrip(TgaEncoder.RLE, image);
+            assertEquals(10, tga[2]);
+        }
+    }
+
+    @Test
+    public void rleFlatImage() throws IOException {
+        // Runs longer than a packet are split up, but never across rows
+        BufferedImage image = new BufferedImage(300, 5, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, y < 2 ? 0x80336699 : 0xFF000000 | y);
+            }
+        }
+
+        byte[] tga = assertRoundTrip(TgaEncoder.RLE, image);
+        // 3 run packets of 5 bytes for every row
+        assertEquals(18 + 5 * 3 * 5, tga.length);
+        assertTrue(tga.length < TgaEncoder.RAW.encode(image).length);
+    }
+
+    @Test
+    public void nonArgbImage() throws IOException {
+        BufferedImage image = new BufferedImage(13, 7, BufferedImage.TYPE_4BYTE_ABGR);
+        image.getGraphics().drawImage(images()[0], 0, 0, null);
+        assertRoundTrip(TgaEncoder.RAW, image);
+        assertRoundTrip(TgaEncoder.RLE, image);
+    }
+
+    @Test
+    public void largeThenSmallImages() throws IOException {
+        // Buffers grown past what is kept between images are dropped, later images get a new one
+        BufferedImage large = new BufferedImage(1024, 640, BufferedImage.TYPE_INT_ARGB);
+        large.getGraphics().drawImage(images()[5], 0, 0, 1024, 640, null);
+        for (TgaEncoder encoder : new TgaEncoder[] {TgaEncoder.RAW, TgaEncoder.RLE}) {
+            byte[] tga = assertRoundTrip(encoder, large);
+            Path output = dir.resolve("large.tga");
+            assertEquals(tga.length, encoder.write(large, output));
+            assertArrayEquals(tga, Files.readAllBytes(output));
+
+            for (BufferedImage image : images()) {
+                assertRoundTrip(encoder, image);
+            }
+        }
+    }
+
+    private static byte[] assertRoundTrip(TgaEncoder encoder, BufferedImage image) throws IOException {
+        String message = encoder + " " + image.getWidth() + "x" + image.getHeight();
+        byte[] tga = encoder.encode(image);
+        ImageIO.scanForPlugins();
+        BufferedImage read = ImageIO.read(new ByteArrayInputStream(tga));
+        assertNotNull(read, message);
+        assertEquals(image.getWidth(), read.getWidth(), message);
+        assertEquals(image.getHeight(), read.getHeight(), message);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int expected = image.getRGB(x, y);
+                int actual = read.getRGB(x, y);
+                if (expected != actual) {
+                    assertEquals(Integer.toHexString(expected), Integer.toHexString(actual), message + " at " + x + "," + y);
+                }
+            }
+        }
+        return tga;
+    }
+
+    /**
+     * Images with runs of every length, including ones ending a row and ones longer than a packet
+     */
+    private static BufferedImage[] images() {
+        Random random = new Random(7);
+        // The plugin can't read files smaller than a header and footer, so even the narrowest image is tall
+        int[][] sizes = {{13, 7}, {1, 64}, {2, 32}, {128, 3}, {129, 3}, {257, 4}};
+        BufferedImage[] images = new BufferedImage[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            BufferedImage image = new BufferedImage(sizes[i][0], sizes[i][1], BufferedImage.TYPE_INT_ARGB);
+            int x = 0;
+            int y = 0;
+            while (y < image.getHeight()) {
+                // Mostly single pixels and short runs, sometimes a long one
+                int length = random.nextInt(4) == 0 ? 1 + random.nextInt(200) : 1 + random.nextInt(3);
+                int color = random.nextInt();
+                for (int j = 0; j < length && y < image.getHeight(); j++) {
+                    image.setRGB(x, y, color);
+                    if (++x == image.getWidth()) {
+                        x = 0;
+                        y++;
+                    }
+                }
+            }
+            images[i] = image;
+        }
+        return images;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2019-2020 GeyserMC. http://geysermc.org
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ *  @author GeyserMC
+ *  @link https://github.com/GeyserMC/PackConverter
+ *
+ */
+
+
+package org.geysermc.packconverter.api.utils;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the {@link PixelKernels} masking row kernels, only loaded when the vector API is available
+ */
+class VectorPixelKernels implements PixelKernels.VectorBackend {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public int replaceTransparent(int[] src, int srcOffset, int[] dst, int dstOffset, int length, int replacement) {
+        int bound = INTS.loopBound(length);
+        for (int i = 0; i < bound; i += INTS.length()) {
+            IntVector argb = IntVector.fromArray(INTS, src, srcOffset + i);
+            argb.blend(replacement, argb.lanewise(VectorOperators.LSHR, 24).eq(0)).intoArray(dst, dstOffset + i);
+        }
+
+        return bound;
+    }
+
+    @Override
+    public int maskOverlay(int[] src, int srcOffset, int[] overlay, int overlayOffset, int[] dst, int dstOffset, int length, boolean reverse) {
+        int bound = INTS.loopBound(length);
+        for (int i = 0; i < bound; i += INTS.length()) {
+            IntVector alpha = IntVector.fromArray(INTS, src, srcOffset + i).lanewise(VectorOperators.LSHR, 24);
+            VectorMask<Integer> mask = reverse ? alpha.compare(VectorOperators.GT, 0) : alpha.compare(VectorOperators.LT, 255);
+
+            IntVector color = IntVector.fromArray(INTS, overlay, overlayOffset + i).and(0x00FFFFFF).or(2 << 24);
+            IntVector.fromArray(INTS, dst, dstOffset + i).blend(color, mask).intoArray(dst, dstOffset + i);
+        }
+
+        return bound;
+    }
+}